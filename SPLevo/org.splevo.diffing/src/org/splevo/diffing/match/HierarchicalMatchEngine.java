@@ -13,8 +13,12 @@
 package org.splevo.diffing.match;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 import org.apache.log4j.Logger;
 import org.eclipse.emf.common.notify.Notifier;
@@ -31,6 +35,7 @@ import org.eclipse.emf.compare.utils.IEqualityHelper;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.util.EcoreUtil;
 
 import com.google.common.collect.Iterators;
 import com.google.common.collect.Lists;
@@ -44,12 +49,33 @@ import com.google.common.collect.Lists;
  * This match engine does not support three-way matches. So the origin part of the scop is ignored
  * at all.
  * </p>
+ * <p>
+ * <b>Parallel Matching</b><br>
+ * With a parallelism greater than one, the pairs of resources and the sibling subtrees up to the
+ * member level are matched on a fork-join pool. The pairing of the elements on one level is still
+ * done sequentially so that the created match tree is the same as for a sequential matching. The
+ * equality and ignore strategies must be thread-safe.
+ * </p>
+ * <p>
+ * <b>Proxy Resolution</b><br>
+ * In both modes, the proxies in the contents of the compared resources are resolved before the
+ * matching starts. Other resources of the resource sets are only loaded if a compared element
+ * refers to them. The equality and ignore strategies should not resolve proxies during the
+ * matching because the resolution of a proxy which cannot be resolved still modifies the resource
+ * set and a concurrent matching reads the models while they are modified.
+ * </p>
  */
 public class HierarchicalMatchEngine implements IMatchEngine {
 
     /** The class logger to use. */
     private static Logger logger = Logger.getLogger(HierarchicalMatchEngine.class);
 
+    /**
+     * The depth in the containment hierarchy up to which sibling subtrees are matched in parallel.
+     * Starting at the root elements of a resource, it covers the types and their members.
+     */
+    private static final int MAX_PARALLEL_DEPTH = 3;
+
     /** The equality helper for the model. */
     private IEqualityHelper equalityHelper = null;
 
@@ -62,6 +88,12 @@ public class HierarchicalMatchEngine implements IMatchEngine {
     /** The resource matcher to find resources belonging together. */
     private IResourceMatcher resourceMatcher = null;
 
+    /** The number of threads to use for the matching. */
+    private int parallelism = 1;
+
+    /** The pool for the parallel matching. It only exists during a parallel matching. */
+    private ForkJoinPool pool = null;
+
     /**
      * Constructor to set the required dependencies.
      *
@@ -82,6 +114,29 @@ public class HierarchicalMatchEngine implements IMatchEngine {
         this.resourceMatcher = resourceMatcher;
     }
 
+    /**
+     * Constructor to set the required dependencies and the number of threads for the matching.
+     *
+     * @param equalityHelper
+     *            The equality helper to check equality and to be wired with the comparison model.
+     * @param equalityStrategy
+     *            The equality strategy to use. It must be thread-safe for a parallelism greater
+     *            than one.
+     * @param ignoreStrategy
+     *            the strategy which elements must not be matched and can be ignored. It must be
+     *            thread-safe for a parallelism greater than one.
+     * @param resourceMatcher
+     *            The matcher to decide if two resources belong to each other.
+     * @param parallelism
+     *            The number of threads to use for the matching. A value less than or equal to one
+     *            results in a sequential matching.
+     */
+    public HierarchicalMatchEngine(IEqualityHelper equalityHelper, EqualityStrategy equalityStrategy,
+            IgnoreStrategy ignoreStrategy, IResourceMatcher resourceMatcher, int parallelism) {
+        this(equalityHelper, equalityStrategy, ignoreStrategy, resourceMatcher);
+        this.parallelism = parallelism;
+    }
+
     @Override
     public Comparison match(IComparisonScope scope, Monitor monitor) {
 
@@ -91,7 +146,22 @@ public class HierarchicalMatchEngine implements IMatchEngine {
         Comparison comparison = createComparison();
         comparison.setThreeWay(false);
 
-        match(comparison, scope, left, right, monitor);
+        resolveProxies(scope, left);
+        resolveProxies(scope, right);
+
+        if (parallelism <= 1) {
+            match(comparison, scope, left, right, monitor);
+            return comparison;
+        }
+
+        // The complete matching runs within the pool so that subtrees can be forked at any level.
+        pool = new ForkJoinPool(parallelism);
+        try {
+            pool.invoke(ForkJoinTask.adapt(() -> match(comparison, scope, left, right, monitor)));
+        } finally {
+            pool.shutdown();
+            pool = null;
+        }
 
         return comparison;
     }
@@ -158,6 +228,11 @@ public class HierarchicalMatchEngine implements IMatchEngine {
         final IResourceMatcher matcher = createResourceMatcher();
         final Iterable<MatchResource> mappings = matcher.createMappings(leftChildren, rightChildren, originChildren);
 
+        if (pool != null) {
+            matchInParallel(comparison, Lists.newArrayList(mappings), monitor);
+            return;
+        }
+
         for (MatchResource mapping : mappings) {
             comparison.getMatchedResources().add(mapping);
 
@@ -169,6 +244,69 @@ public class HierarchicalMatchEngine implements IMatchEngine {
         }
     }
 
+    /**
+     * Match the resources of several mappings in parallel. The matches are added to the
+     * comparison in the order of the mappings after all resources have been matched.
+     *
+     * @param comparison
+     *            The comparison to which will be added detected matches.
+     * @param mappings
+     *            The mappings of the resources to match.
+     * @param monitor
+     *            The monitor to report progress or to check for cancellation
+     */
+    private void matchInParallel(Comparison comparison, List<MatchResource> mappings, Monitor monitor) {
+        List<ForkJoinTask<List<Match>>> tasks = new ArrayList<ForkJoinTask<List<Match>>>();
+        for (MatchResource mapping : mappings) {
+            tasks.add(ForkJoinTask.adapt(() -> match(comparison, getContents(mapping.getLeft()),
+                    getContents(mapping.getRight()), monitor, 0)).fork());
+        }
+
+        for (int i = 0; i < mappings.size(); i++) {
+            comparison.getMatchedResources().add(mappings.get(i));
+            comparison.getMatches().addAll(tasks.get(i).join());
+        }
+    }
+
+    /**
+     * Get the root elements of a resource.
+     *
+     * @param resource
+     *            The resource. Can be null.
+     * @return The root elements or an empty list if there is no resource.
+     */
+    private List<EObject> getContents(Resource resource) {
+        if (resource == null) {
+            return new ArrayList<EObject>();
+        }
+        return resource.getContents();
+    }
+
+    /**
+     * Resolve the proxies in the contents of the compared resources before they are matched.
+     * Otherwise, proxy resolutions during a parallel matching would modify the models and the
+     * shared resource set while they are read. Resources which are not covered by the scope are
+     * only loaded if a compared element refers to them.
+     *
+     * @param scope
+     *            The comparison scope which determines the compared resources of a resource set.
+     * @param notifier
+     *            The resource set, resource or element. Can be null.
+     */
+    private void resolveProxies(IComparisonScope scope, Notifier notifier) {
+        if (notifier instanceof ResourceSet) {
+            // The resources are collected first because the resolution can add resources.
+            List<Resource> resources = Lists.newArrayList(scope.getCoveredResources((ResourceSet) notifier));
+            for (Resource resource : resources) {
+                EcoreUtil.resolveAll(resource);
+            }
+        } else if (notifier instanceof Resource) {
+            EcoreUtil.resolveAll((Resource) notifier);
+        } else if (notifier instanceof EObject) {
+            EcoreUtil.resolveAll((EObject) notifier);
+        }
+    }
+
     /**
      * Build the matches for two given resources. The direct sub elements will be detected and
      * pushed into a match process for sub elements.
@@ -199,7 +337,7 @@ public class HierarchicalMatchEngine implements IMatchEngine {
             rightElements = rightRes.getContents();
         }
 
-        List<Match> matches = match(comparison, leftElements, rightElements, monitor);
+        List<Match> matches = match(comparison, leftElements, rightElements, monitor, 0);
         comparison.getMatches().addAll(matches);
     }
 
@@ -221,13 +359,15 @@ public class HierarchicalMatchEngine implements IMatchEngine {
         List<EObject> leftElements = Lists.newArrayList(left);
         List<EObject> rightElements = Lists.newArrayList(right);
 
-        List<Match> matches = match(comparison, leftElements, rightElements, monitor);
+        List<Match> matches = match(comparison, leftElements, rightElements, monitor, 0);
         comparison.getMatches().addAll(matches);
     }
 
     /**
      * Create matches for the provided elements and trigger a match process for the child elements
-     * in case of a match.
+     * in case of a match. During a parallel matching, the child elements of the matches are
+     * matched in forked tasks up to a maximum depth. The method waits for these tasks so that the
+     * returned matches are complete.
      *
      * @param comparison
      *            The comparison to fill up.
@@ -237,44 +377,85 @@ public class HierarchicalMatchEngine implements IMatchEngine {
      *            The right elements to find matches for.
      * @param monitor
      *            The monitor to track the progress.
+     * @param depth
+     *            The depth of the elements in the containment hierarchy starting with 0.
      * @return The list of created matches.
      */
     private List<Match> match(Comparison comparison, List<EObject> leftElements, List<EObject> rightElements,
-            Monitor monitor) {
+            Monitor monitor, int depth) {
 
         List<Match> matches = new ArrayList<Match>();
 
         List<EObject> leftElementsInScope = filterIgnoredElements(leftElements);
         List<EObject> rightElementsInScope = filterIgnoredElements(rightElements);
 
+        List<ForkJoinTask<?>> subtreeTasks = null;
+        if (pool != null && depth < MAX_PARALLEL_DEPTH) {
+            subtreeTasks = new ArrayList<ForkJoinTask<?>>();
+        }
+
+        MatchCandidates candidates = new MatchCandidates(rightElementsInScope);
+
         for (EObject leftElement : leftElementsInScope) {
             Match match = CompareFactory.eINSTANCE.createMatch();
             match.setLeft(leftElement);
 
-            for (EObject rightElement : rightElementsInScope) {
-                if (equalityStrategy.areEqual(leftElement, rightElement)) {
-                    rightElementsInScope.remove(rightElement);
-                    match.setRight(rightElement);
-                    List<Match> subMatches = match(comparison, leftElement.eContents(), rightElement.eContents(),
-                            monitor);
-                    match.getSubmatches().addAll(subMatches);
-                    break;
-                }
+            EObject rightElement = candidates.findEqualElement(leftElement);
+            if (rightElement != null) {
+                match.setRight(rightElement);
+                matchSubtrees(comparison, match, leftElement.eContents(), rightElement.eContents(), monitor, depth,
+                        subtreeTasks);
             }
             
             if (match.getRight() == null) {
-            	match.getSubmatches().addAll(match(comparison, leftElement.eContents(), new BasicEList<>(), monitor));
+            	matchSubtrees(comparison, match, leftElement.eContents(), new BasicEList<>(), monitor, depth,
+            	        subtreeTasks);
             }
 
             matches.add(match);
         }
 
-        List<Match> rightOnlyMatches = createMatchesForRightElements(rightElementsInScope);
+        if (subtreeTasks != null) {
+            subtreeTasks.forEach(ForkJoinTask::join);
+        }
+
+        List<Match> rightOnlyMatches = createMatchesForRightElements(candidates.getUnmatchedElements());
         matches.addAll(rightOnlyMatches);
 
         return matches;
     }
 
+    /**
+     * Match the child elements of a match and add the resulting matches as its submatches. If a
+     * list for subtree tasks is given, the child elements are matched in a forked task which is
+     * added to the list.
+     *
+     * @param comparison
+     *            The comparison to fill up.
+     * @param match
+     *            The match of the parent elements.
+     * @param leftChildren
+     *            The left child elements.
+     * @param rightChildren
+     *            The right child elements.
+     * @param monitor
+     *            The monitor to track the progress.
+     * @param depth
+     *            The depth of the parent elements in the containment hierarchy.
+     * @param subtreeTasks
+     *            The list for the forked tasks or null if the child elements are matched directly.
+     */
+    private void matchSubtrees(Comparison comparison, Match match, List<EObject> leftChildren,
+            List<EObject> rightChildren, Monitor monitor, int depth, List<ForkJoinTask<?>> subtreeTasks) {
+        if (subtreeTasks == null) {
+            match.getSubmatches().addAll(match(comparison, leftChildren, rightChildren, monitor, depth + 1));
+        } else {
+            // Only the forked task modifies the match so that no further synchronization is needed.
+            subtreeTasks.add(ForkJoinTask.adapt(() -> match.getSubmatches()
+                    .addAll(match(comparison, leftChildren, rightChildren, monitor, depth + 1))).fork());
+        }
+    }
+
     /**
      * Create match objects with only right references set for a list of new elements.
      *
@@ -355,6 +536,144 @@ public class HierarchicalMatchEngine implements IMatchEngine {
         return comparison;
     }
 
+    /**
+     * The right elements which can be matched with left elements on one level of the containment
+     * hierarchy. The elements are bucketed by the match keys of the equality strategy so that a left
+     * element is only compared with the elements of its bucket and the elements without a key. Among
+     * these candidates, the first equal element in the original order is selected as in a linear
+     * search. Left elements without a key are compared with all unmatched elements.
+     */
+    private class MatchCandidates {
+
+        /** The right elements in their original order. */
+        private final List<EObject> elements;
+
+        /** Flags for the right elements which are already matched. */
+        private final boolean[] matched;
+
+        /** The indices of the right elements by their match keys. */
+        private final Map<Object, Bucket> buckets = new HashMap<Object, Bucket>();
+
+        /** The indices of the right elements without a match key. */
+        private final Bucket keylessElements = new Bucket();
+
+        /**
+         * Constructor to bucket the right elements.
+         *
+         * @param elements
+         *            The right elements.
+         */
+        MatchCandidates(List<EObject> elements) {
+            this.elements = elements;
+            this.matched = new boolean[elements.size()];
+            for (int i = 0; i < elements.size(); i++) {
+                Object key = equalityStrategy.getMatchKey(elements.get(i));
+                if (key == null) {
+                    keylessElements.indices.add(i);
+                } else {
+                    buckets.computeIfAbsent(key, k -> new Bucket()).indices.add(i);
+                }
+            }
+        }
+
+        /**
+         * Find the first unmatched right element which is equal to a left element and mark it as
+         * matched.
+         *
+         * @param leftElement
+         *            The left element.
+         * @return The equal right element or null if there is none.
+         */
+        EObject findEqualElement(EObject leftElement) {
+            Object key = equalityStrategy.getMatchKey(leftElement);
+            if (key == null) {
+                for (int i = 0; i < elements.size(); i++) {
+                    if (isEqual(leftElement, i)) {
+                        return elements.get(i);
+                    }
+                }
+                return null;
+            }
+
+            Bucket bucket = buckets.get(key);
+            if (bucket == null) {
+                bucket = new Bucket();
+            }
+            bucket.skipMatched();
+            keylessElements.skipMatched();
+            int bucketPos = bucket.start;
+            int keylessPos = keylessElements.start;
+            // Merge both candidate lists in the original order of the right elements.
+            while (bucketPos < bucket.indices.size() || keylessPos < keylessElements.indices.size()) {
+                int index;
+                if (keylessPos >= keylessElements.indices.size() || (bucketPos < bucket.indices.size()
+                        && bucket.indices.get(bucketPos) < keylessElements.indices.get(keylessPos))) {
+                    index = bucket.indices.get(bucketPos++);
+                } else {
+                    index = keylessElements.indices.get(keylessPos++);
+                }
+                if (isEqual(leftElement, index)) {
+                    return elements.get(index);
+                }
+            }
+            return null;
+        }
+
+        /**
+         * Check if a left element is equal to an unmatched right element and mark the right element
+         * as matched in this case.
+         *
+         * @param leftElement
+         *            The left element.
+         * @param index
+         *            The index of the right element.
+         * @return True if they are equal.
+         */
+        private boolean isEqual(EObject leftElement, int index) {
+            if (!matched[index] && equalityStrategy.areEqual(leftElement, elements.get(index))) {
+                matched[index] = true;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * Get the right elements which have not been matched.
+         *
+         * @return The unmatched elements in their original order.
+         */
+        List<EObject> getUnmatchedElements() {
+            List<EObject> unmatchedElements = new ArrayList<EObject>();
+            for (int i = 0; i < elements.size(); i++) {
+                if (!matched[i]) {
+                    unmatchedElements.add(elements.get(i));
+                }
+            }
+            return unmatchedElements;
+        }
+
+        /**
+         * The ascending indices of right elements with the same match key.
+         */
+        private class Bucket {
+
+            /** The indices of the elements. */
+            private final List<Integer> indices = new ArrayList<Integer>();
+
+            /** The position of the first index whose element may be unmatched. */
+            private int start = 0;
+
+            /**
+             * Move the start position behind the leading matched elements.
+             */
+            void skipMatched() {
+                while (start < indices.size() && matched[indices.get(start)]) {
+                    start++;
+                }
+            }
+        }
+    }
+
     /**
      * A strategy function to check if two elements are equal.<br>
      * The strategy can assume that the compared elements are in the same model hierarchy.
@@ -372,6 +691,19 @@ public class HierarchicalMatchEngine implements IMatchEngine {
          * @return True if they can be assumed as equal, false if not.
          */
         public boolean areEqual(EObject left, EObject right);
+
+        /**
+         * Get a cheap key of an element for a pre-bucketing of the elements to compare. Two
+         * elements with different keys must never be equal, so that only elements with the same key
+         * are compared. Elements without a key are compared with all elements.
+         *
+         * @param element
+         *            The element to get the key for.
+         * @return The key or null if the element has no key. By default, no element has a key.
+         */
+        public default Object getMatchKey(EObject element) {
+            return null;
+        }
     }
 
     /**
@@ -34,6 +34,9 @@ public class HierarchicalMatchEngineFactory extends MatchEngineFactoryImpl {
 	/** The mode which resource matcher to use. */
 	private IResourceMatcher resourceMatcher;
 
+	/** The number of threads the created match engines use. */
+	private int parallelism = 1;
+
 	/**
 	 * Constructor to set the required match engine dependencies.
 	 * 
@@ -55,6 +58,28 @@ public class HierarchicalMatchEngineFactory extends MatchEngineFactoryImpl {
 		this.resourceMatcher = resourceMatcher;
 	}
 
+	/**
+	 * Constructor to set the required match engine dependencies and the number
+	 * of threads for the matching.
+	 * 
+	 * @param equalityHelper
+	 *            The equality helper to wire with the comparison model.
+	 * @param equalityStrategy
+	 *            The thread-safe equality strategy to use for element matching.
+	 * @param ignoreStrategy
+	 *            The thread-safe strategy to use to ignore elements.
+	 * @param resourceMatcher
+	 *            The resource matcher to identify matching resources.
+	 * @param parallelism
+	 *            The number of threads the match engines use.
+	 */
+	public HierarchicalMatchEngineFactory(IEqualityHelper equalityHelper,
+			EqualityStrategy equalityStrategy, IgnoreStrategy ignoreStrategy,
+			IResourceMatcher resourceMatcher, int parallelism) {
+		this(equalityHelper, equalityStrategy, ignoreStrategy, resourceMatcher);
+		this.parallelism = parallelism;
+	}
+
 	@Override
 	public boolean isMatchEngineFactoryFor(IComparisonScope scope) {
 		return true;
@@ -63,7 +88,7 @@ public class HierarchicalMatchEngineFactory extends MatchEngineFactoryImpl {
 	@Override
 	public IMatchEngine getMatchEngine() {
 		return new HierarchicalMatchEngine(equalityHelper, equalityStrategy,
-				ignoreStrategy, resourceMatcher);
+				ignoreStrategy, resourceMatcher, parallelism);
 	}
 
 }
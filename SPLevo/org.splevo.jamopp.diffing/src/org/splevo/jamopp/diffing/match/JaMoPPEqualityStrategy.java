@@ -42,4 +42,9 @@ public class JaMoPPEqualityStrategy implements EqualityStrategy {
         return false;
     }
 
+    @Override
+    public Object getMatchKey(EObject element) {
+        return similarityChecker.getMatchKey(element);
+    }
+
 }
\ No newline at end of file
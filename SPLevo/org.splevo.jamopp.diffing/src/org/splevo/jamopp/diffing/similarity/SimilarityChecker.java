@@ -12,22 +12,56 @@
  *******************************************************************************/
 package org.splevo.jamopp.diffing.similarity;
 
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 
 import org.apache.log4j.Logger;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.emftext.language.java.classifiers.AnonymousClass;
+import org.emftext.language.java.classifiers.ConcreteClassifier;
+import org.emftext.language.java.commons.NamedElement;
+import org.emftext.language.java.containers.CompilationUnit;
+import org.emftext.language.java.containers.Package;
+import org.emftext.language.java.members.Constructor;
+import org.emftext.language.java.members.Member;
+import org.emftext.language.java.members.MembersPackage;
+import org.emftext.language.java.members.Method;
+import org.emftext.language.java.parameters.Parameter;
+import org.emftext.language.java.variables.AdditionalLocalVariable;
+import org.emftext.language.java.variables.Variable;
+import org.emftext.language.java.variables.VariablesPackage;
+import org.splevo.jamopp.diffing.util.JaMoPPModelUtil;
 
+import com.google.common.base.Strings;
 import com.google.common.collect.Maps;
 
 /**
  * Checker for the similarity of two elements specific for the java application model.
  *
- * TODO: Check caching for this similarity checker. Would require to pass this to the similarity
- * switch as well!
+ * <p>
+ * A checker can be used by several threads at the same time as every thread uses its own
+ * similarity switches. The switches are reused for subsequent checks.
+ * </p>
  *
+ * <p>
+ * Optionally, the results of the checks are memoized per pair of elements so that pairs which are
+ * compared repeatedly, e.g., shared type references, are only checked once. As the memoized results
+ * are not invalidated, the memoization must only be enabled while the compared models do not
+ * change, e.g., for a single comparison.
+ * </p>
+ *
+ * <p>
+ * The resolution of proxies can be disabled while several threads use the checker because the
+ * resolution modifies the shared resource set even if a proxy cannot be resolved.
+ * </p>
  */
 public class SimilarityChecker {
 
@@ -38,7 +72,25 @@ public class SimilarityChecker {
     private LinkedHashMap<Pattern, String> classifierNormalizations = null;
     private LinkedHashMap<Pattern, String> compilationUnitNormalizations = null;
     private LinkedHashMap<Pattern, String> packageNormalizations = null;
-    private boolean defaultCheckStatementPositionFlag = true;
+    private volatile boolean defaultCheckStatementPositionFlag = true;
+    private volatile boolean proxyResolution = true;
+
+    /** The memoized results by the compared elements or null if no results are memoized. */
+    private volatile Map<SimilarityKey, Optional<Boolean>> memo = null;
+
+    /** The number of checks which looked up a memoized result. */
+    private final AtomicLong memoLookups = new AtomicLong();
+
+    /** The number of checks which found a memoized result. */
+    private final AtomicLong memoHits = new AtomicLong();
+
+    /** The idle switches of the current thread which check the statement positions. */
+    private final ThreadLocal<Deque<SimilaritySwitch>> idlePositionCheckingSwitches = ThreadLocal
+            .withInitial(ArrayDeque::new);
+
+    /** The idle switches of the current thread which ignore the statement positions. */
+    private final ThreadLocal<Deque<SimilaritySwitch>> idlePositionIgnoringSwitches = ThreadLocal
+            .withInitial(ArrayDeque::new);
 
     /**
      * Constructor to set the required configurations.
@@ -86,6 +138,74 @@ public class SimilarityChecker {
     	this.defaultCheckStatementPositionFlag = check;
     }
 
+    /**
+     * Indicates if the SimilarityChecker resolves a proxy which is compared to a resolved element.
+     *
+     * @return true if proxies are resolved. false otherwise.
+     */
+    public boolean resolvesProxies() {
+        return this.proxyResolution;
+    }
+
+    /**
+     * Controls if the SimilarityChecker resolves a proxy which is compared to a resolved element.
+     * It must be disabled if the checker is used by several threads at the same time. In this
+     * case, the proxies should be resolved before the checks.
+     *
+     * @param resolve
+     *            true if proxies are resolved. false otherwise.
+     */
+    public void setProxyResolution(boolean resolve) {
+        this.proxyResolution = resolve;
+    }
+
+    /**
+     * Controls if the results of the similarity checks are memoized. Enabling the memoization
+     * discards all previously memoized results and resets the statistics.
+     *
+     * @param memoize
+     *            true if the results are memoized. false otherwise.
+     */
+    public void setMemoization(boolean memoize) {
+        if (memoize) {
+            memoLookups.set(0);
+            memoHits.set(0);
+            memo = new ConcurrentHashMap<SimilarityKey, Optional<Boolean>>();
+        } else {
+            memo = null;
+        }
+    }
+
+    /**
+     * Get the number of similarity checks which looked up a memoized result since the memoization
+     * was enabled.
+     *
+     * @return the number of lookups.
+     */
+    public long getMemoLookups() {
+        return memoLookups.get();
+    }
+
+    /**
+     * Get the number of similarity checks which were answered by a memoized result since the
+     * memoization was enabled.
+     *
+     * @return the number of hits.
+     */
+    public long getMemoHits() {
+        return memoHits.get();
+    }
+
+    /**
+     * Get the ratio of similarity checks which were answered by a memoized result.
+     *
+     * @return the hit rate between 0 and 1. 0 if there were no lookups.
+     */
+    public double getMemoHitRate() {
+        long lookups = memoLookups.get();
+        return lookups == 0 ? 0 : (double) memoHits.get() / lookups;
+    }
+
     /**
      * Check two object lists if they are similar.
      *
@@ -153,10 +273,13 @@ public class SimilarityChecker {
         // TODO Clarify why it can happen that one proxy is resolved and the other is not
         // further notes available with the issue
         // https://sdqbuild.ipd.kit.edu/jira/browse/SPLEVO-279
-        if (element2.eIsProxy() && !element1.eIsProxy()) {
-            element2 = EcoreUtil.resolve(element2, element1);
-        } else if (element1.eIsProxy() && !element2.eIsProxy()) {
-            element1 = EcoreUtil.resolve(element1, element2);
+        // Without the resolution, the proxies were resolved in advance if possible.
+        if (this.proxyResolution) {
+            if (element2.eIsProxy() && !element1.eIsProxy()) {
+                element2 = EcoreUtil.resolve(element2, element1);
+            } else if (element1.eIsProxy() && !element2.eIsProxy()) {
+                element1 = EcoreUtil.resolve(element1, element2);
+            }
         }
 
         // check the elements to be of the same type
@@ -165,9 +288,93 @@ public class SimilarityChecker {
         }
 
         // check type specific similarity
-        return this.checkSimilarityForResolvedAndSameType(element1, element2, checkStatementPosition);
+        Map<SimilarityKey, Optional<Boolean>> currentMemo = this.memo;
+        if (currentMemo == null) {
+            return this.checkSimilarityForResolvedAndSameType(element1, element2, checkStatementPosition);
+        }
+
+        // The memo is not filled with computeIfAbsent because the check recursively looks up other
+        // results.
+        SimilarityKey key = new SimilarityKey(element1, element2, checkStatementPosition);
+        memoLookups.incrementAndGet();
+        Optional<Boolean> memoizedResult = currentMemo.get(key);
+        if (memoizedResult != null) {
+            memoHits.incrementAndGet();
+            return memoizedResult.orElse(null);
+        }
+        Boolean result = this.checkSimilarityForResolvedAndSameType(element1, element2, checkStatementPosition);
+        currentMemo.put(key, Optional.ofNullable(result));
+        return result;
     }
     
+    /**
+     * Get a cheap key for an element which is equal for all elements the element can be similar to.
+     * As a consequence, elements with different keys are never similar and do not need to be
+     * compared.
+     *
+     * The key consists of the type of the element and, for named Java elements, the name compared by
+     * the similarity switch. Methods and constructors additionally consider the number of
+     * parameters. Names which are normalized before their comparison are only part of the key if
+     * there are no normalizations. Subclasses which change the similarity of Java elements must
+     * override this method accordingly.
+     *
+     * @param element
+     *            The element to get the key for.
+     * @return The key or null if there is no element.
+     */
+    public Object getMatchKey(EObject element) {
+        if (element == null) {
+            return null;
+        }
+        return List.of(element.eClass(), getMatchSignature(element));
+    }
+
+    /**
+     * Get the part of the match key which depends on the attributes of an element.
+     *
+     * @param element
+     *            The element.
+     * @return The signature or an empty string if only the type of the element is considered.
+     */
+    private String getMatchSignature(EObject element) {
+        if (element instanceof AnonymousClass) {
+            return "";
+        }
+        if (element instanceof ConcreteClassifier) {
+            return classifierNormalizations.isEmpty() ? Strings.nullToEmpty(((ConcreteClassifier) element).getName())
+                    : "";
+        }
+        if (element instanceof CompilationUnit) {
+            return compilationUnitNormalizations.isEmpty() && packageNormalizations.isEmpty()
+                    ? Strings.nullToEmpty(((CompilationUnit) element).getName()) : "";
+        }
+        if (element instanceof Package) {
+            return packageNormalizations.isEmpty() ? JaMoPPModelUtil.buildNamespacePath((Package) element) : "";
+        }
+        if (element instanceof org.emftext.language.java.containers.Module) {
+            return Strings.nullToEmpty(((org.emftext.language.java.containers.Module) element).getName());
+        }
+        if (element instanceof Method) {
+            Method method = (Method) element;
+            return Strings.nullToEmpty(method.getName()) + "/" + method.getParameters().size();
+        }
+        if (element instanceof Constructor) {
+            Constructor constructor = (Constructor) element;
+            return Strings.nullToEmpty(constructor.getName()) + "/" + constructor.getParameters().size();
+        }
+        if (element instanceof Member && element.eClass().getEPackage() == MembersPackage.eINSTANCE) {
+            return Strings.nullToEmpty(((Member) element).getName());
+        }
+        if (element instanceof Parameter) {
+            return Strings.nullToEmpty(((Parameter) element).getName());
+        }
+        if ((element instanceof Variable || element instanceof AdditionalLocalVariable)
+                && element.eClass().getEPackage() == VariablesPackage.eINSTANCE) {
+            return Strings.nullToEmpty(((NamedElement) element).getName());
+        }
+        return "";
+    }
+
     /**
      * Checks the similarity of two EObjects where both EObjects are resolved and have the same type.
      * 
@@ -179,8 +386,23 @@ public class SimilarityChecker {
      */
     protected Boolean checkSimilarityForResolvedAndSameType(EObject element1, EObject element2,
     		boolean checkStatementPosition) {
-    	return new SimilaritySwitch(element2, checkStatementPosition, classifierNormalizations,
-    			compilationUnitNormalizations, packageNormalizations).doSwitch(element1);
+        Deque<SimilaritySwitch> idleSwitches = checkStatementPosition ? idlePositionCheckingSwitches.get()
+                : idlePositionIgnoringSwitches.get();
+        // Nested checks within the switch acquire further switches so that a switch is only reused
+        // after its check is finished.
+        SimilaritySwitch similaritySwitch = idleSwitches.poll();
+        if (similaritySwitch == null) {
+            similaritySwitch = new SimilaritySwitch(new NestedSimilarityChecker(this, checkStatementPosition),
+                    checkStatementPosition, classifierNormalizations, compilationUnitNormalizations,
+                    packageNormalizations);
+        }
+        try {
+            similaritySwitch.setCompareElement(element2);
+            return similaritySwitch.doSwitch(element1);
+        } finally {
+            similaritySwitch.setCompareElement(null);
+            idleSwitches.push(similaritySwitch);
+        }
     }
 
     /**
@@ -202,4 +424,92 @@ public class SimilarityChecker {
         return onlyOneIsNull;
     }
 
+    /**
+     * Checker for the nested elements within a similarity switch. It delegates all checks to the
+     * checker which created the switch and uses the statement position flag of the switch as
+     * default.
+     */
+    private static class NestedSimilarityChecker extends SimilarityChecker {
+
+        /** The checker to delegate to. */
+        private final SimilarityChecker parent;
+
+        /** The statement position flag of the switch. */
+        private final boolean checkStatementPosition;
+
+        /**
+         * Constructor to set the delegation target.
+         *
+         * @param parent
+         *            The checker to delegate to.
+         * @param checkStatementPosition
+         *            The statement position flag of the switch.
+         */
+        NestedSimilarityChecker(SimilarityChecker parent, boolean checkStatementPosition) {
+            super(parent.classifierNormalizations, parent.compilationUnitNormalizations,
+                    parent.packageNormalizations);
+            this.parent = parent;
+            this.checkStatementPosition = checkStatementPosition;
+            setCheckStatementPositionOnDefault(checkStatementPosition);
+        }
+
+        @Override
+        public Boolean isSimilar(EObject element1, EObject element2) {
+            return parent.isSimilar(element1, element2, checkStatementPosition);
+        }
+
+        @Override
+        public Boolean isSimilar(EObject element1, EObject element2, boolean checkStatementPosition) {
+            return parent.isSimilar(element1, element2, checkStatementPosition);
+        }
+    }
+
+    /**
+     * Key of a memoized result consisting of the identities of the compared elements and the
+     * statement position flag.
+     */
+    private static final class SimilarityKey {
+
+        /** The first compared element. */
+        private final EObject element1;
+
+        /** The second compared element. */
+        private final EObject element2;
+
+        /** The statement position flag of the check. */
+        private final boolean checkStatementPosition;
+
+        /**
+         * Constructor to set the key values.
+         *
+         * @param element1
+         *            The first compared element.
+         * @param element2
+         *            The second compared element.
+         * @param checkStatementPosition
+         *            The statement position flag of the check.
+         */
+        SimilarityKey(EObject element1, EObject element2, boolean checkStatementPosition) {
+            this.element1 = element1;
+            this.element2 = element2;
+            this.checkStatementPosition = checkStatementPosition;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof SimilarityKey)) {
+                return false;
+            }
+            SimilarityKey other = (SimilarityKey) obj;
+            return element1 == other.element1 && element2 == other.element2
+                    && checkStatementPosition == other.checkStatementPosition;
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = 31 * System.identityHashCode(element1) + System.identityHashCode(element2);
+            return checkStatementPosition ? hash : ~hash;
+        }
+    }
+
 }
@@ -184,10 +184,35 @@ public class SimilaritySwitch extends ComposedSwitch<Boolean> {
             LinkedHashMap<Pattern, String> classifierNormalizations,
             LinkedHashMap<Pattern, String> compilationUnitNormalizations,
             LinkedHashMap<Pattern, String> packageNormalizations) {
-        this.similarityChecker = new SimilarityChecker(classifierNormalizations, compilationUnitNormalizations,
+        this(new SimilarityChecker(classifierNormalizations, compilationUnitNormalizations, packageNormalizations),
+                checkStatementPosition, classifierNormalizations, compilationUnitNormalizations,
                 packageNormalizations);
         this.similarityChecker.setCheckStatementPositionOnDefault(checkStatementPosition);
         this.compareElement = compareElement;
+    }
+
+    /**
+     * Constructor for a switch which can be reused for several elements to compare with. The
+     * similarity of nested elements is checked with the given similarity checker.
+     * 
+     * @param similarityChecker
+     *            The checker for the similarity of nested elements.
+     * @param checkStatementPosition
+     *            Flag if the similarity check should consider the position of a statement or not.
+     * @param classifierNormalizations
+     *            A list of patterns replace any match in a classifier name with the defined
+     *            replacement string.
+     * @param compilationUnitNormalizations
+     *            A list of patterns replace any match in a compilation unit name with the defined
+     *            replacement string.
+     * @param packageNormalizations
+     *            A list of package normalization patterns.
+     */
+    public SimilaritySwitch(SimilarityChecker similarityChecker, boolean checkStatementPosition,
+            LinkedHashMap<Pattern, String> classifierNormalizations,
+            LinkedHashMap<Pattern, String> compilationUnitNormalizations,
+            LinkedHashMap<Pattern, String> packageNormalizations) {
+        this.similarityChecker = similarityChecker;
         addSwitch(new AnnotationsSimilaritySwitch());
         addSwitch(new ArraysSimilaritySwitch());
         addSwitch(new ClassifiersSimilaritySwitch(classifierNormalizations));
@@ -210,6 +235,16 @@ public class SimilaritySwitch extends ComposedSwitch<Boolean> {
         addSwitch(new ModulesSimilaritySwitch());
     }
 
+    /**
+     * Set the element to compare the switched elements with.
+     * 
+     * @param compareElement
+     *            The right-side / original element to check the similarity against.
+     */
+    public void setCompareElement(EObject compareElement) {
+        this.compareElement = compareElement;
+    }
+
     /**
      * Similarity decisions for annotation elements.
      */
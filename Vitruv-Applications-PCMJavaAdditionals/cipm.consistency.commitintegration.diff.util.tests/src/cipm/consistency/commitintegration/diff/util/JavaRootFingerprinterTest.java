@@ -0,0 +1,118 @@
+package cipm.consistency.commitintegration.diff.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.emftext.commons.layout.KeywordLayoutInformation;
+import org.emftext.commons.layout.LayoutFactory;
+import org.emftext.language.java.commons.CommonsPackage;
+import org.emftext.language.java.containers.CompilationUnit;
+import org.emftext.language.java.members.MembersPackage;
+import org.junit.jupiter.api.Test;
+
+import cipm.consistency.java.testutils.JavaModelTestUtils;
+
+/**
+ * Tests the structural fingerprints of Java root elements.
+ * 
+ * @author Martin Armbruster
+ */
+public class JavaRootFingerprinterTest {
+	private CompilationUnit createUser() {
+		CompilationUnit cu = JavaModelTestUtils.createCompilationUnit("User", "org", "example");
+		JavaModelTestUtils.addMethod(JavaModelTestUtils.getClass(cu), "getName");
+		return cu;
+	}
+
+	private String fingerprint(CompilationUnit cu) {
+		return new JavaRootFingerprinter().computeFingerprint(cu);
+	}
+
+	@Test
+	public void testEqualStructuresHaveEqualFingerprints() {
+		assertEquals(fingerprint(createUser()), fingerprint(createUser()));
+	}
+
+	@Test
+	public void testChangedNameChangesFingerprint() {
+		CompilationUnit changed = createUser();
+		JavaModelTestUtils.getClass(changed).getMethods().get(0).setName("getId");
+		assertNotEquals(fingerprint(createUser()), fingerprint(changed));
+	}
+
+	@Test
+	public void testAddedMemberChangesFingerprint() {
+		CompilationUnit changed = createUser();
+		JavaModelTestUtils.addMethod(JavaModelTestUtils.getClass(changed), "getId");
+		assertNotEquals(fingerprint(createUser()), fingerprint(changed));
+	}
+
+	@Test
+	public void testFingerprintDoesNotDependOnPositionInResource() {
+		var resourceSet = new ResourceSetImpl();
+		Resource first = JavaModelTestUtils.createResource(resourceSet, URI.createURI("test:/first.javaxmi"));
+		CompilationUnit firstUser = createUser();
+		CompilationUnit firstAddress = JavaModelTestUtils.createCompilationUnit("Address", "org", "example");
+		JavaModelTestUtils.addField(JavaModelTestUtils.getClass(firstUser), "address",
+				JavaModelTestUtils.getClass(firstAddress));
+		first.getContents().add(firstUser);
+		first.getContents().add(firstAddress);
+
+		Resource second = JavaModelTestUtils.createResource(resourceSet, URI.createURI("test:/second.javaxmi"));
+		CompilationUnit secondUser = createUser();
+		CompilationUnit secondAddress = JavaModelTestUtils.createCompilationUnit("Address", "org", "example");
+		JavaModelTestUtils.addField(JavaModelTestUtils.getClass(secondUser), "address",
+				JavaModelTestUtils.getClass(secondAddress));
+		second.getContents().add(JavaModelTestUtils.createCompilationUnit("Other", "org", "example"));
+		second.getContents().add(secondAddress);
+		second.getContents().add(secondUser);
+
+		assertEquals(fingerprint(firstUser), fingerprint(secondUser));
+		assertEquals(fingerprint(firstAddress), fingerprint(secondAddress));
+	}
+
+	@Test
+	public void testChangedReferenceTargetChangesFingerprint() {
+		CompilationUnit address = JavaModelTestUtils.createCompilationUnit("Address", "org", "example");
+		CompilationUnit street = JavaModelTestUtils.createCompilationUnit("Street", "org", "example");
+		CompilationUnit first = createUser();
+		JavaModelTestUtils.addField(JavaModelTestUtils.getClass(first), "address",
+				JavaModelTestUtils.getClass(address));
+		CompilationUnit second = createUser();
+		JavaModelTestUtils.addField(JavaModelTestUtils.getClass(second), "address",
+				JavaModelTestUtils.getClass(street));
+		assertNotEquals(fingerprint(first), fingerprint(second));
+	}
+
+	@Test
+	public void testLayoutInformationIsIgnored() {
+		CompilationUnit withLayout = createUser();
+		KeywordLayoutInformation layout = LayoutFactory.eINSTANCE.createKeywordLayoutInformation();
+		layout.setHiddenTokenText("\n\t// A comment.\n");
+		layout.setVisibleTokenText("class");
+		JavaModelTestUtils.getClass(withLayout).getLayoutInformations().add(layout);
+		assertEquals(fingerprint(createUser()), fingerprint(withLayout));
+	}
+
+	@Test
+	public void testKeyIdentifiesCompilationUnit() {
+		String key = JavaRootFingerprinter.computeKey(createUser());
+		assertTrue(key.startsWith("CompilationUnit:"));
+		assertEquals(key, JavaRootFingerprinter.computeKey(createUser()));
+		assertNotEquals(key, JavaRootFingerprinter.computeKey(
+				JavaModelTestUtils.createCompilationUnit("User", "org", "other")));
+		assertNotEquals(key, JavaRootFingerprinter.computeKey(
+				JavaModelTestUtils.createCompilationUnit("Person", "org", "example")));
+	}
+
+	@Test
+	public void testFingerprintedContainments() {
+		assertFalse(JavaRootFingerprinter.isFingerprinted(CommonsPackage.Literals.COMMENTABLE__LAYOUT_INFORMATIONS));
+		assertTrue(JavaRootFingerprinter.isFingerprinted(MembersPackage.Literals.MEMBER_CONTAINER__MEMBERS));
+	}
+}
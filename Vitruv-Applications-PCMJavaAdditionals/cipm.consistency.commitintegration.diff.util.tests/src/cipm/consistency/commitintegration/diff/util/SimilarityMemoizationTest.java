@@ -0,0 +1,162 @@
+package cipm.consistency.commitintegration.diff.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.compare.Comparison;
+import org.eclipse.emf.compare.Diff;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.emftext.language.java.classifiers.Class;
+import org.emftext.language.java.containers.CompilationUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.splevo.jamopp.diffing.similarity.SimilarityChecker;
+
+import cipm.consistency.java.testutils.JavaModelTestUtils;
+import cipm.consistency.tools.evaluation.data.ChangeStatistic;
+import cipm.consistency.tools.evaluation.data.EvaluationDataContainer;
+
+/**
+ * Tests that the memoized results of the similarity checks equal the checked
+ * results and that the memoized results are discarded between comparisons.
+ * 
+ * @author Martin Armbruster
+ */
+public class SimilarityMemoizationTest {
+	private static final URI MODEL_URI = URI.createURI("test:/model/units.javaxmi");
+
+	@AfterEach
+	public void resetGlobalContainer() {
+		EvaluationDataContainer.setGlobalContainer(null);
+	}
+
+	/**
+	 * Creates a state. In the changed state, a method is renamed in User, a method
+	 * is added to Order and Order references Address instead of User.
+	 * 
+	 * @param changed true for the changed state.
+	 * @return the Resource with the state.
+	 */
+	private Resource createState(boolean changed) {
+		Resource resource = JavaModelTestUtils.createResource(new ResourceSetImpl(), MODEL_URI);
+		CompilationUnit user = JavaModelTestUtils.createCompilationUnit("User", "org", "example");
+		CompilationUnit address = JavaModelTestUtils.createCompilationUnit("Address", "org", "example");
+		CompilationUnit order = JavaModelTestUtils.createCompilationUnit("Order", "org", "example");
+		Class userClass = JavaModelTestUtils.getClass(user);
+		Class addressClass = JavaModelTestUtils.getClass(address);
+		Class orderClass = JavaModelTestUtils.getClass(order);
+		JavaModelTestUtils.addMethod(userClass, changed ? "getId" : "getName");
+		JavaModelTestUtils.addField(userClass, "address", addressClass);
+		JavaModelTestUtils.addMethod(addressClass, "getStreet");
+		JavaModelTestUtils.addMethod(orderClass, "getTotal");
+		if (changed) {
+			JavaModelTestUtils.addMethod(orderClass, "getDate");
+		}
+		JavaModelTestUtils.addField(orderClass, "customer", changed ? addressClass : userClass);
+		resource.getContents().add(user);
+		resource.getContents().add(address);
+		resource.getContents().add(order);
+		return resource;
+	}
+
+	private static List<EObject> getAllContents(Resource resource) {
+		List<EObject> result = new ArrayList<>();
+		resource.getAllContents().forEachRemaining(result::add);
+		return result;
+	}
+
+	/**
+	 * Checks the similarity of all pairs of elements with the same type.
+	 * 
+	 * @param checker the checker to use.
+	 * @param newElements the elements of the new state.
+	 * @param oldElements the elements of the old state.
+	 * @return the results of the checks.
+	 */
+	private static List<Boolean> checkAll(SimilarityChecker checker, List<EObject> newElements,
+			List<EObject> oldElements) {
+		List<Boolean> results = new ArrayList<>();
+		for (EObject newElement : newElements) {
+			for (EObject oldElement : oldElements) {
+				if (newElement.eClass() == oldElement.eClass()) {
+					results.add(checker.isSimilar(newElement, oldElement));
+				}
+			}
+		}
+		return results;
+	}
+
+	private static List<String> describeDifferences(Comparison comparison) {
+		List<String> descriptions = new ArrayList<>();
+		for (Diff diff : comparison.getDifferences()) {
+			EObject element = diff.getMatch().getLeft() != null ? diff.getMatch().getLeft()
+					: diff.getMatch().getRight();
+			descriptions.add(diff.getKind() + " " + diff.eClass().getName() + " " + EcoreUtil.getURI(element));
+		}
+		return descriptions;
+	}
+
+	private Comparison compare(boolean memoizeSimilarity) {
+		Resource newState = createState(true);
+		Resource currentState = createState(false);
+		return JavaModelComparator.compareJavaModels(newState, currentState, null, null, null, false, 1,
+				memoizeSimilarity);
+	}
+
+	@Test
+	public void testMemoizedResultsEqualCheckedResults() {
+		List<EObject> newElements = getAllContents(createState(true));
+		List<EObject> oldElements = getAllContents(createState(false));
+		SimilarityChecker checker = new SimilarityChecker();
+		List<Boolean> expected = checkAll(checker, newElements, oldElements);
+		assertTrue(expected.contains(Boolean.TRUE));
+		assertTrue(expected.contains(Boolean.FALSE));
+
+		checker.setMemoization(true);
+		assertEquals(expected, checkAll(checker, newElements, oldElements));
+		long firstLookups = checker.getMemoLookups();
+		long firstHits = checker.getMemoHits();
+		// Every check of the second run is answered by a memoized result without further checks.
+		assertEquals(expected, checkAll(checker, newElements, oldElements));
+		assertEquals(firstLookups + expected.size(), checker.getMemoLookups());
+		assertEquals(firstHits + expected.size(), checker.getMemoHits());
+
+		// Enabling the memoization again discards the memoized results and the statistics.
+		checker.setMemoization(true);
+		assertEquals(0, checker.getMemoLookups());
+		assertEquals(expected, checkAll(checker, newElements, oldElements));
+		assertEquals(firstLookups, checker.getMemoLookups());
+		assertEquals(firstHits, checker.getMemoHits());
+	}
+
+	@Test
+	public void testMemoizedComparisonEqualsComparison() {
+		List<String> expected = describeDifferences(compare(false));
+		assertFalse(expected.isEmpty());
+		assertEquals(expected, describeDifferences(compare(true)));
+	}
+
+	@Test
+	public void testMemoIsResetBetweenComparisons() {
+		ChangeStatistic statistic = EvaluationDataContainer.getGlobalContainer().getChangeStatistic();
+		compare(true);
+		long lookups = statistic.getNumberSimilarityMemoLookups();
+		long hits = statistic.getNumberSimilarityMemoHits();
+		assertTrue(lookups > 0);
+		assertEquals((double) hits / lookups, statistic.getSimilarityMemoHitRate());
+
+		// A second comparison of equal states starts with an empty memo so that it has the same lookups and hits.
+		compare(true);
+		assertEquals(2 * lookups, statistic.getNumberSimilarityMemoLookups());
+		assertEquals(2 * hits, statistic.getNumberSimilarityMemoHits());
+		assertEquals((double) hits / lookups, statistic.getSimilarityMemoHitRate());
+	}
+}
@@ -3,10 +3,12 @@ package cipm.consistency.commitintegration.diff.util;
 import java.util.List;
 
 import org.eclipse.emf.compare.match.IMatchEngine;
+import org.eclipse.emf.compare.match.impl.MatchEngineFactoryRegistryImpl;
 import org.eclipse.emf.compare.match.eobject.EqualityHelperExtensionProvider;
 import org.eclipse.emf.compare.match.eobject.EqualityHelperExtensionProviderDescriptorRegistryImpl;
 import org.eclipse.emf.compare.rcp.EMFCompareRCPPlugin;
 import org.eclipse.emf.compare.utils.EqualityHelper;
+import org.splevo.diffing.match.HierarchicalMatchEngine.IgnoreStrategy;
 import org.splevo.diffing.match.HierarchicalMatchEngineFactory;
 import org.splevo.diffing.match.HierarchicalStrategyResourceMatcher;
 import org.splevo.jamopp.diffing.match.JaMoPPEqualityStrategy;
@@ -33,6 +35,44 @@ public final class HierarchicalMatchEngineFactoryGenerator {
 	 * @return the generated factory.
 	 */
 	public static HierarchicalMatchEngineFactory generateMatchEngineFactory(SimilarityChecker simChecker, String key) {
+		return generateMatchEngineFactory(simChecker, key, null);
+	}
+	
+	/**
+	 * Generates a HierarchicalMatchEngineFactory.
+	 * 
+	 * @param simChecker the SimilarityChecker which is internally used to compare model elements.
+	 * @param key a key to identify the compared models.
+	 * @param additionalIgnoreStrategy a strategy for elements which are ignored in addition to the default ones.
+	 *                                 Can be null.
+	 * @return the generated factory.
+	 */
+	public static HierarchicalMatchEngineFactory generateMatchEngineFactory(SimilarityChecker simChecker, String key,
+			IgnoreStrategy additionalIgnoreStrategy) {
+		return generateMatchEngineFactory(simChecker, key, additionalIgnoreStrategy, 1);
+	}
+	
+	/**
+	 * Generates a HierarchicalMatchEngineFactory whose match engines match independent resources and subtrees
+	 * in parallel. The SimilarityChecker does not resolve proxies regardless of the parallelism because the match
+	 * engines resolve the proxies of the compared resources in advance.
+	 * 
+	 * @param simChecker the SimilarityChecker which is internally used to compare model elements.
+	 * @param key a key to identify the compared models.
+	 * @param additionalIgnoreStrategy a thread-safe strategy for elements which are ignored in addition to the
+	 *                                 default ones. Can be null.
+	 * @param parallelism the number of threads for the matching. With one thread, the matching is sequential.
+	 * @return the generated factory.
+	 */
+	public static HierarchicalMatchEngineFactory generateMatchEngineFactory(SimilarityChecker simChecker, String key,
+			IgnoreStrategy additionalIgnoreStrategy, int parallelism) {
+		simChecker.setProxyResolution(false);
+		IgnoreStrategy ignoreStrategy = new JaMoPPIgnoreStrategy(new PackageIgnoreChecker(List.of()));
+		if (additionalIgnoreStrategy != null) {
+			IgnoreStrategy defaultIgnoreStrategy = ignoreStrategy;
+			ignoreStrategy = element -> defaultIgnoreStrategy.ignore(element)
+					|| additionalIgnoreStrategy.ignore(element);
+		}
 		EqualityHelperExtensionProvider.Descriptor.Registry descRegistryImpl =
 				EqualityHelperExtensionProviderDescriptorRegistryImpl.createStandaloneInstance();
 		descRegistryImpl.put(key, new SimilarityCheckerBasedEqualityHelperExtensionProviderDescriptor(simChecker));
@@ -40,8 +80,9 @@ public final class HierarchicalMatchEngineFactoryGenerator {
 				new EqualityHelper(EqualityHelper.createDefaultCache(
 						CacheBuilder.newBuilder()), descRegistryImpl),
 				new JaMoPPEqualityStrategy(simChecker),
-				new JaMoPPIgnoreStrategy(new PackageIgnoreChecker(List.of())),
-				new HierarchicalStrategyResourceMatcher());
+				ignoreStrategy,
+				new HierarchicalStrategyResourceMatcher(),
+				parallelism);
 	}
 	
 	/**
@@ -56,4 +97,20 @@ public final class HierarchicalMatchEngineFactoryGenerator {
 		engineRegistry.add(engineFactory);
 		return engineRegistry;
 	}
+	
+	/**
+	 * Generates a registry which only contains a specific match engine and the default match engine. In contrast
+	 * to {@link #generateMatchEngineRegistry(HierarchicalMatchEngineFactory)}, the global registry remains unchanged
+	 * so that a match engine for a single comparison can be used.
+	 * 
+	 * @param engineFactory the MatchEngineFactory which is registered in the generated registry.
+	 * @return the generated registry.
+	 */
+	public static IMatchEngine.Factory.Registry generateStandaloneMatchEngineRegistry(
+			HierarchicalMatchEngineFactory engineFactory) {
+		engineFactory.setRanking(20);
+		var engineRegistry = MatchEngineFactoryRegistryImpl.createStandaloneInstance();
+		engineRegistry.add(engineFactory);
+		return engineRegistry;
+	}
 }
@@ -0,0 +1,175 @@
+package cipm.consistency.commitintegration.diff.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.common.notify.Notifier;
+import org.eclipse.emf.common.util.Monitor;
+import org.eclipse.emf.compare.CompareFactory;
+import org.eclipse.emf.compare.Comparison;
+import org.eclipse.emf.compare.Match;
+import org.eclipse.emf.compare.postprocessor.IPostProcessor;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.splevo.diffing.match.HierarchicalMatchEngine.IgnoreStrategy;
+
+/**
+ * Pairs of root elements (compilation units, packages and modules) which are
+ * identical in two states of Java models according to their fingerprints. The
+ * identical root elements are ignored by the match engine. Instead, their
+ * matches are created by a parallel traversal after the matching so that
+ * references to their elements are still resolved. The differencing skips
+ * these matches.
+ * 
+ * @author Martin Armbruster
+ */
+class IdenticalJavaRoots implements IgnoreStrategy, IPostProcessor {
+	private Map<EObject, EObject> identicalRoots = new IdentityHashMap<>();
+	private Set<EObject> ignoredRoots = Collections.newSetFromMap(new IdentityHashMap<>());
+	private Set<Match> identicalMatches = Collections.newSetFromMap(new IdentityHashMap<>());
+
+	/**
+	 * Finds the identical root elements in two states.
+	 * 
+	 * @param newState         the new state.
+	 * @param currentState     the current or old state.
+	 * @param newResources     the Resources of the new state which are compared.
+	 *                         Can be null.
+	 * @param currentResources the Resources of the current state which are
+	 *                         compared. Can be null.
+	 */
+	IdenticalJavaRoots(Notifier newState, Notifier currentState, List<Resource> newResources,
+			List<Resource> currentResources) {
+		JavaRootFingerprinter fingerprinter = new JavaRootFingerprinter();
+		Map<String, EObject> currentRoots = new HashMap<>();
+		Map<String, String> currentFingerprints = new HashMap<>();
+		for (EObject root : getRoots(currentState, currentResources)) {
+			String key = JavaRootFingerprinter.computeKey(root);
+			// Root elements with the same key are left to the match engine.
+			if (currentRoots.putIfAbsent(key, root) == null) {
+				currentFingerprints.put(key, fingerprinter.computeFingerprint(root));
+			} else {
+				currentFingerprints.put(key, null);
+			}
+		}
+		fingerprinter = new JavaRootFingerprinter();
+		Set<String> newKeys = new HashSet<>();
+		for (EObject root : getRoots(newState, newResources)) {
+			String key = JavaRootFingerprinter.computeKey(root);
+			String currentFingerprint = currentFingerprints.get(key);
+			if (newKeys.add(key) && currentFingerprint != null
+					&& currentFingerprint.equals(fingerprinter.computeFingerprint(root))) {
+				identicalRoots.put(root, currentRoots.get(key));
+			}
+		}
+		identicalRoots.forEach((left, right) -> {
+			ignoredRoots.add(left);
+			ignoredRoots.add(right);
+		});
+	}
+
+	private static List<EObject> getRoots(Notifier state, List<Resource> resources) {
+		List<EObject> roots = new ArrayList<>();
+		if (state instanceof ResourceSet) {
+			for (Resource resource : ((ResourceSet) state).getResources()) {
+				if (resources == null || resources.contains(resource)) {
+					roots.addAll(resource.getContents());
+				}
+			}
+		} else if (state instanceof Resource) {
+			roots.addAll(((Resource) state).getContents());
+		} else if (state instanceof EObject) {
+			roots.add((EObject) state);
+		}
+		return roots;
+	}
+
+	/**
+	 * Returns the number of identical root elements.
+	 * 
+	 * @return the number.
+	 */
+	int size() {
+		return identicalRoots.size();
+	}
+
+	/**
+	 * Checks if a match belongs to an identical root element.
+	 * 
+	 * @param match the match.
+	 * @return true if the match was created for an identical root element.
+	 */
+	boolean isIdentical(Match match) {
+		return identicalMatches.contains(match);
+	}
+
+	@Override
+	public boolean ignore(EObject element) {
+		return ignoredRoots.contains(element);
+	}
+
+	@Override
+	public void postMatch(Comparison comparison, Monitor monitor) {
+		identicalRoots.forEach((left, right) -> {
+			Match match = createMatch(left, right);
+			identicalMatches.add(match);
+			comparison.getMatches().add(match);
+		});
+	}
+
+	private Match createMatch(EObject left, EObject right) {
+		Match match = CompareFactory.eINSTANCE.createMatch();
+		match.setLeft(left);
+		match.setRight(right);
+		// Identical fingerprints imply the same containment structure for the
+		// fingerprinted features.
+		for (EReference reference : left.eClass().getEAllContainments()) {
+			if (!JavaRootFingerprinter.isFingerprinted(reference)) {
+				continue;
+			}
+			List<EObject> leftChildren = getChildren(left, reference);
+			List<EObject> rightChildren = getChildren(right, reference);
+			for (int idx = 0; idx < leftChildren.size() && idx < rightChildren.size(); idx++) {
+				match.getSubmatches().add(createMatch(leftChildren.get(idx), rightChildren.get(idx)));
+			}
+		}
+		return match;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<EObject> getChildren(EObject element, EReference reference) {
+		if (reference.isMany()) {
+			return (List<EObject>) element.eGet(reference);
+		}
+		EObject child = (EObject) element.eGet(reference);
+		return child != null ? List.of(child) : List.of();
+	}
+
+	@Override
+	public void postDiff(Comparison comparison, Monitor monitor) {
+	}
+
+	@Override
+	public void postRequirements(Comparison comparison, Monitor monitor) {
+	}
+
+	@Override
+	public void postEquivalences(Comparison comparison, Monitor monitor) {
+	}
+
+	@Override
+	public void postConflicts(Comparison comparison, Monitor monitor) {
+	}
+
+	@Override
+	public void postComparison(Comparison comparison, Monitor monitor) {
+	}
+}
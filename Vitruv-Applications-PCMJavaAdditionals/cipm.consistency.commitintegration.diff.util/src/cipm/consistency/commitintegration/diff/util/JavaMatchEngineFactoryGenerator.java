@@ -1,5 +1,6 @@
 package cipm.consistency.commitintegration.diff.util;
 
+import org.splevo.diffing.match.HierarchicalMatchEngine.IgnoreStrategy;
 import org.splevo.diffing.match.HierarchicalMatchEngineFactory;
 import org.splevo.jamopp.diffing.similarity.SimilarityChecker;
 
@@ -20,4 +21,47 @@ public final class JavaMatchEngineFactoryGenerator {
 	public static HierarchicalMatchEngineFactory generateMatchEngineFactory() {
 		return HierarchicalMatchEngineFactoryGenerator.generateMatchEngineFactory(new SimilarityChecker(), "javaxmi");
 	}
+
+	/**
+	 * Generates the HierarchicalMatchEngineFactory with an additional strategy for
+	 * ignored elements.
+	 * 
+	 * @param ignoreStrategy the additional strategy for ignored elements.
+	 * @return the generated factory.
+	 */
+	public static HierarchicalMatchEngineFactory generateMatchEngineFactory(IgnoreStrategy ignoreStrategy) {
+		return HierarchicalMatchEngineFactoryGenerator.generateMatchEngineFactory(new SimilarityChecker(), "javaxmi",
+				ignoreStrategy);
+	}
+
+	/**
+	 * Generates the HierarchicalMatchEngineFactory with an additional strategy for
+	 * ignored elements and a parallel matching.
+	 * 
+	 * @param ignoreStrategy the additional strategy for ignored elements. Can be
+	 *                       null.
+	 * @param parallelism    the number of threads for the matching.
+	 * @return the generated factory.
+	 */
+	public static HierarchicalMatchEngineFactory generateMatchEngineFactory(IgnoreStrategy ignoreStrategy,
+			int parallelism) {
+		return generateMatchEngineFactory(new SimilarityChecker(), ignoreStrategy, parallelism);
+	}
+
+	/**
+	 * Generates the HierarchicalMatchEngineFactory with a specific SimilarityChecker,
+	 * an additional strategy for ignored elements and a parallel matching.
+	 * 
+	 * @param simChecker     the SimilarityChecker which compares the Java model
+	 *                       elements.
+	 * @param ignoreStrategy the additional strategy for ignored elements. Can be
+	 *                       null.
+	 * @param parallelism    the number of threads for the matching.
+	 * @return the generated factory.
+	 */
+	public static HierarchicalMatchEngineFactory generateMatchEngineFactory(SimilarityChecker simChecker,
+			IgnoreStrategy ignoreStrategy, int parallelism) {
+		return HierarchicalMatchEngineFactoryGenerator.generateMatchEngineFactory(simChecker, "javaxmi",
+				ignoreStrategy, parallelism);
+	}
 }
@@ -1,21 +1,30 @@
 package cipm.consistency.commitintegration.diff.util;
 
 import org.eclipse.emf.common.notify.Notifier;
+import org.apache.log4j.Logger;
+import org.eclipse.emf.common.util.Monitor;
 import org.eclipse.emf.compare.Comparison;
+import org.eclipse.emf.compare.Match;
 import org.eclipse.emf.compare.EMFCompare;
+import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.compare.diff.DiffBuilder;
 import org.eclipse.emf.compare.diff.DefaultDiffEngine;
 import org.eclipse.emf.compare.diff.FeatureFilter;
+import org.eclipse.emf.compare.match.IMatchEngine;
 import org.eclipse.emf.compare.postprocessor.BasicPostProcessorDescriptorImpl;
 import org.eclipse.emf.compare.postprocessor.PostProcessorDescriptorRegistryImpl;
 import java.util.regex.Pattern;
 import java.util.List;
 import org.emftext.language.java.JavaPackage;
+import org.splevo.jamopp.diffing.similarity.SimilarityChecker;
 import org.splevo.jamopp.diffing.scope.PackageIgnoreChecker;
 import org.splevo.jamopp.diffing.diff.JaMoPPFeatureFilter;
 import org.eclipse.emf.compare.postprocessor.IPostProcessor;
 
+import cipm.consistency.tools.evaluation.data.ChangeStatistic;
+import cipm.consistency.tools.evaluation.data.EvaluationDataContainer;
+
 /**
  * This class provides methods for comparing Java models.
  * 
@@ -24,6 +33,8 @@ import org.eclipse.emf.compare.postprocessor.IPostProcessor;
  * @author Martin Armbruster
  */
 public final class JavaModelComparator {
+	private static final Logger LOGGER = Logger.getLogger("cipm." + JavaModelComparator.class.getSimpleName());
+	
 	private JavaModelComparator() {
 	}
 	
@@ -43,6 +54,89 @@ public final class JavaModelComparator {
 	public static Comparison compareJavaModels(Notifier newState, Notifier currentState,
 			List<Resource> newResources, List<Resource> currentResources,
 			IPostProcessor postProcessor) {
+		return compareJavaModels(newState, currentState, newResources, currentResources, postProcessor, false);
+	}
+	
+	/**
+	 * Compares Java models using EMF Compare. Optionally, compilation units, packages and modules with the same
+	 * structural fingerprint in both states are not matched by the match engine and not differenced. Instead,
+	 * they are matched element by element so that references to them remain resolvable.
+	 * 
+	 * @param newState contains the new state.
+	 * @param currentState contains the current or old state compared to the new state.
+	 * @param newResources a list of Resources which represent the new state of Java models.
+	 *                     If the newState is a ResourceSet, this list is used to filter the Resources in the newState.
+	 * @param currentResources a list of Resources which represent the current or old state of Java models.
+	 *                         If the currentState is a ResourceSet, this list is used to filter the Resources in the
+	 *                         currentState.
+	 * @param postProcessor an optional post processor for the comparison process.
+	 * @param skipIdenticalRoots true if identical compilation units, packages and modules are skipped.
+	 * @return the comparison result.
+	 */
+	public static Comparison compareJavaModels(Notifier newState, Notifier currentState,
+			List<Resource> newResources, List<Resource> currentResources,
+			IPostProcessor postProcessor, boolean skipIdenticalRoots) {
+		return compareJavaModels(newState, currentState, newResources, currentResources, postProcessor,
+				skipIdenticalRoots, 1);
+	}
+	
+	/**
+	 * Compares Java models using EMF Compare. Optionally, identical compilation units, packages and modules are
+	 * skipped, and the Resources and the subtrees of their root elements are matched in parallel. The resulting
+	 * matches do not depend on the number of threads.
+	 * 
+	 * @param newState contains the new state.
+	 * @param currentState contains the current or old state compared to the new state.
+	 * @param newResources a list of Resources which represent the new state of Java models.
+	 *                     If the newState is a ResourceSet, this list is used to filter the Resources in the newState.
+	 * @param currentResources a list of Resources which represent the current or old state of Java models.
+	 *                         If the currentState is a ResourceSet, this list is used to filter the Resources in the
+	 *                         currentState.
+	 * @param postProcessor an optional post processor for the comparison process.
+	 * @param skipIdenticalRoots true if identical compilation units, packages and modules are skipped.
+	 * @param matchParallelism the number of threads for the matching. With one thread, the matching is sequential.
+	 * @return the comparison result.
+	 */
+	public static Comparison compareJavaModels(Notifier newState, Notifier currentState,
+			List<Resource> newResources, List<Resource> currentResources,
+			IPostProcessor postProcessor, boolean skipIdenticalRoots, int matchParallelism) {
+		return compareJavaModels(newState, currentState, newResources, currentResources, postProcessor,
+				skipIdenticalRoots, matchParallelism, false);
+	}
+	
+	/**
+	 * Compares Java models using EMF Compare. In addition to the skipping of identical compilation units, packages
+	 * and modules and the parallel matching, the results of the similarity checks between model elements can be
+	 * memoized for the comparison. The lookups and hits of the memoized results are logged and added to the change
+	 * statistic of the global evaluation data.
+	 * 
+	 * @param newState contains the new state.
+	 * @param currentState contains the current or old state compared to the new state.
+	 * @param newResources a list of Resources which represent the new state of Java models.
+	 *                     If the newState is a ResourceSet, this list is used to filter the Resources in the newState.
+	 * @param currentResources a list of Resources which represent the current or old state of Java models.
+	 *                         If the currentState is a ResourceSet, this list is used to filter the Resources in the
+	 *                         currentState.
+	 * @param postProcessor an optional post processor for the comparison process.
+	 * @param skipIdenticalRoots true if identical compilation units, packages and modules are skipped.
+	 * @param matchParallelism the number of threads for the matching. With one thread, the matching is sequential.
+	 * @param memoizeSimilarity true if the results of the similarity checks are memoized.
+	 * @return the comparison result.
+	 */
+	public static Comparison compareJavaModels(Notifier newState, Notifier currentState,
+			List<Resource> newResources, List<Resource> currentResources,
+			IPostProcessor postProcessor, boolean skipIdenticalRoots, int matchParallelism,
+			boolean memoizeSimilarity) {
+		
+		IdenticalJavaRoots identicalRoots = null;
+		if (skipIdenticalRoots) {
+			identicalRoots = new IdenticalJavaRoots(newState, currentState, newResources, currentResources);
+			LOGGER.debug("Skipping " + identicalRoots.size() + " identical root elements.");
+			if (identicalRoots.size() == 0) {
+				identicalRoots = null;
+			}
+		}
+		IdenticalJavaRoots skippedRoots = identicalRoots;
 		
 		var scope = new ResourceListFilteringComparisonScope(newState, currentState, newResources, currentResources);
 		scope.getNsURIs().add(JavaPackage.eNS_URI);
@@ -54,23 +148,86 @@ public final class JavaModelComparator {
 			protected FeatureFilter createFeatureFilter() {
 				return jamoppFeatureFilter;
 			}
+			
+			@Override
+			protected void checkForDifferences(Match match, Monitor monitor) {
+				if (skippedRoots == null || !skippedRoots.isIdentical(match)) {
+					super.checkForDifferences(match, monitor);
+				}
+			}
 		};
 		
-		var engineRegistry = HierarchicalMatchEngineFactoryGenerator
-				.generateMatchEngineRegistry(JavaMatchEngineFactoryGenerator
-						.generateMatchEngineFactory());
+		IMatchEngine.Factory.Registry engineRegistry;
+		SimilarityChecker simChecker = null;
+		if (memoizeSimilarity) {
+			// The memoized results are only valid for this comparison so that the match engine must not be
+			// registered globally.
+			simChecker = new SimilarityChecker();
+			simChecker.setMemoization(true);
+			engineRegistry = HierarchicalMatchEngineFactoryGenerator
+					.generateStandaloneMatchEngineRegistry(JavaMatchEngineFactoryGenerator
+							.generateMatchEngineFactory(simChecker, skippedRoots, matchParallelism));
+		} else if (skippedRoots == null && matchParallelism <= 1) {
+			engineRegistry = HierarchicalMatchEngineFactoryGenerator
+					.generateMatchEngineRegistry(JavaMatchEngineFactoryGenerator
+							.generateMatchEngineFactory());
+		} else {
+			// The ignored elements and the parallelism are specific for this comparison.
+			engineRegistry = HierarchicalMatchEngineFactoryGenerator
+					.generateStandaloneMatchEngineRegistry(JavaMatchEngineFactoryGenerator
+							.generateMatchEngineFactory(skippedRoots, matchParallelism));
+		}
 		
 		var builder = EMFCompare.builder()
 			.setMatchEngineFactoryRegistry(engineRegistry)
 			.setDiffEngine(diffEngine);
 		
-		if (postProcessor != null) {
-			var processorDescriptor = new BasicPostProcessorDescriptorImpl(postProcessor, Pattern.compile(".*"), null);
+		if (postProcessor != null || skippedRoots != null) {
 			var processorRegistry = new PostProcessorDescriptorRegistryImpl<String>();
-			processorRegistry.put("java", processorDescriptor);
+			if (skippedRoots != null) {
+				processorRegistry.put("identical", new BasicPostProcessorDescriptorImpl(skippedRoots,
+						Pattern.compile(".*"), null));
+			}
+			if (postProcessor != null) {
+				processorRegistry.put("java", new BasicPostProcessorDescriptorImpl(postProcessor,
+						Pattern.compile(".*"), null));
+			}
 			builder.setPostProcessorRegistry(processorRegistry);
 		}
 		
-		return builder.build().compare(scope);
+		Comparison comparison = builder.build().compare(scope);
+		if (simChecker != null) {
+			LOGGER.info(String.format("Similarity checks: %d memoized lookups, %d hits (%.1f%%).",
+					simChecker.getMemoLookups(), simChecker.getMemoHits(), simChecker.getMemoHitRate() * 100));
+			reportMemoStatistic(simChecker, EvaluationDataContainer.getGlobalContainer().getChangeStatistic());
+			simChecker.setMemoization(false);
+		}
+		return comparison;
+	}
+	
+	/**
+	 * Adds the lookups and hits of the memoized similarity checks to a change statistic which can cover multiple
+	 * comparisons, and updates its hit rate.
+	 * 
+	 * @param simChecker the SimilarityChecker with the memoized results.
+	 * @param statistic the change statistic.
+	 */
+	private static void reportMemoStatistic(SimilarityChecker simChecker, ChangeStatistic statistic) {
+		long lookups = statistic.getNumberSimilarityMemoLookups() + simChecker.getMemoLookups();
+		long hits = statistic.getNumberSimilarityMemoHits() + simChecker.getMemoHits();
+		statistic.setNumberSimilarityMemoLookups(lookups);
+		statistic.setNumberSimilarityMemoHits(hits);
+		statistic.setSimilarityMemoHitRate(lookups == 0 ? 0 : (double) hits / lookups);
+	}
+	
+	/**
+	 * Returns the key of a compilation unit, package or module which is equal for the root elements representing the
+	 * same compilation unit, package or module in different states.
+	 * 
+	 * @param root the root element.
+	 * @return the key.
+	 */
+	public static String computeRootKey(EObject root) {
+		return JavaRootFingerprinter.computeKey(root);
 	}
 }
@@ -0,0 +1,157 @@
+package cipm.consistency.commitintegration.diff.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.emftext.language.java.commons.CommonsPackage;
+import org.emftext.language.java.commons.NamedElement;
+import org.emftext.language.java.commons.NamespaceAwareElement;
+
+/**
+ * Computes structural fingerprints of Java root elements (compilation units,
+ * packages and modules). A fingerprint covers the types, attributes and
+ * containment structure of all contained elements. Referenced elements are
+ * identified by their root element, their containment path within it and
+ * their name so that the fingerprint does not depend on the position of the
+ * root element within its Resource. Layout information is ignored.
+ * 
+ * <p>Two root elements with the same fingerprint are structurally identical.
+ * The opposite does not hold because the fingerprint is conservative.</p>
+ * 
+ * @author Martin Armbruster
+ */
+class JavaRootFingerprinter {
+	private Map<EObject, String> referenceIds = new IdentityHashMap<>();
+	private MessageDigest digest;
+
+	JavaRootFingerprinter() {
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Returns the key of a root element which is equal for the root elements
+	 * representing the same compilation unit, package or module in different
+	 * states.
+	 * 
+	 * @param root the root element.
+	 * @return the key.
+	 */
+	static String computeKey(EObject root) {
+		StringBuilder builder = new StringBuilder(root.eClass().getName()).append(':');
+		if (root instanceof NamespaceAwareElement) {
+			builder.append(((NamespaceAwareElement) root).getNamespacesAsString());
+		}
+		if (root instanceof NamedElement) {
+			builder.append(((NamedElement) root).getName());
+		}
+		return builder.toString();
+	}
+
+	/**
+	 * Computes the fingerprint of a root element.
+	 * 
+	 * @param root the root element.
+	 * @return the fingerprint.
+	 */
+	String computeFingerprint(EObject root) {
+		digest.reset();
+		visit(root);
+		StringBuilder builder = new StringBuilder();
+		for (byte b : digest.digest()) {
+			builder.append(String.format("%02x", b));
+		}
+		return builder.toString();
+	}
+
+	private void visit(EObject element) {
+		update("(" + element.eClass().getName());
+		for (EAttribute attribute : element.eClass().getEAllAttributes()) {
+			if (!attribute.isDerived() && !attribute.isTransient() && element.eIsSet(attribute)) {
+				update(attribute.getName() + "=" + element.eGet(attribute));
+			}
+		}
+		for (EReference reference : element.eClass().getEAllReferences()) {
+			if (reference.isContainment() || reference.isContainer() || reference.isDerived()
+					|| reference.isTransient() || !element.eIsSet(reference)) {
+				continue;
+			}
+			if (reference.isMany()) {
+				for (Object target : (List<?>) element.eGet(reference, false)) {
+					update(reference.getName() + "->" + getReferenceId((EObject) target));
+				}
+			} else {
+				update(reference.getName() + "->" + getReferenceId((EObject) element.eGet(reference, false)));
+			}
+		}
+		for (EReference reference : element.eClass().getEAllContainments()) {
+			if (!isFingerprinted(reference) || !element.eIsSet(reference)) {
+				continue;
+			}
+			update(reference.getName());
+			if (reference.isMany()) {
+				for (Object child : (List<?>) element.eGet(reference)) {
+					visit((EObject) child);
+				}
+			} else {
+				visit((EObject) element.eGet(reference));
+			}
+		}
+		update(")");
+	}
+
+	/**
+	 * Checks if the elements of a containment reference are part of the
+	 * fingerprint.
+	 * 
+	 * @param reference the containment reference.
+	 * @return true if the contained elements are considered.
+	 */
+	static boolean isFingerprinted(EReference reference) {
+		return reference != CommonsPackage.Literals.COMMENTABLE__LAYOUT_INFORMATIONS && !reference.isDerived();
+	}
+
+	private String getReferenceId(EObject target) {
+		if (target.eIsProxy()) {
+			return EcoreUtil.getURI(target).toString();
+		}
+		String id = referenceIds.get(target);
+		if (id == null) {
+			StringBuilder builder = new StringBuilder();
+			EObject current = target;
+			while (current.eContainer() != null) {
+				EReference feature = current.eContainmentFeature();
+				String segment = "/" + feature.getName();
+				if (feature.isMany()) {
+					segment += "." + ((List<?>) current.eContainer().eGet(feature)).indexOf(current);
+				}
+				builder.insert(0, segment);
+				current = current.eContainer();
+			}
+			builder.insert(0, computeKey(current));
+			builder.append('#').append(target.eClass().getName());
+			if (target instanceof NamedElement) {
+				builder.append(':').append(((NamedElement) target).getName());
+			}
+			id = builder.toString();
+			referenceIds.put(target, id);
+		}
+		return id;
+	}
+
+	private void update(String value) {
+		digest.update(value.getBytes(StandardCharsets.UTF_8));
+		digest.update((byte) 0);
+	}
+}
@@ -4,6 +4,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Arrays;
 import java.util.Properties;
 
 /**
@@ -42,4 +43,49 @@ public final class CommitIntegrationSettingsContainer {
 	public boolean getPropertyAsBoolean(String key) {
 		return Boolean.parseBoolean(getProperty(key));
 	}
+	
+	/**
+	 * Returns a setting as an integer.
+	 * 
+	 * @param key          key of the setting.
+	 * @param defaultValue value which is returned if the setting is not available
+	 *                     or not a valid integer.
+	 * @return the value of the setting.
+	 */
+	public int getPropertyAsInteger(String key, int defaultValue) {
+		String value = getProperty(key);
+		if (value == null) {
+			return defaultValue;
+		}
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			return defaultValue;
+		}
+	}
+
+	/**
+	 * Returns a setting as a constant of an enumeration.
+	 * 
+	 * @param <E>          the type of the enumeration.
+	 * @param key          key of the setting.
+	 * @param type         class of the enumeration.
+	 * @param defaultValue value which is returned if the setting is not available.
+	 * @return the value of the setting.
+	 * @throws IllegalArgumentException if the setting is not the name of a
+	 *                                  constant of the enumeration.
+	 */
+	public <E extends Enum<E>> E getPropertyAsEnum(String key, Class<E> type, E defaultValue) {
+		String value = getProperty(key);
+		if (value == null) {
+			return defaultValue;
+		}
+		for (E constant : type.getEnumConstants()) {
+			if (constant.name().equals(value.trim())) {
+				return constant;
+			}
+		}
+		throw new IllegalArgumentException("The value " + value + " of the setting " + key
+				+ " is invalid. Allowed values are " + Arrays.toString(type.getEnumConstants()) + ".");
+	}
 }
@@ -14,6 +14,48 @@ public final class SettingKeys {
 	 * A setting which controls if an adaptive or full instrumentation is performed.
 	 */
 	public static final String PERFORM_FULL_INSTRUMENTATION = KEY_BASE + "instrumentation.full";
+	/**
+	 * A setting which controls if the instrumentation only copies and instruments
+	 * the compilation units whose instrumentation points or source code changed
+	 * since the last instrumentation, together with the compilation units touched
+	 * by their instrumentation points, and only prints the changed compilation
+	 * units. The previously instrumented models and files are reused for the
+	 * other compilation units so that the instrumented code equals the code of a
+	 * complete instrumentation. The state of the last instrumentation is stored
+	 * next to its directory.
+	 */
+	public static final String PERFORM_INCREMENTAL_INSTRUMENTATION = KEY_BASE + "instrumentation.incremental";
+	/**
+	 * A list of regular expressions for the exclusion of files from the relation
+	 * between the instrumented Java models and the original files. Without the
+	 * setting, test sources and the Kieker sources of the TeaStore are excluded.
+	 * In all output modes, the expressions are matched against the absolute paths
+	 * which the files have in the instrumentation directory.
+	 */
+	public static final String INSTRUMENTATION_EXCLUSION_PATTERNS = KEY_BASE + "instrumentation.excludes";
+	/**
+	 * A setting which contains the number of threads printing the instrumented
+	 * Java models. Without the setting, the models are printed sequentially.
+	 */
+	public static final String INSTRUMENTATION_PRINTING_THREADS = KEY_BASE + "instrumentation.printing.threads";
+	/**
+	 * The way in which the instrumented code is merged with the original code (one
+	 * of COPY, LINKED_COPY, OVERLAY). With COPY, the complete repository is
+	 * copied. With LINKED_COPY, the files are hard-linked without the Git
+	 * directory and build outputs, and only the build files, such as pom.xml,
+	 * Gradle files, wrappers and lockfiles, and the overwritten files are
+	 * materialized. In this case, neither the original files nor the build
+	 * steps may modify other linked files in place. With OVERLAY, only the
+	 * instrumented files and a manifest of the touched files and modules and of
+	 * the instrumented commit are written. For the compilation, they are merged
+	 * with a linked copy of the repository if the commit was propagated last.
+	 * Only the touched modules and the modules depending on them are rebuilt in
+	 * the order of their dependencies so that the other dependencies have to be
+	 * available, e.g., in the local Maven repository, and the compilation script
+	 * has to install the built artifacts, e.g., with mvn install. If it is not
+	 * set, the repository is copied.
+	 */
+	public static final String INSTRUMENTATION_OUTPUT_MODE = KEY_BASE + "instrumentation.output";
 	/**
 	 * A setting which controls if the incremental fine-grained SEFF reconstruction
 	 * is performed.
@@ -29,14 +71,194 @@ public final class SettingKeys {
 	 * parsing.
 	 */
 	public static final String JAVA_PARSER_EXCLUSION_PATTERNS = KEY_BASE + "parser.excludes";
+	/**
+	 * A setting which controls if only the Java files changed in a commit and
+	 * their dependents are parsed instead of the complete repository.
+	 */
+	public static final String PERFORM_INCREMENTAL_PARSING = KEY_BASE + "parser.incremental";
+	/**
+	 * The maximum number of dependent compilation units which are additionally
+	 * parsed during an incremental parsing. The dependents include compilation
+	 * units which reference a changed one transitively. If more dependents are
+	 * found, the complete repository is parsed again.
+	 */
+	public static final String INCREMENTAL_PARSING_MAX_DEPENDENTS = KEY_BASE + "parser.incremental.dependents";
+	/**
+	 * A setting which controls if the components detected for the compilation
+	 * units are stored and reused in the next change propagation. Only compilation
+	 * units with new paths and compilation units whose nearest build files were
+	 * added, moved or removed are evaluated again. Modules of components which
+	 * still exist are kept.
+	 */
+	public static final String PERFORM_INCREMENTAL_COMPONENT_DETECTION = KEY_BASE + "detection.incremental";
+	/**
+	 * The number of threads which execute the component detection strategies for
+	 * the compilation units in parallel.
+	 */
+	public static final String DETECTION_THREADS = KEY_BASE + "detection.threads";
+	/**
+	 * Path to a properties file with rules which classify the detected modules
+	 * without asking the developer. If the file cannot be loaded or contains an
+	 * invalid rule, the component detection fails. It also fails with the
+	 * unclassified modules if the rules and their default classification
+	 * (default.state) do not classify all modules.
+	 */
+	public static final String DETECTION_RULES = KEY_BASE + "detection.rules";
+	/**
+	 * A setting which controls if the files of a commit are directly written from
+	 * the Git object database into a separate directory instead of checking out
+	 * the commit in the local repository. Files which are not part of the commit,
+	 * e. g., generated outputs of the previous commit, are removed from the
+	 * directory, and the executable bit is taken over from the Git file mode.
+	 */
+	public static final String MATERIALIZE_COMMITS = KEY_BASE + "git.materialize";
+	/**
+	 * A list of file path suffixes for the files which are written for a commit
+	 * if commits are materialized. Without the setting, all files of the commit
+	 * are written. With the setting, the preprocessing script, parser and
+	 * instrumentation only see the matching files. Therefore, the suffixes have
+	 * to include all files which are required to preprocess the commit and to
+	 * compile the instrumented code, e. g., build wrappers and resources.
+	 */
+	public static final String MATERIALIZED_FILE_SUFFIXES = KEY_BASE + "git.materialize.suffixes";
+	/**
+	 * The number of threads which compute the line statistics of the changed
+	 * files between two commits.
+	 */
+	public static final String DIFF_THREADS = KEY_BASE + "git.diff.threads";
+	/**
+	 * The maximum size in MB of the cache for the contents of Git blobs.
+	 */
+	public static final String BLOB_CACHE_SIZE = KEY_BASE + "git.blobcache.size";
+	/**
+	 * A setting which controls if the next commits of a commit range are
+	 * materialized and preprocessed while the changes of the current commit are
+	 * propagated. It requires that the commits are materialized. Otherwise, the
+	 * commits are propagated sequentially. Only the computation of the
+	 * differences, the materialization and the preprocessing overlap with the
+	 * propagation. The parsing and the component detection of the next commit
+	 * still wait for the propagation because all of them use the global
+	 * JavaClasspath.
+	 */
+	public static final String PERFORM_PIPELINED_PROPAGATION = KEY_BASE + "propagation.pipelined";
+	/**
+	 * The maximum number of parsed commits which wait for their propagation in
+	 * the pipelined propagation.
+	 */
+	public static final String PIPELINE_CAPACITY = KEY_BASE + "propagation.pipelined.capacity";
+	/**
+	 * The granularity of the Resources in which the Java models are propagated
+	 * (one of ONE_RESOURCE, COMPILATION_UNIT). If it is not set, all Java models
+	 * are propagated in one Resource.
+	 */
+	public static final String PROPAGATION_GRANULARITY = KEY_BASE + "propagation.granularity";
+	/**
+	 * A setting which controls if the changes of a Java model which already
+	 * exists in the VSUM are recorded and propagated in chunks per compilation
+	 * unit instead of one change sequence for the complete model.
+	 */
+	public static final String PERFORM_STREAMED_PROPAGATION = KEY_BASE + "propagation.streamed";
+	/**
+	 * A setting which controls if compilation units with the same structural
+	 * fingerprint in the old and new state are excluded from the matching and
+	 * differencing in the state-based change propagation.
+	 */
+	public static final String SKIP_IDENTICAL_COMPILATION_UNITS = KEY_BASE + "diff.skipidentical";
+	/**
+	 * The number of threads which match the old and new state of the Java models
+	 * in the state-based change propagation. If it is not set, the matching is
+	 * sequential.
+	 */
+	public static final String MATCH_THREADS = KEY_BASE + "diff.match.threads";
+	/**
+	 * A setting which controls if the results of the similarity checks between
+	 * Java model elements are memoized during a comparison in the state-based
+	 * change propagation.
+	 */
+	public static final String MEMOIZE_SIMILARITY_CHECKS = KEY_BASE + "diff.similarity.memo";
+	/**
+	 * Name of the policy which decides the commits of a commit range whose changes
+	 * are propagated (one of EVERY_COMMIT, TAGGED_OR_MERGE_COMMITS, TIME_WINDOW,
+	 * CHANGED_FILE_BUDGET). If it is not set, every commit is propagated.
+	 */
+	public static final String PROPAGATION_PLANNING_POLICY = KEY_BASE + "propagation.planning.policy";
+	/**
+	 * The time window in seconds within which commits are propagated together.
+	 */
+	public static final String PROPAGATION_PLANNING_TIME_WINDOW = KEY_BASE + "propagation.planning.window";
+	/**
+	 * The maximum number of changed Java files for commits which are propagated
+	 * together.
+	 */
+	public static final String PROPAGATION_PLANNING_FILE_BUDGET = KEY_BASE + "propagation.planning.budget";
+	/**
+	 * A setting which controls if the outputs of the preprocessing script are
+	 * cached and restored for commits with the same inputs (see
+	 * {@link #PREPROCESSING_CACHE_INPUTS}).
+	 */
+	public static final String CACHE_PREPROCESSING = KEY_BASE + "preprocess.cache";
+	/**
+	 * A list of glob patterns (separated by ;) for the files on which the
+	 * preprocessing script depends. They are matched against the paths relative to
+	 * the repository root. Files in build output directories (target next to a
+	 * pom.xml, build next to a build.gradle) are never an input. By default, the
+	 * Maven and Gradle build and settings files are the inputs. This is only
+	 * correct if the outputs of the script do not depend on the other files.
+	 * Otherwise, a commit which only changes sources restores stale outputs, and
+	 * the inputs have to be widened, e.g., to all files with **.
+	 */
+	public static final String PREPROCESSING_CACHE_INPUTS = KEY_BASE + "preprocess.cache.inputs";
+	/**
+	 * The maximum number of cached outputs of the preprocessing script.
+	 */
+	public static final String PREPROCESSING_CACHE_SIZE = KEY_BASE + "preprocess.cache.size";
 	/**
 	 * Path to a script for the preprocessing of a commit.
 	 */
 	public static final String PATH_TO_PREPROCESSING_SCRIPT = KEY_BASE + "path.preprocess";
 	/**
-	 * Path to a script for the compilation of the instrumented code.
+	 * Path to a script for the compilation of the instrumented code. If only some
+	 * modules of a Maven repository are compiled, the script is run once in the
+	 * repository with the arguments -pl, the modules and -am, which it has to
+	 * pass on to Maven.
 	 */
 	public static final String PATH_TO_COMPILATION_SCRIPT = KEY_BASE + "path.compile";
+	/**
+	 * A list of module directories (separated by ;), relative to the
+	 * instrumented code, which are compiled. In a Maven repository, they are
+	 * compiled in one reactor build together with the modules on which they
+	 * depend. Otherwise, the compilation script is run separately in every module
+	 * in the order of their dependencies. If it is not set, the compilation script
+	 * is run once for the complete code.
+	 */
+	public static final String COMPILATION_MODULES = KEY_BASE + "compile.modules";
+	/**
+	 * The number of modules outside of a Maven repository which are compiled at
+	 * the same time. Modules depending on each other are never compiled at the
+	 * same time. If it is not set, the modules are compiled one after another. In
+	 * a Maven repository, the modules are compiled in one reactor build whose
+	 * parallelism is controlled by the compilation script, e. g., with -T.
+	 */
+	public static final String COMPILATION_THREADS = KEY_BASE + "compile.threads";
+	/**
+	 * The time in seconds after which an external script is terminated. If it is
+	 * not set or 0, the scripts run without a timeout.
+	 */
+	public static final String SCRIPT_TIMEOUT = KEY_BASE + "script.timeout";
+	/**
+	 * Path to a directory in which the output of the external scripts is logged.
+	 */
+	public static final String SCRIPT_LOG_DIRECTORY = KEY_BASE + "script.logs";
+	/**
+	 * The policy for external calls without a target which are not found in the
+	 * stored external calls (one of ASK, MATCH_NAME, SKIP). With ASK, the
+	 * developer is asked for the target. With MATCH_NAME, the service with the
+	 * name of a method called in the statements corresponding to the external
+	 * call is chosen if it is unique. With SKIP, the target
+	 * remains empty. If it is not set, the developer is asked. Other values are
+	 * rejected.
+	 */
+	public static final String EXTERNAL_CALL_TARGET_POLICY = KEY_BASE + "externalcalls.policy";
 	/**
 	 * Path to a directory in which the prepared artifacts with the instrumented
 	 * code are deployed.
@@ -0,0 +1,182 @@
+package cipm.consistency.commitintegration.detection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.impl.ResourceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that the index-based detection of components from build files results
+ * in the same module candidates as the search through the file system on a
+ * repository with multiple modules.
+ * 
+ * @author Martin Armbruster
+ */
+public class BuildFileBasedComponentDetectionStrategyTest {
+	private static final List<String> JAVA_FILES = List.of("Top.java", "src/org/example/Root.java",
+			"services/auth/src/main/java/org/example/auth/Auth.java",
+			"services/billing/src/main/java/org/example/billing/Billing.java",
+			"libs/core/src/main/java/org/example/core/Core.java", "libs/core/nested/src/org/example/Nested.java",
+			"libs/core/nested/deep/er/src/org/example/Deep.java", "tools/scripts/Tool.java", "docs/src/Doc.java");
+	@TempDir
+	Path tempDir;
+	private Path container;
+	private Map<Path, Resource> resources = new HashMap<>();
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		container = tempDir.resolve("container");
+		writeFile("pom.xml");
+		writeFile("services/auth/pom.xml");
+		writeFile("services/auth/Dockerfile");
+		writeFile("services/billing/build.gradle");
+		writeFile("libs/core/pom.xml");
+		writeFile("libs/core/nested/pom.xml");
+		writeFile("docs/Dockerfile");
+		writeFile(".git/pom.xml");
+		for (String javaFile : JAVA_FILES) {
+			Path file = writeFile(javaFile);
+			resources.put(file, new ResourceImpl(URI.createFileURI(file.toString())));
+		}
+	}
+
+	private Path writeFile(String path) throws IOException {
+		Path file = container.resolve(path);
+		Files.createDirectories(file.getParent());
+		Files.writeString(file, "");
+		return file;
+	}
+
+	private void deleteFile(String path) throws IOException {
+		Files.delete(container.resolve(path));
+	}
+
+	/**
+	 * Detects the components of all Java files one after another.
+	 * 
+	 * @param strategy the strategy to use.
+	 * @return the module candidates of every Java file.
+	 */
+	private List<Map<ModuleState, Map<String, Set<Resource>>>> detect(ComponentDetectionStrategy strategy) {
+		List<Map<ModuleState, Map<String, Set<Resource>>>> result = new ArrayList<>();
+		for (String javaFile : JAVA_FILES) {
+			Path file = container.resolve(javaFile);
+			ModuleCandidates candidates = new ModuleCandidates();
+			strategy.detectComponent(resources.get(file), file, container, candidates);
+			Map<ModuleState, Map<String, Set<Resource>>> modules = new EnumMap<>(ModuleState.class);
+			for (ModuleState state : ModuleState.values()) {
+				if (!candidates.getModulesInState(state).isEmpty()) {
+					modules.put(state, candidates.getModulesInState(state));
+				}
+			}
+			result.add(modules);
+		}
+		return result;
+	}
+
+	private Map<ModuleState, Map<String, Set<Resource>>> expected(ModuleState state, String module,
+			String javaFile) {
+		return Map.of(state, Map.of(module, Set.of(resources.get(container.resolve(javaFile)))));
+	}
+
+	@Test
+	public void testDetectionEqualsSearchThroughFileSystem() {
+		BuildFileBasedComponentDetectionStrategy strategy = new BuildFileBasedComponentDetectionStrategy();
+		List<Map<ModuleState, Map<String, Set<Resource>>>> baseline = detect(new WalkingBuildFileStrategy());
+		assertEquals(baseline, detect(strategy));
+		// The second detection uses the memoized modules of the directories.
+		assertEquals(baseline, detect(strategy));
+		assertEquals(Map.of(), baseline.get(0));
+		assertEquals(expected(ModuleState.MICROSERVICE_COMPONENT, "auth", JAVA_FILES.get(2)), baseline.get(2));
+		assertEquals(expected(ModuleState.COMPONENT_CANDIDATE, "billing", JAVA_FILES.get(3)), baseline.get(3));
+		assertEquals(expected(ModuleState.COMPONENT_CANDIDATE, "nested", JAVA_FILES.get(6)), baseline.get(6));
+		assertEquals(expected(ModuleState.COMPONENT_CANDIDATE, "container", JAVA_FILES.get(8)), baseline.get(8));
+	}
+
+	@Test
+	public void testUpdatedDetectionEqualsSearchThroughFileSystem() throws IOException {
+		BuildFileBasedComponentDetectionStrategy strategy = new BuildFileBasedComponentDetectionStrategy();
+		assertEquals(detect(new WalkingBuildFileStrategy()), detect(strategy));
+		String fingerprint = strategy.computeFingerprint(container);
+		List<Path> changedFiles = new ArrayList<>();
+		for (String file : List.of("services/billing/Dockerfile", "libs/core/nested/build.gradle", "libs/pom.xml")) {
+			changedFiles.add(writeFile(file));
+		}
+		for (String file : List.of("services/auth/pom.xml", "libs/core/nested/pom.xml")) {
+			deleteFile(file);
+			changedFiles.add(container.resolve(file));
+		}
+		changedFiles.add(writeFile("libs/core/src/main/java/org/example/core/Other.java"));
+		strategy.update(container, changedFiles);
+		List<Map<ModuleState, Map<String, Set<Resource>>>> baseline = detect(new WalkingBuildFileStrategy());
+		assertEquals(baseline, detect(strategy));
+		assertEquals(expected(ModuleState.COMPONENT_CANDIDATE, "container", JAVA_FILES.get(2)), baseline.get(2));
+		assertEquals(expected(ModuleState.MICROSERVICE_COMPONENT, "billing", JAVA_FILES.get(3)), baseline.get(3));
+		// The index after the update equals a new index.
+		BuildFileBasedComponentDetectionStrategy newStrategy = new BuildFileBasedComponentDetectionStrategy();
+		assertEquals(newStrategy.computeFingerprint(container), strategy.computeFingerprint(container));
+		assertEquals(baseline, detect(newStrategy));
+		// Without the changed files, the index is read again.
+		strategy.update(container, null);
+		deleteFile("services/billing/Dockerfile");
+		assertEquals(detect(new WalkingBuildFileStrategy()), detect(strategy));
+		assertNotEquals(fingerprint, strategy.computeFingerprint(container));
+	}
+
+	@Test
+	public void testFileFingerprintsOnlyChangeForAffectedFiles() throws IOException {
+		BuildFileBasedComponentDetectionStrategy strategy = new BuildFileBasedComponentDetectionStrategy();
+		List<String> fingerprints = new ArrayList<>();
+		for (String javaFile : JAVA_FILES) {
+			fingerprints.add(strategy.computeFingerprint(container, container.resolve(javaFile)));
+		}
+		strategy.update(container, List.of(writeFile("services/billing/Dockerfile"), writeFile("tools/pom.xml")));
+		for (int idx = 0; idx < JAVA_FILES.size(); idx++) {
+			String javaFile = JAVA_FILES.get(idx);
+			boolean affected = javaFile.startsWith("services/billing/") || javaFile.startsWith("tools/");
+			assertEquals(!affected, fingerprints.get(idx).equals(
+					strategy.computeFingerprint(container, container.resolve(javaFile))), javaFile);
+		}
+	}
+
+	/**
+	 * The detection of components from build files which searches the file system
+	 * upwards from every Java file. The index-based detection has to yield the
+	 * same results.
+	 */
+	private static class WalkingBuildFileStrategy implements ComponentDetectionStrategy {
+		@Override
+		public void detectComponent(Resource res, Path file, Path container, ModuleCandidates candidate) {
+			Path parent = file.getParent();
+			while (container.compareTo(parent) != 0) {
+				boolean buildFileExistence = Files.exists(parent.resolveSibling("pom.xml"))
+						|| Files.exists(parent.resolveSibling("build.gradle"));
+				if (buildFileExistence) {
+					String modName = parent.getParent().getFileName().toString();
+					if (Files.exists(parent.resolveSibling("Dockerfile"))) {
+						candidate.addModuleClassifier(ModuleState.MICROSERVICE_COMPONENT, modName, res);
+					} else {
+						candidate.addModuleClassifier(ModuleState.COMPONENT_CANDIDATE, modName, res);
+					}
+					return;
+				}
+				parent = parent.getParent();
+			}
+		}
+	}
+}
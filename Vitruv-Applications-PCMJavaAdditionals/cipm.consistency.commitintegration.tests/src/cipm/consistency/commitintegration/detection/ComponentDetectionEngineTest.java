@@ -0,0 +1,167 @@
+package cipm.consistency.commitintegration.detection;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.impl.ResourceImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import cipm.consistency.commitintegration.detection.ComponentDetectionEngine.DetectionUnit;
+import cipm.consistency.commitintegration.detection.ModuleAssignment.ModuleClassifier;
+import cipm.consistency.tools.evaluation.data.ComponentDetectionStrategyData;
+
+/**
+ * Tests that the partitioned detection of components with multiple threads
+ * results in the same module classifiers and candidates as the execution of
+ * the strategies one after another on a repository with multiple modules.
+ * 
+ * @author Martin Armbruster
+ */
+public class ComponentDetectionEngineTest {
+	private static final String[] MODULES = {"services/auth", "services/billing", "libs/core", "libs/util",
+		"apps/web"};
+	private static final int FILES_PER_MODULE = 9;
+	@TempDir
+	Path tempDir;
+	private Path container;
+	private List<DetectionUnit> units = new ArrayList<>();
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		container = tempDir.resolve("container");
+		writeFile("pom.xml");
+		writeFile("services/auth/pom.xml");
+		writeFile("services/auth/Dockerfile");
+		writeFile("services/billing/build.gradle");
+		writeFile("libs/core/pom.xml");
+		writeFile("apps/web/build.gradle");
+		writeFile("apps/web/Dockerfile");
+		for (int idx = 0; idx < FILES_PER_MODULE; idx++) {
+			for (String module : MODULES) {
+				Path file = writeFile(module + "/src/main/java/org/example/C" + idx + ".java");
+				units.add(new DetectionUnit(new ResourceImpl(URI.createFileURI(file.toString())), file));
+			}
+		}
+		Path file = writeFile("Top.java");
+		units.add(new DetectionUnit(new ResourceImpl(URI.createFileURI(file.toString())), file));
+	}
+
+	private Path writeFile(String path) throws IOException {
+		Path file = container.resolve(path);
+		Files.createDirectories(file.getParent());
+		Files.writeString(file, "");
+		return file;
+	}
+
+	/**
+	 * Creates the strategies in an order which differs from their priorities.
+	 * 
+	 * @return the strategies.
+	 */
+	private static List<ComponentDetectionStrategy> createStrategies() {
+		return List.of(new BuildFileBasedComponentDetectionStrategy(), new LibraryStrategy(), new EvenFileStrategy());
+	}
+
+	private static Map<ModuleState, Map<String, Set<Resource>>> toMap(ModuleCandidates candidates) {
+		Map<ModuleState, Map<String, Set<Resource>>> result = new EnumMap<>(ModuleState.class);
+		for (ModuleState state : ModuleState.values()) {
+			result.put(state, candidates.getModulesInState(state));
+		}
+		return result;
+	}
+
+	@Test
+	public void testParallelDetectionEqualsSequentialExecution() {
+		List<ComponentDetectionStrategy> baselineStrategies = new ArrayList<>(createStrategies());
+		baselineStrategies.sort((first, second) -> Integer.compare(second.getPriority(), first.getPriority()));
+		ModuleCandidates baselineCandidates = new ModuleCandidates();
+		List<List<ModuleClassifier>> baselineClassifiers = new ArrayList<>();
+		int[] baselineHits = new int[baselineStrategies.size()];
+		for (DetectionUnit unit : units) {
+			List<ModuleClassifier> classifiers = new ArrayList<>();
+			for (int idx = 0; idx < baselineStrategies.size(); idx++) {
+				ModuleCandidates candidates = new ModuleCandidates();
+				baselineStrategies.get(idx).detectComponent(unit.getResource(), unit.getFile(), container,
+						candidates);
+				candidates.getModulesInState(ModuleState.MICROSERVICE_COMPONENT).keySet().forEach(
+						name -> classifiers.add(new ModuleClassifier(ModuleState.MICROSERVICE_COMPONENT, name)));
+				candidates.getModulesInState(ModuleState.COMPONENT_CANDIDATE).keySet().forEach(
+						name -> classifiers.add(new ModuleClassifier(ModuleState.COMPONENT_CANDIDATE, name)));
+				if (!candidates.getModulesInState(ModuleState.MICROSERVICE_COMPONENT).isEmpty()
+						|| !candidates.getModulesInState(ModuleState.COMPONENT_CANDIDATE).isEmpty()) {
+					baselineHits[idx]++;
+				}
+				baselineCandidates.merge(candidates);
+			}
+			baselineClassifiers.add(classifiers);
+		}
+
+		for (int threads : new int[] {1, 2, 3, 16}) {
+			ComponentDetectionEngine engine = new ComponentDetectionEngine(createStrategies(), threads);
+			ModuleCandidates candidates = new ModuleCandidates();
+			assertEquals(baselineClassifiers, engine.detect(units, container, candidates),
+					"Classifiers with " + threads + " threads");
+			assertEquals(toMap(baselineCandidates), toMap(candidates), "Candidates with " + threads + " threads");
+			List<ComponentDetectionStrategyData> data = engine.getStrategyData();
+			assertEquals(baselineStrategies.size(), data.size());
+			for (int idx = 0; idx < data.size(); idx++) {
+				assertEquals(baselineStrategies.get(idx).getClass().getSimpleName(), data.get(idx).getStrategy());
+				assertEquals(units.size(), data.get(idx).getNumberEvaluatedCompilationUnits());
+				assertEquals(baselineHits[idx], data.get(idx).getNumberHits());
+			}
+		}
+		assertEquals(List.of(new ModuleClassifier(ModuleState.COMPONENT_CANDIDATE, "core"),
+				new ModuleClassifier(ModuleState.COMPONENT_CANDIDATE, "libs")),
+				baselineClassifiers.get(MODULES.length + 2));
+		assertEquals(List.of(), baselineClassifiers.get(units.size() - 1));
+	}
+
+	/**
+	 * Classifies all files below the libs directory as one module and is executed
+	 * after the build file-based strategy.
+	 */
+	private static class LibraryStrategy implements ComponentDetectionStrategy {
+		@Override
+		public void detectComponent(Resource res, Path file, Path container, ModuleCandidates candidate) {
+			if (container.relativize(file).startsWith("libs")) {
+				candidate.addModuleClassifier(ModuleState.COMPONENT_CANDIDATE, "libs", res);
+			}
+		}
+
+		@Override
+		public int getPriority() {
+			return -1;
+		}
+	}
+
+	/**
+	 * Classifies every file with an even number as a microservice and is executed
+	 * before the other strategies.
+	 */
+	private static class EvenFileStrategy implements ComponentDetectionStrategy {
+		@Override
+		public void detectComponent(Resource res, Path file, Path container, ModuleCandidates candidate) {
+			String name = file.getFileName().toString();
+			if (name.matches("C\\d*[02468]\\.java")) {
+				candidate.addModuleClassifier(ModuleState.MICROSERVICE_COMPONENT, "even", res);
+			}
+		}
+
+		@Override
+		public int getPriority() {
+			return 1;
+		}
+	}
+}
@@ -0,0 +1,206 @@
+package cipm.consistency.commitintegration;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectLoader;
+import org.eclipse.jgit.lib.ObjectReader;
+
+import cipm.consistency.tools.evaluation.data.ChangeStatistic;
+
+/**
+ * A bounded cache for the contents of blobs. As the blobs are addressed by
+ * their content, cached contents never become outdated. The least recently used
+ * contents are evicted if the total size of the cached contents exceeds a
+ * limit. Blobs larger than a fraction of the limit are not cached and can be
+ * streamed instead. The hits, misses and evictions are reported in the
+ * statistic of the propagated changes.
+ * 
+ * @author Martin Armbruster
+ */
+public class BlobCache {
+	/**
+	 * Blobs larger than the limit divided by this factor are not cached.
+	 */
+	private static final int MAX_BLOB_FRACTION = 8;
+	private final Map<ObjectId, byte[]> contents = new LinkedHashMap<>(16, 0.75f, true);
+	private final long maxSize;
+	private long size;
+	private long hits;
+	private long misses;
+	private long evictions;
+	private long reportedHits;
+	private long reportedMisses;
+	private long reportedEvictions;
+
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param maxSize the maximum total size of the cached contents in bytes.
+	 */
+	public BlobCache(long maxSize) {
+		this.maxSize = Math.max(0, maxSize);
+	}
+
+	/**
+	 * Returns the content of a blob. The returned buffer is read-only and shares
+	 * the cached content so that no copy is created.
+	 * 
+	 * @param reader the reader for the repository containing the blob.
+	 * @param id     id of the blob.
+	 * @return the content.
+	 * @throws MissingObjectException if the blob does not exist.
+	 * @throws IOException            if the blob cannot be read.
+	 */
+	public ByteBuffer getContent(ObjectReader reader, ObjectId id) throws MissingObjectException, IOException {
+		return ByteBuffer.wrap(getBytes(reader, id)).asReadOnlyBuffer();
+	}
+
+	/**
+	 * Returns the content of a blob as array which is shared with the cache. The
+	 * array must not be modified.
+	 * 
+	 * @param reader the reader for the repository containing the blob.
+	 * @param id     id of the blob.
+	 * @return the content.
+	 * @throws MissingObjectException if the blob does not exist.
+	 * @throws IOException            if the blob cannot be read.
+	 */
+	byte[] getBytes(ObjectReader reader, ObjectId id) throws MissingObjectException, IOException {
+		byte[] content = lookup(id);
+		if (content == null) {
+			ObjectLoader loader = reader.open(id, Constants.OBJ_BLOB);
+			if (isCacheable(loader.getSize())) {
+				// The cached bytes of small loaders are used directly without copying them.
+				// Large loaders do not keep their bytes so that they are read from the stream.
+				content = loader.getCachedBytes(Integer.MAX_VALUE);
+				store(id, content);
+			} else {
+				try (InputStream stream = loader.openStream()) {
+					content = stream.readAllBytes();
+				}
+			}
+		}
+		return content;
+	}
+
+	/**
+	 * Returns the content of a blob decoded with UTF-8.
+	 * 
+	 * @param reader the reader for the repository containing the blob.
+	 * @param id     id of the blob.
+	 * @return the decoded content.
+	 * @throws MissingObjectException if the blob does not exist.
+	 * @throws IOException            if the blob cannot be read.
+	 */
+	public String getContentAsString(ObjectReader reader, ObjectId id) throws MissingObjectException, IOException {
+		return new String(getBytes(reader, id), StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Opens a stream for the content of a blob. If the content is cached, it is
+	 * read from the cache. Otherwise, the content is streamed from the repository
+	 * without being cached, which avoids loading large blobs completely into the
+	 * memory.
+	 * 
+	 * @param reader the reader for the repository containing the blob. It must
+	 *               remain open while the stream is read.
+	 * @param id     id of the blob.
+	 * @return the stream. It must be closed by the caller.
+	 * @throws MissingObjectException if the blob does not exist.
+	 * @throws IOException            if the blob cannot be read.
+	 */
+	public InputStream openStream(ObjectReader reader, ObjectId id) throws MissingObjectException, IOException {
+		byte[] content = lookup(id);
+		if (content != null) {
+			return new ByteArrayInputStream(content);
+		}
+		return reader.open(id, Constants.OBJ_BLOB).openStream();
+	}
+
+	private synchronized byte[] lookup(ObjectId id) {
+		byte[] content = contents.get(id);
+		if (content != null) {
+			hits++;
+		} else {
+			misses++;
+		}
+		return content;
+	}
+
+	private boolean isCacheable(long blobSize) {
+		return blobSize <= maxSize / MAX_BLOB_FRACTION;
+	}
+
+	private synchronized void store(ObjectId id, byte[] content) {
+		byte[] previous = contents.put(id.copy(), content);
+		if (previous != null) {
+			size -= previous.length;
+		}
+		size += content.length;
+		Iterator<byte[]> iterator = contents.values().iterator();
+		while (size > maxSize && iterator.hasNext()) {
+			size -= iterator.next().length;
+			iterator.remove();
+			evictions++;
+		}
+	}
+
+	/**
+	 * Removes all cached contents.
+	 */
+	public synchronized void clear() {
+		contents.clear();
+		size = 0;
+	}
+
+	public synchronized long getSize() {
+		return size;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Adds the hits, misses and evictions since the last call of this method to a
+	 * statistic.
+	 * 
+	 * @param statistic the statistic.
+	 */
+	public synchronized void reportTo(ChangeStatistic statistic) {
+		statistic.setNumberBlobCacheHits(statistic.getNumberBlobCacheHits() + hits - reportedHits);
+		statistic.setNumberBlobCacheMisses(statistic.getNumberBlobCacheMisses() + misses - reportedMisses);
+		statistic.setNumberBlobCacheEvictions(statistic.getNumberBlobCacheEvictions() + evictions - reportedEvictions);
+		reportedHits = hits;
+		reportedMisses = misses;
+		reportedEvictions = evictions;
+	}
+
+	/**
+	 * Returns the ratio of the requests which were answered from the cache.
+	 * 
+	 * @return the hit rate between 0 and 1.
+	 */
+	public synchronized double getHitRate() {
+		long requests = hits + misses;
+		return requests == 0 ? 0 : (double) hits / requests;
+	}
+}
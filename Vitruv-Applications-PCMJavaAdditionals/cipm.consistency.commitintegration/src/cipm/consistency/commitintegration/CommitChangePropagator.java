@@ -2,18 +2,36 @@ package cipm.consistency.commitintegration;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.log4j.Logger;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.revwalk.RevCommit;
 
 import cipm.consistency.commitintegration.settings.CommitIntegrationSettingsContainer;
 import cipm.consistency.commitintegration.settings.SettingKeys;
+import cipm.consistency.tools.evaluation.data.ChangeStatistic;
 import cipm.consistency.tools.evaluation.data.EvaluationDataContainer;
+import cipm.consistency.tools.evaluation.data.ExecutionTimeData;
 import tools.vitruv.framework.vsum.internal.InternalVirtualModel;
 
 /**
@@ -30,10 +48,17 @@ public class CommitChangePropagator {
 	 * Field for logging.
 	 */
 	private static final Logger LOGGER = Logger.getLogger("cipm." + CommitChangePropagator.class.getSimpleName());
+	private static final String DEFAULT_MATERIALIZED_FILE_SUFFIXES = "";
+	private static final int DEFAULT_PREPROCESSING_CACHE_SIZE = 10;
 	private GitRepositoryWrapper repoWrapper;
 	private InternalVirtualModel vsum;
 	private String remoteRepository;
 	private JavaFileSystemLayout fileLayout;
+	private IncrementalJavaParser incrementalParser = new IncrementalJavaParser();
+	private PreprocessingCache preprocessingCache;
+	private Set<URI> propagatedJavaModels;
+	private volatile String propagatedCommit;
+	private volatile String preparedCommit;
 
 	/**
 	 * Creates a new instance.
@@ -62,6 +87,13 @@ public class CommitChangePropagator {
 		vsum = vSUM;
 		fileLayout = new JavaFileSystemLayout(Paths.get(javaCacheDir).toAbsolutePath());
 		repoWrapper = new GitRepositoryWrapper(fileLayout.getLocalJavaRepo().toFile());
+		var settings = CommitIntegrationSettingsContainer.getSettingsContainer();
+		if (settings != null) {
+			int blobCacheSize = settings.getPropertyAsInteger(SettingKeys.BLOB_CACHE_SIZE, -1);
+			if (blobCacheSize >= 0) {
+				repoWrapper.setBlobCacheSize(blobCacheSize * 1024L * 1024L);
+			}
+		}
 	}
 
 	/**
@@ -114,6 +146,21 @@ public class CommitChangePropagator {
 	 * @throws IOException     if something from the repositories cannot be read.
 	 */
 	public void propagateChanges(List<RevCommit> commits) throws GitAPIException, IOException {
+		if (CommitIntegrationSettingsContainer.getSettingsContainer()
+				.getProperty(SettingKeys.PROPAGATION_PLANNING_POLICY) != null) {
+			int numberCommits = commits.size();
+			commits = new CommitPropagationPlanner(repoWrapper).plan(commits);
+			LOGGER.debug("Reduced " + numberCommits + " commits to " + commits.size() + " planned commits.");
+		}
+		if (CommitIntegrationSettingsContainer.getSettingsContainer()
+				.getPropertyAsBoolean(SettingKeys.PERFORM_PIPELINED_PROPAGATION)) {
+			propagateChangesPipelined(commits);
+		} else {
+			propagateChangesSequentially(commits);
+		}
+	}
+
+	private void propagateChangesSequentially(List<RevCommit> commits) throws GitAPIException, IOException {
 		if (commits.size() > 0) {
 			RevCommit first = commits.remove(0);
 			LOGGER.debug("Propagating " + commits.size() + " commits.");
@@ -174,46 +221,344 @@ public class CommitChangePropagator {
 	 * @throws IOException     if something from the repositories cannot be read.
 	 */
 	public boolean propagateChanges(RevCommit start, RevCommit end) throws GitAPIException, IOException {
+		Set<EObject> reassignedModels = new HashSet<>();
+		List<Resource> javaModels = prepareCommit(start, end,
+				EvaluationDataContainer.getGlobalContainer().getChangeStatistic(),
+				EvaluationDataContainer.getGlobalContainer().getExecutionTimes(), reassignedModels);
+		if (javaModels == null) {
+			return false;
+		}
+		propagateJavaModels(end.getId().getName(), javaModels, reassignedModels);
+		return true;
+	}
+
+	/**
+	 * Propagates changes from a given list of commits to the VSUM in a pipeline.
+	 * While the Java models of one commit are propagated, the next commits are
+	 * already checked out, preprocessed and parsed in a separate thread. The
+	 * number of parsed commits waiting for their propagation is bounded by a
+	 * setting so that the required memory remains limited. The commits are
+	 * propagated in their given order.
+	 * 
+	 * <p>The pipeline requires that the commits are materialized. Otherwise, the
+	 * next commit would be checked out in the working tree from which the current
+	 * commit was read, and the commits are propagated sequentially. The parsing,
+	 * the component detection and the propagation exclude each other because all
+	 * of them use the global JavaClasspath. Thus, only the computation of the
+	 * differences, the materialization and the preprocessing of the next commits
+	 * overlap with the propagation. Their time is recorded as the preparation
+	 * time of the commits.</p>
+	 * 
+	 * @param commits the list of commits with changes to propagate.
+	 * @throws GitAPIException if there is an exception within the Git usage.
+	 * @throws IOException     if something from the repositories cannot be read.
+	 */
+	public void propagateChangesPipelined(List<RevCommit> commits) throws GitAPIException, IOException {
+		if (!isMaterializingCommits()) {
+			LOGGER.warn("The pipelined propagation requires materialized commits. "
+					+ "Propagating the commits sequentially.");
+			propagateChangesSequentially(commits);
+			return;
+		}
+		if (commits.size() == 0) {
+			return;
+		}
+		List<RevCommit> nextCommits = new ArrayList<>(commits);
+		RevCommit first = nextCommits.remove(0);
+		int capacity = Math.max(1, CommitIntegrationSettingsContainer.getSettingsContainer()
+				.getPropertyAsInteger(SettingKeys.PIPELINE_CAPACITY, 1));
+		BlockingQueue<PreparedCommit> queue = new ArrayBlockingQueue<>(capacity);
+		LOGGER.debug("Propagating " + nextCommits.size() + " commits in a pipeline. Only the differences, the "
+				+ "materialization and the preprocessing overlap with the propagation.");
+		// The next commit is parsed while the copies of the previous commit are still
+		// propagated so that they cannot be reused.
+		incrementalParser.setReuseCopies(false);
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		Future<Void> producer = executor.submit(() -> {
+			try {
+				RevCommit start = first;
+				for (RevCommit next : nextCommits) {
+					// The statistic is recorded for the prepared commit and becomes the global
+					// one when the commit is propagated.
+					ChangeStatistic statistic = new ChangeStatistic();
+					ExecutionTimeData times = new ExecutionTimeData();
+					Set<EObject> reassignedModels = new HashSet<>();
+					List<Resource> javaModels = prepareCommit(start, next, statistic, times, reassignedModels);
+					if (javaModels != null) {
+						queue.put(new PreparedCommit(next.getId().getName(), javaModels, statistic,
+								times.getPreparationTime(), reassignedModels));
+						start = next;
+					}
+				}
+			} finally {
+				queue.put(PreparedCommit.END);
+			}
+			return null;
+		});
+		try {
+			PreparedCommit prepared = queue.take();
+			while (prepared != PreparedCommit.END) {
+				EvaluationDataContainer.getGlobalContainer().setChangeStatistic(prepared.changeStatistic);
+				EvaluationDataContainer.getGlobalContainer().getExecutionTimes()
+						.setPreparationTime(prepared.preparationTime);
+				propagateJavaModels(prepared.commitId, prepared.javaModels, prepared.reassignedModels);
+				prepared = queue.take();
+			}
+			producer.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException) {
+				throw (IOException) cause;
+			} else if (cause instanceof GitAPIException) {
+				throw (GitAPIException) cause;
+			} else if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			}
+			throw new IOException(cause);
+		} finally {
+			executor.shutdownNow();
+			incrementalParser.setReuseCopies(true);
+		}
+		LOGGER.debug("Finished propagating the commits.");
+	}
+
+	/**
+	 * Prepares the propagation of the changes between two commits by checking
+	 * out, preprocessing and parsing the second commit.
+	 * 
+	 * @param start            the first commit.
+	 * @param end              the second commit.
+	 * @param cs               the statistic in which the changes between both
+	 *                         commits are recorded.
+	 * @param times            the execution times in which the preparation time
+	 *                         is recorded.
+	 * @param reassignedModels the set to which the compilation units are added
+	 *                         whose component changed.
+	 * @return the Resources with the Java models of the second commit. null if
+	 *         there are no changes for Java files or the pre-processing failed.
+	 * @throws GitAPIException if there is an exception within the Git usage.
+	 * @throws IOException     if something from the repositories cannot be read.
+	 */
+	private List<Resource> prepareCommit(RevCommit start, RevCommit end, ChangeStatistic cs,
+			ExecutionTimeData times, Set<EObject> reassignedModels) throws GitAPIException, IOException {
+		try {
+			return prepareCommitAndReadBlobs(start, end, cs, times, reassignedModels);
+		} finally {
+			repoWrapper.getBlobCache().reportTo(cs);
+		}
+	}
+
+	private List<Resource> prepareCommitAndReadBlobs(RevCommit start, RevCommit end, ChangeStatistic cs,
+			ExecutionTimeData times, Set<EObject> reassignedModels) throws GitAPIException, IOException {
+		long timer = System.currentTimeMillis();
 		String commitId = end.getId().getName();
 		LOGGER.debug("Obtaining all differences.");
-		List<DiffEntry> diffs = repoWrapper.computeDiffsBetweenTwoCommits(start, end, true, true);
+		int diffThreads = CommitIntegrationSettingsContainer.getSettingsContainer()
+				.getPropertyAsInteger(SettingKeys.DIFF_THREADS, 1);
+		CommitDiff commitDiff = repoWrapper.computeCommitDiff(start, end, true, true, diffThreads);
+		List<DiffEntry> diffs = commitDiff.getDiffs();
+		commitDiff.addTo(cs);
 		if (diffs.size() == 0) {
 			LOGGER.debug("No Java files changed for " + commitId + " so that no propagation is performed.");
-			return false;
+			return null;
 		}
-		var cs = EvaluationDataContainer.getGlobalContainer().getChangeStatistic();
 		String oldId = start != null ? start.getId().getName() : null;
 		cs.setOldCommit(oldId != null ? oldId : "");
 		cs.setNewCommit(commitId);
-		cs.setNumberCommits(repoWrapper.getAllCommitsBetweenTwoCommits(oldId, commitId).size() + 1);
-		LOGGER.debug("Cleaning the repository.");
-		repoWrapper.performCompleteClean();
-		LOGGER.debug("Checkout of " + commitId);
-		repoWrapper.checkout(commitId);
-		boolean preprocessResult = preprocess();
+		cs.setNumberCommits(repoWrapper.countCommitsBetweenTwoCommits(oldId, commitId) + 1);
+		File sourceDirectory = prepareSourceDirectory(end);
+		boolean preprocessResult = preprocess(sourceDirectory);
+		times.setPreparationTime(System.currentTimeMillis() - timer);
 		if (!preprocessResult) {
 			LOGGER.debug("The preprocessing failed. Aborting.");
-			return false;
+			return null;
+		}
+		Collection<Path> changedFiles = collectChangedFiles(start, end, sourceDirectory.toPath());
+		LOGGER.debug("Delegating the parsing to the JavaParserAndPropagatorUtility.");
+		if (CommitIntegrationSettingsContainer.getSettingsContainer()
+				.getPropertyAsBoolean(SettingKeys.PERFORM_INCREMENTAL_PARSING)) {
+			return JavaParserAndPropagatorUtils.parseChangedJavaCodeIntoModels(sourceDirectory.toPath(),
+					fileLayout.getJavaModelFile(), fileLayout.getJavaModelsDirectory(),
+					fileLayout.getModuleConfiguration(), incrementalParser, oldId, commitId, diffs, changedFiles,
+					reassignedModels);
+		}
+		return JavaParserAndPropagatorUtils.parseJavaCodeIntoModels(sourceDirectory.toPath(),
+				fileLayout.getJavaModelFile(), fileLayout.getJavaModelsDirectory(),
+				fileLayout.getModuleConfiguration(), changedFiles, reassignedModels);
+	}
+
+	/**
+	 * Collects all changed files between two commits for the component detection.
+	 * As a commit is only skipped before its components are detected, the files
+	 * changed since the last detection.
+	 * 
+	 * @param start     the first commit. Can be null.
+	 * @param end       the second commit.
+	 * @param directory the directory with the second commit.
+	 * @return the absolute paths of the added, modified and removed files. null
+	 *         if there is no first commit.
+	 * @throws IOException if the repository cannot be read.
+	 */
+	private Collection<Path> collectChangedFiles(RevCommit start, RevCommit end, Path directory)
+			throws IOException {
+		if (start == null) {
+			return null;
+		}
+		Path absoluteDirectory = directory.toAbsolutePath();
+		Set<Path> changedFiles = new HashSet<>();
+		for (DiffEntry diff : repoWrapper.computeChangedFilesBetweenTwoCommits(start, end, false)) {
+			if (!DiffEntry.DEV_NULL.equals(diff.getOldPath())) {
+				changedFiles.add(absoluteDirectory.resolve(diff.getOldPath()));
+			}
+			if (!DiffEntry.DEV_NULL.equals(diff.getNewPath())) {
+				changedFiles.add(absoluteDirectory.resolve(diff.getNewPath()));
+			}
 		}
+		return changedFiles;
+	}
+
+	private void propagateJavaModels(String commitId, List<Resource> javaModels, Set<EObject> reassignedModels)
+			throws IOException {
 		LOGGER.debug("Delegating the change propagation to the JavaParserAndPropagatorUtility.");
-		JavaParserAndPropagatorUtils.parseAndPropagateJavaCode(repoWrapper.getRootDirectory().toPath(),
-				fileLayout.getJavaModelFile(), vsum, fileLayout.getModuleConfiguration());
+		Set<URI> previousModels = getPropagatedJavaModels();
+		Set<URI> currentModels = new LinkedHashSet<>();
+		javaModels.forEach(r -> currentModels.add(r.getURI()));
+		// Resources which are no longer created for the commit contained removed Java
+		// files.
+		Set<URI> removedModels = new LinkedHashSet<>(previousModels);
+		removedModels.removeAll(currentModels);
+		// Copies reused by the incremental parser remain loaded for the next commit.
+		boolean reusedCopies = CommitIntegrationSettingsContainer.getSettingsContainer()
+				.getPropertyAsBoolean(SettingKeys.PERFORM_INCREMENTAL_PARSING) && incrementalParser.isReusingCopies();
+		JavaParserAndPropagatorUtils.propagateJavaModels(javaModels, removedModels, reassignedModels, vsum,
+				!reusedCopies);
+		propagatedJavaModels = currentModels;
+		List<String> lines = new ArrayList<>();
+		currentModels.forEach(uri -> lines.add(uri.toString()));
+		Files.createDirectories(fileLayout.getJavaModelsList().getParent());
+		Files.write(fileLayout.getJavaModelsList(), lines);
+		propagatedCommit = commitId;
 		LOGGER.debug("Finished the propagation of " + commitId);
-		return true;
 	}
 
-	private boolean preprocess() {
-		File possibleFile = new File(CommitIntegrationSettingsContainer.getSettingsContainer()
-				.getProperty(SettingKeys.PATH_TO_PREPROCESSING_SCRIPT));
+	/**
+	 * Returns the URIs of the Resources with the Java models which were
+	 * propagated last.
+	 * 
+	 * @return the URIs of the Resources.
+	 * @throws IOException if the stored URIs cannot be read.
+	 */
+	public Set<URI> getPropagatedJavaModels() throws IOException {
+		if (propagatedJavaModels == null) {
+			propagatedJavaModels = new LinkedHashSet<>();
+			if (Files.exists(fileLayout.getJavaModelsList())) {
+				Files.readAllLines(fileLayout.getJavaModelsList())
+						.forEach(line -> propagatedJavaModels.add(URI.createURI(line)));
+			}
+		}
+		return propagatedJavaModels;
+	}
+
+	/**
+	 * Provides the files of a commit for the preprocessing and parsing. Depending
+	 * on the settings, the commit is checked out in the local repository or its
+	 * files are materialized in a separate directory.
+	 * 
+	 * @param commit the commit.
+	 * @return the directory which contains the files of the commit.
+	 * @throws GitAPIException if there is an exception within the Git usage.
+	 * @throws IOException     if something from the repositories cannot be read.
+	 */
+	private File prepareSourceDirectory(RevCommit commit) throws GitAPIException, IOException {
+		String commitId = commit.getId().getName();
+		preparedCommit = null;
+		File sourceDirectory = getSourceDirectory().toFile();
+		if (isMaterializingCommits()) {
+			LOGGER.debug("Materializing " + commitId);
+			String suffixes = CommitIntegrationSettingsContainer.getSettingsContainer()
+					.getProperty(SettingKeys.MATERIALIZED_FILE_SUFFIXES);
+			if (suffixes == null) {
+				suffixes = DEFAULT_MATERIALIZED_FILE_SUFFIXES;
+			}
+			repoWrapper.materializeCommit(commit, sourceDirectory.toPath(), Arrays.asList(suffixes.split(";")));
+		} else {
+			LOGGER.debug("Cleaning the repository.");
+			repoWrapper.performCompleteClean();
+			LOGGER.debug("Checkout of " + commitId);
+			repoWrapper.checkout(commitId);
+		}
+		preparedCommit = commitId;
+		return sourceDirectory;
+	}
+
+	private boolean isMaterializingCommits() {
+		return CommitIntegrationSettingsContainer.getSettingsContainer()
+				.getPropertyAsBoolean(SettingKeys.MATERIALIZE_COMMITS);
+	}
+
+	/**
+	 * Returns the directory in which the files of the commits are provided for
+	 * the preprocessing and parsing.
+	 * 
+	 * @return the materialized repository if the commits are materialized.
+	 *         Otherwise, the local repository.
+	 */
+	private Path getSourceDirectory() {
+		return isMaterializingCommits() ? fileLayout.getMaterializedJavaRepo()
+				: repoWrapper.getRootDirectory().toPath().toAbsolutePath();
+	}
+
+	/**
+	 * Provides the files of the last propagated commit, e. g., if the complete
+	 * sources are required for the instrumentation. If the files of another
+	 * commit were provided in the meantime, the files of the propagated commit are
+	 * provided again.
+	 * 
+	 * @return the directory from which the Java models of the last propagated
+	 *         commit were parsed. If no commit was propagated by this instance, the
+	 *         directory in which the files of the commits are provided.
+	 * @throws GitAPIException if there is an exception within the Git usage.
+	 * @throws IOException     if something from the repositories cannot be read.
+	 */
+	public Path preparePropagatedCommit() throws GitAPIException, IOException {
+		String commitId = propagatedCommit;
+		if (commitId != null && !commitId.equals(preparedCommit)) {
+			prepareSourceDirectory(repoWrapper.getCommitForId(commitId));
+		}
+		return getSourceDirectory();
+	}
+
+	private boolean preprocess(File directory) {
+		var settings = CommitIntegrationSettingsContainer.getSettingsContainer();
+		File possibleFile = new File(settings.getProperty(SettingKeys.PATH_TO_PREPROCESSING_SCRIPT));
 		String absPath = possibleFile.getAbsolutePath();
 		if (possibleFile.exists()) {
-			return ExternalCommandExecutionUtils.runScript(this.repoWrapper.getRootDirectory(), absPath);
+			if (settings.getPropertyAsBoolean(SettingKeys.CACHE_PREPROCESSING)) {
+				return getPreprocessingCache().preprocess(directory.toPath(), possibleFile.toPath().toAbsolutePath());
+			}
+			return ExternalCommandExecutionUtils.runScript(directory, absPath);
 		} else {
 			LOGGER.debug(absPath + " not found.");
 		}
 		return false;
 	}
 
+	private PreprocessingCache getPreprocessingCache() {
+		if (preprocessingCache == null) {
+			var settings = CommitIntegrationSettingsContainer.getSettingsContainer();
+			String inputs = settings.getProperty(SettingKeys.PREPROCESSING_CACHE_INPUTS);
+			List<String> inputGlobs = inputs != null ? Arrays.asList(inputs.split(";"))
+					: PreprocessingCache.DEFAULT_INPUT_GLOBS;
+			preprocessingCache = new PreprocessingCache(fileLayout.getPreprocessingCache(), inputGlobs,
+					settings.getPropertyAsInteger(SettingKeys.PREPROCESSING_CACHE_SIZE,
+							DEFAULT_PREPROCESSING_CACHE_SIZE));
+		}
+		return preprocessingCache;
+	}
+
 	/**
 	 * Initializes the propagator. The remote repository is cloned into the local
 	 * directory. If the repository was already cloned beforehand, the Git
@@ -245,6 +590,15 @@ public class CommitChangePropagator {
 		repoWrapper.closeRepository();
 	}
 
+	/**
+	 * Returns the commit which was propagated last by this instance.
+	 * 
+	 * @return the id of the commit or null if no commit was propagated.
+	 */
+	public String getPropagatedCommit() {
+		return propagatedCommit;
+	}
+
 	public GitRepositoryWrapper getWrapper() {
 		return repoWrapper;
 	}
@@ -252,4 +606,28 @@ public class CommitChangePropagator {
 	public JavaFileSystemLayout getJavaFileSystemLayout() {
 		return fileLayout;
 	}
+
+	/**
+	 * A commit whose Java models are parsed and wait for their propagation.
+	 */
+	private static final class PreparedCommit {
+		/**
+		 * Marks the end of the pipeline.
+		 */
+		private static final PreparedCommit END = new PreparedCommit(null, null, null, 0, null);
+		private final String commitId;
+		private final List<Resource> javaModels;
+		private final ChangeStatistic changeStatistic;
+		private final long preparationTime;
+		private final Set<EObject> reassignedModels;
+
+		private PreparedCommit(String commitId, List<Resource> javaModels, ChangeStatistic changeStatistic,
+				long preparationTime, Set<EObject> reassignedModels) {
+			this.commitId = commitId;
+			this.javaModels = javaModels;
+			this.changeStatistic = changeStatistic;
+			this.preparationTime = preparationTime;
+			this.reassignedModels = reassignedModels;
+		}
+	}
 }
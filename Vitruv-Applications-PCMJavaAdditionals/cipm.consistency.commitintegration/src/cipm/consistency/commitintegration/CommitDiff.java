@@ -0,0 +1,91 @@
+package cipm.consistency.commitintegration;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.eclipse.jgit.diff.DiffEntry;
+
+import cipm.consistency.tools.evaluation.data.ChangeStatistic;
+
+/**
+ * Represents the differences between two commits together with statistics
+ * about the changed lines.
+ * 
+ * @author Martin Armbruster
+ */
+public class CommitDiff {
+	private List<DiffEntry> diffs;
+	private List<FileStatistic> fileStatistics;
+	private int numberAddedLines;
+	private int numberRemovedLines;
+
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param diffs          the changed files.
+	 * @param fileStatistics the statistics for every changed file in the order of
+	 *                       the diffs. Empty if no statistics were computed.
+	 */
+	public CommitDiff(List<DiffEntry> diffs, List<FileStatistic> fileStatistics) {
+		this.diffs = Collections.unmodifiableList(diffs);
+		this.fileStatistics = Collections.unmodifiableList(fileStatistics);
+		for (FileStatistic statistic : fileStatistics) {
+			numberAddedLines += statistic.getNumberAddedLines();
+			numberRemovedLines += statistic.getNumberRemovedLines();
+		}
+	}
+
+	public List<DiffEntry> getDiffs() {
+		return diffs;
+	}
+
+	public List<FileStatistic> getFileStatistics() {
+		return fileStatistics;
+	}
+
+	public int getNumberAddedLines() {
+		return numberAddedLines;
+	}
+
+	public int getNumberRemovedLines() {
+		return numberRemovedLines;
+	}
+
+	/**
+	 * Adds the number of changed files and lines to a change statistic.
+	 * 
+	 * @param statistic the change statistic.
+	 */
+	public void addTo(ChangeStatistic statistic) {
+		statistic.setNumberChangedJavaFiles(diffs.size());
+		statistic.setNumberAddedLines(statistic.getNumberAddedLines() + numberAddedLines);
+		statistic.setNumberRemovedLines(statistic.getNumberRemovedLines() + numberRemovedLines);
+	}
+
+	/**
+	 * Statistics about the changed lines of one file.
+	 */
+	public static class FileStatistic {
+		private DiffEntry diff;
+		private int numberAddedLines;
+		private int numberRemovedLines;
+
+		FileStatistic(DiffEntry diff, int numberAddedLines, int numberRemovedLines) {
+			this.diff = diff;
+			this.numberAddedLines = numberAddedLines;
+			this.numberRemovedLines = numberRemovedLines;
+		}
+
+		public DiffEntry getDiff() {
+			return diff;
+		}
+
+		public int getNumberAddedLines() {
+			return numberAddedLines;
+		}
+
+		public int getNumberRemovedLines() {
+			return numberRemovedLines;
+		}
+	}
+}
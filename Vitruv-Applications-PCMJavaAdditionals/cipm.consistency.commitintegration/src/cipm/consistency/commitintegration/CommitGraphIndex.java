@@ -0,0 +1,425 @@
+package cipm.consistency.commitintegration;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.eclipse.jgit.errors.IncorrectObjectTypeException;
+import org.eclipse.jgit.lib.AnyObjectId;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevSort;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+
+/**
+ * An in-memory index of the commit graph of a repository. For every commit, it
+ * stores the parents, the commit time and the generation number (the length of
+ * the longest path to a root commit). The index is built once by walking all
+ * references and is extended afterwards only by the new commits.
+ * 
+ * <p>Ranges, counts and ancestry checks are answered from the index by walking
+ * the commits in the order of decreasing generation numbers so that only the
+ * commits within the queried range are visited. Commits are only parsed from
+ * the repository when they are returned by an iterator.</p>
+ * 
+ * @author Martin Armbruster
+ */
+public class CommitGraphIndex {
+	private static final Logger LOGGER = Logger.getLogger("cipm." + CommitGraphIndex.class.getSimpleName());
+	private static final int INTERESTING = 1;
+	private static final int UNINTERESTING = 2;
+	private static final int[] NO_PARENTS = new int[0];
+	private final Repository repository;
+	private final Map<ObjectId, Integer> positions = new HashMap<>();
+	private final List<ObjectId> ids = new ArrayList<>();
+	private final List<int[]> parents = new ArrayList<>();
+	private int[] generations = new int[1024];
+	private int[] commitTimes = new int[1024];
+	private final Set<ObjectId> indexedTips = new HashSet<>();
+	private final Map<Integer, Boolean> touchesJavaFiles = new HashMap<>();
+
+	/**
+	 * Creates a new index and builds it for all commits reachable from the
+	 * references of the repository.
+	 * 
+	 * @param repository the repository.
+	 * @throws IOException if the commits cannot be read.
+	 */
+	public CommitGraphIndex(Repository repository) throws IOException {
+		this.repository = repository;
+		update();
+	}
+
+	/**
+	 * Adds all commits to the index which are reachable from the references of
+	 * the repository, but not yet indexed. It should be called after a fetch.
+	 * 
+	 * @return the number of added commits.
+	 * @throws IOException if the commits cannot be read.
+	 */
+	public synchronized int update() throws IOException {
+		List<ObjectId> starts = new ArrayList<>();
+		for (Ref ref : repository.getRefDatabase().getRefs()) {
+			Ref peeled = repository.getRefDatabase().peel(ref);
+			ObjectId id = peeled.getPeeledObjectId() != null ? peeled.getPeeledObjectId() : peeled.getObjectId();
+			if (id != null) {
+				starts.add(id);
+			}
+		}
+		int added = addCommits(starts);
+		LOGGER.debug("Added " + added + " commits to the index with " + ids.size() + " commits.");
+		return added;
+	}
+
+	private int addCommits(List<ObjectId> starts) throws IOException {
+		int added = 0;
+		try (RevWalk walk = new RevWalk(repository)) {
+			walk.setRetainBody(false);
+			walk.sort(RevSort.TOPO);
+			walk.sort(RevSort.REVERSE, true);
+			boolean hasStart = false;
+			for (ObjectId start : starts) {
+				if (positions.containsKey(start)) {
+					continue;
+				}
+				RevCommit commit = parseCommitOrNull(walk, start);
+				if (commit != null) {
+					walk.markStart(commit);
+					hasStart = true;
+				}
+			}
+			if (!hasStart) {
+				return 0;
+			}
+			// All indexed commits are ancestors of the indexed tips so that the walk
+			// only visits the new commits.
+			for (ObjectId tip : indexedTips) {
+				walk.markUninteresting(walk.parseCommit(tip));
+			}
+			for (RevCommit commit : walk) {
+				addCommit(commit);
+				added++;
+			}
+		}
+		for (ObjectId start : starts) {
+			if (positions.containsKey(start)) {
+				indexedTips.add(start.copy());
+			}
+		}
+		return added;
+	}
+
+	private RevCommit parseCommitOrNull(RevWalk walk, ObjectId id) throws IOException {
+		try {
+			return walk.parseCommit(id);
+		} catch (IncorrectObjectTypeException e) {
+			// The reference does not point to a commit.
+			return null;
+		}
+	}
+
+	private void addCommit(RevCommit commit) {
+		int position = ids.size();
+		int generation = 1;
+		int[] parentPositions = commit.getParentCount() == 0 ? NO_PARENTS : new int[commit.getParentCount()];
+		int indexedParents = 0;
+		for (int idx = 0; idx < commit.getParentCount(); idx++) {
+			// Parents are always added before their children due to the topological
+			// order. Parents which are not available, e. g., at the boundary of a
+			// shallow clone, are not indexed so that the commit is a root of the index.
+			Integer parent = positions.get(commit.getParent(idx));
+			if (parent == null) {
+				LOGGER.debug("The parent " + commit.getParent(idx).getName() + " of " + commit.getName()
+						+ " is not indexed. It is ignored.");
+				continue;
+			}
+			parentPositions[indexedParents] = parent;
+			indexedParents++;
+			generation = Math.max(generation, generations[parent] + 1);
+		}
+		if (indexedParents < parentPositions.length) {
+			parentPositions = indexedParents == 0 ? NO_PARENTS : Arrays.copyOf(parentPositions, indexedParents);
+		}
+		if (position == generations.length) {
+			generations = Arrays.copyOf(generations, position * 2);
+			commitTimes = Arrays.copyOf(commitTimes, position * 2);
+		}
+		ObjectId id = commit.getId().copy();
+		ids.add(id);
+		positions.put(id, position);
+		parents.add(parentPositions);
+		generations[position] = generation;
+		commitTimes[position] = commit.getCommitTime();
+	}
+
+	private int getPosition(AnyObjectId id) throws IOException {
+		Integer position = positions.get(id);
+		if (position == null) {
+			// The commit is not reachable from the indexed references.
+			addCommits(List.of(id.copy()));
+			position = positions.get(id);
+			if (position == null) {
+				throw new IOException(id.getName() + " is not a commit.");
+			}
+		}
+		return position;
+	}
+
+	/**
+	 * Returns the number of indexed commits.
+	 * 
+	 * @return the number of commits.
+	 */
+	public synchronized int size() {
+		return ids.size();
+	}
+
+	/**
+	 * Checks if a commit is an ancestor of another commit. A commit is considered
+	 * as an ancestor of itself.
+	 * 
+	 * @param ancestor   the potential ancestor.
+	 * @param descendant the potential descendant.
+	 * @return true if the ancestor is reachable from the descendant.
+	 * @throws IOException if the commits cannot be read.
+	 */
+	public synchronized boolean isAncestor(AnyObjectId ancestor, AnyObjectId descendant) throws IOException {
+		int target = getPosition(ancestor);
+		int start = getPosition(descendant);
+		int targetGeneration = generations[target];
+		Set<Integer> visited = new HashSet<>();
+		List<Integer> stack = new ArrayList<>();
+		stack.add(start);
+		while (!stack.isEmpty()) {
+			int current = stack.remove(stack.size() - 1);
+			if (current == target) {
+				return true;
+			}
+			if (!visited.add(current)) {
+				continue;
+			}
+			for (int parent : parents.get(current)) {
+				// Ancestors always have a lower generation number so that paths below the
+				// generation of the target cannot reach it.
+				if (generations[parent] >= targetGeneration && !visited.contains(parent)) {
+					stack.add(parent);
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Counts the commits which are reachable from a commit, but not from another
+	 * commit (as in <code>git log from..to</code>).
+	 * 
+	 * @param from the excluded commit. If null, all ancestors of to are counted.
+	 * @param to   the included commit.
+	 * @return the number of commits.
+	 * @throws IOException if the commits cannot be read.
+	 */
+	public synchronized int countCommits(AnyObjectId from, AnyObjectId to) throws IOException {
+		return computeRange(from, to).size();
+	}
+
+	/**
+	 * Returns the commits which are reachable from a commit, but not from another
+	 * commit (as in <code>git log from..to</code>) in topological order with the
+	 * oldest commit first. The commits are parsed lazily during the iteration.
+	 * 
+	 * @param from the excluded commit. If null, all ancestors of to are included.
+	 * @param to   the included commit.
+	 * @return an iterator over the commits. It has to be closed if it is not
+	 *         iterated to its end.
+	 * @throws IOException if the commits cannot be read.
+	 */
+	public synchronized CommitIterator iterateRange(AnyObjectId from, AnyObjectId to) throws IOException {
+		return new CommitIterator(computeRange(from, to), false);
+	}
+
+	/**
+	 * Returns the commits of a range (see
+	 * {@link #iterateRange(AnyObjectId, AnyObjectId)}) which change Java files in
+	 * comparison to their first parent. The commits are parsed and checked lazily
+	 * during the iteration.
+	 * 
+	 * @param from the excluded commit. If null, all ancestors of to are included.
+	 * @param to   the included commit.
+	 * @return an iterator over the commits. It has to be closed if it is not
+	 *         iterated to its end.
+	 * @throws IOException if the commits cannot be read.
+	 */
+	public synchronized CommitIterator iterateRangeTouchingJavaFiles(AnyObjectId from, AnyObjectId to)
+			throws IOException {
+		return new CommitIterator(computeRange(from, to), true);
+	}
+
+	/**
+	 * Returns all indexed commits in topological order with the oldest commit
+	 * first. The commits are parsed lazily during the iteration.
+	 * 
+	 * @return an iterator over the commits. It has to be closed if it is not
+	 *         iterated to its end.
+	 */
+	public synchronized CommitIterator iterateAll() {
+		List<Integer> all = new ArrayList<>(ids.size());
+		for (int idx = 0; idx < ids.size(); idx++) {
+			all.add(idx);
+		}
+		sortTopologically(all);
+		return new CommitIterator(all, false);
+	}
+
+	private List<Integer> computeRange(AnyObjectId from, AnyObjectId to) throws IOException {
+		Map<Integer, Integer> flags = new HashMap<>();
+		// Children have a higher generation number than their parents so that all
+		// flags of a commit are known when it is polled.
+		PriorityQueue<Integer> queue = new PriorityQueue<>(
+				Comparator.comparingInt((Integer position) -> generations[position]).reversed());
+		int end = getPosition(to);
+		flags.put(end, INTERESTING);
+		queue.add(end);
+		int pendingInteresting = 1;
+		if (from != null) {
+			int start = getPosition(from);
+			if (start == end) {
+				return new ArrayList<>();
+			}
+			flags.put(start, UNINTERESTING);
+			queue.add(start);
+		}
+		List<Integer> result = new ArrayList<>();
+		while (pendingInteresting > 0) {
+			int current = queue.poll();
+			int currentFlags = flags.get(current);
+			if (currentFlags == INTERESTING) {
+				pendingInteresting--;
+				result.add(current);
+			}
+			for (int parent : parents.get(current)) {
+				int oldFlags = flags.getOrDefault(parent, 0);
+				int newFlags = oldFlags | currentFlags;
+				if (newFlags == oldFlags) {
+					continue;
+				}
+				flags.put(parent, newFlags);
+				if (oldFlags == 0) {
+					queue.add(parent);
+					if (newFlags == INTERESTING) {
+						pendingInteresting++;
+					}
+				} else if (oldFlags == INTERESTING) {
+					// The queued parent is reachable from the excluded commit as well.
+					pendingInteresting--;
+				}
+			}
+		}
+		sortTopologically(result);
+		return result;
+	}
+
+	private void sortTopologically(List<Integer> positionList) {
+		positionList.sort(Comparator.comparingInt((Integer position) -> generations[position])
+				.thenComparingInt(position -> commitTimes[position]).thenComparingInt(position -> position));
+	}
+
+	private boolean touchesJavaFiles(RevCommit commit) throws IOException {
+		int position = getPosition(commit);
+		Boolean result = touchesJavaFiles.get(position);
+		if (result == null) {
+			try (ObjectReader reader = repository.newObjectReader(); TreeWalk walk = new TreeWalk(reader);
+					RevWalk revWalk = new RevWalk(reader)) {
+				walk.setRecursive(true);
+				if (commit.getParentCount() > 0) {
+					walk.addTree(revWalk.parseCommit(commit.getParent(0)).getTree());
+				} else {
+					walk.addTree(new EmptyTreeIterator());
+				}
+				walk.addTree(commit.getTree());
+				walk.setFilter(AndTreeFilter.create(PathSuffixFilter.create(".java"), TreeFilter.ANY_DIFF));
+				result = walk.next();
+			}
+			touchesJavaFiles.put(position, result);
+		}
+		return result;
+	}
+
+	/**
+	 * An iterator which parses the commits of a range lazily. The resources for
+	 * the parsing are released when the iterator reaches its end or is closed.
+	 */
+	public class CommitIterator implements Iterator<RevCommit>, AutoCloseable {
+		private final List<Integer> range;
+		private final boolean onlyJavaChanges;
+		private final RevWalk walk = new RevWalk(repository);
+		private int nextIndex;
+		private RevCommit next;
+
+		CommitIterator(List<Integer> range, boolean onlyJavaChanges) {
+			this.range = range;
+			this.onlyJavaChanges = onlyJavaChanges;
+		}
+
+		@Override
+		public boolean hasNext() {
+			try {
+				while (next == null && nextIndex < range.size()) {
+					ObjectId id;
+					synchronized (CommitGraphIndex.this) {
+						id = ids.get(range.get(nextIndex));
+					}
+					nextIndex++;
+					RevCommit candidate = walk.parseCommit(id);
+					boolean accepted;
+					synchronized (CommitGraphIndex.this) {
+						accepted = !onlyJavaChanges || touchesJavaFiles(candidate);
+					}
+					if (accepted) {
+						next = candidate;
+					}
+				}
+			} catch (IOException e) {
+				close();
+				throw new UncheckedIOException(e);
+			}
+			if (next == null) {
+				close();
+			}
+			return next != null;
+		}
+
+		@Override
+		public RevCommit next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			RevCommit result = next;
+			next = null;
+			return result;
+		}
+
+		@Override
+		public void close() {
+			walk.close();
+		}
+	}
+}
@@ -0,0 +1,168 @@
+package cipm.consistency.commitintegration;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.log4j.Logger;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.revwalk.RevCommit;
+
+import cipm.consistency.commitintegration.settings.CommitIntegrationSettingsContainer;
+import cipm.consistency.commitintegration.settings.SettingKeys;
+
+/**
+ * Plans the propagation of a commit range. Based on a policy, it decides which
+ * commits are skipped so that the changes of multiple commits are coalesced
+ * into one propagation.
+ * 
+ * @author Martin Armbruster
+ */
+public class CommitPropagationPlanner {
+	private static final Logger LOGGER = Logger.getLogger("cipm." + CommitPropagationPlanner.class.getSimpleName());
+	private static final int DEFAULT_TIME_WINDOW = 24 * 60 * 60;
+	private static final int DEFAULT_FILE_BUDGET = 100;
+	private GitRepositoryWrapper repoWrapper;
+	private PropagationPlanningPolicy policy;
+	private int timeWindow;
+	private int fileBudget;
+
+	/**
+	 * Creates a new instance with the policy from the settings.
+	 * 
+	 * @param repoWrapper the Git repository containing the commits.
+	 */
+	public CommitPropagationPlanner(GitRepositoryWrapper repoWrapper) {
+		this.repoWrapper = repoWrapper;
+		var settings = CommitIntegrationSettingsContainer.getSettingsContainer();
+		String policyName = settings.getProperty(SettingKeys.PROPAGATION_PLANNING_POLICY);
+		policy = policyName != null ? PropagationPlanningPolicy.valueOf(policyName.trim())
+				: PropagationPlanningPolicy.EVERY_COMMIT;
+		timeWindow = settings.getPropertyAsInteger(SettingKeys.PROPAGATION_PLANNING_TIME_WINDOW, DEFAULT_TIME_WINDOW);
+		fileBudget = settings.getPropertyAsInteger(SettingKeys.PROPAGATION_PLANNING_FILE_BUDGET, DEFAULT_FILE_BUDGET);
+	}
+
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param repoWrapper the Git repository containing the commits.
+	 * @param policy      the policy for the planning.
+	 * @param timeWindow  the time window in seconds for the
+	 *                    {@link PropagationPlanningPolicy#TIME_WINDOW} policy.
+	 * @param fileBudget  the maximum number of changed Java files for the
+	 *                    {@link PropagationPlanningPolicy#CHANGED_FILE_BUDGET}
+	 *                    policy.
+	 */
+	public CommitPropagationPlanner(GitRepositoryWrapper repoWrapper, PropagationPlanningPolicy policy,
+			int timeWindow, int fileBudget) {
+		this.repoWrapper = repoWrapper;
+		this.policy = policy;
+		this.timeWindow = timeWindow;
+		this.fileBudget = fileBudget;
+	}
+
+	/**
+	 * Plans the propagation of a commit range.
+	 * 
+	 * @param commits the commits in chronological order. The first commit is the
+	 *                already propagated commit (can be null).
+	 * @return the commits which shall be propagated in chronological order. The
+	 *         first commit is the given first commit. The last commit of the range
+	 *         is always included unless there are no changes on Java files.
+	 * @throws IOException if the commits cannot be read.
+	 */
+	public List<RevCommit> plan(List<RevCommit> commits) throws IOException {
+		List<RevCommit> result = new ArrayList<>();
+		if (commits.isEmpty()) {
+			return result;
+		}
+		RevCommit last = commits.get(0);
+		result.add(last);
+		List<RevCommit> candidates = commits.subList(1, commits.size());
+		switch (policy) {
+		case TAGGED_OR_MERGE_COMMITS:
+			planTaggedOrMergeCommits(candidates, result);
+			break;
+		case TIME_WINDOW:
+			planTimeWindow(candidates, result);
+			break;
+		case CHANGED_FILE_BUDGET:
+			planChangedFileBudget(candidates, result);
+			break;
+		case EVERY_COMMIT:
+		default:
+			result.addAll(candidates);
+			break;
+		}
+		removeStepsWithoutChanges(result);
+		LOGGER.debug("Planned " + (result.size() - 1) + " propagations for " + candidates.size() + " commits with "
+				+ policy + ".");
+		return result;
+	}
+
+	private void planTaggedOrMergeCommits(List<RevCommit> candidates, List<RevCommit> result) throws IOException {
+		Set<ObjectId> taggedCommits = repoWrapper.getTaggedCommitIds();
+		for (int idx = 0; idx < candidates.size(); idx++) {
+			RevCommit candidate = candidates.get(idx);
+			if (idx == candidates.size() - 1 || candidate.getParentCount() > 1
+					|| taggedCommits.contains(candidate.getId())) {
+				result.add(candidate);
+			}
+		}
+	}
+
+	private void planTimeWindow(List<RevCommit> candidates, List<RevCommit> result) {
+		// The window starts with the first commit of a step.
+		RevCommit windowStart = null;
+		RevCommit previous = null;
+		for (RevCommit candidate : candidates) {
+			if (windowStart != null && candidate.getCommitTime() - windowStart.getCommitTime() >= timeWindow) {
+				// The candidate is outside of the window so that the step ends with the
+				// previous commit.
+				result.add(previous);
+				windowStart = null;
+			}
+			if (windowStart == null) {
+				windowStart = candidate;
+			}
+			previous = candidate;
+		}
+		if (previous != null) {
+			result.add(previous);
+		}
+	}
+
+	private void planChangedFileBudget(List<RevCommit> candidates, List<RevCommit> result) throws IOException {
+		RevCommit stepStart = result.get(result.size() - 1);
+		RevCommit previous = null;
+		for (RevCommit candidate : candidates) {
+			int changedFiles = repoWrapper.computeChangedFilesBetweenTwoCommits(stepStart, candidate, true).size();
+			if (changedFiles > fileBudget && previous != null) {
+				// Adding the candidate exceeds the budget so that the step ends with the
+				// previous commit.
+				result.add(previous);
+				stepStart = previous;
+			}
+			previous = candidate;
+		}
+		if (previous != null) {
+			result.add(previous);
+		}
+	}
+
+	// Removes commits which do not change any Java file in comparison to the
+	// previously planned commit, e. g., because changes cancelled each other out.
+	private void removeStepsWithoutChanges(List<RevCommit> result) throws IOException {
+		RevCommit stepStart = result.get(0);
+		for (int idx = 1; idx < result.size(); idx++) {
+			RevCommit next = result.get(idx);
+			if (repoWrapper.computeChangedFilesBetweenTwoCommits(stepStart, next, true).isEmpty()) {
+				result.remove(idx);
+				idx--;
+			} else {
+				stepStart = next;
+			}
+		}
+	}
+}
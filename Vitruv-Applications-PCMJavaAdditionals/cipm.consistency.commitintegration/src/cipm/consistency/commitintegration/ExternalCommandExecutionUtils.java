@@ -1,11 +1,31 @@
 package cipm.consistency.commitintegration;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.lang.SystemUtils;
 import org.apache.log4j.Logger;
 
+import cipm.consistency.commitintegration.settings.CommitIntegrationSettingsContainer;
+import cipm.consistency.commitintegration.settings.SettingKeys;
+import cipm.consistency.tools.evaluation.data.EvaluationDataContainer;
+import cipm.consistency.tools.evaluation.data.ScriptExecutionData;
+
 /**
  * A utility class for executing external commands.
  * 
@@ -14,34 +34,326 @@ import org.apache.log4j.Logger;
 public final class ExternalCommandExecutionUtils {
 	private static final Logger LOGGER = Logger
 			.getLogger("cipm." + ExternalCommandExecutionUtils.class.getSimpleName());
+	/**
+	 * Number of output lines of a script which are kept in the evaluation data.
+	 */
+	private static final int KEPT_OUTPUT_LINES = 50;
+	/**
+	 * Time in seconds to wait for the remaining output after a script terminated.
+	 */
+	private static final int OUTPUT_WAITING_TIME = 10;
 
 	private ExternalCommandExecutionUtils() {
 	}
 
 	/**
-	 * Runs an external script.
+	 * Runs an external script. The timeout and the directory for the log file
+	 * are taken from the settings.
 	 * 
 	 * @param directory directory in which the script shall run.
 	 * @param command   the script to run.
 	 * @return true if the script was successfully executed. false otherwise.
 	 */
 	public static boolean runScript(File directory, String command) {
-		int result = -1;
-		LOGGER.debug("Executing " + command);
+		return runScript(createScriptCall(directory, command)).isSuccessful();
+	}
+
+	/**
+	 * Creates a call of an external script with the timeout and the directory for
+	 * the log file from the settings.
+	 * 
+	 * @param directory directory in which the script shall run.
+	 * @param command   the script to run.
+	 * @return the created call.
+	 */
+	public static ScriptCall createScriptCall(File directory, String command) {
+		return createScriptCall(directory, command, List.of());
+	}
+
+	/**
+	 * Creates a call of an external script with arguments, the timeout and the
+	 * directory for the log file from the settings.
+	 * 
+	 * @param directory directory in which the script shall run.
+	 * @param command   the script to run.
+	 * @param arguments the arguments which are passed to the script.
+	 * @return the created call.
+	 */
+	public static ScriptCall createScriptCall(File directory, String command, List<String> arguments) {
+		var settings = CommitIntegrationSettingsContainer.getSettingsContainer();
+		long timeout = settings.getPropertyAsInteger(SettingKeys.SCRIPT_TIMEOUT, 0);
+		String logDirectory = settings.getProperty(SettingKeys.SCRIPT_LOG_DIRECTORY);
+		Path logFile = null;
+		if (logDirectory != null) {
+			try {
+				Path logDir = Files.createDirectories(Path.of(logDirectory));
+				logFile = Files.createTempFile(logDir, new File(command).getName() + "-", ".log");
+			} catch (IOException e) {
+				LOGGER.error("The log file for " + command + " cannot be created.", e);
+			}
+		}
+		return new ScriptCall(directory, command, arguments, timeout, logFile);
+	}
+
+	/**
+	 * Runs an external script. Its output is captured in the log file of the call
+	 * and in the evaluation data.
+	 * 
+	 * @param call the call of the script.
+	 * @return the result of the execution.
+	 */
+	public static ScriptExecutionResult runScript(ScriptCall call) {
+		LOGGER.debug("Executing " + describe(call));
+		List<String> command = new ArrayList<>();
 		if (SystemUtils.IS_OS_WINDOWS) {
-			result = internalRunScript(directory, "cmd.exe", "/c", "\"" + command + "\"");
+			command.add("cmd.exe");
+			command.add("/c");
+			command.add("\"" + call.getCommand() + "\"");
 		} else {
-			result = internalRunScript(directory, command);
+			command.add(call.getCommand());
+		}
+		command.addAll(call.getArguments());
+		ScriptExecutionResult result = internalRunScript(call, command);
+		LOGGER.debug("Executed " + call.getCommand() + " with exit code " + result.getExitCode() + " in "
+				+ result.getDuration() + " ms" + (result.isTimedOut() ? " (timed out)." : "."));
+		recordExecution(call, result);
+		return result;
+	}
+
+	/**
+	 * Runs multiple external scripts concurrently.
+	 * 
+	 * @param calls   the calls of the scripts.
+	 * @param threads the maximum number of scripts running at the same time.
+	 * @return the results of the executions in the order of the calls.
+	 */
+	public static List<ScriptExecutionResult> runScripts(List<ScriptCall> calls, int threads) {
+		List<ScriptExecutionResult> results = new ArrayList<>();
+		if (calls.isEmpty()) {
+			return results;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, calls.size())));
+		try {
+			List<Future<ScriptExecutionResult>> futures = new ArrayList<>();
+			for (ScriptCall call : calls) {
+				futures.add(executor.submit(() -> runScript(call)));
+			}
+			for (Future<ScriptExecutionResult> future : futures) {
+				results.add(future.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			executor.shutdownNow();
+			throw new IllegalStateException(e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			executor.shutdown();
+		}
+		return results;
+	}
+
+	private static ScriptExecutionResult internalRunScript(ScriptCall call, List<String> command) {
+		long start = System.currentTimeMillis();
+		Deque<String> lastLines = new ArrayDeque<>();
+		Process process;
+		try {
+			process = new ProcessBuilder().directory(call.getDirectory()).redirectErrorStream(true).command(command)
+					.start();
+		} catch (IOException e) {
+			LOGGER.error("Could not start " + call.getCommand(), e);
+			return new ScriptExecutionResult(-1, System.currentTimeMillis() - start, false, new ArrayList<>());
+		}
+		Thread outputReader = new Thread(() -> captureOutput(process, call.getLogFile(), lastLines),
+				"cipm-script-output");
+		outputReader.setDaemon(true);
+		outputReader.start();
+
+		int exitCode = -1;
+		boolean timedOut = false;
+		try {
+			if (call.getTimeout() > 0) {
+				if (process.waitFor(call.getTimeout(), TimeUnit.SECONDS)) {
+					exitCode = process.exitValue();
+				} else {
+					timedOut = true;
+					LOGGER.error(call.getCommand() + " did not finish within " + call.getTimeout()
+							+ " seconds. Terminating it.");
+					destroyProcessTree(process);
+				}
+			} else {
+				exitCode = process.waitFor();
+			}
+			outputReader.join(TimeUnit.SECONDS.toMillis(OUTPUT_WAITING_TIME));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			destroyProcessTree(process);
+		}
+		List<String> output;
+		synchronized (lastLines) {
+			output = new ArrayList<>(lastLines);
+		}
+		return new ScriptExecutionResult(exitCode, System.currentTimeMillis() - start, timedOut, output);
+	}
+
+	private static void captureOutput(Process process, Path logFile, Deque<String> lastLines) {
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(process.getInputStream(), Charset.defaultCharset()));
+				BufferedWriter writer = logFile != null ? Files.newBufferedWriter(logFile) : null) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				LOGGER.debug(line);
+				if (writer != null) {
+					writer.write(line);
+					writer.newLine();
+					writer.flush();
+				}
+				synchronized (lastLines) {
+					lastLines.addLast(line);
+					if (lastLines.size() > KEPT_OUTPUT_LINES) {
+						lastLines.removeFirst();
+					}
+				}
+			}
+		} catch (IOException e) {
+			LOGGER.error("The output of the script cannot be captured.", e);
 		}
-		return result == 0;
 	}
 
-	private static int internalRunScript(File directory, String... command) {
+	private static void destroyProcessTree(Process process) {
+		process.descendants().forEach(ProcessHandle::destroyForcibly);
+		process.destroyForcibly();
 		try {
-			Process process = new ProcessBuilder().directory(directory).inheritIO().command(command).start();
-			return process.waitFor();
-		} catch (IOException | InterruptedException e) {
-			return -1;
+			process.waitFor(OUTPUT_WAITING_TIME, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	// Describes a call by the script and its arguments.
+	private static String describe(ScriptCall call) {
+		if (call.getArguments().isEmpty()) {
+			return call.getCommand();
+		}
+		return call.getCommand() + " " + String.join(" ", call.getArguments());
+	}
+
+	private static void recordExecution(ScriptCall call, ScriptExecutionResult result) {
+		ScriptExecutionData data = new ScriptExecutionData();
+		data.setScript(describe(call));
+		data.setDirectory(call.getDirectory().getAbsolutePath());
+		data.setExitCode(result.getExitCode());
+		data.setDuration(result.getDuration());
+		data.setTimedOut(result.isTimedOut());
+		if (call.getLogFile() != null) {
+			data.setLogFile(call.getLogFile().toAbsolutePath().toString());
+		}
+		data.getLastOutputLines().addAll(result.getLastOutputLines());
+		EvaluationDataContainer.getGlobalContainer().addScriptExecution(data);
+	}
+
+	/**
+	 * The call of an external script.
+	 */
+	public static class ScriptCall {
+		private File directory;
+		private String command;
+		private List<String> arguments;
+		private long timeout;
+		private Path logFile;
+
+		/**
+		 * Creates a new instance.
+		 * 
+		 * @param directory directory in which the script shall run.
+		 * @param command   the script to run.
+		 * @param timeout   the timeout in seconds after which the script and all of
+		 *                  its child processes are terminated. 0 for no timeout.
+		 * @param logFile   the file in which the output is written. Can be null.
+		 */
+		public ScriptCall(File directory, String command, long timeout, Path logFile) {
+			this(directory, command, List.of(), timeout, logFile);
+		}
+
+		/**
+		 * Creates a new instance with arguments.
+		 * 
+		 * @param directory directory in which the script shall run.
+		 * @param command   the script to run.
+		 * @param arguments the arguments which are passed to the script.
+		 * @param timeout   the timeout in seconds after which the script and all of
+		 *                  its child processes are terminated. 0 for no timeout.
+		 * @param logFile   the file in which the output is written. Can be null.
+		 */
+		public ScriptCall(File directory, String command, List<String> arguments, long timeout, Path logFile) {
+			this.directory = directory;
+			this.command = command;
+			this.arguments = List.copyOf(arguments);
+			this.timeout = timeout;
+			this.logFile = logFile;
+		}
+
+		public File getDirectory() {
+			return directory;
+		}
+
+		public String getCommand() {
+			return command;
+		}
+
+		public List<String> getArguments() {
+			return arguments;
+		}
+
+		public long getTimeout() {
+			return timeout;
+		}
+
+		public Path getLogFile() {
+			return logFile;
+		}
+	}
+
+	/**
+	 * The result of the execution of an external script.
+	 */
+	public static class ScriptExecutionResult {
+		private int exitCode;
+		private long duration;
+		private boolean timedOut;
+		private List<String> lastOutputLines;
+
+		ScriptExecutionResult(int exitCode, long duration, boolean timedOut, List<String> lastOutputLines) {
+			this.exitCode = exitCode;
+			this.duration = duration;
+			this.timedOut = timedOut;
+			this.lastOutputLines = lastOutputLines;
+		}
+
+		/**
+		 * Checks if the script was successfully executed.
+		 * 
+		 * @return true if the script terminated within the timeout with the exit code
+		 *         0. false otherwise.
+		 */
+		public boolean isSuccessful() {
+			return !timedOut && exitCode == 0;
+		}
+
+		public int getExitCode() {
+			return exitCode;
+		}
+
+		public long getDuration() {
+			return duration;
+		}
+
+		public boolean isTimedOut() {
+			return timedOut;
+		}
+
+		public List<String> getLastOutputLines() {
+			return lastOutputLines;
 		}
 	}
 }
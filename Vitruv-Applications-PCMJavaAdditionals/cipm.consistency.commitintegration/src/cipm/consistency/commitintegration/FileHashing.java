@@ -0,0 +1,77 @@
+package cipm.consistency.commitintegration;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * A utility class for hashing the content of files.
+ * 
+ * @author Martin Armbruster
+ */
+public final class FileHashing {
+	private static final String ALGORITHM = "SHA-256";
+
+	private FileHashing() {
+	}
+
+	/**
+	 * Creates a new digest for the hashes.
+	 * 
+	 * @return the digest.
+	 */
+	public static MessageDigest createDigest() {
+		try {
+			return MessageDigest.getInstance(ALGORITHM);
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Updates a digest with the content of a file.
+	 * 
+	 * @param digest the digest.
+	 * @param file   the file.
+	 * @throws IOException if the file cannot be read.
+	 */
+	public static void update(MessageDigest digest, Path file) throws IOException {
+		byte[] buffer = new byte[8192];
+		try (InputStream input = new DigestInputStream(Files.newInputStream(file), digest)) {
+			while (input.read(buffer) != -1) {
+				// The content is consumed by the DigestInputStream.
+			}
+		}
+	}
+
+	/**
+	 * Computes the hash of the content of a file.
+	 * 
+	 * @param file the file.
+	 * @return the hash as hexadecimal string.
+	 * @throws IOException if the file cannot be read.
+	 */
+	public static String hash(Path file) throws IOException {
+		MessageDigest digest = createDigest();
+		update(digest, file);
+		return toHex(digest.digest());
+	}
+
+	/**
+	 * Converts a hash to a hexadecimal string.
+	 * 
+	 * @param hash the hash.
+	 * @return the hexadecimal string.
+	 */
+	public static String toHex(byte[] hash) {
+		StringBuilder builder = new StringBuilder();
+		for (byte b : hash) {
+			builder.append(String.format("%02x", b));
+		}
+		return builder.toString();
+	}
+}
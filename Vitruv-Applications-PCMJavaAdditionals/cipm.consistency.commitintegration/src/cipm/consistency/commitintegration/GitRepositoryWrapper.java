@@ -3,12 +3,27 @@ package cipm.consistency.commitintegration;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.ArrayList;
-import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
 import org.eclipse.jgit.api.Git;
 import org.eclipse.jgit.api.ResetCommand.ResetType;
 import org.eclipse.jgit.api.errors.CheckoutConflictException;
@@ -19,23 +34,31 @@ import org.eclipse.jgit.api.errors.NoHeadException;
 import org.eclipse.jgit.api.errors.RefAlreadyExistsException;
 import org.eclipse.jgit.api.errors.RefNotFoundException;
 import org.eclipse.jgit.api.errors.TransportException;
+import org.eclipse.jgit.diff.DiffAlgorithm;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.diff.Edit;
 import org.eclipse.jgit.diff.EditList;
 import org.eclipse.jgit.diff.RawText;
+import org.eclipse.jgit.diff.RawTextComparator;
 import org.eclipse.jgit.diff.RenameDetector;
 import org.eclipse.jgit.errors.CorruptObjectException;
 import org.eclipse.jgit.errors.IncorrectObjectTypeException;
 import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.errors.RevisionSyntaxException;
+import org.eclipse.jgit.lib.AbbreviatedObjectId;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.FileMode;
+import org.eclipse.jgit.lib.NullProgressMonitor;
 import org.eclipse.jgit.lib.ObjectId;
-import org.eclipse.jgit.lib.ObjectLoader;
 import org.eclipse.jgit.lib.ObjectReader;
+import org.eclipse.jgit.lib.Ref;
 import org.eclipse.jgit.patch.FileHeader;
 import org.eclipse.jgit.revwalk.RevCommit;
-import org.eclipse.jgit.treewalk.AbstractTreeIterator;
-import org.eclipse.jgit.treewalk.CanonicalTreeParser;
 import org.eclipse.jgit.treewalk.EmptyTreeIterator;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.AndTreeFilter;
+import org.eclipse.jgit.treewalk.filter.OrTreeFilter;
 import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
 import org.eclipse.jgit.treewalk.filter.TreeFilter;
 import org.eclipse.jgit.util.io.NullOutputStream;
@@ -50,7 +73,19 @@ import cipm.consistency.tools.evaluation.data.EvaluationDataContainer;
  * @author Martin Armbruster
  */
 public class GitRepositoryWrapper {
+	private static final Logger LOGGER = Logger.getLogger("cipm." + GitRepositoryWrapper.class.getSimpleName());
+	private static final String MATERIALIZED_COMMIT_FILE_NAME = ".materialized-commit";
+	/**
+	 * Files larger than this threshold (in bytes) are treated as binary files for
+	 * the line statistics. It corresponds to the default of the DiffFormatter.
+	 */
+	private static final int BIG_FILE_THRESHOLD = 50 * 1024 * 1024;
+	private static final DiffAlgorithm DIFF_ALGORITHM = DiffAlgorithm
+			.getAlgorithm(DiffAlgorithm.SupportedAlgorithm.HISTOGRAM);
+	private static final long DEFAULT_BLOB_CACHE_SIZE = 64L * 1024 * 1024;
+	private BlobCache blobCache = new BlobCache(DEFAULT_BLOB_CACHE_SIZE);
 	private Git git;
+	private CommitGraphIndex commitGraph;
 	private RevCommit latestCommit;
 	private File rootDirectory;
 	private String defaultBranch;
@@ -64,6 +99,19 @@ public class GitRepositoryWrapper {
 		this.rootDirectory = rootDirectory;
 	}
 	
+	/**
+	 * Sets the maximum size of the cache for the contents of blobs.
+	 * 
+	 * @param maxSize the maximum size in bytes.
+	 */
+	public void setBlobCacheSize(long maxSize) {
+		blobCache = new BlobCache(maxSize);
+	}
+	
+	public BlobCache getBlobCache() {
+		return blobCache;
+	}
+	
 	/**
 	 * Initializes the Git repository from the given local directory.
 	 * 
@@ -154,6 +202,19 @@ public class GitRepositoryWrapper {
 		return git.getRepository().parseCommit(git.getRepository().resolve(commitId));
 	}
 	
+	/**
+	 * Returns the index of the commit graph. It is built on the first call.
+	 * 
+	 * @return the index.
+	 * @throws IOException if the commits cannot be read.
+	 */
+	public synchronized CommitGraphIndex getCommitGraph() throws IOException {
+		if (commitGraph == null) {
+			commitGraph = new CommitGraphIndex(git.getRepository());
+		}
+		return commitGraph;
+	}
+	
 	/**
 	 * Returns all commits in the Git repository.
 	 * 
@@ -161,11 +222,10 @@ public class GitRepositoryWrapper {
 	 */
 	public List<RevCommit> getAllCommits() {
 		List<RevCommit> listOfCommits = new ArrayList<>();
-		try {
-			git.log().all().call().forEach(listOfCommits::add);
-		} catch (GitAPIException | IOException e) {
+		try (var commits = getCommitGraph().iterateAll()) {
+			commits.forEachRemaining(listOfCommits::add);
+		} catch (IOException | UncheckedIOException e) {
 		}
-		Collections.reverse(listOfCommits);
 		return listOfCommits;
 	}
 	
@@ -177,11 +237,10 @@ public class GitRepositoryWrapper {
 	 */
 	public List<RevCommit> getAllCommitsFromBranch(String branchName) {
 		List<RevCommit> listOfCommits = new ArrayList<>();
-		try {
-			git.log().add(git.getRepository().resolve(branchName)).call().forEach(listOfCommits::add);
-		} catch (RevisionSyntaxException | GitAPIException | IOException e) {
+		try (var commits = getCommitGraph().iterateRange(null, git.getRepository().resolve(branchName))) {
+			commits.forEachRemaining(listOfCommits::add);
+		} catch (RevisionSyntaxException | IOException | UncheckedIOException e) {
 		}
-		Collections.reverse(listOfCommits);
 		return listOfCommits;
 	}
 	
@@ -196,21 +255,33 @@ public class GitRepositoryWrapper {
 		List<RevCommit> listOfCommits = new ArrayList<>();
 		try {
 			ObjectId refTo = git.getRepository().resolve(endCommitHash);
-			if (startCommitHash == null) {
-				git.log().add(refTo).call().forEach(listOfCommits::add);
-			} else {
-				ObjectId refFrom = git.getRepository().resolve(startCommitHash);
-				git.log().addRange(refFrom, refTo).call().forEach(listOfCommits::add);
+			ObjectId refFrom = startCommitHash != null ? git.getRepository().resolve(startCommitHash) : null;
+			try (var commits = getCommitGraph().iterateRange(refFrom, refTo)) {
+				commits.forEachRemaining(listOfCommits::add);
 			}
-		} catch (IOException | GitAPIException e) {
+		} catch (IOException | UncheckedIOException e) {
 		}
-		Collections.reverse(listOfCommits);
 		return listOfCommits;
 	}
+	
+	/**
+	 * Counts the commits between two particular commits without loading them.
+	 * 
+	 * @param startCommitHash start commit. Can be null.
+	 * @param endCommitHash end commit.
+	 * @return the number of commits between the two commits (including the end commit, excluding the start commit).
+	 * @throws IOException if the commits cannot be read.
+	 */
+	public int countCommitsBetweenTwoCommits(final String startCommitHash, final String endCommitHash)
+			throws IOException {
+		ObjectId refTo = git.getRepository().resolve(endCommitHash);
+		ObjectId refFrom = startCommitHash != null ? git.getRepository().resolve(startCommitHash) : null;
+		return getCommitGraph().countCommits(refFrom, refTo);
+	}
 
 	/**
 	 * Computes all {@link DiffEntry} between <code>oldRevCommit</code> and <code>newRevCommit</code> representing the changes between the two commits.
-	 * For more explanation of particular parts of the method <a href="https://www.codeaffine.com/2016/06/16/jgit-diff/">https://www.codeaffine.com</a>
+	 * The number of changed files and lines is added to the global change statistic.
 	 * 
 	 * @param oldRevCommit start commit (usually an older commit).
 	 * @param newRevCommit end commit (usually a newer commit).
@@ -219,65 +290,177 @@ public class GitRepositoryWrapper {
 	 * @return computed {@link List} with {@link DiffEntry}.
 	 * @throws IOException if an IO operation fails.
 	 * @throws IncorrectObjectTypeException if one of the given commits is invalid.
+	 * @see #computeCommitDiff(RevCommit, RevCommit, boolean, boolean, int)
 	 */
 	public List<DiffEntry> computeDiffsBetweenTwoCommits(RevCommit oldRevCommit, RevCommit newRevCommit,
 			boolean onlyChangesOnJavaFiles, boolean detectRenames) throws IncorrectObjectTypeException, IOException {
+		CommitDiff diff = computeCommitDiff(oldRevCommit, newRevCommit, onlyChangesOnJavaFiles, detectRenames, 1);
+		diff.addTo(EvaluationDataContainer.getGlobalContainer().getChangeStatistic());
+		return new ArrayList<>(diff.getDiffs());
+	}
 
-		ObjectReader treeReader = git.getRepository().newObjectReader();
-		
-		AbstractTreeIterator oldParser;
-		if (oldRevCommit != null) {
-			ObjectId oldTreeId = oldRevCommit.getTree().getId();
-			CanonicalTreeParser oldTreeParser = new CanonicalTreeParser();
-			oldTreeParser.reset(treeReader, oldTreeId);
-			oldParser = oldTreeParser;
-		} else {
-			oldParser = new EmptyTreeIterator();
+	/**
+	 * Computes the changed files between two commits and the number of added and
+	 * removed lines for every changed file. Binary files do not contribute to the
+	 * number of lines.
+	 * 
+	 * @param oldRevCommit           start commit (usually an older commit). Can
+	 *                               be null.
+	 * @param newRevCommit           end commit (usually a newer commit).
+	 * @param onlyChangesOnJavaFiles If the flag is true, only changes on Java
+	 *                               files will be detected.
+	 * @param detectRenames          If the flag is true, renames on files will be
+	 *                               detected.
+	 * @param threads                the number of threads for the computation of
+	 *                               the line statistics. 0 if no line statistics
+	 *                               shall be computed.
+	 * @return the changed files with their statistics.
+	 * @throws IOException if an IO operation fails.
+	 */
+	public CommitDiff computeCommitDiff(RevCommit oldRevCommit, RevCommit newRevCommit,
+			boolean onlyChangesOnJavaFiles, boolean detectRenames, int threads) throws IOException {
+		try (ObjectReader reader = git.getRepository().newObjectReader()) {
+			List<DiffEntry> diffs = scan(reader, oldRevCommit, newRevCommit, onlyChangesOnJavaFiles);
+			if (detectRenames) {
+				RenameDetector rd = new RenameDetector(git.getRepository());
+				rd.addAll(diffs);
+				diffs = rd.compute(reader, NullProgressMonitor.INSTANCE);
+			}
+			List<CommitDiff.FileStatistic> statistics;
+			if (threads <= 0) {
+				statistics = new ArrayList<>();
+			} else if (threads == 1 || diffs.size() < 2) {
+				statistics = computeFileStatistics(reader, diffs);
+			} else {
+				statistics = computeFileStatisticsInParallel(diffs, threads);
+			}
+			return new CommitDiff(diffs, statistics);
 		}
-		
-		ObjectId newTreeId = newRevCommit.getTree().getId();
-		CanonicalTreeParser newTreeParser = new CanonicalTreeParser();
-		newTreeParser.reset(treeReader, newTreeId);
+	}
 
-		OutputStream outputStream = NullOutputStream.INSTANCE;
-		DiffFormatter df = new DiffFormatter(outputStream) {
-			@Override
-			protected void writeAddedLine(RawText text, int line) {
-				var cs = EvaluationDataContainer.getGlobalContainer().getChangeStatistic();
-				cs.setNumberAddedLines(cs.getNumberAddedLines() + 1);
+	private List<DiffEntry> scan(ObjectReader reader, RevCommit oldRevCommit, RevCommit newRevCommit,
+			boolean onlyChangesOnJavaFiles) throws IOException {
+		try (TreeWalk walk = new TreeWalk(reader)) {
+			walk.setRecursive(true);
+			if (oldRevCommit != null) {
+				walk.addTree(oldRevCommit.getTree());
+			} else {
+				walk.addTree(new EmptyTreeIterator());
 			}
-			
-			@Override
-			protected void writeRemovedLine(RawText text, int line) {
-				var cs = EvaluationDataContainer.getGlobalContainer().getChangeStatistic();
-				cs.setNumberRemovedLines(cs.getNumberRemovedLines() + 1);
+			walk.addTree(newRevCommit.getTree());
+			if (onlyChangesOnJavaFiles) {
+				walk.setFilter(AndTreeFilter.create(PathSuffixFilter.create(".java"), TreeFilter.ANY_DIFF));
+			} else {
+				walk.setFilter(TreeFilter.ANY_DIFF);
 			}
-		};
-		df.setRepository(git.getRepository());
-		
-		// Set filter to detect only changes on Java files if necessary. 
-		if (onlyChangesOnJavaFiles) {
-			TreeFilter treeFilter = PathSuffixFilter.create(".java");
-			df.setPathFilter(treeFilter);
+			return DiffEntry.scan(walk);
 		}
-		// Compute diffs between the commits.
-		List<DiffEntry> diffs = df.scan(oldParser, newTreeParser);
-		
-		// Detect renames on changed files if necessary.
-		if (detectRenames) {
-			 RenameDetector rd = new RenameDetector(git.getRepository());
-			 rd.addAll(diffs);
-			 diffs = rd.compute();
-		}
-		
+	}
+
+	private List<CommitDiff.FileStatistic> computeFileStatistics(ObjectReader reader, List<DiffEntry> diffs)
+			throws IOException {
+		List<CommitDiff.FileStatistic> result = new ArrayList<>();
 		for (DiffEntry diff : diffs) {
-			df.format(diff);
+			result.add(computeFileStatistic(reader, diff));
+		}
+		return result;
+	}
+
+	private List<CommitDiff.FileStatistic> computeFileStatisticsInParallel(List<DiffEntry> diffs, int threads)
+			throws IOException {
+		int usedThreads = Math.min(threads, diffs.size());
+		// ObjectReaders are not thread-safe so that every thread uses its own one.
+		ExecutorService executor = Executors.newFixedThreadPool(usedThreads);
+		try {
+			List<Future<List<CommitDiff.FileStatistic>>> futures = new ArrayList<>();
+			int chunkSize = (diffs.size() + usedThreads - 1) / usedThreads;
+			for (int idx = 0; idx < diffs.size(); idx += chunkSize) {
+				List<DiffEntry> chunk = diffs.subList(idx, Math.min(idx + chunkSize, diffs.size()));
+				futures.add(executor.submit(() -> {
+					try (ObjectReader reader = git.getRepository().newObjectReader()) {
+						return computeFileStatistics(reader, chunk);
+					}
+				}));
+			}
+			List<CommitDiff.FileStatistic> result = new ArrayList<>();
+			for (Future<List<CommitDiff.FileStatistic>> future : futures) {
+				result.addAll(future.get());
+			}
+			return result;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IOException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	private CommitDiff.FileStatistic computeFileStatistic(ObjectReader reader, DiffEntry diff) throws IOException {
+		RawText oldText = loadText(reader, diff.getOldMode(), diff.getOldId());
+		RawText newText = loadText(reader, diff.getNewMode(), diff.getNewId());
+		int added = 0;
+		int removed = 0;
+		if (oldText != null && newText != null) {
+			for (Edit edit : DIFF_ALGORITHM.diff(RawTextComparator.DEFAULT, oldText, newText)) {
+				added += edit.getLengthB();
+				removed += edit.getLengthA();
+			}
+		}
+		return new CommitDiff.FileStatistic(diff, added, removed);
+	}
+
+	// Returns null for binary and too large files.
+	private RawText loadText(ObjectReader reader, FileMode mode, AbbreviatedObjectId id) throws IOException {
+		if (FileMode.GITLINK.equals(mode) || id == null || !id.isComplete()
+				|| id.toObjectId().equals(ObjectId.zeroId())) {
+			return RawText.EMPTY_TEXT;
+		}
+		if (reader.getObjectSize(id.toObjectId(), Constants.OBJ_BLOB) > BIG_FILE_THRESHOLD) {
+			return null;
+		}
+		byte[] content = blobCache.getBytes(reader, id.toObjectId());
+		return RawText.isBinary(content) ? null : new RawText(content);
+	}
+
+	/**
+	 * Computes the changed files between two commits without computing any
+	 * statistics or renames. In contrast to
+	 * {@link #computeDiffsBetweenTwoCommits(RevCommit, RevCommit, boolean, boolean)},
+	 * the global change statistic is not modified.
+	 * 
+	 * @param oldRevCommit           start commit (usually an older commit). Can
+	 *                               be null.
+	 * @param newRevCommit           end commit (usually a newer commit).
+	 * @param onlyChangesOnJavaFiles If the flag is true, only changes on Java
+	 *                               files will be detected.
+	 * @return the changed files.
+	 * @throws IOException if an IO operation fails.
+	 */
+	public List<DiffEntry> computeChangedFilesBetweenTwoCommits(RevCommit oldRevCommit, RevCommit newRevCommit,
+			boolean onlyChangesOnJavaFiles) throws IOException {
+		try (ObjectReader reader = git.getRepository().newObjectReader()) {
+			return scan(reader, oldRevCommit, newRevCommit, onlyChangesOnJavaFiles);
 		}
-		df.close();
-		
-		EvaluationDataContainer.getGlobalContainer().getChangeStatistic().setNumberChangedJavaFiles(diffs.size());
-		
-		return diffs;
+	}
+
+	/**
+	 * Returns the ids of all commits which are referenced by a tag.
+	 * 
+	 * @return the ids of the tagged commits.
+	 * @throws IOException if the tags cannot be read.
+	 */
+	public Set<ObjectId> getTaggedCommitIds() throws IOException {
+		Set<ObjectId> result = new HashSet<>();
+		for (Ref tag : git.getRepository().getRefDatabase().getRefsByPrefix(Constants.R_TAGS)) {
+			Ref peeled = git.getRepository().getRefDatabase().peel(tag);
+			result.add(peeled.getPeeledObjectId() != null ? peeled.getPeeledObjectId() : peeled.getObjectId());
+		}
+		return result;
 	}
 
 	/**
@@ -331,8 +514,23 @@ public class GitRepositoryWrapper {
 	}
 	
 	private String readObjectToString(ObjectId objId) throws MissingObjectException, IOException {
-		ObjectLoader loader = git.getRepository().open(objId);
-		return new String(loader.getBytes());
+		try (ObjectReader reader = git.getRepository().newObjectReader()) {
+			return blobCache.getContentAsString(reader, objId);
+		}
+	}
+	
+	/**
+	 * Returns the content of a blob. The content is read from the blob cache if possible.
+	 * 
+	 * @param objId id of the blob.
+	 * @return the read-only content.
+	 * @throws IOException if the blob cannot be read.
+	 * @throws MissingObjectException if the blob cannot be found.
+	 */
+	public ByteBuffer getContentOfBlob(ObjectId objId) throws MissingObjectException, IOException {
+		try (ObjectReader reader = git.getRepository().newObjectReader()) {
+			return blobCache.getContent(reader, objId);
+		}
 	}
 	
 	/**
@@ -364,9 +562,12 @@ public class GitRepositoryWrapper {
 	}
 	
 	private OutputStream readObjectAsOutputStream(ObjectId objId) throws MissingObjectException, IOException {
-		OutputStream oldContent = new ByteArrayOutputStream();
-		git.getRepository().open(objId).copyTo(oldContent);
-        return oldContent;
+		ByteArrayOutputStream oldContent = new ByteArrayOutputStream();
+		try (ObjectReader reader = git.getRepository().newObjectReader();
+				InputStream in = blobCache.openStream(reader, objId)) {
+			in.transferTo(oldContent);
+		}
+		return oldContent;
 	}
 	
 	/**
@@ -408,13 +609,161 @@ public class GitRepositoryWrapper {
 			git.fetch().call();
 			ObjectId curCommit = latestCommit.getId();
 			ObjectId lastCommit = git.getRepository().resolve("origin/" + defaultBranch);
-			git.log().addRange(curCommit, lastCommit).call().forEach(result::add);
-		} catch (GitAPIException | IOException e) {
+			CommitGraphIndex graph = getCommitGraph();
+			graph.update();
+			try (var commits = graph.iterateRange(curCommit, lastCommit)) {
+				commits.forEachRemaining(result::add);
+			}
+		} catch (GitAPIException | IOException | UncheckedIOException e) {
 		}
-		Collections.reverse(result);
 		return result;
 	}
 	
+	/**
+	 * Writes the files of a commit directly from the Git object database into a
+	 * directory without changing the working tree of the repository. If the
+	 * directory already contains the files of another commit, only the files
+	 * which differ between both commits are updated. All other files in the
+	 * directory, e. g., generated outputs of a previous build, are removed so
+	 * that the directory corresponds to a clean checkout of the commit. The
+	 * executable bit of the files is set from their Git file mode.
+	 * 
+	 * @param commit          the commit whose files are written.
+	 * @param targetDirectory the directory in which the files are written.
+	 * @param fileSuffixes    suffixes of the file paths which are written. If the
+	 *                        list is empty, all files are written.
+	 * @throws IOException if the files cannot be read from the repository or
+	 *                     written into the directory.
+	 */
+	public void materializeCommit(RevCommit commit, Path targetDirectory, List<String> fileSuffixes)
+			throws IOException {
+		Path marker = targetDirectory.resolve(MATERIALIZED_COMMIT_FILE_NAME);
+		RevCommit materializedCommit = null;
+		if (Files.exists(marker)) {
+			try {
+				materializedCommit = getCommitForId(Files.readString(marker).trim());
+			} catch (GitAPIException | IOException | RuntimeException e) {
+				materializedCommit = null;
+			}
+		}
+		if (materializedCommit == null && Files.exists(targetDirectory)) {
+			FileUtils.deleteDirectory(targetDirectory.toFile());
+		}
+		Files.createDirectories(targetDirectory);
+		TreeFilter filter = createSuffixFilter(fileSuffixes);
+		int updatedFiles = 0;
+		Set<Path> materializedFiles = new HashSet<>();
+		materializedFiles.add(marker);
+		try (ObjectReader reader = git.getRepository().newObjectReader();
+				TreeWalk walk = new TreeWalk(reader)) {
+			walk.setRecursive(true);
+			if (materializedCommit == null) {
+				walk.addTree(new EmptyTreeIterator());
+			} else {
+				walk.addTree(materializedCommit.getTree());
+			}
+			walk.addTree(commit.getTree());
+			walk.setFilter(filter);
+			while (walk.next()) {
+				Path file = targetDirectory.resolve(walk.getPathString());
+				int mode = walk.getRawMode(1);
+				boolean isFile = FileMode.REGULAR_FILE.equals(mode) || FileMode.EXECUTABLE_FILE.equals(mode)
+						|| FileMode.SYMLINK.equals(mode);
+				if (isFile) {
+					materializedFiles.add(file);
+				}
+				if (!walk.idEqual(0, 1) || walk.getRawMode(0) != mode) {
+					if (isFile) {
+						Files.createDirectories(file.getParent());
+						writeFile(reader, walk.getObjectId(1), mode, file);
+					} else {
+						Files.deleteIfExists(file);
+					}
+					updatedFiles++;
+				}
+			}
+		}
+		if (materializedCommit != null) {
+			removeOtherFiles(targetDirectory, materializedFiles);
+		}
+		Files.writeString(marker, commit.getId().getName());
+		LOGGER.debug("Materialized " + commit.getId().getName() + " by updating " + updatedFiles + " files.");
+	}
+
+	private static TreeFilter createSuffixFilter(List<String> fileSuffixes) {
+		List<TreeFilter> suffixFilters = new ArrayList<>();
+		fileSuffixes.stream().filter(suffix -> !suffix.isBlank())
+				.forEach(suffix -> suffixFilters.add(PathSuffixFilter.create(suffix.trim())));
+		if (suffixFilters.isEmpty()) {
+			return TreeFilter.ALL;
+		}
+		return suffixFilters.size() == 1 ? suffixFilters.get(0) : OrTreeFilter.create(suffixFilters);
+	}
+
+	/**
+	 * Writes a blob into a file. Symbolic links are created as links if the file
+	 * system supports them. Otherwise, the file contains the target of the link.
+	 * 
+	 * @param reader the reader for the blob.
+	 * @param blobId id of the blob.
+	 * @param mode   the Git file mode of the blob.
+	 * @param file   the written file.
+	 * @throws IOException if the blob cannot be read or the file cannot be
+	 *                     written.
+	 */
+	private void writeFile(ObjectReader reader, ObjectId blobId, int mode, Path file) throws IOException {
+		Files.deleteIfExists(file);
+		if (FileMode.SYMLINK.equals(mode)) {
+			try {
+				Files.createSymbolicLink(file, Path.of(blobCache.getContentAsString(reader, blobId)));
+				return;
+			} catch (UnsupportedOperationException | IOException e) {
+				LOGGER.debug("The symbolic link " + file + " cannot be created. Writing its target instead.");
+			}
+		}
+		try (InputStream in = blobCache.openStream(reader, blobId)) {
+			Files.copy(in, file, StandardCopyOption.REPLACE_EXISTING);
+		}
+		if (FileMode.EXECUTABLE_FILE.equals(mode) && !file.toFile().setExecutable(true, false)) {
+			LOGGER.debug("The executable bit of " + file + " cannot be set.");
+		}
+	}
+
+	/**
+	 * Removes all files and empty directories within a directory which are not
+	 * materialized.
+	 * 
+	 * @param directory         the directory.
+	 * @param materializedFiles the materialized files.
+	 * @throws IOException if a file or directory cannot be removed.
+	 */
+	private static void removeOtherFiles(Path directory, Set<Path> materializedFiles) throws IOException {
+		Files.walkFileTree(directory, new SimpleFileVisitor<>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				if (!materializedFiles.contains(file)) {
+					Files.delete(file);
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult postVisitDirectory(Path dir, IOException exc) throws IOException {
+				if (exc != null) {
+					throw exc;
+				}
+				if (!dir.equals(directory)) {
+					try (var entries = Files.list(dir)) {
+						if (entries.findAny().isEmpty()) {
+							Files.delete(dir);
+						}
+					}
+				}
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
 	/**
 	 * Performs a complete cleaning of the git repository, i. e., all untracked and ignored files are removed,
 	 * and all changes are reset to the last commit.
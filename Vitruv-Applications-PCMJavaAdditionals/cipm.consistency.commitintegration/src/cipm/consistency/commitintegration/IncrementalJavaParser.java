@@ -0,0 +1,415 @@
+package cipm.consistency.commitintegration;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.InternalEObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.URIConverter;
+import org.eclipse.emf.ecore.resource.impl.ResourceImpl;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.util.EcoreUtil.Copier;
+import org.eclipse.emf.ecore.util.InternalEList;
+import org.eclipse.jgit.diff.DiffEntry;
+
+import cipm.consistency.commitintegration.settings.CommitIntegrationSettingsContainer;
+import cipm.consistency.commitintegration.settings.SettingKeys;
+import cipm.consistency.tools.evaluation.data.EvaluationDataContainer;
+import jamopp.parser.jdt.singlefile.JaMoPPJDTSingleFileParser;
+
+/**
+ * A parser for Java code which keeps the parsed Java models between two change
+ * propagations. For a new commit, only the changed Java files and the
+ * compilation units referencing them directly or transitively are parsed again
+ * while the models of all other files are reused.
+ * 
+ * <p>Java files within build output directories (e. g., generated sources) are
+ * not part of the changes of a commit. Therefore, their content is hashed after
+ * every parsing, and files with a different hash are parsed again, too.</p>
+ * 
+ * <p>The parsed models are not propagated directly. Instead, copies are
+ * provided so that the parsed models remain unchanged. Only the models of the
+ * files which were parsed again are copied while the copies of the other models
+ * are reused.</p>
+ * 
+ * @author Martin Armbruster
+ */
+public class IncrementalJavaParser {
+	private static final Logger LOGGER = Logger.getLogger("cipm." + IncrementalJavaParser.class.getSimpleName());
+	private static final int DEFAULT_MAX_DEPENDENTS = 200;
+	private static final String GIT_DIRECTORY_NAME = ".git";
+	private static final Set<String> BUILD_OUTPUT_DIRECTORY_NAMES = Set.of("target", "build");
+	private ResourceSet parsedModels;
+	private Path parsedDirectory;
+	private String parsedCommit;
+	private Map<Path, String> generatedSources = new HashMap<>();
+	private boolean reuseCopies = true;
+	private Map<Resource, List<EObject>> copiedRoots = new HashMap<>();
+	private Map<Resource, Map<EObject, EObject>> copies = new HashMap<>();
+
+	/**
+	 * Parses the Java code of a commit. If the Java models of the previous commit
+	 * are available, only the changed Java files and their dependents are parsed.
+	 * Otherwise, the complete directory is parsed.
+	 * 
+	 * @param dir       the directory with the Java code of the new commit.
+	 * @param oldCommit id of the previous commit. Can be null.
+	 * @param newCommit id of the new commit.
+	 * @param diffs     the changed Java files between both commits.
+	 * @return the ResourceSet with the Java models of the new commit. It is reused
+	 *         in the next parsing so that its models should not be moved or
+	 *         modified. {@link #copyModels()} provides copies for further
+	 *         processing.
+	 */
+	public ResourceSet parse(Path dir, String oldCommit, String newCommit, List<DiffEntry> diffs) {
+		Path absDir = dir.toAbsolutePath();
+		long timer = System.currentTimeMillis();
+		boolean updated = false;
+		Map<Path, String> currentGeneratedSources = hashGeneratedSources(absDir);
+		if (parsedModels != null && oldCommit != null && oldCommit.equals(parsedCommit)
+				&& absDir.equals(parsedDirectory)) {
+			try {
+				updated = update(absDir, diffs, currentGeneratedSources);
+			} catch (RuntimeException e) {
+				LOGGER.error("The incremental parsing failed. Parsing the complete directory.", e);
+			}
+		}
+		if (!updated) {
+			parsedModels = JavaParserAndPropagatorUtils.parseDirectory(absDir);
+			parsedDirectory = absDir;
+			copiedRoots.clear();
+			copies.clear();
+		}
+		parsedCommit = newCommit;
+		generatedSources = currentGeneratedSources;
+		timer = System.currentTimeMillis() - timer;
+		EvaluationDataContainer.getGlobalContainer().getExecutionTimes().setParsingTime(timer);
+		return parsedModels;
+	}
+
+	/**
+	 * Discards the stored Java models so that the next parsing includes the
+	 * complete directory.
+	 */
+	public void reset() {
+		parsedModels = null;
+		parsedDirectory = null;
+		parsedCommit = null;
+		generatedSources.clear();
+		copiedRoots.clear();
+		copies.clear();
+	}
+
+	/**
+	 * Sets whether the copies of unchanged models are reused in the next call of
+	 * {@link #copyModels()}. Reused copies are moved out of the Resources in which
+	 * they were provided before. Thus, the reuse has to be disabled as long as
+	 * these Resources are still in use, e. g., if a commit is parsed while the
+	 * models of the previous commit are propagated.
+	 * 
+	 * @param reuseCopies true if the copies are reused. false if all models are
+	 *                    copied.
+	 */
+	public void setReuseCopies(boolean reuseCopies) {
+		this.reuseCopies = reuseCopies;
+		if (!reuseCopies) {
+			copiedRoots.clear();
+			copies.clear();
+		}
+	}
+
+	/**
+	 * Checks if the copies of unchanged models are reused. In this case, the
+	 * provided copies must not be unloaded after their propagation.
+	 * 
+	 * @return true if the copies are reused.
+	 */
+	public boolean isReusingCopies() {
+		return reuseCopies;
+	}
+
+	/**
+	 * Provides copies of the Java models of the last parsing so that the parsed
+	 * models remain unchanged by later modifications, e. g., by the component
+	 * detection. If the copies are reused, only the models of Resources which
+	 * were parsed again are copied. The copies of the other models are moved from
+	 * the Resources of the previous call into the returned ResourceSet.
+	 * 
+	 * @return a new ResourceSet with one Resource for every Resource of the parsed
+	 *         models.
+	 */
+	public ResourceSet copyModels() {
+		List<Resource> resources = new ArrayList<>(parsedModels.getResources());
+		if (reuseCopies) {
+			// Copies of Resources which were removed by the last parsing are outdated.
+			Set<Resource> currentResources = new HashSet<>(resources);
+			copiedRoots.keySet().retainAll(currentResources);
+			copies.keySet().retainAll(currentResources);
+		} else {
+			copiedRoots.clear();
+			copies.clear();
+		}
+		Copier copier = new PreviousCopiesAwareCopier(copies);
+		ResourceSet result = new ResourceSetImpl();
+		int numberCopiedResources = 0;
+		for (Resource resource : resources) {
+			List<EObject> roots = copiedRoots.get(resource);
+			if (roots == null) {
+				roots = new ArrayList<>(copier.copyAll(resource.getContents()));
+				numberCopiedResources++;
+				if (reuseCopies) {
+					copiedRoots.put(resource, roots);
+				}
+			}
+			Resource copy = new ResourceImpl(resource.getURI());
+			result.getResources().add(copy);
+			copy.getContents().addAll(roots);
+		}
+		copier.copyReferences();
+		if (reuseCopies) {
+			copier.forEach((original, copy) -> copies
+					.computeIfAbsent(original.eResource(), r -> new HashMap<>()).put(original, copy));
+		}
+		LOGGER.debug("Copied the models of " + numberCopiedResources + " of " + resources.size() + " resources.");
+		return result;
+	}
+
+	private boolean update(Path dir, List<DiffEntry> diffs, Map<Path, String> currentGeneratedSources) {
+		Set<Path> filesToParse = new HashSet<>();
+		Set<Path> changedFiles = new HashSet<>();
+		currentGeneratedSources.forEach((file, hash) -> {
+			if (!hash.equals(generatedSources.get(file))) {
+				filesToParse.add(file);
+				changedFiles.add(file);
+			}
+		});
+		generatedSources.keySet().stream().filter(file -> !currentGeneratedSources.containsKey(file))
+				.forEach(changedFiles::add);
+		for (DiffEntry diff : diffs) {
+			switch (diff.getChangeType()) {
+			case ADD:
+			case COPY:
+			case MODIFY:
+				filesToParse.add(dir.resolve(diff.getNewPath()));
+				changedFiles.add(dir.resolve(diff.getNewPath()));
+				break;
+			case RENAME:
+				filesToParse.add(dir.resolve(diff.getNewPath()));
+				changedFiles.add(dir.resolve(diff.getOldPath()));
+				break;
+			case DELETE:
+				changedFiles.add(dir.resolve(diff.getOldPath()));
+				break;
+			default:
+				break;
+			}
+		}
+
+		Map<Path, Resource> fileResources = new HashMap<>();
+		for (Resource res : parsedModels.getResources()) {
+			if (res.getURI().isFile()) {
+				fileResources.put(Paths.get(res.getURI().toFileString()).toAbsolutePath(), res);
+			}
+		}
+		Set<Resource> changedResources = new HashSet<>();
+		changedFiles.forEach(f -> {
+			Resource res = fileResources.get(f);
+			if (res != null) {
+				changedResources.add(res);
+			}
+		});
+
+		// Compilation units referencing a changed one have to be parsed again to
+		// resolve their references to the new models.
+		int maxDependents = CommitIntegrationSettingsContainer.getSettingsContainer()
+				.getPropertyAsInteger(SettingKeys.INCREMENTAL_PARSING_MAX_DEPENDENTS, DEFAULT_MAX_DEPENDENTS);
+		Set<Resource> dependents = findDependents(fileResources.values(), changedResources, maxDependents);
+		if (dependents == null) {
+			LOGGER.debug("Too many dependent compilation units. Parsing the complete directory.");
+			return false;
+		}
+		for (var entry : fileResources.entrySet()) {
+			if (dependents.contains(entry.getValue())) {
+				filesToParse.add(entry.getKey());
+			}
+		}
+		LOGGER.debug("Parsing " + filesToParse.size() + " changed and dependent files (" + dependents.size()
+				+ " dependents).");
+
+		changedResources.addAll(dependents);
+		for (Resource res : changedResources) {
+			res.unload();
+			parsedModels.getResources().remove(res);
+		}
+
+		List<Pattern> exclusions = JavaParserAndPropagatorUtils.compileExclusionPatterns();
+		JaMoPPJDTSingleFileParser parser = JavaParserAndPropagatorUtils.createParser(parsedModels);
+		for (Path file : filesToParse) {
+			if (JavaParserAndPropagatorUtils.isParseable(file, exclusions)) {
+				parser.parseFile(file);
+			}
+		}
+		// Remaining proxies to the replaced models are resolved with the new models.
+		EcoreUtil.resolveAll(parsedModels);
+		return true;
+	}
+
+	/**
+	 * Finds the Resources which reference the changed Resources directly or
+	 * transitively, e. g., a subclass of a subclass of a changed class.
+	 * 
+	 * @param candidates       all Resources with parsed models.
+	 * @param changedResources the Resources of the changed files.
+	 * @param maxDependents    the maximum number of dependents.
+	 * @return the dependent Resources or null if there are more than
+	 *         maxDependents dependents.
+	 */
+	private Set<Resource> findDependents(Collection<Resource> candidates, Set<Resource> changedResources,
+			int maxDependents) {
+		Set<Resource> dependents = new HashSet<>();
+		if (changedResources.isEmpty()) {
+			return dependents;
+		}
+		URIConverter converter = parsedModels.getURIConverter();
+		Map<URI, Set<Resource>> referencingResources = new HashMap<>();
+		for (Resource candidate : candidates) {
+			if (!changedResources.contains(candidate)) {
+				for (URI referenced : collectReferencedResources(candidate, converter)) {
+					referencingResources.computeIfAbsent(referenced, uri -> new HashSet<>()).add(candidate);
+				}
+			}
+		}
+		Deque<Resource> unprocessed = new ArrayDeque<>(changedResources);
+		while (!unprocessed.isEmpty()) {
+			URI uri = converter.normalize(unprocessed.poll().getURI());
+			for (Resource dependent : referencingResources.getOrDefault(uri, Set.of())) {
+				if (dependents.add(dependent)) {
+					if (dependents.size() > maxDependents) {
+						return null;
+					}
+					unprocessed.add(dependent);
+				}
+			}
+		}
+		return dependents;
+	}
+
+	/**
+	 * Collects the URIs of the Resources which are referenced by the models of a
+	 * Resource. The references are not resolved so that no further Resources are
+	 * loaded. Instead, the URIs of proxies are used.
+	 * 
+	 * @param res       the Resource.
+	 * @param converter the converter which normalizes the URIs.
+	 * @return the normalized URIs of the referenced Resources.
+	 */
+	private static Set<URI> collectReferencedResources(Resource res, URIConverter converter) {
+		Set<URI> referenced = new HashSet<>();
+		URI ownUri = converter.normalize(res.getURI());
+		for (TreeIterator<EObject> iterator = EcoreUtil.getAllProperContents(res, false); iterator.hasNext();) {
+			for (var references = ((InternalEList<EObject>) iterator.next().eCrossReferences())
+					.basicIterator(); references.hasNext();) {
+				EObject target = references.next();
+				URI uri = null;
+				if (target.eIsProxy()) {
+					uri = ((InternalEObject) target).eProxyURI().trimFragment();
+				} else if (target.eResource() != null) {
+					uri = target.eResource().getURI();
+				}
+				if (uri != null) {
+					uri = converter.normalize(uri);
+					if (!uri.equals(ownUri)) {
+						referenced.add(uri);
+					}
+				}
+			}
+		}
+		return referenced;
+	}
+
+	/**
+	 * Hashes the Java files within build output directories.
+	 * 
+	 * @param dir the directory with the Java code.
+	 * @return the hashes of the files.
+	 */
+	private Map<Path, String> hashGeneratedSources(Path dir) {
+		Map<Path, String> hashes = new HashMap<>();
+		try {
+			Files.walkFileTree(dir, new SimpleFileVisitor<>() {
+				@Override
+				public FileVisitResult preVisitDirectory(Path directory, BasicFileAttributes attrs) {
+					Path name = directory.getFileName();
+					return name != null && name.toString().equals(GIT_DIRECTORY_NAME) ? FileVisitResult.SKIP_SUBTREE
+							: FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+					if (attrs.isRegularFile() && file.toString().endsWith(".java") && isGenerated(dir.relativize(file))) {
+						hashes.put(file.toAbsolutePath(), FileHashing.hash(file));
+					}
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (IOException e) {
+			LOGGER.error("The generated sources in " + dir + " cannot be hashed.", e);
+		}
+		return hashes;
+	}
+
+	private boolean isGenerated(Path relativeFile) {
+		for (Path element : relativeFile) {
+			if (BUILD_OUTPUT_DIRECTORY_NAMES.contains(element.toString())) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * A copier which redirects references to models, which are not copied again,
+	 * to their copies of a previous call.
+	 */
+	private static final class PreviousCopiesAwareCopier extends Copier {
+		private static final long serialVersionUID = 1L;
+		private final transient Map<Resource, Map<EObject, EObject>> previousCopies;
+
+		private PreviousCopiesAwareCopier(Map<Resource, Map<EObject, EObject>> previousCopies) {
+			this.previousCopies = previousCopies;
+		}
+
+		@Override
+		public EObject get(Object key) {
+			EObject copy = super.get(key);
+			if (copy == null && key instanceof EObject) {
+				Map<EObject, EObject> copiesOfResource = previousCopies.get(((EObject) key).eResource());
+				if (copiesOfResource != null) {
+					copy = copiesOfResource.get(key);
+				}
+			}
+			return copy;
+		}
+	}
+}
@@ -0,0 +1,175 @@
+package cipm.consistency.commitintegration;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.emftext.language.java.JavaClasspath;
+import org.emftext.language.java.LogicalJavaURIGenerator;
+import org.emftext.language.java.classifiers.ConcreteClassifier;
+import org.emftext.language.java.containers.CompilationUnit;
+import org.emftext.language.java.containers.JavaRoot;
+
+/**
+ * Registers the Java models of Resources in the global JavaClasspath and
+ * remembers the registered entries for every Resource. As a consequence, the
+ * entries of a Resource can be removed without searching the complete
+ * classpath.
+ * 
+ * <p>The index is maintained incrementally. For every root element, the logical
+ * URIs of its classifiers, package or module are computed and only their values
+ * are compared before and after the registration. If the classpath grows by
+ * more entries than expected, the new entries are searched once in the complete
+ * classpath.</p>
+ * 
+ * <p>For every entry, the index keeps the Resources which registered it in the
+ * order of their registration and the value before the first registration. When
+ * a Resource is removed, its entries get the value of the last remaining
+ * Resource or the value before the first registration.</p>
+ * 
+ * <p>The class is not thread-safe. The callers guard the modifications of the
+ * classpath.</p>
+ * 
+ * @author Martin Armbruster
+ */
+class JavaClasspathIndex {
+	/**
+	 * Maps the URI of a Resource to its registered entries.
+	 */
+	private Map<URI, Set<URI>> registeredEntries = new HashMap<>();
+	/**
+	 * Maps an entry to the URIs of the Resources which registered it. The last
+	 * URI is the current value of the entry.
+	 */
+	private Map<URI, Deque<URI>> entryOwners = new HashMap<>();
+	/**
+	 * Maps an entry to its value before the first registration by a Resource. It
+	 * contains only entries which existed before.
+	 */
+	private Map<URI, URI> previousValues = new HashMap<>();
+
+	/**
+	 * Registers the Java models of Resources in the classpath.
+	 * 
+	 * @param resources the Resources.
+	 */
+	void register(Collection<Resource> resources) {
+		Map<URI, URI> uriMap = JavaClasspath.get().getURIMap();
+		int expectedSize = uriMap.size();
+		Set<URI> uris = new HashSet<>();
+		for (Resource resource : resources) {
+			URI uri = resource.getURI();
+			uris.add(uri);
+			for (EObject root : resource.getContents()) {
+				List<URI> entries = computeEntries((JavaRoot) root);
+				List<URI> values = new ArrayList<>(entries.size());
+				for (URI entry : entries) {
+					values.add(uriMap.get(entry));
+				}
+				JavaClasspath.get().registerJavaRoot((JavaRoot) root, uri);
+				for (int idx = 0; idx < entries.size(); idx++) {
+					URI entry = entries.get(idx);
+					URI previousValue = values.get(idx);
+					if (uriMap.get(entry) == uri && previousValue != uri) {
+						if (previousValue == null) {
+							expectedSize++;
+						}
+						addEntry(uri, entry, previousValue);
+					}
+				}
+			}
+		}
+		if (uriMap.size() != expectedSize) {
+			// The classpath registered entries which were not computed.
+			uriMap.forEach((entry, value) -> {
+				if (uris.contains(value) && !registeredEntries.getOrDefault(value, Set.of()).contains(entry)) {
+					addEntry(value, entry, null);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Computes the entries which the classpath registers for a root element.
+	 * 
+	 * @param root the root element.
+	 * @return the entries.
+	 */
+	private static List<URI> computeEntries(JavaRoot root) {
+		List<URI> result = new ArrayList<>();
+		if (root instanceof CompilationUnit) {
+			CompilationUnit unit = (CompilationUnit) root;
+			for (ConcreteClassifier classifier : unit.getClassifiers()) {
+				computeEntries(unit.getNamespacesAsString(), classifier, result);
+			}
+		} else if (root instanceof org.emftext.language.java.containers.Package) {
+			org.emftext.language.java.containers.Package pack = (org.emftext.language.java.containers.Package) root;
+			result.add(LogicalJavaURIGenerator.getPackageURI(pack.getNamespacesAsString() + pack.getName()));
+		} else if (root instanceof org.emftext.language.java.containers.Module) {
+			result.add(LogicalJavaURIGenerator.getModuleURI(root.getName()));
+		}
+		return result;
+	}
+
+	private static void computeEntries(String prefix, ConcreteClassifier classifier, List<URI> result) {
+		result.add(LogicalJavaURIGenerator.getJavaFileResourceURI(prefix + classifier.getName()));
+		String innerPrefix = prefix + classifier.getName() + LogicalJavaURIGenerator.CLASSIFIER_SEPARATOR;
+		for (ConcreteClassifier inner : classifier.getInnerClassifiers()) {
+			computeEntries(innerPrefix, inner, result);
+		}
+	}
+
+	private void addEntry(URI uri, URI entry, URI previousValue) {
+		Deque<URI> owners = entryOwners.computeIfAbsent(entry, key -> new ArrayDeque<>());
+		if (owners.isEmpty() && previousValue != null) {
+			previousValues.put(entry, previousValue);
+		}
+		owners.remove(uri);
+		owners.addLast(uri);
+		registeredEntries.computeIfAbsent(uri, key -> new LinkedHashSet<>()).add(entry);
+	}
+
+	/**
+	 * Removes the registered entries of a Resource from the classpath. Entries
+	 * which were overwritten by another Resource keep the value of that Resource.
+	 * The other entries get the value of the Resource which registered them
+	 * before or the value before the first registration.
+	 * 
+	 * @param resource the Resource.
+	 */
+	void unregister(Resource resource) {
+		URI uri = resource.getURI();
+		Set<URI> entries = registeredEntries.remove(uri);
+		if (entries == null) {
+			return;
+		}
+		Map<URI, URI> uriMap = JavaClasspath.get().getURIMap();
+		for (URI entry : entries) {
+			Deque<URI> owners = entryOwners.get(entry);
+			boolean isCurrentValue = uri.equals(owners.peekLast()) && uri.equals(uriMap.get(entry));
+			owners.remove(uri);
+			if (isCurrentValue) {
+				URI value = owners.isEmpty() ? previousValues.get(entry) : owners.peekLast();
+				if (value != null) {
+					uriMap.put(entry, value);
+				} else {
+					uriMap.remove(entry);
+				}
+			}
+			if (owners.isEmpty()) {
+				entryOwners.remove(entry);
+				previousValues.remove(entry);
+			}
+		}
+	}
+}
@@ -11,23 +11,41 @@ import org.eclipse.xtend.lib.annotations.Accessors
 @Accessors
 class JavaFileSystemLayout {
 	static final String localJavaRepoDirName = "local-repo-clone";
+	static final String materializedJavaRepoDirName = "materialized-repo";
+	static final String preprocessingCacheDirName = "preprocessing-cache";
 	static final String javaModelFileContainerDirName = "vsum-variant";
 	static final String javaModelFileName = "Java.javaxmi";
+	static final String javaModelsDirName = "java-models";
+	static final String javaModelsListFileName = "java-models.txt";
 	static final String instrumentationDirName = "instrumented";
+	static final String previousInstrumentationDirName = "instrumented-previous";
+	static final String instrumentationBuildDirName = "instrumented-build";
 	static final String moduleConfigurationFileName = "module-configuration.properties";
 	static final String externalCallTargetPairsFileName = "external-call-target-pairs.json";
 	Path localJavaRepo;
+	Path materializedJavaRepo;
+	Path preprocessingCache;
 	Path javaModelFileContainer;
 	Path javaModelFile;
+	Path javaModelsDirectory;
+	Path javaModelsList;
 	Path instrumentationCopy;
+	Path previousInstrumentationCopy;
+	Path instrumentationBuild;
 	Path moduleConfiguration;
 	Path externalCallTargetPairsFile;
 	
 	new(Path parent) {
 		localJavaRepo = parent.resolve(localJavaRepoDirName)
+		materializedJavaRepo = parent.resolve(materializedJavaRepoDirName)
+		preprocessingCache = parent.resolve(preprocessingCacheDirName)
 		javaModelFileContainer = parent.resolve(javaModelFileContainerDirName)
 		javaModelFile = javaModelFileContainer.resolve(javaModelFileName)
+		javaModelsDirectory = javaModelFileContainer.resolve(javaModelsDirName)
+		javaModelsList = javaModelFileContainer.resolve(javaModelsListFileName)
 		instrumentationCopy = parent.resolve(instrumentationDirName)
+		previousInstrumentationCopy = parent.resolve(previousInstrumentationDirName)
+		instrumentationBuild = parent.resolve(instrumentationBuildDirName)
 		moduleConfiguration = parent.resolve(moduleConfigurationFileName);
 		externalCallTargetPairsFile = parent.resolve(externalCallTargetPairsFileName);
 	}
@@ -1,25 +1,40 @@
 package cipm.consistency.commitintegration;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
-import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
 
 import org.apache.log4j.Logger;
 import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.common.notify.impl.AdapterImpl;
+import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.ResourceSet;
 import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.util.InternalEList;
+import org.eclipse.jgit.diff.DiffEntry;
 import org.emftext.language.java.JavaClasspath;
-import org.emftext.language.java.containers.JavaRoot;
+import org.emftext.language.java.containers.CompilationUnit;
 
 import cipm.consistency.commitintegration.detection.BuildFileBasedComponentDetectionStrategy;
 import cipm.consistency.commitintegration.detection.ComponentModuleDetector;
+import cipm.consistency.commitintegration.detection.ModuleAssignment;
+import cipm.consistency.commitintegration.detection.ModuleClassificationRules;
 import cipm.consistency.commitintegration.settings.CommitIntegrationSettingsContainer;
 import cipm.consistency.commitintegration.settings.SettingKeys;
+import cipm.consistency.domains.java.propagation.JavaStateBasedChangeResolutionStrategy;
+import cipm.consistency.tools.evaluation.data.EvaluationDataContainer;
 import jamopp.options.ParserOptions;
 import jamopp.parser.jdt.singlefile.JaMoPPJDTSingleFileParser;
 import tools.vitruv.framework.vsum.VirtualModel;
+import tools.vitruv.framework.vsum.internal.InternalVirtualModel;
 
 /**
  * A utility class for the integration and change propagation of Java code into
@@ -29,6 +44,24 @@ import tools.vitruv.framework.vsum.VirtualModel;
  */
 public final class JavaParserAndPropagatorUtils {
 	private static final Logger LOGGER = Logger.getLogger("cipm." + JavaParserAndPropagatorUtils.class.getSimpleName());
+	/**
+	 * Guards the global JavaClasspath and parser options. The parsing and
+	 * preparation of the models of one commit and the propagation of the models of
+	 * another commit exclude each other.
+	 */
+	private static final Object CLASSPATH_LOCK = new Object();
+	private static final JavaClasspathIndex CLASSPATH_INDEX = new JavaClasspathIndex();
+	private static final JavaStateBasedChangeResolutionStrategy CHUNKING_STRATEGY =
+			new JavaStateBasedChangeResolutionStrategy();
+	private static final String JAVA_FILE_EXTENSION = ".java";
+	private static final String JAVA_MODEL_FILE_EXTENSION = ".javaxmi";
+	private static final String EXTERNAL_MODELS_DIR_NAME = "external";
+	/**
+	 * The detector is kept between the commits so that its strategies only
+	 * consider the changed files. It is guarded by the CLASSPATH_LOCK.
+	 */
+	private static ComponentModuleDetector componentDetector;
+	private static String componentDetectorConfiguration;
 
 	private JavaParserAndPropagatorUtils() {
 	}
@@ -43,23 +76,232 @@ public final class JavaParserAndPropagatorUtils {
 	 */
 	public static Resource parseJavaCodeIntoOneModel(Path dir, Path target, Path modConfig) {
 		// 1. Parse the code.
+		ResourceSet resourceSet = parseDirectory(dir);
+
+		// 2. Filter the resources and create modules for components.
+		detectComponents(resourceSet, dir, modConfig);
+
+		// 3. Create one resource with all Java models.
+		return createOneModel(resourceSet, target);
+	}
+
+	/**
+	 * Parses all Java code and creates the Resources for the models depending on
+	 * the granularity given in the settings.
+	 * 
+	 * @param dir       directory in which the Java code resides.
+	 * @param target    target file of the Resource with all models if all models
+	 *                  are contained in one Resource.
+	 * @param targetDir target directory of the Resources if every compilation unit
+	 *                  is contained in a separate Resource.
+	 * @param modConfig file which contains the stored module configuration.
+	 * @return the Resources with the models.
+	 */
+	public static List<Resource> parseJavaCodeIntoModels(Path dir, Path target, Path targetDir, Path modConfig) {
+		return parseJavaCodeIntoModels(dir, target, targetDir, modConfig, null, new HashSet<>());
+	}
+
+	/**
+	 * Parses all Java code and creates the Resources for the models depending on
+	 * the granularity given in the settings.
+	 * 
+	 * @param dir              directory in which the Java code resides.
+	 * @param target           target file of the Resource with all models if all
+	 *                         models are contained in one Resource.
+	 * @param targetDir        target directory of the Resources if every
+	 *                         compilation unit is contained in a separate
+	 *                         Resource.
+	 * @param modConfig        file which contains the stored module configuration.
+	 * @param changedFiles     the absolute paths of the files which changed since
+	 *                         the last component detection. null if they are
+	 *                         unknown.
+	 * @param reassignedModels the set to which the compilation units are added
+	 *                         whose component changed.
+	 * @return the Resources with the models.
+	 */
+	public static List<Resource> parseJavaCodeIntoModels(Path dir, Path target, Path targetDir, Path modConfig,
+			Collection<Path> changedFiles, Set<EObject> reassignedModels) {
+		synchronized (CLASSPATH_LOCK) {
+			ResourceSet resourceSet = parseDirectory(dir);
+			reassignedModels.addAll(detectComponents(resourceSet, dir, modConfig, changedFiles));
+			return createModels(resourceSet, dir, target, targetDir);
+		}
+	}
+
+	/**
+	 * Returns the granularity of the Resources in which the Java models are
+	 * propagated.
+	 * 
+	 * @return the granularity given in the settings.
+	 */
+	public static ResourceGranularity getResourceGranularity() {
+		String granularity = CommitIntegrationSettingsContainer.getSettingsContainer()
+				.getProperty(SettingKeys.PROPAGATION_GRANULARITY);
+		return granularity != null ? ResourceGranularity.valueOf(granularity.trim())
+				: ResourceGranularity.ONE_RESOURCE;
+	}
+
+	/**
+	 * Parses all Java code within a directory.
+	 * 
+	 * @param dir directory in which the Java code resides.
+	 * @return the ResourceSet with the parsed models.
+	 */
+	public static ResourceSet parseDirectory(Path dir) {
+		long timer = System.currentTimeMillis();
+		ResourceSet resourceSet;
+		synchronized (CLASSPATH_LOCK) {
+			JaMoPPJDTSingleFileParser parser = createParser(new ResourceSetImpl());
+			LOGGER.debug("Parsing " + dir.toString());
+			resourceSet = parser.parseDirectory(dir);
+		}
+		timer = System.currentTimeMillis() - timer;
+		EvaluationDataContainer.getGlobalContainer().getExecutionTimes().setParsingTime(timer);
+		LOGGER.debug("Parsed " + resourceSet.getResources().size() + " files.");
+		return resourceSet;
+	}
+
+	/**
+	 * Creates a new parser for the Java code.
+	 * 
+	 * @param resourceSet the ResourceSet in which the parsed models are stored.
+	 * @return the created parser.
+	 */
+	static JaMoPPJDTSingleFileParser createParser(ResourceSet resourceSet) {
 		ParserOptions.CREATE_LAYOUT_INFORMATION.setValue(Boolean.FALSE);
 		ParserOptions.RESOLVE_EVERYTHING.setValue(Boolean.TRUE);
 		ParserOptions.REGISTER_LOCAL.setValue(Boolean.TRUE);
 		JaMoPPJDTSingleFileParser parser = new JaMoPPJDTSingleFileParser();
-		parser.setResourceSet(new ResourceSetImpl());
-		parser.setExclusionPatterns(CommitIntegrationSettingsContainer.getSettingsContainer()
-				.getProperty(SettingKeys.JAVA_PARSER_EXCLUSION_PATTERNS).split(";"));
-		LOGGER.debug("Parsing " + dir.toString());
-		ResourceSet resourceSet = parser.parseDirectory(dir);
-		LOGGER.debug("Parsed " + resourceSet.getResources().size() + " files.");
+		parser.setResourceSet(resourceSet);
+		parser.setExclusionPatterns(getExclusionPatterns());
+		return parser;
+	}
 
-		// 2. Filter the resources and create modules for components.
-		ComponentModuleDetector detector = new ComponentModuleDetector();
-		detector.addComponentDetectionStrategy(new BuildFileBasedComponentDetectionStrategy());
-		detector.detectComponentsAndCreateModules(resourceSet, dir.toAbsolutePath(), modConfig);
+	/**
+	 * Returns the regular expressions for files which are excluded from the
+	 * parsing.
+	 * 
+	 * @return the regular expressions.
+	 */
+	static String[] getExclusionPatterns() {
+		return CommitIntegrationSettingsContainer.getSettingsContainer()
+				.getProperty(SettingKeys.JAVA_PARSER_EXCLUSION_PATTERNS).split(";");
+	}
 
-		// 3. Create one resource with all Java models.
+	/**
+	 * Returns the compiled regular expressions for files which are excluded from
+	 * the parsing.
+	 * 
+	 * @return the compiled regular expressions.
+	 */
+	static List<Pattern> compileExclusionPatterns() {
+		List<Pattern> exclusions = new ArrayList<>();
+		for (String pattern : getExclusionPatterns()) {
+			if (!pattern.isBlank()) {
+				exclusions.add(Pattern.compile(pattern));
+			}
+		}
+		return exclusions;
+	}
+
+	/**
+	 * Checks if a Java file shall be parsed.
+	 * 
+	 * @param file       the Java file.
+	 * @param exclusions the compiled exclusion patterns.
+	 * @return true if the file exists and is not excluded. false otherwise.
+	 */
+	static boolean isParseable(Path file, List<Pattern> exclusions) {
+		String absPath = file.toAbsolutePath().toString();
+		return Files.exists(file) && exclusions.stream().noneMatch(p -> p.matcher(absPath).matches());
+	}
+
+	/**
+	 * Detects the components within the parsed Java models and creates modules
+	 * for them.
+	 * 
+	 * @param resourceSet the ResourceSet with the parsed Java models.
+	 * @param dir         directory in which the Java code resides.
+	 * @param modConfig   file which contains the stored module configuration.
+	 */
+	static void detectComponents(ResourceSet resourceSet, Path dir, Path modConfig) {
+		detectComponents(resourceSet, dir, modConfig, null);
+	}
+
+	/**
+	 * Detects the components within the parsed Java models and creates modules
+	 * for them.
+	 * 
+	 * @param resourceSet  the ResourceSet with the parsed Java models.
+	 * @param dir          directory in which the Java code resides.
+	 * @param modConfig    file which contains the stored module configuration.
+	 * @param changedFiles the absolute paths of the files which changed since the
+	 *                     last detection. null if they are unknown.
+	 * @return the compilation units whose component changed.
+	 */
+	static Set<EObject> detectComponents(ResourceSet resourceSet, Path dir, Path modConfig,
+			Collection<Path> changedFiles) {
+		synchronized (CLASSPATH_LOCK) {
+			long timer = System.currentTimeMillis();
+			ComponentModuleDetector detector = getComponentDetector();
+			Path assignment = null;
+			if (CommitIntegrationSettingsContainer.getSettingsContainer()
+					.getPropertyAsBoolean(SettingKeys.PERFORM_INCREMENTAL_COMPONENT_DETECTION)) {
+				assignment = ModuleAssignment.resolveFor(modConfig);
+			}
+			Path absoluteDir = dir.toAbsolutePath();
+			detector.detectComponentsAndCreateModules(resourceSet, absoluteDir, modConfig, assignment,
+					changedFiles);
+			Set<EObject> reassigned = new HashSet<>();
+			Set<String> reassignedFiles = detector.getReassignedCompilationUnits();
+			if (assignment != null && !reassignedFiles.isEmpty()) {
+				for (Resource resource : resourceSet.getResources()) {
+					if (resource.getURI().isFile() && !resource.getContents().isEmpty()
+							&& resource.getContents().get(0) instanceof CompilationUnit) {
+						Path file = Path.of(resource.getURI().toFileString()).toAbsolutePath();
+						if (reassignedFiles.contains(absoluteDir.relativize(file).toString().replace('\\', '/'))) {
+							reassigned.add(resource.getContents().get(0));
+						}
+					}
+				}
+			}
+			timer = System.currentTimeMillis() - timer;
+			EvaluationDataContainer.getGlobalContainer().getExecutionTimes().setComponentDetectionTime(timer);
+			return reassigned;
+		}
+	}
+
+	/**
+	 * Returns the detector for the components. A new detector is only created if
+	 * the settings for it changed.
+	 * 
+	 * @return the detector.
+	 */
+	private static ComponentModuleDetector getComponentDetector() {
+		var settings = CommitIntegrationSettingsContainer.getSettingsContainer();
+		int threads = settings.getPropertyAsInteger(SettingKeys.DETECTION_THREADS, 1);
+		String rules = settings.getProperty(SettingKeys.DETECTION_RULES);
+		String configuration = threads + ";" + rules;
+		if (componentDetector == null || !configuration.equals(componentDetectorConfiguration)) {
+			componentDetector = new ComponentModuleDetector(threads);
+			componentDetector.addComponentDetectionStrategy(new BuildFileBasedComponentDetectionStrategy());
+			if (rules != null) {
+				componentDetector.setClassificationRules(new ModuleClassificationRules(Path.of(rules)));
+			}
+			componentDetectorConfiguration = configuration;
+		}
+		return componentDetector;
+	}
+
+	/**
+	 * Creates one Resource with all Java models. The Java models are moved into
+	 * the Resource.
+	 * 
+	 * @param resourceSet the ResourceSet with the parsed Java models.
+	 * @param target      target file of the Resource with all models.
+	 * @return the Resource with all models.
+	 */
+	static Resource createOneModel(ResourceSet resourceSet, Path target) {
 		LOGGER.debug("Creating one resource with all Java models.");
 		ResourceSet next = new ResourceSetImpl();
 		Resource all = next.createResource(URI.createFileURI(target.toAbsolutePath().toString()));
@@ -69,6 +311,150 @@ public final class JavaParserAndPropagatorUtils {
 		return all;
 	}
 
+	/**
+	 * Creates the Resources for the Java models depending on the granularity
+	 * given in the settings. The Java models are moved into the Resources.
+	 * 
+	 * @param resourceSet the ResourceSet with the parsed Java models.
+	 * @param dir         directory in which the Java code resides.
+	 * @param target      target file of the Resource with all models if all
+	 *                    models are contained in one Resource.
+	 * @param targetDir   target directory of the Resources if every compilation
+	 *                    unit is contained in a separate Resource.
+	 * @return the Resources with the models.
+	 */
+	static List<Resource> createModels(ResourceSet resourceSet, Path dir, Path target, Path targetDir) {
+		if (getResourceGranularity() == ResourceGranularity.COMPILATION_UNIT) {
+			return createModelPerCompilationUnit(resourceSet, dir, targetDir);
+		}
+		return List.of(createOneModel(resourceSet, target));
+	}
+
+	/**
+	 * Creates one Resource for every Java model. The Resources mirror the
+	 * structure of the Java files below the target directory. Models which do not
+	 * originate from a file within the Java code directory are placed in a
+	 * separate subdirectory. The Resources are saved so that references between
+	 * them can be resolved from the files. External models are ordered before the
+	 * models from the Java code directory and packages and modules before the
+	 * compilation units. The Java models are moved into the Resources.
+	 * 
+	 * <p>A Resource is only saved if it contains other models than in its last
+	 * saving, e. g., because they were parsed again, or if it references such
+	 * models. Reused copies of the incremental parser keep the mark of their
+	 * last saving.</p>
+	 * 
+	 * @param resourceSet the ResourceSet with the parsed Java models.
+	 * @param dir         directory in which the Java code resides.
+	 * @param targetDir   target directory of the Resources.
+	 * @return the Resources with the models.
+	 */
+	static List<Resource> createModelPerCompilationUnit(ResourceSet resourceSet, Path dir, Path targetDir) {
+		LOGGER.debug("Creating one resource per Java model.");
+		Path absoluteDir = dir.toAbsolutePath();
+		ResourceSet next = new ResourceSetImpl();
+		Path externalDir = targetDir.toAbsolutePath().resolve(EXTERNAL_MODELS_DIR_NAME);
+		List<Resource> external = new ArrayList<>();
+		List<Resource> containers = new ArrayList<>();
+		List<Resource> compilationUnits = new ArrayList<>();
+		for (Resource r : new ArrayList<>(resourceSet.getResources())) {
+			if (r.getContents().isEmpty()) {
+				continue;
+			}
+			URI targetURI = createTargetURI(r.getURI(), absoluteDir, targetDir.toAbsolutePath());
+			Resource model = next.createResource(targetURI);
+			model.getContents().addAll(r.getContents());
+			if (Path.of(targetURI.toFileString()).startsWith(externalDir)) {
+				external.add(model);
+			} else if (model.getContents().get(0) instanceof CompilationUnit) {
+				compilationUnits.add(model);
+			} else {
+				containers.add(model);
+			}
+		}
+		List<Resource> result = new ArrayList<>(external);
+		result.addAll(containers);
+		result.addAll(compilationUnits);
+		// Packages and modules are modified by the component detection so that they
+		// are always saved.
+		Set<Resource> changed = findChangedModels(result);
+		changed.addAll(containers);
+		for (Resource model : result) {
+			if (!changed.contains(model)) {
+				continue;
+			}
+			try {
+				model.save(null);
+				SavedModelAdapter.mark(model);
+			} catch (IOException e) {
+				LOGGER.error("The Java model " + model.getURI() + " cannot be saved.", e);
+			}
+		}
+		LOGGER.debug("Saved " + changed.size() + " of " + result.size() + " resources.");
+		return result;
+	}
+
+	/**
+	 * Finds the Resources which need to be saved. These are the Resources whose
+	 * models differ from the models in their last saving and the Resources which
+	 * reference these models, because the references are stored with the
+	 * positions of the referenced models.
+	 * 
+	 * @param models the Resources.
+	 * @return the Resources to save.
+	 */
+	private static Set<Resource> findChangedModels(List<Resource> models) {
+		Set<Resource> modified = new HashSet<>();
+		for (Resource model : models) {
+			if (!SavedModelAdapter.isSaved(model)) {
+				modified.add(model);
+			}
+		}
+		Set<Resource> changed = new HashSet<>(modified);
+		for (Resource model : models) {
+			if (!modified.contains(model) && referencesModifiedModels(model, modified)) {
+				changed.add(model);
+			}
+		}
+		return changed;
+	}
+
+	private static boolean referencesModifiedModels(Resource model, Set<Resource> modified) {
+		for (var iterator = model.getAllContents(); iterator.hasNext();) {
+			// The references are not resolved so that the models remain unchanged.
+			for (var references = ((InternalEList<EObject>) iterator.next().eCrossReferences())
+					.basicIterator(); references.hasNext();) {
+				EObject target = references.next();
+				if (!target.eIsProxy() && (target.eResource() == null || modified.contains(target.eResource()))) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static URI createTargetURI(URI source, Path dir, Path targetDir) {
+		Path relative = null;
+		if (source.isFile()) {
+			Path file = Path.of(source.toFileString()).toAbsolutePath();
+			if (file.startsWith(dir)) {
+				relative = dir.relativize(file);
+			}
+		}
+		if (relative == null) {
+			relative = Path.of(EXTERNAL_MODELS_DIR_NAME, source.scheme() != null ? source.scheme() : "");
+			for (String segment : source.segments()) {
+				relative = relative.resolve(URI.decode(segment));
+			}
+		}
+		String fileName = relative.getFileName().toString();
+		if (fileName.endsWith(JAVA_FILE_EXTENSION)) {
+			fileName = fileName.substring(0, fileName.length() - JAVA_FILE_EXTENSION.length());
+		}
+		return URI.createFileURI(targetDir.resolve(relative).resolveSibling(fileName + JAVA_MODEL_FILE_EXTENSION)
+				.toString());
+	}
+
 	/**
 	 * Performs an integration or change propagation of Java code into Vitruvius.
 	 * 
@@ -81,15 +467,300 @@ public final class JavaParserAndPropagatorUtils {
 	public static void parseAndPropagateJavaCode(Path dir, Path target, VirtualModel vsum, Path configPath) {
 		// 1. Parse the Java code and create one Resource with all models.
 		Resource all = parseJavaCodeIntoOneModel(dir, target, configPath);
-		all.getContents().forEach(content -> JavaClasspath.get().registerJavaRoot((JavaRoot) content, all.getURI()));
 
 		// 2. Propagate the Java models.
-		LOGGER.debug("Propagating the Java models.");
-		vsum.propagateChangedState(all);
-		JavaClasspath.get().getURIMap().entrySet().stream().filter(entry -> entry.getValue() == all.getURI())
-				.map(Map.Entry::getKey).collect(Collectors.toList())
-				.forEach(u -> JavaClasspath.get().getURIMap().remove(u));
-		all.unload();
-		JavaClasspath.remove(all);
+		propagateJavaModel(all, vsum);
+	}
+
+	/**
+	 * Performs a change propagation of Java code into Vitruvius in which only the
+	 * changed Java files are parsed.
+	 * 
+	 * @param dir        the directory with the Java code.
+	 * @param target     destination in which the complete Java model will be
+	 *                   stored.
+	 * @param vsum       the VSUM.
+	 * @param configPath file path to the module configuration.
+	 * @param parser     the parser which holds the Java models of the previous
+	 *                   propagation.
+	 * @param oldCommit  id of the previously propagated commit. Can be null.
+	 * @param newCommit  id of the commit to propagate.
+	 * @param diffs      the changed Java files between both commits.
+	 */
+	public static void parseAndPropagateJavaCode(Path dir, Path target, VirtualModel vsum, Path configPath,
+			IncrementalJavaParser parser, String oldCommit, String newCommit, List<DiffEntry> diffs) {
+		// 1. Parse the changed Java code and create one Resource with all models.
+		Resource all = parseChangedJavaCodeIntoOneModel(dir, target, configPath, parser, oldCommit, newCommit,
+				diffs);
+
+		// 2. Propagate the Java models. Reused copies are kept for the next commit.
+		propagateJavaModels(List.of(all), List.of(), vsum, !parser.isReusingCopies());
+	}
+
+	/**
+	 * Parses the changed Java code and creates one Resource with all models. The
+	 * models are copies so that the models of the parser remain unchanged. If the
+	 * parser reuses its copies, the Resource must not be unloaded.
+	 * 
+	 * @param dir        the directory with the Java code.
+	 * @param target     target file of the Resource with all models.
+	 * @param configPath file path to the module configuration.
+	 * @param parser     the parser which holds the Java models of the previous
+	 *                   propagation.
+	 * @param oldCommit  id of the previously propagated commit. Can be null.
+	 * @param newCommit  id of the commit to propagate.
+	 * @param diffs      the changed Java files between both commits.
+	 * @return the Resource with all models.
+	 */
+	public static Resource parseChangedJavaCodeIntoOneModel(Path dir, Path target, Path configPath,
+			IncrementalJavaParser parser, String oldCommit, String newCommit, List<DiffEntry> diffs) {
+		synchronized (CLASSPATH_LOCK) {
+			parser.parse(dir, oldCommit, newCommit, diffs);
+			ResourceSet resourceSet = parser.copyModels();
+			// The component detection modifies the copies only.
+			detectComponents(resourceSet, dir, configPath);
+			return createOneModel(resourceSet, target);
+		}
+	}
+
+	/**
+	 * Parses the changed Java code and creates the Resources for the models
+	 * depending on the granularity given in the settings. The models are copies
+	 * so that the models of the parser remain unchanged. If the parser reuses its
+	 * copies, the Resources must not be unloaded.
+	 * 
+	 * @param dir        the directory with the Java code.
+	 * @param target     target file of the Resource with all models if all models
+	 *                   are contained in one Resource.
+	 * @param targetDir  target directory of the Resources if every compilation
+	 *                   unit is contained in a separate Resource.
+	 * @param configPath file path to the module configuration.
+	 * @param parser     the parser which holds the Java models of the previous
+	 *                   propagation.
+	 * @param oldCommit  id of the previously propagated commit. Can be null.
+	 * @param newCommit  id of the commit to propagate.
+	 * @param diffs      the changed Java files between both commits.
+	 * @return the Resources with the models.
+	 */
+	public static List<Resource> parseChangedJavaCodeIntoModels(Path dir, Path target, Path targetDir,
+			Path configPath, IncrementalJavaParser parser, String oldCommit, String newCommit, List<DiffEntry> diffs) {
+		return parseChangedJavaCodeIntoModels(dir, target, targetDir, configPath, parser, oldCommit, newCommit, diffs,
+				null, new HashSet<>());
+	}
+
+	/**
+	 * Parses the changed Java code and creates the Resources for the models
+	 * depending on the granularity given in the settings. The models are copies
+	 * so that the models of the parser remain unchanged. If the parser reuses its
+	 * copies, the Resources must not be unloaded.
+	 * 
+	 * @param dir              the directory with the Java code.
+	 * @param target           target file of the Resource with all models if all
+	 *                         models are contained in one Resource.
+	 * @param targetDir        target directory of the Resources if every
+	 *                         compilation unit is contained in a separate
+	 *                         Resource.
+	 * @param configPath       file path to the module configuration.
+	 * @param parser           the parser which holds the Java models of the
+	 *                         previous propagation.
+	 * @param oldCommit        id of the previously propagated commit. Can be null.
+	 * @param newCommit        id of the commit to propagate.
+	 * @param diffs            the changed Java files between both commits.
+	 * @param changedFiles     the absolute paths of all files which changed since
+	 *                         the last component detection. null if they are
+	 *                         unknown.
+	 * @param reassignedModels the set to which the compilation units are added
+	 *                         whose component changed.
+	 * @return the Resources with the models.
+	 */
+	public static List<Resource> parseChangedJavaCodeIntoModels(Path dir, Path target, Path targetDir,
+			Path configPath, IncrementalJavaParser parser, String oldCommit, String newCommit, List<DiffEntry> diffs,
+			Collection<Path> changedFiles, Set<EObject> reassignedModels) {
+		synchronized (CLASSPATH_LOCK) {
+			parser.parse(dir, oldCommit, newCommit, diffs);
+			ResourceSet resourceSet = parser.copyModels();
+			// The component detection modifies the copies only.
+			reassignedModels.addAll(detectComponents(resourceSet, dir, configPath, changedFiles));
+			return createModels(resourceSet, dir, target, targetDir);
+		}
+	}
+
+	/**
+	 * Propagates one Resource with all Java models into Vitruvius. Afterwards,
+	 * the Resource is unloaded.
+	 * 
+	 * @param all  the Resource with all models.
+	 * @param vsum the VSUM.
+	 */
+	public static void propagateJavaModel(Resource all, VirtualModel vsum) {
+		propagateJavaModels(List.of(all), List.of(), vsum);
+	}
+
+	/**
+	 * Propagates Resources with Java models into Vitruvius one after another.
+	 * Afterwards, the Resources are unloaded.
+	 * 
+	 * @param models  the Resources with the models in the order of their
+	 *                propagation.
+	 * @param removed URIs of previously propagated Resources which no longer
+	 *                exist.
+	 * @param vsum    the VSUM.
+	 */
+	public static void propagateJavaModels(List<Resource> models, Collection<URI> removed, VirtualModel vsum) {
+		propagateJavaModels(models, removed, vsum, true);
+	}
+
+	/**
+	 * Propagates Resources with Java models into Vitruvius one after another.
+	 * Afterwards, the Resources are removed from the classpath.
+	 * 
+	 * @param models  the Resources with the models in the order of their
+	 *                propagation.
+	 * @param removed URIs of previously propagated Resources which no longer
+	 *                exist.
+	 * @param vsum    the VSUM.
+	 * @param unload  true if the Resources are unloaded after the propagation.
+	 *                false if their models are reused, e. g., by an
+	 *                {@link IncrementalJavaParser}.
+	 */
+	public static void propagateJavaModels(List<Resource> models, Collection<URI> removed, VirtualModel vsum,
+			boolean unload) {
+		propagateJavaModels(models, removed, Set.of(), vsum, unload);
+	}
+
+	/**
+	 * Propagates Resources with Java models into Vitruvius one after another.
+	 * Afterwards, the Resources are removed from the classpath. As the
+	 * reactions derive the component of a classifier from its module when the
+	 * classifier is added, compilation units which were assigned to another
+	 * component are removed in a separate propagation before their Resource is
+	 * propagated.
+	 * 
+	 * @param models     the Resources with the models in the order of their
+	 *                   propagation.
+	 * @param removed    URIs of previously propagated Resources which no longer
+	 *                   exist.
+	 * @param reassigned the compilation units whose component changed.
+	 * @param vsum       the VSUM.
+	 * @param unload     true if the Resources are unloaded after the
+	 *                   propagation. false if their models are reused, e. g., by
+	 *                   an {@link IncrementalJavaParser}.
+	 */
+	@SuppressWarnings("restriction")
+	public static void propagateJavaModels(List<Resource> models, Collection<URI> removed,
+			Set<EObject> reassigned, VirtualModel vsum, boolean unload) {
+		// The propagation resolves references with the global JavaClasspath so that no
+		// other commit is parsed in the meantime.
+		synchronized (CLASSPATH_LOCK) {
+			CLASSPATH_INDEX.register(models);
+			LOGGER.debug("Propagating the Java models in " + models.size() + " resources.");
+			for (URI uri : removed) {
+				vsum.propagateChangedState(null, uri);
+			}
+			boolean streamed = CommitIntegrationSettingsContainer.getSettingsContainer()
+					.getPropertyAsBoolean(SettingKeys.PERFORM_STREAMED_PROPAGATION);
+			for (Resource model : models) {
+				propagateWithoutReassignedModels(model, reassigned, vsum);
+				if (streamed && vsum instanceof InternalVirtualModel) {
+					var currentModel = ((InternalVirtualModel) vsum).getModelInstance(model.getURI());
+					if (currentModel != null) {
+						// Every chunk is propagated before the next one is recorded.
+						CHUNKING_STRATEGY.getChangeSequenceBetweenInChunks(model, currentModel.getResource(),
+								vsum::propagateChange);
+						continue;
+					}
+				}
+				vsum.propagateChangedState(model);
+			}
+			for (Resource model : models) {
+				CLASSPATH_INDEX.unregister(model);
+				if (unload) {
+					model.unload();
+				}
+				JavaClasspath.remove(model);
+			}
+		}
+	}
+
+	/**
+	 * Propagates the state of a Resource without its compilation units whose
+	 * component changed so that these compilation units are removed. They are
+	 * added again by the following propagation of the complete Resource.
+	 * 
+	 * @param model      the Resource.
+	 * @param reassigned the compilation units whose component changed.
+	 * @param vsum       the VSUM.
+	 */
+	@SuppressWarnings("restriction")
+	private static void propagateWithoutReassignedModels(Resource model, Set<EObject> reassigned,
+			VirtualModel vsum) {
+		if (reassigned.isEmpty() || vsum instanceof InternalVirtualModel
+				&& ((InternalVirtualModel) vsum).getModelInstance(model.getURI()) == null) {
+			return;
+		}
+		List<Integer> indices = new ArrayList<>();
+		List<EObject> roots = new ArrayList<>();
+		for (int idx = 0; idx < model.getContents().size(); idx++) {
+			if (reassigned.contains(model.getContents().get(idx))) {
+				indices.add(idx);
+				roots.add(model.getContents().get(idx));
+			}
+		}
+		if (roots.isEmpty()) {
+			return;
+		}
+		LOGGER.debug("Removing " + roots.size() + " reassigned compilation units from " + model.getURI() + ".");
+		model.getContents().removeAll(roots);
+		try {
+			vsum.propagateChangedState(model);
+		} finally {
+			// The indices are ascending so that every root is inserted at its original position.
+			for (int idx = 0; idx < roots.size(); idx++) {
+				model.getContents().add(indices.get(idx), roots.get(idx));
+			}
+		}
+	}
+
+	/**
+	 * Marks the models of a saved Resource with the file and their position in
+	 * it.
+	 */
+	private static final class SavedModelAdapter extends AdapterImpl {
+		private final URI file;
+		private final int index;
+		private final int size;
+
+		private SavedModelAdapter(URI file, int index, int size) {
+			this.file = file;
+			this.index = index;
+			this.size = size;
+		}
+
+		@Override
+		public boolean isAdapterForType(Object type) {
+			return type == SavedModelAdapter.class;
+		}
+
+		private static void mark(Resource model) {
+			List<EObject> contents = model.getContents();
+			for (int idx = 0; idx < contents.size(); idx++) {
+				EObject root = contents.get(idx);
+				root.eAdapters().remove(EcoreUtil.getExistingAdapter(root, SavedModelAdapter.class));
+				root.eAdapters().add(new SavedModelAdapter(model.getURI(), idx, contents.size()));
+			}
+		}
+
+		private static boolean isSaved(Resource model) {
+			List<EObject> contents = model.getContents();
+			for (int idx = 0; idx < contents.size(); idx++) {
+				var adapter = (SavedModelAdapter) EcoreUtil.getExistingAdapter(contents.get(idx),
+						SavedModelAdapter.class);
+				if (adapter == null || !adapter.file.equals(model.getURI()) || adapter.index != idx
+						|| adapter.size != contents.size()) {
+					return false;
+				}
+			}
+			return !contents.isEmpty() && Files.exists(Path.of(model.getURI().toFileString()));
+		}
 	}
 }
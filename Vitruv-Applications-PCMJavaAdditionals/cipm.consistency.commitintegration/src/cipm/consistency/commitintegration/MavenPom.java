@@ -0,0 +1,95 @@
+package cipm.consistency.commitintegration;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.xml.sax.SAXException;
+
+/**
+ * The coordinates and dependencies of a Maven module read from its pom.xml.
+ * Only the elements directly below the project element are considered so that
+ * the artifactId of the parent or of a plugin is not taken for the one of the
+ * module. Artifacts are identified by their artifactId because the groupId is
+ * often inherited or given by a property.
+ * 
+ * @author Martin Armbruster
+ */
+public final class MavenPom {
+	private String artifactId;
+	private List<String> dependencies = new ArrayList<>();
+
+	private MavenPom() {
+	}
+
+	/**
+	 * Reads a pom.xml.
+	 * 
+	 * @param pom path to the pom.xml.
+	 * @return the read module.
+	 * @throws IOException if the pom.xml cannot be read or parsed.
+	 */
+	public static MavenPom read(Path pom) throws IOException {
+		Document document;
+		try {
+			document = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(pom.toFile());
+		} catch (ParserConfigurationException e) {
+			throw new IllegalStateException(e);
+		} catch (SAXException e) {
+			throw new IOException("The pom.xml " + pom + " cannot be parsed.", e);
+		}
+		MavenPom result = new MavenPom();
+		Element project = document.getDocumentElement();
+		result.artifactId = getChildText(project, "artifactId");
+		for (Element dependencySection : getChildren(project, "dependencies")) {
+			for (Element dependency : getChildren(dependencySection, "dependency")) {
+				String dependencyId = getChildText(dependency, "artifactId");
+				if (dependencyId != null) {
+					result.dependencies.add(dependencyId);
+				}
+			}
+		}
+		return result;
+	}
+
+	private static List<Element> getChildren(Element parent, String name) {
+		List<Element> result = new ArrayList<>();
+		for (Node child = parent.getFirstChild(); child != null; child = child.getNextSibling()) {
+			if (child instanceof Element && name.equals(child.getNodeName())) {
+				result.add((Element) child);
+			}
+		}
+		return result;
+	}
+
+	private static String getChildText(Element parent, String name) {
+		List<Element> children = getChildren(parent, name);
+		return children.isEmpty() ? null : children.get(0).getTextContent().trim();
+	}
+
+	/**
+	 * Returns the artifactId of the module.
+	 * 
+	 * @return the artifactId or null if the pom.xml does not declare it.
+	 */
+	public String getArtifactId() {
+		return artifactId;
+	}
+
+	/**
+	 * Returns the artifactIds of the dependencies of the module.
+	 * 
+	 * @return the artifactIds in the order of their declaration.
+	 */
+	public List<String> getDependencies() {
+		return Collections.unmodifiableList(dependencies);
+	}
+}
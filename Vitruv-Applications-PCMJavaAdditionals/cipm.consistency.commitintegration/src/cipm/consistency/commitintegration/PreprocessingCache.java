@@ -0,0 +1,290 @@
+package cipm.consistency.commitintegration;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+
+/**
+ * A content-addressed cache for the results of the preprocessing script. The
+ * files on which the script depends (by default, the build files of the
+ * repository) and the script itself are hashed. The files which are created or
+ * modified by the script are stored under this hash. If the hash of a later
+ * commit matches a stored hash, the stored files are restored instead of
+ * running the script again.
+ * 
+ * <p>Only the inputs are hashed. The created or modified files are detected by
+ * comparing the sizes and modification times of all files before and after the
+ * script run.</p>
+ * 
+ * @author Martin Armbruster
+ */
+public class PreprocessingCache {
+	private static final Logger LOGGER = Logger.getLogger("cipm." + PreprocessingCache.class.getSimpleName());
+	/**
+	 * The glob patterns for the build files which are the inputs of the script by
+	 * default.
+	 */
+	public static final List<String> DEFAULT_INPUT_GLOBS = List.of("{,**/}pom.xml", "{,**/}build.gradle",
+			"{,**/}build.gradle.kts", "{,**/}settings.gradle", "{,**/}settings.gradle.kts",
+			"{,**/}gradle.properties");
+	private static final String GIT_DIRECTORY_NAME = ".git";
+	/**
+	 * Maps the names of build output directories to the build files which have to
+	 * be located next to them.
+	 */
+	private static final Map<String, List<String>> BUILD_OUTPUT_DIRECTORIES = Map.of("target", List.of("pom.xml"),
+			"build", List.of("build.gradle", "build.gradle.kts"));
+	private static final String OUTPUT_DIRECTORY_NAME = "outputs";
+	private static final String TEMPORARY_DIRECTORY_PREFIX = "tmp-";
+	private Path cacheDirectory;
+	private List<PathMatcher> inputMatchers;
+	private int maxEntries;
+
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param cacheDirectory the directory in which the outputs are stored.
+	 * @param inputGlobs     glob patterns for the files on which the script
+	 *                       depends. They are matched against the paths relative
+	 *                       to the preprocessed directory. Files in build output
+	 *                       directories are never an input.
+	 * @param maxEntries     the maximum number of stored outputs. If it is
+	 *                       exceeded, the least recently used outputs are removed.
+	 */
+	public PreprocessingCache(Path cacheDirectory, List<String> inputGlobs, int maxEntries) {
+		this.cacheDirectory = cacheDirectory;
+		this.inputMatchers = inputGlobs.stream().map(String::trim).filter(g -> !g.isEmpty())
+				.map(g -> FileSystems.getDefault().getPathMatcher("glob:" + g)).collect(Collectors.toList());
+		this.maxEntries = Math.max(1, maxEntries);
+	}
+
+	/**
+	 * Runs the preprocessing script in a directory or restores its cached outputs.
+	 * 
+	 * @param directory the directory to preprocess.
+	 * @param script    path to the preprocessing script.
+	 * @return true if the preprocessing was successful. false otherwise.
+	 */
+	public boolean preprocess(Path directory, Path script) {
+		Map<Path, FileState> before;
+		String hash;
+		try {
+			before = snapshot(directory);
+			hash = computeInputHash(directory, before.keySet(), script);
+		} catch (IOException e) {
+			LOGGER.error("The inputs of the preprocessing cannot be hashed. Running the script without cache.", e);
+			return ExternalCommandExecutionUtils.runScript(directory.toFile(), script.toString());
+		}
+		Path entry = cacheDirectory.resolve(hash);
+		if (Files.isDirectory(entry)) {
+			try {
+				restore(entry, directory);
+				LOGGER.debug("Restored the preprocessing outputs for " + hash + ".");
+				return true;
+			} catch (IOException e) {
+				LOGGER.error("The preprocessing outputs for " + hash + " cannot be restored. Running the script.", e);
+			}
+		}
+
+		boolean result = ExternalCommandExecutionUtils.runScript(directory.toFile(), script.toString());
+		if (result) {
+			try {
+				store(directory, before, entry);
+			} catch (IOException e) {
+				LOGGER.error("The preprocessing outputs for " + hash + " cannot be stored.", e);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Computes the hash of the files on which the preprocessing depends.
+	 * 
+	 * @param directory the directory to preprocess.
+	 * @param files     the paths of all files in the directory relative to the
+	 *                  directory. Only the inputs among them are hashed.
+	 * @param script    path to the preprocessing script.
+	 * @return the hash as hexadecimal string.
+	 * @throws IOException if the script or an input cannot be read.
+	 */
+	String computeInputHash(Path directory, Collection<Path> files, Path script) throws IOException {
+		MessageDigest digest = FileHashing.createDigest();
+		FileHashing.update(digest, script);
+		digest.update((byte) 0);
+		Map<Path, Boolean> buildOutputs = new HashMap<>();
+		List<Path> inputs = files.stream().filter(p -> inputMatchers.stream().anyMatch(m -> m.matches(p)))
+				.filter(p -> !isInBuildOutput(directory, p, buildOutputs)).sorted().collect(Collectors.toList());
+		for (Path input : inputs) {
+			// The path is included so that moved files lead to a different hash.
+			digest.update(input.toString().replace('\\', '/').getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+			FileHashing.update(digest, directory.resolve(input));
+			digest.update((byte) 0);
+		}
+		return FileHashing.toHex(digest.digest());
+	}
+
+	private boolean isInGitDirectory(Path relativePath) {
+		for (Path element : relativePath) {
+			if (element.toString().equals(GIT_DIRECTORY_NAME)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks if a file is located in a build output directory, i. e., a directory
+	 * whose outputs can stem from an earlier run of the script.
+	 * 
+	 * @param directory    the preprocessed directory.
+	 * @param relativePath the path of the file relative to the directory.
+	 * @param buildOutputs the already checked directories.
+	 * @return true if the file is located in a build output directory.
+	 */
+	private boolean isInBuildOutput(Path directory, Path relativePath, Map<Path, Boolean> buildOutputs) {
+		for (int idx = 0; idx < relativePath.getNameCount() - 1; idx++) {
+			List<String> buildFiles = BUILD_OUTPUT_DIRECTORIES.get(relativePath.getName(idx).toString());
+			if (buildFiles == null) {
+				continue;
+			}
+			Path outputDirectory = directory.resolve(relativePath.subpath(0, idx + 1));
+			boolean isOutput = buildOutputs.computeIfAbsent(outputDirectory, d -> buildFiles.stream()
+					.anyMatch(f -> Files.exists(d.resolveSibling(f))));
+			if (isOutput) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Records the sizes and modification times of all files in a directory.
+	 * 
+	 * @param directory the directory.
+	 * @return the states of the files. The paths are relative to the directory.
+	 * @throws IOException if the directory cannot be read.
+	 */
+	private Map<Path, FileState> snapshot(Path directory) throws IOException {
+		Map<Path, FileState> result = new HashMap<>();
+		try (Stream<Path> files = Files.walk(directory)) {
+			for (Path file : (Iterable<Path>) files::iterator) {
+				Path relativePath = directory.relativize(file);
+				if (!isInGitDirectory(relativePath)) {
+					BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+					if (attributes.isRegularFile()) {
+						result.put(relativePath, new FileState(attributes));
+					}
+				}
+			}
+		}
+		return result;
+	}
+
+	private void store(Path directory, Map<Path, FileState> before, Path entry) throws IOException {
+		Map<Path, FileState> after = snapshot(directory);
+		List<Path> outputs = new ArrayList<>();
+		after.forEach((path, state) -> {
+			if (!state.equals(before.get(path))) {
+				outputs.add(path);
+			}
+		});
+		// The outputs are copied into a temporary directory first so that an
+		// interrupted copy never results in an incomplete entry.
+		Files.createDirectories(cacheDirectory);
+		Path temporary = Files.createTempDirectory(cacheDirectory, TEMPORARY_DIRECTORY_PREFIX);
+		try {
+			Path outputDirectory = temporary.resolve(OUTPUT_DIRECTORY_NAME);
+			for (Path output : outputs) {
+				Path target = outputDirectory.resolve(output.toString());
+				Files.createDirectories(target.getParent());
+				Files.copy(directory.resolve(output), target, StandardCopyOption.COPY_ATTRIBUTES);
+			}
+			if (Files.exists(entry)) {
+				FileUtils.deleteDirectory(entry.toFile());
+			}
+			Files.move(temporary, entry, StandardCopyOption.ATOMIC_MOVE);
+		} finally {
+			if (Files.exists(temporary)) {
+				FileUtils.deleteDirectory(temporary.toFile());
+			}
+		}
+		LOGGER.debug("Stored " + outputs.size() + " preprocessing outputs in " + entry + ".");
+		evict();
+	}
+
+	private void restore(Path entry, Path directory) throws IOException {
+		Path outputDirectory = entry.resolve(OUTPUT_DIRECTORY_NAME);
+		if (Files.isDirectory(outputDirectory)) {
+			FileUtils.copyDirectory(outputDirectory.toFile(), directory.toFile());
+		}
+		Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+	}
+
+	private void evict() throws IOException {
+		List<Path> entries;
+		try (Stream<Path> files = Files.list(cacheDirectory)) {
+			entries = files.filter(Files::isDirectory)
+					.filter(p -> !p.getFileName().toString().startsWith(TEMPORARY_DIRECTORY_PREFIX))
+					.collect(Collectors.toList());
+		}
+		if (entries.size() <= maxEntries) {
+			return;
+		}
+		Map<Path, FileTime> lastUsage = new HashMap<>();
+		for (Path entry : entries) {
+			lastUsage.put(entry, Files.getLastModifiedTime(entry));
+		}
+		entries.sort(Comparator.comparing(lastUsage::get));
+		for (Path entry : entries.subList(0, entries.size() - maxEntries)) {
+			LOGGER.debug("Removing the preprocessing outputs in " + entry + ".");
+			FileUtils.deleteDirectory(entry.toFile());
+		}
+	}
+
+	/**
+	 * The size and modification time of a file.
+	 */
+	private static final class FileState {
+		private final long size;
+		private final FileTime lastModifiedTime;
+
+		private FileState(BasicFileAttributes attributes) {
+			size = attributes.size();
+			lastModifiedTime = attributes.lastModifiedTime();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof FileState)) {
+				return false;
+			}
+			FileState other = (FileState) obj;
+			return size == other.size && lastModifiedTime.equals(other.lastModifiedTime);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(size, lastModifiedTime);
+		}
+	}
+}
@@ -0,0 +1,29 @@
+package cipm.consistency.commitintegration;
+
+/**
+ * Represents the policies which decide the commits of a commit range whose
+ * changes are propagated.
+ * 
+ * @author Martin Armbruster
+ */
+public enum PropagationPlanningPolicy {
+	/**
+	 * Every commit with changes on Java files is propagated.
+	 */
+	EVERY_COMMIT,
+	/**
+	 * Only tagged commits and merge commits are propagated.
+	 */
+	TAGGED_OR_MERGE_COMMITS,
+	/**
+	 * Commits within a time window are propagated together. The window starts
+	 * with the first commit which is not propagated yet, and the propagation
+	 * ends with the last commit within the window.
+	 */
+	TIME_WINDOW,
+	/**
+	 * Commits are propagated together as long as the number of changed Java files
+	 * does not exceed a budget.
+	 */
+	CHANGED_FILE_BUDGET
+}
@@ -0,0 +1,19 @@
+package cipm.consistency.commitintegration;
+
+/**
+ * Represents the granularities of the Resources in which the Java models are
+ * propagated into the VSUM.
+ * 
+ * @author Martin Armbruster
+ */
+public enum ResourceGranularity {
+	/**
+	 * All Java models are contained in one Resource.
+	 */
+	ONE_RESOURCE,
+	/**
+	 * Every compilation unit, package and module is contained in a separate
+	 * Resource.
+	 */
+	COMPILATION_UNIT
+}
@@ -1,7 +1,22 @@
 package cipm.consistency.commitintegration.detection;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 import org.eclipse.emf.ecore.resource.Resource;
 
@@ -9,37 +24,193 @@ import org.eclipse.emf.ecore.resource.Resource;
  * A component discovery strategy which considers build and deployment
  * configuration files.
  * 
+ * <p>The locations of all build and deployment configuration files are indexed
+ * with one walk through the container directory. Afterwards, the module of a
+ * directory is looked up in the index and memoized so that no further file
+ * system accesses are required. For later commits, only the changed build and
+ * deployment configuration files update the index.</p>
+ * 
  * @author Martin Armbruster
  */
 public class BuildFileBasedComponentDetectionStrategy implements ComponentDetectionStrategy {
 	private static final String MAVEN_POM_FILE_NAME = "pom.xml";
 	private static final String GRADLE_BUILD_FILE_NAME = "build.gradle";
 	private static final String DOCKERFILE_FILE_NAME = "Dockerfile";
+	private static final String GIT_DIRECTORY_NAME = ".git";
+	private Path indexedContainer;
+	private Set<Path> buildFileDirectories = new HashSet<>();
+	private Set<Path> dockerfileDirectories = new HashSet<>();
+	private Map<Path, Optional<Path>> moduleDirectories = new ConcurrentHashMap<>();
 
 	@Override
 	public void detectComponent(Resource res, Path file, Path container, ModuleCandidates candidate) {
+		Optional<Path> moduleDirectory = findModuleDirectoryOf(file, container);
+		if (moduleDirectory.isPresent()) {
+			Path dir = moduleDirectory.get();
+			String modName = dir.getFileName().toString();
+			if (dockerfileDirectories.contains(dir)) {
+				candidate.addModuleClassifier(ModuleState.MICROSERVICE_COMPONENT, modName, res);
+			} else {
+				candidate.addModuleClassifier(ModuleState.COMPONENT_CANDIDATE, modName, res);
+			}
+		}
+	}
+
+	@Override
+	public String computeFingerprint(Path container) {
+		ensureIndex(container);
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		// The detection only depends on the locations of the build files.
+		updateDigest(digest, "B", buildFileDirectories, container);
+		updateDigest(digest, "D", dockerfileDirectories, container);
+		StringBuilder builder = new StringBuilder();
+		for (byte b : digest.digest()) {
+			builder.append(String.format("%02x", b));
+		}
+		return builder.toString();
+	}
+
+	@Override
+	public String computeFingerprint(Path container, Path file) {
+		// The detection for a Java file only depends on the nearest build file and a
+		// Dockerfile next to it.
+		return findModuleDirectoryOf(file, container)
+				.map(dir -> container.relativize(dir).toString().replace('\\', '/')
+						+ (dockerfileDirectories.contains(dir) ? "/D" : "/B"))
+				.orElse("");
+	}
+
+	@Override
+	public synchronized void update(Path container, Collection<Path> changedFiles) {
+		if (changedFiles == null || !container.equals(indexedContainer)) {
+			indexedContainer = null;
+			return;
+		}
+		Set<Path> buildDirs = new HashSet<>(buildFileDirectories);
+		Set<Path> dockerDirs = new HashSet<>(dockerfileDirectories);
+		boolean changed = false;
+		for (Path file : changedFiles) {
+			String name = file.getFileName().toString();
+			Set<Path> directories;
+			if (name.equals(MAVEN_POM_FILE_NAME) || name.equals(GRADLE_BUILD_FILE_NAME)) {
+				directories = buildDirs;
+			} else if (name.equals(DOCKERFILE_FILE_NAME)) {
+				directories = dockerDirs;
+			} else {
+				continue;
+			}
+			// A directory can contain a pom.xml and a build.gradle so that the other build
+			// file is checked before the directory is removed.
+			boolean exists = Files.exists(file) || directories == buildDirs
+					&& (Files.exists(file.resolveSibling(MAVEN_POM_FILE_NAME))
+							|| Files.exists(file.resolveSibling(GRADLE_BUILD_FILE_NAME)));
+			changed |= exists ? directories.add(file.getParent()) : directories.remove(file.getParent());
+		}
+		if (changed) {
+			buildFileDirectories = buildDirs;
+			dockerfileDirectories = dockerDirs;
+			moduleDirectories = new ConcurrentHashMap<>();
+		}
+	}
+
+	private void updateDigest(MessageDigest digest, String prefix, Set<Path> directories, Path container) {
+		for (String dir : directories.stream().map(d -> container.relativize(d).toString().replace('\\', '/'))
+				.sorted().collect(Collectors.toList())) {
+			digest.update((prefix + dir).getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+		}
+	}
+
+	/**
+	 * Finds the directory of the module which contains a Java file.
+	 * 
+	 * @param file      path to the Java file.
+	 * @param container the container directory.
+	 * @return the directory with the build file of the module or an empty
+	 *         Optional if the Java file does not belong to a module.
+	 */
+	private Optional<Path> findModuleDirectoryOf(Path file, Path container) {
 		Path parent = file.getParent();
 		// Beginning with the Java file, the file system hierarchy is searched upwards
-		// until the container directory is reached.
-		while (container.compareTo(parent) != 0) {
-			boolean buildFileExistence = checkSiblingExistence(parent, MAVEN_POM_FILE_NAME)
-					|| checkSiblingExistence(parent, GRADLE_BUILD_FILE_NAME);
-			boolean dockerFileExistence = checkSiblingExistence(parent, DOCKERFILE_FILE_NAME);
-			if (buildFileExistence) {
-				String modName = parent.getParent().getFileName().toString();
-				if (dockerFileExistence) {
-					candidate.addModuleClassifier(ModuleState.MICROSERVICE_COMPONENT, modName, res);
-				} else {
-					candidate.addModuleClassifier(ModuleState.COMPONENT_CANDIDATE, modName, res);
-				}
-				return;
+		// until the container directory is reached. A build file is considered if it
+		// is a sibling of a directory on this path.
+		if (container.compareTo(parent) == 0) {
+			return Optional.empty();
+		}
+		ensureIndex(container);
+		return findModuleDirectory(parent.getParent(), container);
+	}
+
+	/**
+	 * Finds the nearest directory with a build file beginning with a directory
+	 * up to the container directory.
+	 * 
+	 * @param directory the directory to start with.
+	 * @param container the container directory.
+	 * @return the directory with the build file or an empty Optional if there is
+	 *         none.
+	 */
+	private Optional<Path> findModuleDirectory(Path directory, Path container) {
+		if (directory == null || !directory.startsWith(container)) {
+			return Optional.empty();
+		}
+		Optional<Path> result = moduleDirectories.get(directory);
+		if (result == null) {
+			if (buildFileDirectories.contains(directory)) {
+				result = Optional.of(directory);
+			} else if (container.compareTo(directory) == 0) {
+				result = Optional.empty();
+			} else {
+				result = findModuleDirectory(directory.getParent(), container);
 			}
-			parent = parent.getParent();
+			moduleDirectories.put(directory, result);
 		}
+		return result;
 	}
 
-	private boolean checkSiblingExistence(Path file, String siblingName) {
-		Path sibling = file.resolveSibling(siblingName);
-		return Files.exists(sibling);
+	private synchronized void ensureIndex(Path container) {
+		if (container.equals(indexedContainer)) {
+			return;
+		}
+		Set<Path> buildDirs = new HashSet<>();
+		Set<Path> dockerDirs = new HashSet<>();
+		try {
+			Files.walkFileTree(container, new SimpleFileVisitor<>() {
+				@Override
+				public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+					if (dir.getFileName() != null && dir.getFileName().toString().equals(GIT_DIRECTORY_NAME)) {
+						return FileVisitResult.SKIP_SUBTREE;
+					}
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+					String name = file.getFileName().toString();
+					if (name.equals(MAVEN_POM_FILE_NAME) || name.equals(GRADLE_BUILD_FILE_NAME)) {
+						buildDirs.add(file.getParent());
+					} else if (name.equals(DOCKERFILE_FILE_NAME)) {
+						dockerDirs.add(file.getParent());
+					}
+					return FileVisitResult.CONTINUE;
+				}
+
+				@Override
+				public FileVisitResult visitFileFailed(Path file, IOException exc) {
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		buildFileDirectories = buildDirs;
+		dockerfileDirectories = dockerDirs;
+		moduleDirectories = new ConcurrentHashMap<>();
+		indexedContainer = container;
 	}
 }
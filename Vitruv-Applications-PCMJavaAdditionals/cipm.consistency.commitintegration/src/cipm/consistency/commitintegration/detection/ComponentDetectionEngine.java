@@ -0,0 +1,195 @@
+package cipm.consistency.commitintegration.detection;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+import org.eclipse.emf.ecore.resource.Resource;
+
+import cipm.consistency.commitintegration.detection.ModuleAssignment.ModuleClassifier;
+import cipm.consistency.tools.evaluation.data.ComponentDetectionStrategyData;
+
+/**
+ * Executes the component detection strategies for compilation units. The
+ * compilation units are partitioned and the partitions are processed by
+ * multiple threads. Every partition collects its results in separate module
+ * candidates which are merged in the order of the partitions afterwards. For
+ * every compilation unit, the strategies are executed in the order of their
+ * priority so that the results are deterministic. The time and number of hits
+ * of every strategy are measured.
+ * 
+ * @author Martin Armbruster
+ */
+public class ComponentDetectionEngine {
+	/**
+	 * Number of partitions per thread so that threads finishing early can take
+	 * over further partitions.
+	 */
+	private static final int PARTITIONS_PER_THREAD = 4;
+	private List<ComponentDetectionStrategy> strategies;
+	private int threads;
+	private AtomicLong[] times;
+	private AtomicInteger[] evaluations;
+	private AtomicInteger[] hits;
+
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param strategies the strategies to execute.
+	 * @param threads    the number of threads which execute the strategies.
+	 */
+	public ComponentDetectionEngine(Collection<ComponentDetectionStrategy> strategies, int threads) {
+		this.strategies = strategies.stream()
+				.sorted(Comparator.comparingInt(ComponentDetectionStrategy::getPriority).reversed())
+				.collect(Collectors.toList());
+		this.threads = Math.max(1, threads);
+		times = new AtomicLong[this.strategies.size()];
+		evaluations = new AtomicInteger[this.strategies.size()];
+		hits = new AtomicInteger[this.strategies.size()];
+		for (int idx = 0; idx < this.strategies.size(); idx++) {
+			times[idx] = new AtomicLong();
+			evaluations[idx] = new AtomicInteger();
+			hits[idx] = new AtomicInteger();
+		}
+	}
+
+	/**
+	 * Detects the components of compilation units.
+	 * 
+	 * @param units     the compilation units.
+	 * @param container path to the repository which contains the complete project
+	 *                  and source code.
+	 * @param target    the module candidates to which the results are added.
+	 * @return the module classifiers found for every compilation unit in the order
+	 *         of the compilation units.
+	 */
+	public List<List<ModuleClassifier>> detect(List<DetectionUnit> units, Path container, ModuleCandidates target) {
+		List<List<ModuleClassifier>> result = new ArrayList<>();
+		if (threads == 1 || units.size() < 2) {
+			ModuleCandidates local = new ModuleCandidates();
+			result.addAll(detectPartition(units, container, local));
+			target.merge(local);
+			return result;
+		}
+		int partitionSize = Math.max(1, (units.size() + threads * PARTITIONS_PER_THREAD - 1)
+				/ (threads * PARTITIONS_PER_THREAD));
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<List<List<ModuleClassifier>>>> futures = new ArrayList<>();
+			List<ModuleCandidates> partitionCandidates = new ArrayList<>();
+			for (int idx = 0; idx < units.size(); idx += partitionSize) {
+				List<DetectionUnit> partition = units.subList(idx, Math.min(idx + partitionSize, units.size()));
+				ModuleCandidates local = new ModuleCandidates();
+				partitionCandidates.add(local);
+				futures.add(executor.submit(() -> detectPartition(partition, container, local)));
+			}
+			for (int idx = 0; idx < futures.size(); idx++) {
+				result.addAll(futures.get(idx).get());
+				target.merge(partitionCandidates.get(idx));
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			executor.shutdownNow();
+			throw new IllegalStateException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			executor.shutdown();
+		}
+		return result;
+	}
+
+	private List<List<ModuleClassifier>> detectPartition(List<DetectionUnit> partition, Path container,
+			ModuleCandidates local) {
+		List<List<ModuleClassifier>> result = new ArrayList<>();
+		for (DetectionUnit unit : partition) {
+			RecordingModuleCandidates recorder = new RecordingModuleCandidates();
+			for (int idx = 0; idx < strategies.size(); idx++) {
+				int previousSize = recorder.classifiers.size();
+				long start = System.nanoTime();
+				strategies.get(idx).detectComponent(unit.getResource(), unit.getFile(), container, recorder);
+				times[idx].addAndGet(System.nanoTime() - start);
+				evaluations[idx].incrementAndGet();
+				if (recorder.classifiers.size() > previousSize) {
+					hits[idx].incrementAndGet();
+				}
+			}
+			for (ModuleClassifier classifier : recorder.classifiers) {
+				local.addModuleClassifier(classifier.getState(), classifier.getModuleName(), unit.getResource());
+			}
+			result.add(recorder.classifiers);
+		}
+		return result;
+	}
+
+	/**
+	 * Returns the measured data of the strategies.
+	 * 
+	 * @return the data for every strategy in the order of their execution.
+	 */
+	public List<ComponentDetectionStrategyData> getStrategyData() {
+		List<ComponentDetectionStrategyData> result = new ArrayList<>();
+		for (int idx = 0; idx < strategies.size(); idx++) {
+			ComponentDetectionStrategyData data = new ComponentDetectionStrategyData();
+			data.setStrategy(strategies.get(idx).getClass().getSimpleName());
+			data.setPriority(strategies.get(idx).getPriority());
+			data.setTime(times[idx].get() / 1_000_000);
+			data.setNumberEvaluatedCompilationUnits(evaluations[idx].get());
+			data.setNumberHits(hits[idx].get());
+			result.add(data);
+		}
+		return result;
+	}
+
+	/**
+	 * A compilation unit for which the component is detected.
+	 */
+	public static class DetectionUnit {
+		private Resource resource;
+		private Path file;
+
+		/**
+		 * Creates a new instance.
+		 * 
+		 * @param resource the Resource containing the compilation unit.
+		 * @param file     path to the Java file of the compilation unit.
+		 */
+		public DetectionUnit(Resource resource, Path file) {
+			this.resource = resource;
+			this.file = file;
+		}
+
+		public Resource getResource() {
+			return resource;
+		}
+
+		public Path getFile() {
+			return file;
+		}
+	}
+
+	/**
+	 * Records the module classifiers found by the strategies for one compilation
+	 * unit.
+	 */
+	private static class RecordingModuleCandidates extends ModuleCandidates {
+		private List<ModuleClassifier> classifiers = new ArrayList<>();
+
+		@Override
+		public synchronized void addModuleClassifier(ModuleState state, String moduleName, Resource cu) {
+			classifiers.add(new ModuleClassifier(state, moduleName));
+		}
+	}
+}
@@ -1,11 +1,14 @@
 package cipm.consistency.commitintegration.detection;
 
 import java.nio.file.Path;
+import java.util.Collection;
 
 import org.eclipse.emf.ecore.resource.Resource;
 
 /**
- * Interface for strategies which detect components in the source code.
+ * Interface for strategies which detect components in the source code. As the
+ * strategies can be executed by multiple threads at the same time, they have to
+ * be thread-safe.
  * 
  * @author Martin Armbruster
  */
@@ -21,4 +24,60 @@ public interface ComponentDetectionStrategy {
 	 * @param candidate the storage of the module candidates.
 	 */
 	public void detectComponent(Resource res, Path file, Path container, ModuleCandidates candidate);
+
+	/**
+	 * Returns the priority of the strategy. Strategies with a higher priority are
+	 * executed first and their results are added first to the module candidates.
+	 * Strategies with the same priority keep the order in which they were added.
+	 * 
+	 * @return the priority.
+	 */
+	public default int getPriority() {
+		return 0;
+	}
+
+	/**
+	 * Computes a fingerprint of all files besides the Java files on which the
+	 * detection depends. As long as the fingerprint remains the same, the detected
+	 * component of a Java file with an unchanged path can be reused.
+	 * 
+	 * @param container path to the repository which contains the complete project
+	 *                  and source code.
+	 * @return the fingerprint or null if the results of the strategy cannot be
+	 *         reused.
+	 */
+	public default String computeFingerprint(Path container) {
+		return null;
+	}
+
+	/**
+	 * Computes a fingerprint of the files besides the Java files on which the
+	 * detection for one Java file depends. If the fingerprint of all files
+	 * changed, the detected component of a Java file can still be reused as long
+	 * as the fingerprint for the Java file remains the same. By default, it is
+	 * the fingerprint of all files.
+	 * 
+	 * @param container path to the repository which contains the complete project
+	 *                  and source code.
+	 * @param file      path to the Java file.
+	 * @return the fingerprint or null if the result of the strategy for the Java
+	 *         file cannot be reused.
+	 */
+	public default String computeFingerprint(Path container, Path file) {
+		return computeFingerprint(container);
+	}
+
+	/**
+	 * Informs the strategy about the files which changed in the container since
+	 * its last detection so that it can update the state on which the detection
+	 * and the fingerprint depend without reading the complete container again.
+	 * 
+	 * @param container    path to the repository which contains the complete
+	 *                     project and source code.
+	 * @param changedFiles the absolute paths of the added, modified and removed
+	 *                     files. null if they are unknown. In this case, the
+	 *                     strategy has to discard its state.
+	 */
+	public default void update(Path container, Collection<Path> changedFiles) {
+	}
 }
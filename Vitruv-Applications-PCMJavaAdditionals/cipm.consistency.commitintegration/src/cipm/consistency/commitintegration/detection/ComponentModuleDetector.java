@@ -3,12 +3,16 @@ package cipm.consistency.commitintegration.detection;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.TreeSet;
 
+import org.apache.log4j.Logger;
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.resource.Resource;
@@ -18,6 +22,10 @@ import org.emftext.language.java.classifiers.ConcreteClassifier;
 import org.emftext.language.java.containers.CompilationUnit;
 import org.emftext.language.java.containers.Origin;
 
+import cipm.consistency.commitintegration.detection.ComponentDetectionEngine.DetectionUnit;
+import cipm.consistency.commitintegration.detection.ModuleAssignment.ModuleClassifier;
+import cipm.consistency.commitintegration.detection.ModuleClassificationRules.Classification;
+import cipm.consistency.tools.evaluation.data.EvaluationDataContainer;
 import tools.vitruv.framework.userinteraction.InternalUserInteractor;
 import tools.vitruv.framework.userinteraction.UserInteractionFactory;
 
@@ -28,10 +36,49 @@ import tools.vitruv.framework.userinteraction.UserInteractionFactory;
  * @author Martin Armbruster
  */
 public final class ComponentModuleDetector {
-	private Set<ComponentDetectionStrategy> strategies = new HashSet<>();
+	private static final Logger LOGGER = Logger.getLogger("cipm." + ComponentModuleDetector.class.getSimpleName());
+	private List<ComponentDetectionStrategy> strategies = new ArrayList<>();
+	private Set<String> reassignedCompilationUnits = new HashSet<>();
+	private int threads;
+	private ModuleClassificationRules rules;
 
+	/**
+	 * Creates a new instance which executes the strategies sequentially.
+	 */
+	public ComponentModuleDetector() {
+		this(1);
+	}
+
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param threads the number of threads which execute the strategies.
+	 */
+	public ComponentModuleDetector(int threads) {
+		this.threads = threads;
+	}
+
+	/**
+	 * Sets the rules which classify the modules without asking the developer.
+	 * 
+	 * @param rules the rules. If null, the developer is asked to classify unknown
+	 *              modules. Otherwise, the detection fails if the rules do not
+	 *              classify all modules.
+	 */
+	public void setClassificationRules(ModuleClassificationRules rules) {
+		this.rules = rules;
+	}
+
+	/**
+	 * Adds a strategy. The strategies are executed in the order of their priority
+	 * and, for equal priorities, in the order in which they were added.
+	 * 
+	 * @param strategy the strategy to add.
+	 */
 	public void addComponentDetectionStrategy(ComponentDetectionStrategy strategy) {
-		strategies.add(strategy);
+		if (!strategies.contains(strategy)) {
+			strategies.add(strategy);
+		}
 	}
 
 	/**
@@ -43,29 +90,148 @@ public final class ComponentModuleDetector {
 	 * @param configPath  path to the module configuration.
 	 */
 	public void detectComponentsAndCreateModules(ResourceSet resourceSet, Path dir, Path configPath) {
+		detectComponentsAndCreateModules(resourceSet, dir, configPath, null);
+	}
+
+	/**
+	 * Detects the components and creates a module for every component. If a path
+	 * for the module assignment is given, the components detected for the
+	 * compilation units in the previous detection are reused as long as the paths
+	 * of the compilation units and the files on which the strategies depend for
+	 * them did not change. Only the remaining compilation units are evaluated by
+	 * the strategies. Modules of components which still exist are kept.
+	 * 
+	 * @param resourceSet    the ResourceSet which includes all Java models.
+	 * @param dir            path to the repository which contains the complete
+	 *                       project and source code.
+	 * @param configPath     path to the module configuration.
+	 * @param assignmentPath path to the stored module assignment. Can be null.
+	 */
+	public void detectComponentsAndCreateModules(ResourceSet resourceSet, Path dir, Path configPath,
+			Path assignmentPath) {
+		detectComponentsAndCreateModules(resourceSet, dir, configPath, assignmentPath, null);
+	}
+
+	/**
+	 * Detects the components and creates a module for every component as
+	 * described in {@link #detectComponentsAndCreateModules(ResourceSet, Path, Path, Path)}.
+	 * The strategies keep their state between the detections in the same
+	 * directory and only consider the changed files to update it.
+	 * 
+	 * @param resourceSet    the ResourceSet which includes all Java models.
+	 * @param dir            path to the repository which contains the complete
+	 *                       project and source code.
+	 * @param configPath     path to the module configuration.
+	 * @param assignmentPath path to the stored module assignment. Can be null.
+	 * @param changedFiles   the absolute paths of the files which changed since
+	 *                       the last detection. null if they are unknown.
+	 */
+	public void detectComponentsAndCreateModules(ResourceSet resourceSet, Path dir, Path configPath,
+			Path assignmentPath, Collection<Path> changedFiles) {
+		for (ComponentDetectionStrategy strategy : strategies) {
+			strategy.update(dir, changedFiles);
+		}
 		ModuleConfiguration config = new ModuleConfiguration(configPath);
 		ModuleCandidates candidate = new ModuleCandidates();
+		ModuleAssignment assignment = null;
+		Map<String, List<ModuleClassifier>> newAssignments = new HashMap<>();
+		Map<String, String> newFileFingerprints = new HashMap<>();
+		Map<String, org.emftext.language.java.containers.Module> existingModules = new HashMap<>();
+		List<org.emftext.language.java.containers.Package> packages = new ArrayList<>();
+		String fingerprint = null;
+		boolean reusable = false;
+		if (assignmentPath != null) {
+			assignment = new ModuleAssignment(assignmentPath);
+			fingerprint = computeFingerprint(dir);
+			reusable = fingerprint != null && fingerprint.equals(assignment.getFingerprint());
+		}
+		reassignedCompilationUnits.clear();
+		List<DetectionUnit> units = new ArrayList<>();
+		List<String> unitKeys = new ArrayList<>();
 		for (Resource resource : resourceSet.getResources()) {
 			if (resource.getContents().isEmpty()) {
 				continue;
 			}
 			EObject root = resource.getContents().get(0);
 			if (root instanceof org.emftext.language.java.containers.Module) {
-				// Existing modules are removed because all modules will represent a component.
-				resource.getContents().clear();
+				var module = (org.emftext.language.java.containers.Module) root;
+				if (module.getName() != null
+						&& resource.getURI().equals(LogicalJavaURIGenerator.getModuleURI(module.getName()))) {
+					// Modules of a previous detection are kept as long as their components exist.
+					existingModules.put(module.getName(), module);
+				} else {
+					// Other modules are removed because all modules will represent a component.
+					resource.getContents().clear();
+				}
 			} else if (root instanceof org.emftext.language.java.containers.Package) {
 				// The module for package models are newly set at a later point in time.
-				((org.emftext.language.java.containers.Package) root).setModule(null);
+				packages.add((org.emftext.language.java.containers.Package) root);
 			} else if (root instanceof CompilationUnit) {
 				if (resource.getURI().isFile()) {
 					// Find the Java file for the compilation unit.
 					Path file = Paths.get(resource.getURI().toFileString()).toAbsolutePath();
-					// Detect the component for the Java file / model.
-					strategies.forEach(s -> s.detectComponent(resource, file, dir, candidate));
+					if (assignment == null) {
+						units.add(new DetectionUnit(resource, file));
+						continue;
+					}
+					String key = dir.relativize(file).toString().replace('\\', '/');
+					List<ModuleClassifier> classifiers = assignment.getAssignments().get(key);
+					String fileFingerprint = assignment.getFileFingerprints().get(key);
+					if (!reusable || classifiers == null) {
+						// The fingerprint for the Java file decides if its previous result is still valid.
+						String previousFingerprint = fileFingerprint;
+						fileFingerprint = computeFingerprint(dir, file);
+						if (fileFingerprint == null || !fileFingerprint.equals(previousFingerprint)) {
+							classifiers = null;
+						}
+					}
+					if (fileFingerprint != null) {
+						newFileFingerprints.put(key, fileFingerprint);
+					}
+					if (classifiers != null) {
+						for (ModuleClassifier classifier : classifiers) {
+							candidate.addModuleClassifier(classifier.getState(), classifier.getModuleName(),
+									resource);
+						}
+						newAssignments.put(key, classifiers);
+					} else {
+						// Detect the component only for new Java files or changed build files.
+						units.add(new DetectionUnit(resource, file));
+						unitKeys.add(key);
+					}
 				}
 			}
 		}
-		InternalUserInteractor userInteractor = UserInteractionFactory.instance.createDialogUserInteractor();
+		// Detect the component for the Java files / models.
+		ComponentDetectionEngine engine = new ComponentDetectionEngine(strategies, threads);
+		List<List<ModuleClassifier>> detectedClassifiers = engine.detect(units, dir, candidate);
+		var strategyData = EvaluationDataContainer.getGlobalContainer().getComponentDetectionStrategies();
+		strategyData.clear();
+		strategyData.addAll(engine.getStrategyData());
+		if (assignment != null) {
+			for (int idx = 0; idx < unitKeys.size(); idx++) {
+				String key = unitKeys.get(idx);
+				List<ModuleClassifier> classifiers = detectedClassifiers.get(idx);
+				List<ModuleClassifier> previousClassifiers = assignment.getAssignments().get(key);
+				// New compilation units are not reassigned.
+				if (previousClassifiers != null && !classifiers.equals(previousClassifiers)) {
+					reassignedCompilationUnits.add(key);
+				}
+				newAssignments.put(key, classifiers);
+			}
+			// Compilation units which are only in the previous assignment were removed.
+			assignment.getAssignments().keySet().stream().filter(k -> !newAssignments.containsKey(k))
+					.forEach(reassignedCompilationUnits::add);
+			assignment.getAssignments().clear();
+			assignment.getAssignments().putAll(newAssignments);
+			assignment.getFileFingerprints().clear();
+			assignment.getFileFingerprints().putAll(newFileFingerprints);
+			assignment.setFingerprint(fingerprint);
+			assignment.save();
+			LOGGER.debug("Evaluated " + units.size() + " of " + newAssignments.size()
+					+ " compilation units for the component detection. " + reassignedCompilationUnits.size()
+					+ " compilation units were reassigned or removed.");
+		}
 		// Apply the stored configuration on the found modules.
 		var modCandidates = new HashMap<>(candidate.getModulesInState(ModuleState.COMPONENT_CANDIDATE));
 		// Decide the state for component candidates.
@@ -89,10 +255,27 @@ public final class ComponentModuleDetector {
 		updateConfig(config, candidate, ModuleState.MICROSERVICE_COMPONENT);
 		updateConfig(config, candidate, ModuleState.REGULAR_COMPONENT);
 		updateConfig(config, candidate, ModuleState.NO_COMPONENT);
+		if (rules != null) {
+			classifyWithRules(candidate, config, dir);
+			Set<String> unclassified = new TreeSet<>(candidate.getModulesInState(ModuleState.COMPONENT_CANDIDATE)
+					.keySet());
+			unclassified.addAll(candidate.getModulesInState(ModuleState.PART_OF_COMPONENT).keySet());
+			if (!unclassified.isEmpty()) {
+				// Asking the developer would block a detection which uses rules to avoid it.
+				throw new IllegalStateException("The classification rules do not classify the modules "
+						+ unclassified + ". Add rules for them or a default classification.");
+			}
+		}
+		InternalUserInteractor userInteractor = null;
+		if (!candidate.getModulesInState(ModuleState.COMPONENT_CANDIDATE).isEmpty()
+				|| !candidate.getModulesInState(ModuleState.PART_OF_COMPONENT).isEmpty()) {
+			userInteractor = UserInteractionFactory.instance.createDialogUserInteractor();
+		}
+		final InternalUserInteractor interactor = userInteractor;
 		// Ask the developer to decide the type of the remaining component candidates.
 		modCandidates = new HashMap<>(candidate.getModulesInState(ModuleState.COMPONENT_CANDIDATE));
 		modCandidates.forEach((k, v) -> {
-			int r = userInteractor.getSingleSelectionDialogBuilder()
+			int r = interactor.getSingleSelectionDialogBuilder()
 					.message("Detected the potential component / module"
 							+ k + ". Which type of a component is it?")
 					.choices(List.of("Microservice component", "Regular component",
@@ -118,7 +301,7 @@ public final class ComponentModuleDetector {
 			allPossibleModules.addAll(candidate.getModulesInState(ModuleState.MICROSERVICE_COMPONENT).keySet());
 			int mscSize = allPossibleModules.size();
 			allPossibleModules.addAll(candidate.getModulesInState(ModuleState.REGULAR_COMPONENT).keySet());
-			int r = userInteractor.getSingleSelectionDialogBuilder()
+			int r = interactor.getSingleSelectionDialogBuilder()
 					.message("The component / module candidate "
 							+ k + " is part of which component / module?")
 					.choices(allPossibleModules).startInteraction();
@@ -134,9 +317,141 @@ public final class ComponentModuleDetector {
 			config.getSubModuleMapping().put(k, newMod);
 		});
 		config.save();
-		// At last, create the modules.
-		createModules(candidate.getModulesInState(ModuleState.MICROSERVICE_COMPONENT), resourceSet, Origin.FILE);
-		createModules(candidate.getModulesInState(ModuleState.REGULAR_COMPONENT), resourceSet, Origin.ARCHIVE);
+		// At last, create, update and remove the modules.
+		Map<org.emftext.language.java.containers.Package, org.emftext.language.java.containers.Module> packageModules =
+				new HashMap<>();
+		int numberModules = existingModules.size();
+		createModules(candidate.getModulesInState(ModuleState.MICROSERVICE_COMPONENT), resourceSet, Origin.FILE,
+				existingModules, packageModules);
+		createModules(candidate.getModulesInState(ModuleState.REGULAR_COMPONENT), resourceSet, Origin.ARCHIVE,
+				existingModules, packageModules);
+		// The modules of the remaining components were removed.
+		existingModules.values().forEach(mod -> mod.eResource().getContents().remove(mod));
+		packages.stream().filter(p -> !packageModules.containsKey(p) && p.getModule() != null)
+				.forEach(p -> p.setModule(null));
+		packageModules.forEach((p, mod) -> {
+			if (p.getModule() != mod) {
+				p.setModule(mod);
+			}
+		});
+		LOGGER.debug("Kept " + (numberModules - existingModules.size()) + " and removed " + existingModules.size()
+				+ " of " + numberModules + " previous modules.");
+	}
+
+	/**
+	 * Classifies the remaining component candidates and decides the containing
+	 * modules of modules which are part of other modules with the rules.
+	 * 
+	 * @param candidate the module candidates.
+	 * @param config    the module configuration which is updated with the results.
+	 * @param dir       path to the repository.
+	 */
+	private void classifyWithRules(ModuleCandidates candidate, ModuleConfiguration config, Path dir) {
+		// The modules are sorted so that the results are deterministic.
+		for (String k : new TreeSet<>(candidate.getModulesInState(ModuleState.COMPONENT_CANDIDATE).keySet())) {
+			Set<Resource> v = candidate.getModulesInState(ModuleState.COMPONENT_CANDIDATE).get(k);
+			Classification classification = rules.classify(k, findModuleDirectory(k, v, dir), dir, v);
+			if (classification != null && classification.getState() != ModuleState.COMPONENT_CANDIDATE) {
+				candidate.updateState(ModuleState.COMPONENT_CANDIDATE, classification.getState(), k);
+				config.getModuleClassification().put(k, classification.getState());
+			}
+		}
+		Map<String, Path> components = new HashMap<>();
+		for (ModuleState state : List.of(ModuleState.MICROSERVICE_COMPONENT, ModuleState.REGULAR_COMPONENT)) {
+			candidate.getModulesInState(state).forEach((k, v) -> components.put(k, findModuleDirectory(k, v, dir)));
+		}
+		for (String k : new TreeSet<>(candidate.getModulesInState(ModuleState.PART_OF_COMPONENT).keySet())) {
+			Set<Resource> v = candidate.getModulesInState(ModuleState.PART_OF_COMPONENT).get(k);
+			Path moduleDir = findModuleDirectory(k, v, dir);
+			Classification classification = rules.classify(k, moduleDir, dir, v);
+			if (classification == null || classification.getState() != ModuleState.PART_OF_COMPONENT) {
+				continue;
+			}
+			String newMod = rules.resolveParent(classification, moduleDir, components);
+			if (newMod != null) {
+				candidate.removeModule(ModuleState.PART_OF_COMPONENT, k);
+				candidate.getModulesInState(candidate.getStateOfModule(newMod)).get(newMod).addAll(v);
+				config.getModuleClassification().put(k, ModuleState.PART_OF_COMPONENT);
+				config.getSubModuleMapping().put(k, newMod);
+			}
+		}
+	}
+
+	/**
+	 * Finds the directory of a module. It is the nearest directory with the name
+	 * of the module which contains a Java file of the module.
+	 * 
+	 * @param moduleName name of the module.
+	 * @param resources  the Resources within the module.
+	 * @param dir        path to the repository.
+	 * @return the directory or null if it cannot be found.
+	 */
+	private Path findModuleDirectory(String moduleName, Set<Resource> resources, Path dir) {
+		for (Resource resource : resources) {
+			if (!resource.getURI().isFile()) {
+				continue;
+			}
+			Path current = Paths.get(resource.getURI().toFileString()).toAbsolutePath().getParent();
+			while (current != null && current.startsWith(dir)) {
+				if (current.getFileName() != null && current.getFileName().toString().equals(moduleName)) {
+					return current;
+				}
+				current = current.getParent();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the compilation units whose components changed or which were
+	 * removed in the last incremental detection. Compilation units without a
+	 * previous assignment are not included.
+	 * 
+	 * @return the paths of the Java files relative to the repository.
+	 */
+	public Set<String> getReassignedCompilationUnits() {
+		return reassignedCompilationUnits;
+	}
+
+	/**
+	 * Combines the fingerprints of all strategies for one Java file.
+	 * 
+	 * @param dir  path to the repository.
+	 * @param file path to the Java file.
+	 * @return the combined fingerprint or null if the result of a strategy for the
+	 *         Java file cannot be reused.
+	 */
+	private String computeFingerprint(Path dir, Path file) {
+		List<String> fingerprints = new ArrayList<>();
+		for (ComponentDetectionStrategy strategy : strategies) {
+			String fingerprint = strategy.computeFingerprint(dir, file);
+			if (fingerprint == null) {
+				return null;
+			}
+			fingerprints.add(strategy.getClass().getName() + "=" + fingerprint);
+		}
+		Collections.sort(fingerprints);
+		return String.join(";", fingerprints);
+	}
+
+	/**
+	 * Combines the fingerprints of all strategies.
+	 * 
+	 * @param dir path to the repository.
+	 * @return the combined fingerprint or null if the results of a strategy cannot
+	 *         be reused.
+	 */
+	private String computeFingerprint(Path dir) {
+		List<String> fingerprints = new ArrayList<>();
+		for (ComponentDetectionStrategy strategy : strategies) {
+			String fingerprint = strategy.computeFingerprint(dir);
+			if (fingerprint == null) {
+				return null;
+			}
+			fingerprints.add(strategy.getClass().getName() + "=" + fingerprint);
+		}
+		Collections.sort(fingerprints);
+		return String.join(";", fingerprints);
 	}
 
 	private void updateConfig(ModuleConfiguration config, ModuleCandidates candidates, ModuleState state) {
@@ -145,30 +460,43 @@ public final class ComponentModuleDetector {
 	}
 
 	/**
-	 * Creates modules for a component.
+	 * Creates modules for a component. Existing modules of the components are
+	 * reused.
 	 * 
-	 * @param map          a map of the modules to its Resources within the module.
-	 * @param resourceSet  the ResourceSet which contains all Java models.
-	 * @param moduleOrigin the origin for the modules.
+	 * @param map             a map of the modules to its Resources within the
+	 *                        module.
+	 * @param resourceSet     the ResourceSet which contains all Java models.
+	 * @param moduleOrigin    the origin for the modules.
+	 * @param existingModules the modules of the previous detection by their names.
+	 *                        Reused modules are removed from it.
+	 * @param packageModules  the map to which the module of every package in the
+	 *                        components is added.
 	 */
-	private void createModules(Map<String, Set<Resource>> map, ResourceSet resourceSet, Origin moduleOrigin) {
+	private void createModules(Map<String, Set<Resource>> map, ResourceSet resourceSet, Origin moduleOrigin,
+			Map<String, org.emftext.language.java.containers.Module> existingModules,
+			Map<org.emftext.language.java.containers.Package, org.emftext.language.java.containers.Module>
+				packageModules) {
 		map.forEach((k, v) -> {
-			URI uri = LogicalJavaURIGenerator.getModuleURI(k);
-			Resource targetResource = resourceSet.getResource(uri, false);
-			if (targetResource == null) {
-				targetResource = resourceSet.createResource(uri);
-			}
-			org.emftext.language.java.containers.Module mod =
-					org.emftext.language.java.containers.ContainersFactory.eINSTANCE
-					.createModule();
-			mod.setName(k);
-			mod.setOrigin(moduleOrigin);
-			targetResource.getContents().add(mod);
-			// For every compilation unit in the module, the module of its package is set to
-			// the newly created module.
+			org.emftext.language.java.containers.Module mod = existingModules.remove(k);
+			if (mod == null) {
+				URI uri = LogicalJavaURIGenerator.getModuleURI(k);
+				Resource targetResource = resourceSet.getResource(uri, false);
+				if (targetResource == null) {
+					targetResource = resourceSet.createResource(uri);
+				}
+				mod = org.emftext.language.java.containers.ContainersFactory.eINSTANCE.createModule();
+				mod.setName(k);
+				targetResource.getContents().add(mod);
+			}
+			if (mod.getOrigin() != moduleOrigin) {
+				mod.setOrigin(moduleOrigin);
+			}
+			final var finalMod = mod;
+			// For every compilation unit in the module, the module of its package is the
+			// module of the component.
 			v.stream().map(resource -> resource.getContents().get(0)).map(obj -> (CompilationUnit) obj)
 					.map(cu -> cu.getChildrenByType(ConcreteClassifier.class)).flatMap(cc -> cc.stream())
-					.map(cc -> cc.getPackage()).filter(p -> p != null).forEach(p -> p.setModule(mod));
+					.map(cc -> cc.getPackage()).filter(p -> p != null).forEach(p -> packageModules.put(p, finalMod));
 		});
 	}
 }
@@ -0,0 +1,187 @@
+package cipm.consistency.commitintegration.detection;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Properties;
+
+/**
+ * This class stores the module classifiers which the detection strategies found
+ * for every compilation unit so that they can be reused in the next change
+ * propagation. The stored classifiers are only valid as long as the files on
+ * which the strategies depend, e. g., the build files, remain unchanged. For
+ * this reason, a fingerprint of these files is stored, too. As a change of
+ * these files usually affects only some compilation units, a fingerprint of the
+ * files on which the classifiers of a compilation unit depend is stored for
+ * every compilation unit.
+ * 
+ * @author Martin Armbruster
+ */
+public class ModuleAssignment {
+	private static final String ASSIGNMENT_FILE_NAME = "module-assignment.properties";
+	private static final String FINGERPRINT_KEY = "layout.fingerprint";
+	private static final String FILE_FINGERPRINT_PREFIX = FINGERPRINT_KEY + "/";
+	private static final String SEPARATOR = "/";
+	private Path assignmentPath;
+	private String fingerprint;
+	private HashMap<String, List<ModuleClassifier>> assignments = new HashMap<>();
+	private HashMap<String, String> fileFingerprints = new HashMap<>();
+
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param assignmentPath path to a file in which the assignment is stored and
+	 *                       loaded from.
+	 */
+	public ModuleAssignment(Path assignmentPath) {
+		this.assignmentPath = assignmentPath;
+		load(assignmentPath);
+	}
+
+	/**
+	 * Returns the path of the file for the assignment which belongs to a module
+	 * configuration.
+	 * 
+	 * @param configPath path to the module configuration.
+	 * @return the path to the file for the assignment in the same directory.
+	 */
+	public static Path resolveFor(Path configPath) {
+		return configPath.resolveSibling(ASSIGNMENT_FILE_NAME);
+	}
+
+	private void load(Path assignmentPath) {
+		if (Files.exists(assignmentPath)) {
+			Properties p = new Properties();
+			try (BufferedReader reader = Files.newBufferedReader(assignmentPath)) {
+				p.load(reader);
+				p.stringPropertyNames().forEach(key -> {
+					String val = p.getProperty(key);
+					if (key.equals(FINGERPRINT_KEY)) {
+						fingerprint = val;
+						return;
+					}
+					if (key.startsWith(FILE_FINGERPRINT_PREFIX)) {
+						fileFingerprints.put(key.substring(FILE_FINGERPRINT_PREFIX.length()), val);
+						return;
+					}
+					List<ModuleClassifier> classifiers = new ArrayList<>();
+					if (!val.isEmpty()) {
+						String[] parts = val.split(SEPARATOR);
+						for (int idx = 0; idx + 1 < parts.length; idx += 2) {
+							classifiers.add(new ModuleClassifier(ModuleState.valueOf(parts[idx]), parts[idx + 1]));
+						}
+					}
+					assignments.put(key, classifiers);
+				});
+			} catch (IOException | IllegalArgumentException e) {
+				clear();
+			}
+		}
+	}
+
+	public void clear() {
+		fingerprint = null;
+		assignments.clear();
+		fileFingerprints.clear();
+	}
+
+	public String getFingerprint() {
+		return fingerprint;
+	}
+
+	public void setFingerprint(String fingerprint) {
+		this.fingerprint = fingerprint;
+	}
+
+	/**
+	 * Returns the module classifiers for the compilation units.
+	 * 
+	 * @return a map in which a key represents the path of a Java file relative to
+	 *         the repository and the value the found module classifiers.
+	 */
+	public Map<String, List<ModuleClassifier>> getAssignments() {
+		return assignments;
+	}
+
+	/**
+	 * Returns the fingerprints of the files on which the module classifiers of the
+	 * compilation units depend.
+	 * 
+	 * @return a map in which a key represents the path of a Java file relative to
+	 *         the repository and the value the fingerprint.
+	 */
+	public Map<String, String> getFileFingerprints() {
+		return fileFingerprints;
+	}
+
+	/**
+	 * Stores the assignment.
+	 */
+	public void save() {
+		Properties p = new Properties();
+		if (fingerprint != null) {
+			p.setProperty(FINGERPRINT_KEY, fingerprint);
+		}
+		assignments.forEach((k, v) -> {
+			StringBuilder builder = new StringBuilder();
+			for (ModuleClassifier classifier : v) {
+				if (builder.length() > 0) {
+					builder.append(SEPARATOR);
+				}
+				builder.append(classifier.getState().name()).append(SEPARATOR).append(classifier.getModuleName());
+			}
+			p.setProperty(k, builder.toString());
+		});
+		fileFingerprints.forEach((k, v) -> p.setProperty(FILE_FINGERPRINT_PREFIX + k, v));
+		try (BufferedWriter writer = Files.newBufferedWriter(assignmentPath)) {
+			p.store(writer, null);
+		} catch (IOException e) {
+		}
+	}
+
+	/**
+	 * A module to which a compilation unit is assigned together with the state of
+	 * the module.
+	 */
+	public static class ModuleClassifier {
+		private ModuleState state;
+		private String moduleName;
+
+		public ModuleClassifier(ModuleState state, String moduleName) {
+			this.state = state;
+			this.moduleName = moduleName;
+		}
+
+		public ModuleState getState() {
+			return state;
+		}
+
+		public String getModuleName() {
+			return moduleName;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof ModuleClassifier)) {
+				return false;
+			}
+			ModuleClassifier other = (ModuleClassifier) obj;
+			return state == other.state && Objects.equals(moduleName, other.moduleName);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(state, moduleName);
+		}
+	}
+}
@@ -9,7 +9,8 @@ import java.util.Set;
 import org.eclipse.emf.ecore.resource.Resource;
 
 /**
- * Stores the module candidates.
+ * Stores the module candidates. The methods for modifying the candidates are
+ * thread-safe so that multiple strategies can add their results concurrently.
  * 
  * @author Martin Armbruster
  */
@@ -30,7 +31,7 @@ public class ModuleCandidates {
 	 * @param moduleName name of the module.
 	 * @param cu         Resource with the classifier in the module.
 	 */
-	public void addModuleClassifier(ModuleState state, String moduleName, Resource cu) {
+	public synchronized void addModuleClassifier(ModuleState state, String moduleName, Resource cu) {
 		Map<String, Set<Resource>> classMap = getModulesInState(state);
 		Set<Resource> classSet;
 		if (classMap.containsKey(moduleName)) {
@@ -59,7 +60,7 @@ public class ModuleCandidates {
 	 * @param newState   the new state of the module.
 	 * @param moduleName the name of the module.
 	 */
-	public void updateState(ModuleState oldState, ModuleState newState, String moduleName) {
+	public synchronized void updateState(ModuleState oldState, ModuleState newState, String moduleName) {
 		Map<String, Set<Resource>> map = getModulesInState(oldState);
 		Set<Resource> classes = map.remove(moduleName);
 		map = getModulesInState(newState);
@@ -72,7 +73,7 @@ public class ModuleCandidates {
 	 * @param state      state of the module.
 	 * @param moduleName name of the module.
 	 */
-	public void removeModule(ModuleState state, String moduleName) {
+	public synchronized void removeModule(ModuleState state, String moduleName) {
 		Map<String, Set<Resource>> map = getModulesInState(state);
 		map.remove(moduleName);
 	}
@@ -83,7 +84,7 @@ public class ModuleCandidates {
 	 * @param modName name of the module.
 	 * @return the state of the module.
 	 */
-	public ModuleState getStateOfModule(String modName) {
+	public synchronized ModuleState getStateOfModule(String modName) {
 		for (var entry : candidates.entrySet()) {
 			for (var subEntry : entry.getValue().entrySet()) {
 				if (subEntry.getKey().equals(modName)) {
@@ -93,4 +94,16 @@ public class ModuleCandidates {
 		}
 		return null;
 	}
+
+	/**
+	 * Adds all module candidates of another instance to this instance.
+	 * 
+	 * @param other the other instance.
+	 */
+	public void merge(ModuleCandidates other) {
+		synchronized (other) {
+			other.candidates.forEach((state, modules) -> modules.forEach((moduleName, resources) -> resources
+					.forEach(res -> addModuleClassifier(state, moduleName, res))));
+		}
+	}
 }
@@ -0,0 +1,282 @@
+package cipm.consistency.commitintegration.detection;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
+
+import org.apache.log4j.Logger;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.emftext.language.java.containers.CompilationUnit;
+import org.emftext.language.java.members.ClassMethod;
+import org.emftext.language.java.modifiers.Static;
+
+import cipm.consistency.commitintegration.MavenPom;
+
+/**
+ * Rules for the classification of modules without user interaction. The rules
+ * are loaded from a properties file in which every rule consists of the keys
+ * rule.&lt;n&gt;.&lt;attribute&gt;. The rules are checked in the order of their
+ * numbers and the first rule whose conditions are all fulfilled classifies the
+ * module. The following attributes are supported:
+ * 
+ * <ul>
+ * <li>name: a regular expression for the module name.</li>
+ * <li>path: a glob pattern for the module directory relative to the
+ * repository.</li>
+ * <li>artifactId: a regular expression for the artifactId in the pom.xml of the
+ * module.</li>
+ * <li>dockerfile: true or false if the module directory contains (or does not
+ * contain) a Dockerfile.</li>
+ * <li>mainClass: true or false if the module contains (or does not contain) a
+ * class with a static main method.</li>
+ * <li>state: the resulting state of the module.</li>
+ * <li>parent: for the state PART_OF_COMPONENT, the name of the containing
+ * module or "enclosing" for the component whose directory is the nearest
+ * ancestor of the module directory.</li>
+ * </ul>
+ * 
+ * <p>If no rule matches, the state and parent given by default.state and
+ * default.parent are used. Without them, the module remains unclassified and
+ * the component detection fails.</p>
+ * 
+ * @author Martin Armbruster
+ */
+public class ModuleClassificationRules {
+	/**
+	 * Parent value for the nearest enclosing component.
+	 */
+	public static final String ENCLOSING_PARENT = "enclosing";
+	private static final Logger LOGGER = Logger.getLogger("cipm." + ModuleClassificationRules.class.getSimpleName());
+	private static final String RULE_PREFIX = "rule.";
+	private static final String DEFAULT_STATE_KEY = "default.state";
+	private static final String DEFAULT_PARENT_KEY = "default.parent";
+	private static final String MAVEN_POM_FILE_NAME = "pom.xml";
+	private static final String DOCKERFILE_FILE_NAME = "Dockerfile";
+	private List<Rule> rules = new ArrayList<>();
+	private Classification defaultClassification;
+
+	/**
+	 * Creates a new instance. Rules which cannot be loaded are not ignored
+	 * because the unclassified modules would lead to dialogs which block a
+	 * detection without user interaction.
+	 * 
+	 * @param rulesPath path to the file with the rules.
+	 * @throws IllegalStateException    if the file cannot be read.
+	 * @throws IllegalArgumentException if the file contains an invalid rule.
+	 */
+	public ModuleClassificationRules(Path rulesPath) {
+		Properties p = new Properties();
+		try (BufferedReader reader = Files.newBufferedReader(rulesPath)) {
+			p.load(reader);
+		} catch (IOException e) {
+			throw new IllegalStateException("The classification rules cannot be loaded from " + rulesPath, e);
+		}
+		Set<Integer> ruleNumbers = new TreeSet<>();
+		for (String key : p.stringPropertyNames()) {
+			if (key.startsWith(RULE_PREFIX)) {
+				String[] parts = key.split("\\.");
+				if (parts.length == 3) {
+					try {
+						ruleNumbers.add(Integer.parseInt(parts[1]));
+					} catch (NumberFormatException e) {
+						throw new IllegalArgumentException("The rule key " + key + " in " + rulesPath
+								+ " is invalid.", e);
+					}
+				}
+			}
+		}
+		for (int number : ruleNumbers) {
+			String base = RULE_PREFIX + number + ".";
+			String state = p.getProperty(base + "state");
+			if (state == null) {
+				throw new IllegalArgumentException("The rule " + number + " in " + rulesPath + " has no state.");
+			}
+			Rule rule = new Rule();
+			String name = p.getProperty(base + "name");
+			rule.name = name != null ? Pattern.compile(name) : null;
+			String path = p.getProperty(base + "path");
+			rule.path = path != null ? FileSystems.getDefault().getPathMatcher("glob:" + path) : null;
+			String artifactId = p.getProperty(base + "artifactId");
+			rule.artifactId = artifactId != null ? Pattern.compile(artifactId) : null;
+			String dockerfile = p.getProperty(base + "dockerfile");
+			rule.dockerfile = dockerfile != null ? Boolean.valueOf(dockerfile) : null;
+			String mainClass = p.getProperty(base + "mainClass");
+			rule.mainClass = mainClass != null ? Boolean.valueOf(mainClass) : null;
+			rule.classification = new Classification(parseState(state, base + "state", rulesPath),
+					p.getProperty(base + "parent"));
+			rules.add(rule);
+		}
+		String defaultState = p.getProperty(DEFAULT_STATE_KEY);
+		if (defaultState != null) {
+			defaultClassification = new Classification(parseState(defaultState, DEFAULT_STATE_KEY, rulesPath),
+					p.getProperty(DEFAULT_PARENT_KEY));
+		}
+	}
+
+	private static ModuleState parseState(String state, String key, Path rulesPath) {
+		try {
+			return ModuleState.valueOf(state.trim());
+		} catch (IllegalArgumentException e) {
+			throw new IllegalArgumentException("The value " + state + " of " + key + " in " + rulesPath
+					+ " is invalid. Allowed values are " + Arrays.toString(ModuleState.values()) + ".", e);
+		}
+	}
+
+	/**
+	 * Classifies a module.
+	 * 
+	 * @param moduleName name of the module.
+	 * @param moduleDir  directory of the module. Can be null if it is unknown.
+	 * @param container  path to the repository.
+	 * @param resources  the Resources with the compilation units of the module.
+	 * @return the classification or null if no rule matches and there is no
+	 *         default.
+	 */
+	public Classification classify(String moduleName, Path moduleDir, Path container, Set<Resource> resources) {
+		ModuleFacts facts = new ModuleFacts(moduleDir, resources);
+		for (Rule rule : rules) {
+			if (rule.name != null && !rule.name.matcher(moduleName).matches()) {
+				continue;
+			}
+			if (rule.path != null
+					&& (moduleDir == null || !rule.path.matches(container.relativize(moduleDir)))) {
+				continue;
+			}
+			if (rule.artifactId != null) {
+				String artifactId = facts.getArtifactId();
+				if (!rule.artifactId.matcher(artifactId != null ? artifactId : moduleName).matches()) {
+					continue;
+				}
+			}
+			if (rule.dockerfile != null && rule.dockerfile != facts.hasDockerfile()) {
+				continue;
+			}
+			if (rule.mainClass != null && rule.mainClass != facts.hasMainClass()) {
+				continue;
+			}
+			return rule.classification;
+		}
+		return defaultClassification;
+	}
+
+	/**
+	 * Resolves the containing module of a module which is part of another
+	 * module.
+	 * 
+	 * @param classification the classification of the module.
+	 * @param moduleDir      directory of the module. Can be null if it is
+	 *                       unknown.
+	 * @param components     the directories of all components by their names.
+	 * @return the name of the containing component or null if it cannot be
+	 *         resolved.
+	 */
+	public String resolveParent(Classification classification, Path moduleDir, Map<String, Path> components) {
+		String parent = classification.getParent();
+		if (parent == null) {
+			return null;
+		}
+		if (!parent.equals(ENCLOSING_PARENT)) {
+			return components.containsKey(parent) ? parent : null;
+		}
+		if (moduleDir == null) {
+			return null;
+		}
+		String result = null;
+		int resultDepth = -1;
+		for (var entry : components.entrySet()) {
+			Path dir = entry.getValue();
+			if (dir != null && !dir.equals(moduleDir) && moduleDir.startsWith(dir)
+					&& dir.getNameCount() > resultDepth) {
+				result = entry.getKey();
+				resultDepth = dir.getNameCount();
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * The result of a classification.
+	 */
+	public static class Classification {
+		private ModuleState state;
+		private String parent;
+
+		Classification(ModuleState state, String parent) {
+			this.state = state;
+			this.parent = parent;
+		}
+
+		public ModuleState getState() {
+			return state;
+		}
+
+		public String getParent() {
+			return parent;
+		}
+	}
+
+	private static class Rule {
+		private Pattern name;
+		private PathMatcher path;
+		private Pattern artifactId;
+		private Boolean dockerfile;
+		private Boolean mainClass;
+		private Classification classification;
+	}
+
+	/**
+	 * Lazily determined facts about a module which rules can check.
+	 */
+	private static class ModuleFacts {
+		private Path moduleDir;
+		private Set<Resource> resources;
+		private String artifactId;
+		private boolean artifactIdRead;
+		private Boolean mainClass;
+
+		ModuleFacts(Path moduleDir, Set<Resource> resources) {
+			this.moduleDir = moduleDir;
+			this.resources = resources;
+		}
+
+		String getArtifactId() {
+			if (!artifactIdRead) {
+				artifactIdRead = true;
+				if (moduleDir != null && Files.exists(moduleDir.resolve(MAVEN_POM_FILE_NAME))) {
+					try {
+						artifactId = MavenPom.read(moduleDir.resolve(MAVEN_POM_FILE_NAME)).getArtifactId();
+					} catch (IOException e) {
+						LOGGER.error("The pom.xml in " + moduleDir + " cannot be read.", e);
+					}
+				}
+			}
+			return artifactId;
+		}
+
+		boolean hasDockerfile() {
+			return moduleDir != null && Files.exists(moduleDir.resolve(DOCKERFILE_FILE_NAME));
+		}
+
+		boolean hasMainClass() {
+			if (mainClass == null) {
+				mainClass = resources.stream().filter(r -> !r.getContents().isEmpty())
+						.map(r -> r.getContents().get(0)).filter(obj -> obj instanceof CompilationUnit)
+						.flatMap(obj -> ((CompilationUnit) obj).getChildrenByType(ClassMethod.class).stream())
+						.anyMatch(m -> "main".equals(m.getName())
+								&& m.getAnnotationsAndModifiers().stream().anyMatch(mod -> mod instanceof Static));
+			}
+			return mainClass;
+		}
+	}
+}
@@ -21,6 +21,22 @@ import org.apache.log4j.Logger
 import cipm.consistency.commitintegration.diff.util.JavaModelComparator
 import cipm.consistency.tools.evaluation.data.EvaluationDataContainer
 import cipm.consistency.commitintegration.diff.util.JavaChangedMethodDetectorDiffPostProcessor
+import cipm.consistency.commitintegration.settings.CommitIntegrationSettingsContainer
+import cipm.consistency.commitintegration.settings.SettingKeys
+import java.util.function.Consumer
+import java.util.HashMap
+import java.util.IdentityHashMap
+import java.util.Map
+import java.util.Set
+import java.util.Collections
+import java.util.concurrent.atomic.AtomicBoolean
+import org.eclipse.emf.common.util.URI
+import org.eclipse.emf.common.util.ECollections
+import org.eclipse.emf.common.util.EList
+import org.eclipse.emf.compare.Match
+import org.eclipse.emf.ecore.EReference
+import tools.vitruv.framework.change.description.VitruviusChange
+import tools.vitruv.framework.change.description.VitruviusChangeFactory
 
 /**
  * This strategy for diff based state changes of Java models uses EMFCompare to resolve a 
@@ -53,6 +69,267 @@ class JavaStateBasedChangeResolutionStrategy implements StateBasedChangeResoluti
 		])
 	}
 
+	/**
+	 * Creates the change sequence between two states in chunks and passes every chunk to a consumer as soon as
+	 * it is recorded so that the consumer can propagate it before the next chunk is created. The first chunk
+	 * aligns the root elements: root elements without a counterpart in the new state are removed, and copies
+	 * of new root elements are added. Afterwards, every pair of root elements with the same key is compared
+	 * and replayed in a separate chunk. Only the removed root elements are copied for the first chunk. The other
+	 * root elements of the old state are represented by empty placeholders which are replaced by a copy right
+	 * before the comparison of their pair. The compared pair and the counterparts found by its comparison are
+	 * released after its chunk. Afterwards, the counterparts are looked up in the replayed root elements.
+	 * References to elements which are replayed in a later chunk are set in a last chunk. As the reactions read
+	 * referenced elements when an element is added, the chunks with such a deferred reference and the chunks
+	 * referencing elements of them are passed to the consumer together with the last chunk as one composite
+	 * change so that no state with missing references is propagated. If the first chunk has a deferred
+	 * reference, all chunks are held back because the other chunks rely on its alignment.
+	 */
+	def void getChangeSequenceBetweenInChunks(Resource newState, Resource oldState,
+			Consumer<VitruviusChange> consumer) {
+		checkArgument(oldState !== null && newState !== null, "old state or new state must not be null!")
+		checkArgument(consumer !== null, "consumer must not be null!")
+		newState.checkNoProxies("new state")
+		oldState.checkNoProxies("old state")
+		val monitoredResourceSet = new ResourceSetImpl()
+		val currentStateCopy = oldState.URI.createResourceIn(monitoredResourceSet)
+		val newKeys = newState.contents.map[JavaModelComparator.computeRootKey(it)].toSet
+		// Maps the keys of the paired root elements to their placeholders in the copy of the current state.
+		val placeholders = new HashMap<String, EObject>
+		// Maps the placeholders to the root elements of the old state.
+		val oldRoots = new IdentityHashMap<EObject, EObject>
+		for (oldRoot : oldState.contents) {
+			val key = JavaModelComparator.computeRootKey(oldRoot)
+			if (newKeys.contains(key) && !placeholders.containsKey(key)) {
+				val placeholder = EcoreUtil.create(oldRoot.eClass)
+				placeholders.put(key, placeholder)
+				oldRoots.put(placeholder, oldRoot)
+				currentStateCopy.contents += placeholder
+			} else {
+				currentStateCopy.contents += oldRoot.copyRoot
+			}
+		}
+		// Maps the elements of the new state to their counterparts in the copy of the current state for one chunk.
+		val copies = new IdentityHashMap<EObject, EObject>
+		// The root elements of the new state whose counterparts in the copy are replayed.
+		val replayedRoots = Collections.newSetFromMap(new IdentityHashMap<EObject, Boolean>)
+		val counterparts = [EObject element |
+			element.findCounterpart(newState, currentStateCopy, copies, replayedRoots)
+		]
+		val deferredReferences = new ArrayList<DeferredReference>
+		val pairs = new ArrayList<Pair<EObject, EObject>>
+		// Chunks which are held back until the deferred references are set.
+		val pendingChunks = new ArrayList<VitruviusChange>
+		// The root elements in the copy whose chunks are held back.
+		val heldRoots = Collections.newSetFromMap(new IdentityHashMap<EObject, Boolean>)
+		var numberChanges = 0
+
+		val alignment = currentStateCopy.recordChunk(monitoredResourceSet, [
+			if (oldState.URI != newState.URI) {
+				currentStateCopy.URI = newState.URI
+			}
+			val alignedRoots = new ArrayList<EObject>
+			val addedRoots = new ArrayList<EObject>
+			newState.contents.forEach [ newRoot |
+				val placeholder = placeholders.remove(JavaModelComparator.computeRootKey(newRoot))
+				if (placeholder !== null) {
+					pairs += newRoot -> placeholder
+					alignedRoots += placeholder
+				} else {
+					val copier = new EcoreUtil.Copier
+					val rootCopy = copier.copy(newRoot)
+					copier.copyReferences
+					copies.putAll(copier)
+					replayedRoots += newRoot
+					addedRoots += rootCopy
+					alignedRoots += rootCopy
+				}
+			]
+			ECollections.setEList(currentStateCopy.contents, alignedRoots)
+			addedRoots.forEach[redirectReferences(newState, counterparts, deferredReferences, heldRoots)]
+		])
+		numberChanges += alignment.EChanges.size
+		val holdAll = !deferredReferences.empty
+		if (holdAll) {
+			pendingChunks += alignment
+		} else {
+			consumer.accept(alignment)
+		}
+		deferredReferences.forEach[bindCounterpart(copies)]
+		copies.clear
+
+		for (idx : 0 ..< pairs.size) {
+			val pair = pairs.get(idx)
+			val rootCopy = oldRoots.remove(pair.value).copyRoot
+			currentStateCopy.contents.set(currentStateCopy.contents.indexOf(pair.value), rootCopy)
+			val numberDeferredReferences = deferredReferences.size
+			val dependsOnHeldChunk = new AtomicBoolean
+			val chunk = currentStateCopy.recordChunk(monitoredResourceSet, [
+				val comparison = compareStatesAndReplayChanges(pair.key, rootCopy, null, null)
+				comparison.matches.forEach[collectCopies(copies)]
+				replayedRoots += pair.key
+				if (rootCopy.redirectReferences(newState, counterparts, deferredReferences, heldRoots)) {
+					dependsOnHeldChunk.set(true)
+				}
+			])
+			pairs.set(idx, null)
+			numberChanges += chunk.EChanges.size
+			if (!chunk.EChanges.empty) {
+				if (holdAll || deferredReferences.size > numberDeferredReferences || dependsOnHeldChunk.get) {
+					pendingChunks += chunk
+					heldRoots += rootCopy
+				} else {
+					consumer.accept(chunk)
+				}
+			}
+			deferredReferences.forEach[bindCounterpart(copies)]
+			copies.clear
+		}
+
+		if (!deferredReferences.empty) {
+			val references = currentStateCopy.recordChunk(monitoredResourceSet, [
+				// Restoring the references in ascending order of their original indices keeps their order.
+				deferredReferences.sortBy[index].forEach[restore(counterparts)]
+			])
+			numberChanges += references.EChanges.size
+			pendingChunks += references
+			logger.debug("Propagating " + pendingChunks.size + " chunks with deferred references together.")
+			consumer.accept(VitruviusChangeFactory.instance.createCompositeChange(pendingChunks))
+		}
+		logger.debug("Recorded " + numberChanges + " changes in " + (pairs.size + 1) + " chunks for " + newState.URI)
+		EvaluationDataContainer.globalContainer.changeStatistic.numberVitruvChanges = numberChanges
+	}
+
+	/**
+	 * Copies a root element of the old state. References to other root elements keep their targets in the old
+	 * state because these root elements are copied later or not at all.
+	 */
+	private def EObject copyRoot(EObject root) {
+		val copy = EcoreUtil.copy(root)
+		copy.eAdapters.clear
+		return copy
+	}
+
+	private def void collectCopies(Match match, Map<EObject, EObject> copies) {
+		if (match.left !== null && match.right !== null) {
+			copies.put(match.left, match.right)
+		}
+		match.submatches.forEach[collectCopies(copies)]
+	}
+
+	/**
+	 * Returns the counterpart of an element of the new state in the copied state. Elements which are not matched in
+	 * the current chunk are looked up by their URI fragment in the replayed root elements because these equal their
+	 * counterparts in the new state.
+	 */
+	private def EObject findCounterpart(EObject element, Resource newState, Resource currentStateCopy,
+			Map<EObject, EObject> copies, Set<EObject> replayedRoots) {
+		val copy = copies.get(element)
+		if (copy !== null || !replayedRoots.contains(EcoreUtil.getRootContainer(element))) {
+			return copy
+		}
+		val candidate = currentStateCopy.getEObject(newState.getURIFragment(element))
+		return if (candidate !== null && candidate.eClass === element.eClass) candidate else null
+	}
+
+	/**
+	 * Redirects the references from a root element of the copied state to elements of the new state to their
+	 * counterparts in the copied state. References without a known counterpart are removed and deferred.
+	 * 
+	 * @return true if a reference is redirected to an element in a root element whose chunk is held back.
+	 */
+	private def boolean redirectReferences(EObject root, Resource newState, (EObject)=>EObject counterparts,
+			List<DeferredReference> deferredReferences, Set<EObject> heldRoots) {
+		var dependsOnHeldRoot = false
+		val elements = new ArrayList<EObject>
+		elements += root
+		root.eAllContents.forEach[elements += it]
+		for (element : elements) {
+			for (reference : element.eClass.EAllReferences) {
+				if (!reference.containment && !reference.container && !reference.derived && reference.changeable
+						&& element.eIsSet(reference)) {
+					if (reference.many) {
+						val values = element.eGet(reference) as EList<EObject>
+						var idx = 0
+						var removed = 0
+						while (idx < values.size) {
+							val value = values.get(idx)
+							if (value.eResource === newState) {
+								val copy = counterparts.apply(value)
+								if (copy !== null) {
+									values.set(idx, copy)
+									dependsOnHeldRoot = dependsOnHeldRoot
+											|| heldRoots.contains(EcoreUtil.getRootContainer(copy))
+									idx++
+								} else {
+									values.remove(idx)
+									deferredReferences += new DeferredReference(element, reference, idx + removed,
+										value)
+									removed++
+								}
+							} else {
+								idx++
+							}
+						}
+					} else {
+						val value = element.eGet(reference) as EObject
+						if (value !== null && value.eResource === newState) {
+							val copy = counterparts.apply(value)
+							if (copy !== null) {
+								element.eSet(reference, copy)
+								dependsOnHeldRoot = dependsOnHeldRoot
+										|| heldRoots.contains(EcoreUtil.getRootContainer(copy))
+							} else {
+								element.eUnset(reference)
+								deferredReferences += new DeferredReference(element, reference, -1, value)
+							}
+						}
+					}
+				}
+			}
+		}
+		return dependsOnHeldRoot
+	}
+
+	/**
+	 * A reference to an element of the new state whose counterpart in the copied state was not known when the
+	 * reference was replayed. For many-valued references, the index is the position of the value before any value
+	 * was removed. The counterpart is bound as soon as a chunk matches the target.
+	 */
+	private static class DeferredReference {
+		val EObject holder
+		val EReference reference
+		val int index
+		val EObject target
+		var EObject counterpart
+
+		new(EObject holder, EReference reference, int index, EObject target) {
+			this.holder = holder
+			this.reference = reference
+			this.index = index
+			this.target = target
+		}
+
+		def void bindCounterpart(Map<EObject, EObject> copies) {
+			if (counterpart === null) {
+				counterpart = copies.get(target)
+			}
+		}
+
+		def void restore((EObject)=>EObject counterparts) {
+			val copy = counterpart ?: counterparts.apply(target)
+			if (copy === null) {
+				logger.warn("No counterpart for the target of " + reference.name + " in " + holder + " found.")
+				return
+			}
+			if (reference.many) {
+				val values = holder.eGet(reference) as EList<EObject>
+				values.add(Math.min(index, values.size), copy)
+			} else {
+				holder.eSet(reference, copy)
+			}
+		}
+	}
+
 	override getChangeSequenceForCreated(Resource newState) {
 		checkArgument(newState !== null, "new state must not be null!")
 		newState.checkNoProxies("new state")
@@ -138,14 +415,18 @@ class JavaStateBasedChangeResolutionStrategy implements StateBasedChangeResoluti
 	}
 
 	private def <T extends Notifier> record(T resource, ResourceSet resourceSet, () => void function) {
+		val result = resource.recordChunk(resourceSet, function)
+		logger.debug("Recorded " + result.EChanges.size + " changes for " + resource)
+		EvaluationDataContainer.globalContainer.changeStatistic.numberVitruvChanges = result.EChanges.size
+		return result
+	}
+
+	private def <T extends Notifier> recordChunk(T resource, ResourceSet resourceSet, () => void function) {
 		try (val changeRecorder = new ChangeRecorder(resourceSet)) {
 			changeRecorder.beginRecording
 			changeRecorder.addToRecording(resource)
 			function.apply()
-			val result = changeRecorder.endRecording
-			logger.debug("Recorded " + result.EChanges.size + " changes for " + resource)
-			EvaluationDataContainer.globalContainer.changeStatistic.numberVitruvChanges = result.EChanges.size
-			return result
+			return changeRecorder.endRecording
 		}
 	}
 	
@@ -155,8 +436,15 @@ class JavaStateBasedChangeResolutionStrategy implements StateBasedChangeResoluti
 	private def compareStatesAndReplayChanges(Notifier newState, Notifier currentState,
 			List<Resource> newResources, List<Resource> currentResources) {
 		val postProcessor = new JavaChangedMethodDetectorDiffPostProcessor()
-		val changes = JavaModelComparator.compareJavaModels(newState, currentState,
-				newResources, currentResources, postProcessor).differences
+		val settings = CommitIntegrationSettingsContainer.settingsContainer
+		val skipIdenticalRoots = settings !== null
+				&& settings.getPropertyAsBoolean(SettingKeys.SKIP_IDENTICAL_COMPILATION_UNITS)
+		val matchThreads = if (settings === null) 1 else settings.getPropertyAsInteger(SettingKeys.MATCH_THREADS, 1)
+		val memoizeSimilarity = settings !== null
+				&& settings.getPropertyAsBoolean(SettingKeys.MEMOIZE_SIMILARITY_CHECKS)
+		val comparison = JavaModelComparator.compareJavaModels(newState, currentState,
+				newResources, currentResources, postProcessor, skipIdenticalRoots, matchThreads, memoizeSimilarity)
+		val changes = comparison.differences
 		// Replay the EMF compare differences.
 		val mergerRegistry = IMerger.RegistryImpl.createStandaloneInstance()
 		val merger = new BatchMerger(mergerRegistry)
@@ -166,18 +454,23 @@ class JavaStateBasedChangeResolutionStrategy implements StateBasedChangeResoluti
 			it.name = ""
 			it.name = oldName
 		]
+		return comparison
 	}
 
 	/**
 	 * Creates a new resource set, creates a resource and copies the content of the orignal resource.
 	 */
 	private def Resource copyInto(Resource resource, ResourceSet resourceSet) {
-		val uri = resource.URI
-		val copy = resourceSet.resourceFactoryRegistry.getFactory(uri).createResource(uri)
+		val copy = resource.URI.createResourceIn(resourceSet)
 		val elementsCopy = EcoreUtil.copyAll(resource.contents)
 		elementsCopy.forEach[eAdapters.clear]
 		copy.contents.addAll(elementsCopy)
-		resourceSet.resources += copy
 		return copy
 	}
+
+	private def Resource createResourceIn(URI uri, ResourceSet resourceSet) {
+		val resource = resourceSet.resourceFactoryRegistry.getFactory(uri).createResource(uri)
+		resourceSet.resources += resource
+		return resource
+	}
 }
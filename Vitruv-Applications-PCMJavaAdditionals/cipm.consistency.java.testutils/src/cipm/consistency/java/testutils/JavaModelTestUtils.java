@@ -0,0 +1,106 @@
+package cipm.consistency.java.testutils;
+
+import java.util.Arrays;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceImpl;
+import org.emftext.language.java.classifiers.Class;
+import org.emftext.language.java.classifiers.Classifier;
+import org.emftext.language.java.classifiers.ClassifiersFactory;
+import org.emftext.language.java.containers.CompilationUnit;
+import org.emftext.language.java.containers.ContainersFactory;
+import org.emftext.language.java.members.ClassMethod;
+import org.emftext.language.java.members.Field;
+import org.emftext.language.java.members.MembersFactory;
+import org.emftext.language.java.statements.StatementsFactory;
+import org.emftext.language.java.types.ClassifierReference;
+import org.emftext.language.java.types.TypesFactory;
+
+/**
+ * Utility methods to create small Java models for tests.
+ * 
+ * @author Martin Armbruster
+ */
+public final class JavaModelTestUtils {
+	private JavaModelTestUtils() {
+	}
+
+	/**
+	 * Creates an empty Resource for Java models and adds it to a ResourceSet.
+	 * 
+	 * @param resourceSet the ResourceSet.
+	 * @param uri the URI of the Resource.
+	 * @return the created Resource.
+	 */
+	public static Resource createResource(ResourceSet resourceSet, URI uri) {
+		Resource resource = new ResourceImpl(uri);
+		resourceSet.getResources().add(resource);
+		return resource;
+	}
+
+	/**
+	 * Creates a compilation unit with one public class of the same name.
+	 * 
+	 * @param name the name of the compilation unit and the class.
+	 * @param namespaces the namespaces of the compilation unit.
+	 * @return the created compilation unit.
+	 */
+	public static CompilationUnit createCompilationUnit(String name, String... namespaces) {
+		CompilationUnit cu = ContainersFactory.eINSTANCE.createCompilationUnit();
+		cu.getNamespaces().addAll(Arrays.asList(namespaces));
+		cu.setName(name);
+		Class cls = ClassifiersFactory.eINSTANCE.createClass();
+		cls.setName(name);
+		cls.makePublic();
+		cu.getClassifiers().add(cls);
+		return cu;
+	}
+
+	/**
+	 * Returns the class of a compilation unit created by {@link #createCompilationUnit(String, String...)}.
+	 * 
+	 * @param cu the compilation unit.
+	 * @return the class.
+	 */
+	public static Class getClass(CompilationUnit cu) {
+		return (Class) cu.getClassifiers().get(0);
+	}
+
+	/**
+	 * Adds a public method without parameters and with an empty body to a class.
+	 * 
+	 * @param cls the class.
+	 * @param name the name of the method.
+	 * @return the added method.
+	 */
+	public static ClassMethod addMethod(Class cls, String name) {
+		ClassMethod method = MembersFactory.eINSTANCE.createClassMethod();
+		method.setName(name);
+		method.makePublic();
+		method.setTypeReference(TypesFactory.eINSTANCE.createVoid());
+		method.setStatement(StatementsFactory.eINSTANCE.createBlock());
+		cls.getMembers().add(method);
+		return method;
+	}
+
+	/**
+	 * Adds a private field to a class.
+	 * 
+	 * @param cls the class.
+	 * @param name the name of the field.
+	 * @param type the type of the field.
+	 * @return the added field.
+	 */
+	public static Field addField(Class cls, String name, Classifier type) {
+		Field field = MembersFactory.eINSTANCE.createField();
+		field.setName(name);
+		field.makePrivate();
+		ClassifierReference ref = TypesFactory.eINSTANCE.createClassifierReference();
+		ref.setTarget(type);
+		field.setTypeReference(ref);
+		cls.getMembers().add(field);
+		return field;
+	}
+}
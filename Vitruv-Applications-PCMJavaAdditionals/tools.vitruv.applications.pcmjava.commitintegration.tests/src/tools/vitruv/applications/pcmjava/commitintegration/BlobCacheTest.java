@@ -0,0 +1,159 @@
+package tools.vitruv.applications.pcmjava.commitintegration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import org.eclipse.jgit.errors.MissingObjectException;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.ObjectReader;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import cipm.consistency.commitintegration.BlobCache;
+import cipm.consistency.tools.evaluation.data.ChangeStatistic;
+
+/**
+ * Tests the cache for the contents of blobs. With a limit of 80 bytes, blobs
+ * with up to 10 bytes are cached.
+ * 
+ * @author Martin Armbruster
+ */
+public class BlobCacheTest {
+	private static final long MAX_SIZE = 80;
+	@TempDir
+	Path tempDir;
+	private GitTestRepository repository;
+	private ObjectReader reader;
+	private BlobCache cache;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		repository = new GitTestRepository(tempDir.resolve("repo"));
+		reader = repository.getGit().getRepository().newObjectReader();
+		cache = new BlobCache(MAX_SIZE);
+	}
+
+	@AfterEach
+	public void tearDown() {
+		reader.close();
+		repository.close();
+	}
+
+	private ObjectId insertBlob(String content) throws IOException {
+		try (ObjectInserter inserter = repository.getGit().getRepository().newObjectInserter()) {
+			ObjectId id = inserter.insert(Constants.OBJ_BLOB, content.getBytes(StandardCharsets.UTF_8));
+			inserter.flush();
+			return id;
+		}
+	}
+
+	@Test
+	public void testContentIsCached() throws IOException {
+		ObjectId id = insertBlob("0123456789");
+		assertEquals("0123456789", cache.getContentAsString(reader, id));
+		assertEquals("0123456789", cache.getContentAsString(reader, id));
+		assertEquals(1, cache.getMisses());
+		assertEquals(1, cache.getHits());
+		assertEquals(10, cache.getSize());
+		assertEquals(0.5, cache.getHitRate(), 0.0001);
+	}
+
+	@Test
+	public void testContentIsReadOnly() throws IOException {
+		ByteBuffer content = cache.getContent(reader, insertBlob("content"));
+		assertTrue(content.isReadOnly());
+		assertEquals("content", StandardCharsets.UTF_8.decode(content).toString());
+	}
+
+	@Test
+	public void testLeastRecentlyUsedContentIsEvicted() throws IOException {
+		ObjectId[] ids = new ObjectId[9];
+		for (int idx = 0; idx < ids.length; idx++) {
+			ids[idx] = insertBlob("content-" + idx + "!");
+		}
+		for (int idx = 0; idx < ids.length - 1; idx++) {
+			cache.getContent(reader, ids[idx]);
+		}
+		assertEquals(80, cache.getSize());
+		// The first content becomes the most recently used one so that the second
+		// content is evicted.
+		cache.getContent(reader, ids[0]);
+		cache.getContent(reader, ids[8]);
+		assertEquals(1, cache.getEvictions());
+		assertEquals(80, cache.getSize());
+
+		long misses = cache.getMisses();
+		cache.getContent(reader, ids[0]);
+		assertEquals(misses, cache.getMisses());
+		cache.getContent(reader, ids[1]);
+		assertEquals(misses + 1, cache.getMisses());
+	}
+
+	@Test
+	public void testLargeContentIsNotCached() throws IOException {
+		ObjectId id = insertBlob("01234567890");
+		assertEquals("01234567890", cache.getContentAsString(reader, id));
+		assertEquals("01234567890", cache.getContentAsString(reader, id));
+		assertEquals(2, cache.getMisses());
+		assertEquals(0, cache.getSize());
+	}
+
+	@Test
+	public void testStreamOfCachedAndUncachedContent() throws IOException {
+		ObjectId small = insertBlob("small");
+		ObjectId large = insertBlob("large content");
+		cache.getContent(reader, small);
+		try (InputStream stream = cache.openStream(reader, small)) {
+			assertEquals("small", new String(stream.readAllBytes(), StandardCharsets.UTF_8));
+		}
+		try (InputStream stream = cache.openStream(reader, large)) {
+			assertEquals("large content", new String(stream.readAllBytes(), StandardCharsets.UTF_8));
+		}
+		assertEquals(1, cache.getHits());
+		assertEquals(5, cache.getSize());
+	}
+
+	@Test
+	public void testClear() throws IOException {
+		ObjectId id = insertBlob("content");
+		cache.getContent(reader, id);
+		cache.clear();
+		assertEquals(0, cache.getSize());
+		cache.getContent(reader, id);
+		assertEquals(2, cache.getMisses());
+	}
+
+	@Test
+	public void testMissingBlob() {
+		ObjectId id = ObjectId.fromString("0123456789012345678901234567890123456789");
+		assertThrows(MissingObjectException.class, () -> cache.getContent(reader, id));
+	}
+
+	@Test
+	public void testReportOnlyAddsNewCounts() throws IOException {
+		ObjectId id = insertBlob("content");
+		cache.getContent(reader, id);
+		cache.getContent(reader, id);
+		ChangeStatistic statistic = new ChangeStatistic();
+		cache.reportTo(statistic);
+		assertEquals(1, statistic.getNumberBlobCacheHits());
+		assertEquals(1, statistic.getNumberBlobCacheMisses());
+
+		cache.getContent(reader, id);
+		cache.reportTo(statistic);
+		assertEquals(2, statistic.getNumberBlobCacheHits());
+		assertEquals(1, statistic.getNumberBlobCacheMisses());
+		assertEquals(0, statistic.getNumberBlobCacheEvictions());
+	}
+}
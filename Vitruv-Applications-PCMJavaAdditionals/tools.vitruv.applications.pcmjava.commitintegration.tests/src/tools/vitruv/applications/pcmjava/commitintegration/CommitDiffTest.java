@@ -0,0 +1,161 @@
+package tools.vitruv.applications.pcmjava.commitintegration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.diff.Edit;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.treewalk.filter.PathSuffixFilter;
+import org.eclipse.jgit.util.io.DisabledOutputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import cipm.consistency.commitintegration.CommitDiff;
+import cipm.consistency.commitintegration.GitRepositoryWrapper;
+
+/**
+ * Tests that the differences and line statistics between two commits equal
+ * the ones computed with the DiffFormatter of JGit. The fixture consists of
+ * multiple modules with added, modified, removed and renamed files.
+ * 
+ * @author Martin Armbruster
+ */
+public class CommitDiffTest {
+	@TempDir
+	Path tempDir;
+	private GitTestRepository repository;
+	private GitRepositoryWrapper wrapper;
+	private RevCommit oldCommit;
+	private RevCommit newCommit;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		repository = new GitTestRepository(tempDir.resolve("repo"));
+		StringBuilder longClass = new StringBuilder("package org.example.core;\n\npublic class Renamed {\n");
+		for (int i = 0; i < 30; i++) {
+			longClass.append("\tpublic int value").append(i).append("() {\n\t\treturn ").append(i)
+					.append(";\n\t}\n");
+		}
+		repository.writeFile("pom.xml", "<project><modules><module>core</module><module>app</module>"
+				+ "</modules></project>")
+				.writeFile("core/pom.xml", "<project><artifactId>core</artifactId></project>")
+				.writeFile("core/src/main/java/org/example/core/Core.java",
+						"package org.example.core;\n\npublic class Core {\n\tint a;\n\tint b;\n}\n")
+				.writeFile("core/src/main/java/org/example/core/Old.java", longClass + "}\n")
+				.writeFile("app/pom.xml", "<project><artifactId>app</artifactId></project>")
+				.writeFile("app/src/main/java/org/example/app/App.java",
+						"package org.example.app;\n\npublic class App {\n}\n")
+				.writeFile("app/src/main/java/org/example/app/Removed.java",
+						"package org.example.app;\n\nclass Removed {\n}\n")
+				.writeFile("app/src/main/resources/data.bin", "binary\0content");
+		oldCommit = repository.commit("Initial");
+		repository.writeFile("core/src/main/java/org/example/core/Core.java",
+				"package org.example.core;\n\npublic class Core {\n\tint a;\n\tlong c;\n\tlong d;\n}\n")
+				.deleteFile("core/src/main/java/org/example/core/Old.java")
+				.writeFile("core/src/main/java/org/example/core/Renamed.java", longClass + "\tint extra;\n}\n")
+				.writeFile("app/src/main/java/org/example/app/App.java",
+						"package org.example.app;\n\npublic class App {\n\tCore core;\n}\n")
+				.deleteFile("app/src/main/java/org/example/app/Removed.java")
+				.writeFile("app/src/main/java/org/example/app/Added.java",
+						"package org.example.app;\n\nclass Added {\n}\n")
+				.writeFile("app/src/main/resources/data.bin", "other\0binary");
+		newCommit = repository.commit("Change modules");
+		wrapper = new GitRepositoryWrapper(repository.getDirectory().toFile());
+		wrapper.initFromRootDirectory();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		wrapper.closeRepository();
+		repository.close();
+	}
+
+	private static String describe(DiffEntry diff, int added, int removed) {
+		return diff.getChangeType() + " " + diff.getOldPath() + " -> " + diff.getNewPath() + " +" + added + " -"
+				+ removed;
+	}
+
+	/**
+	 * Computes the differences and the line statistics with the DiffFormatter.
+	 * 
+	 * @param onlyJavaFiles true if only Java files are compared.
+	 * @return a description of every changed file.
+	 * @throws IOException if the repository cannot be read.
+	 */
+	private List<String> computeWithDiffFormatter(boolean onlyJavaFiles) throws IOException {
+		List<String> result = new ArrayList<>();
+		try (DiffFormatter formatter = new DiffFormatter(DisabledOutputStream.INSTANCE)) {
+			formatter.setRepository(repository.getGit().getRepository());
+			formatter.setDetectRenames(true);
+			if (onlyJavaFiles) {
+				formatter.setPathFilter(PathSuffixFilter.create(".java"));
+			}
+			for (DiffEntry diff : formatter.scan(oldCommit.getTree(), newCommit.getTree())) {
+				int added = 0;
+				int removed = 0;
+				for (Edit edit : formatter.toFileHeader(diff).toEditList()) {
+					added += edit.getLengthB();
+					removed += edit.getLengthA();
+				}
+				result.add(describe(diff, added, removed));
+			}
+		}
+		return result;
+	}
+
+	private static List<String> describe(CommitDiff commitDiff) {
+		List<String> result = new ArrayList<>();
+		for (CommitDiff.FileStatistic statistic : commitDiff.getFileStatistics()) {
+			result.add(describe(statistic.getDiff(), statistic.getNumberAddedLines(),
+					statistic.getNumberRemovedLines()));
+		}
+		return result;
+	}
+
+	private void assertSameAsDiffFormatter(boolean onlyJavaFiles) throws IOException {
+		List<String> expected = computeWithDiffFormatter(onlyJavaFiles);
+		for (int threads : new int[] {1, 2, 4}) {
+			CommitDiff commitDiff = wrapper.computeCommitDiff(oldCommit, newCommit, onlyJavaFiles, true, threads);
+			assertEquals(expected, describe(commitDiff), "Statistics with " + threads + " threads");
+			assertEquals(commitDiff.getDiffs().size(), commitDiff.getFileStatistics().size());
+		}
+	}
+
+	@Test
+	public void testJavaFilesEqualDiffFormatter() throws IOException {
+		assertSameAsDiffFormatter(true);
+		assertTrue(computeWithDiffFormatter(true).contains(
+				"RENAME core/src/main/java/org/example/core/Old.java -> "
+						+ "core/src/main/java/org/example/core/Renamed.java +1 -0"));
+	}
+
+	@Test
+	public void testAllFilesEqualDiffFormatter() throws IOException {
+		assertSameAsDiffFormatter(false);
+		assertTrue(computeWithDiffFormatter(false).contains(
+				"MODIFY app/src/main/resources/data.bin -> app/src/main/resources/data.bin +0 -0"));
+	}
+
+	@Test
+	public void testTotalsEqualSumOfFiles() throws IOException {
+		CommitDiff commitDiff = wrapper.computeCommitDiff(oldCommit, newCommit, true, true, 2);
+		int added = 0;
+		int removed = 0;
+		for (CommitDiff.FileStatistic statistic : commitDiff.getFileStatistics()) {
+			added += statistic.getNumberAddedLines();
+			removed += statistic.getNumberRemovedLines();
+		}
+		assertEquals(added, commitDiff.getNumberAddedLines());
+		assertEquals(removed, commitDiff.getNumberRemovedLines());
+		assertTrue(commitDiff.getNumberAddedLines() > 0);
+	}
+}
@@ -0,0 +1,199 @@
+package tools.vitruv.applications.pcmjava.commitintegration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Repository;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import cipm.consistency.commitintegration.CommitGraphIndex;
+
+/**
+ * Tests the commit-graph index. The ranges are compared with the ranges of a
+ * RevWalk on the following graph, in which b and d are branches merged into
+ * the main branch by m1 and m2:
+ * 
+ * <pre>
+ * c0 - c1 - c2 ---------- m1 - c3 - m2
+ *        \                /         /
+ *         b1 - b2 -------          /
+ *           \                     /
+ *            d1 -----------------
+ * </pre>
+ * 
+ * @author Martin Armbruster
+ */
+public class CommitGraphIndexTest {
+	@TempDir
+	Path tempDir;
+	private GitTestRepository repository;
+	private List<RevCommit> commits = new ArrayList<>();
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		repository = new GitTestRepository(tempDir.resolve("repo"));
+		RevCommit c0 = repository.writeFile("src/A.java", "class A {}").commit("c0");
+		RevCommit c1 = repository.writeFile("README.md", "Readme").commit("c1");
+		RevCommit c2 = repository.writeFile("src/C.java", "class C {}").commit("c2");
+		String mainBranch = repository.getGit().getRepository().getBranch();
+		repository.createBranch("b", c1);
+		RevCommit b1 = repository.writeFile("src/B.java", "class B {}").commit("b1");
+		RevCommit b2 = repository.writeFile("src/B.java", "class B { int b; }").commit("b2");
+		repository.createBranch("d", b1);
+		RevCommit d1 = repository.writeFile("src/D.java", "class D {}").commit("d1");
+		repository.checkout(mainBranch);
+		RevCommit m1 = repository.merge("m1", b2);
+		RevCommit c3 = repository.writeFile("docs.txt", "Docs").commit("c3");
+		RevCommit m2 = repository.merge("m2", d1);
+		commits.addAll(List.of(c0, c1, c2, b1, b2, d1, m1, c3, m2));
+	}
+
+	@AfterEach
+	public void tearDown() {
+		repository.close();
+	}
+
+	private Repository getRepository() {
+		return repository.getGit().getRepository();
+	}
+
+	private Set<ObjectId> walkRange(RevCommit from, RevCommit to) throws IOException {
+		Set<ObjectId> result = new HashSet<>();
+		try (RevWalk walk = new RevWalk(getRepository())) {
+			walk.markStart(walk.parseCommit(to));
+			if (from != null) {
+				walk.markUninteresting(walk.parseCommit(from));
+			}
+			walk.forEach(commit -> result.add(commit.getId()));
+		}
+		return result;
+	}
+
+	private List<RevCommit> toList(Iterator<RevCommit> iterator) {
+		List<RevCommit> result = new ArrayList<>();
+		iterator.forEachRemaining(result::add);
+		return result;
+	}
+
+	private void assertTopologicalOrder(List<RevCommit> range) {
+		Set<ObjectId> seen = new HashSet<>();
+		Set<ObjectId> all = new HashSet<>();
+		range.forEach(commit -> all.add(commit.getId()));
+		for (RevCommit commit : range) {
+			for (RevCommit parent : commit.getParents()) {
+				assertTrue(!all.contains(parent.getId()) || seen.contains(parent.getId()),
+						parent.getName() + " is not ordered before " + commit.getName());
+			}
+			seen.add(commit.getId());
+		}
+	}
+
+	@Test
+	public void testRangesMatchRevWalk() throws IOException {
+		CommitGraphIndex index = new CommitGraphIndex(getRepository());
+		assertEquals(commits.size(), index.size());
+		List<RevCommit> froms = new ArrayList<>(commits);
+		froms.add(null);
+		for (RevCommit from : froms) {
+			for (RevCommit to : commits) {
+				Set<ObjectId> expected = walkRange(from, to);
+				List<RevCommit> range = toList(index.iterateRange(from, to));
+				Set<ObjectId> actual = new HashSet<>();
+				range.forEach(commit -> actual.add(commit.getId()));
+				String name = (from == null ? "null" : from.getShortMessage()) + ".." + to.getShortMessage();
+				assertEquals(expected, actual, name);
+				assertEquals(range.size(), actual.size(), name);
+				assertEquals(expected.size(), index.countCommits(from, to), name);
+				assertTopologicalOrder(range);
+			}
+		}
+	}
+
+	@Test
+	public void testIsAncestor() throws IOException {
+		CommitGraphIndex index = new CommitGraphIndex(getRepository());
+		try (RevWalk walk = new RevWalk(getRepository())) {
+			for (RevCommit ancestor : commits) {
+				for (RevCommit descendant : commits) {
+					boolean expected = walk.isMergedInto(walk.parseCommit(ancestor), walk.parseCommit(descendant));
+					assertEquals(expected, index.isAncestor(ancestor, descendant),
+							ancestor.getShortMessage() + " -> " + descendant.getShortMessage());
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testRangeTouchingJavaFiles() throws IOException {
+		CommitGraphIndex index = new CommitGraphIndex(getRepository());
+		RevCommit c0 = commits.get(0);
+		RevCommit m2 = commits.get(commits.size() - 1);
+		List<String> messages = new ArrayList<>();
+		index.iterateRangeTouchingJavaFiles(c0, m2).forEachRemaining(commit -> messages.add(commit.getShortMessage()));
+		// c1 and c3 do not change Java files. The merge commits change Java files in
+		// comparison to their first parent.
+		assertEquals(Set.of("c2", "b1", "b2", "d1", "m1", "m2"), new HashSet<>(messages));
+		assertEquals(6, messages.size());
+	}
+
+	@Test
+	public void testUpdateAddsOnlyNewCommits() throws Exception {
+		CommitGraphIndex index = new CommitGraphIndex(getRepository());
+		RevCommit c4 = repository.writeFile("src/E.java", "class E {}").commit("c4");
+		RevCommit c5 = repository.writeFile("src/F.java", "class F {}").commit("c5");
+		assertEquals(2, index.update());
+		assertEquals(0, index.update());
+		assertEquals(commits.size() + 2, index.size());
+		assertEquals(List.of(c4, c5), toList(index.iterateRange(commits.get(commits.size() - 1), c5)));
+	}
+
+	@Test
+	public void testCommitNotYetIndexed() throws Exception {
+		CommitGraphIndex index = new CommitGraphIndex(getRepository());
+		RevCommit m2 = commits.get(commits.size() - 1);
+		RevCommit c4 = repository.writeFile("src/E.java", "class E {}").commit("c4");
+		// The new commit is not indexed yet, but it is added when it is queried.
+		assertEquals(1, index.countCommits(m2, c4));
+		assertTrue(index.isAncestor(m2, c4));
+		assertFalse(index.isAncestor(c4, m2));
+	}
+
+	@Test
+	public void testIterateAll() throws IOException {
+		CommitGraphIndex index = new CommitGraphIndex(getRepository());
+		List<RevCommit> all = toList(index.iterateAll());
+		assertEquals(new HashSet<>(commits), new HashSet<>(all));
+		assertTopologicalOrder(all);
+	}
+
+	@Test
+	public void testShallowBoundaryIsRoot() throws IOException {
+		RevCommit c1 = commits.get(1);
+		// c1 is the boundary of a shallow clone so that its parent c0 is not available.
+		Files.writeString(getRepository().getDirectory().toPath().resolve("shallow"), c1.getName() + "\n");
+		CommitGraphIndex index = new CommitGraphIndex(getRepository());
+		RevCommit m2 = commits.get(commits.size() - 1);
+		assertEquals(commits.size() - 1, index.size());
+		assertEquals(commits.size() - 1, index.countCommits(null, m2));
+		assertTrue(index.isAncestor(c1, m2));
+		try (var range = index.iterateRange(null, m2)) {
+			assertEquals(c1, range.next());
+		}
+	}
+}
@@ -0,0 +1,125 @@
+package tools.vitruv.applications.pcmjava.commitintegration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import cipm.consistency.commitintegration.GitRepositoryWrapper;
+
+/**
+ * Tests the materialization of commits from the Git object database.
+ * 
+ * @author Martin Armbruster
+ */
+@DisabledOnOs(OS.WINDOWS)
+public class CommitMaterializationTest {
+	private static final String MARKER_FILE_NAME = ".materialized-commit";
+	@TempDir
+	Path tempDir;
+	private GitTestRepository repository;
+	private GitRepositoryWrapper wrapper;
+	private Path target;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		repository = new GitTestRepository(tempDir.resolve("repo"));
+		target = tempDir.resolve("materialized");
+	}
+
+	@AfterEach
+	public void tearDown() {
+		if (wrapper != null) {
+			wrapper.closeRepository();
+		}
+		repository.close();
+	}
+
+	private void materialize(RevCommit commit, String... suffixes) throws Exception {
+		if (wrapper == null) {
+			wrapper = new GitRepositoryWrapper(repository.getDirectory().toFile());
+			wrapper.initFromRootDirectory();
+		}
+		wrapper.materializeCommit(commit, target, List.of(suffixes));
+	}
+
+	private Set<String> listFiles() throws IOException {
+		try (Stream<Path> files = Files.walk(target)) {
+			return files.filter(Files::isRegularFile).map(file -> target.relativize(file).toString())
+					.filter(file -> !file.equals(MARKER_FILE_NAME)).collect(Collectors.toSet());
+		}
+	}
+
+	private RevCommit commitWithScript() throws Exception {
+		repository.writeFile("src/A.java", "class A {}").writeFile("README.md", "Readme").writeFile("mvnw",
+				"#!/bin/sh");
+		assertTrue(repository.getDirectory().resolve("mvnw").toFile().setExecutable(true, false));
+		return repository.commit("First");
+	}
+
+	@Test
+	public void testAllFilesAreMaterializedWithTheirExecutableBit() throws Exception {
+		materialize(commitWithScript());
+		assertEquals(Set.of("src/A.java", "README.md", "mvnw"), listFiles());
+		assertEquals("class A {}", Files.readString(target.resolve("src/A.java")));
+		assertTrue(Files.isExecutable(target.resolve("mvnw")));
+		assertFalse(Files.isExecutable(target.resolve("README.md")));
+	}
+
+	@Test
+	public void testOnlyFilesWithSuffixesAreMaterialized() throws Exception {
+		materialize(commitWithScript(), ".java", "mvnw");
+		assertEquals(Set.of("src/A.java", "mvnw"), listFiles());
+	}
+
+	@Test
+	public void testReusedDirectoryIsCleaned() throws Exception {
+		RevCommit first = commitWithScript();
+		repository.writeFile("src/B.java", "class B {}");
+		first = repository.commit("Second");
+		materialize(first);
+		// Outputs of a build of the first commit.
+		Files.createDirectories(target.resolve("target/generated"));
+		Files.writeString(target.resolve("target/generated/Generated.java"), "class Generated {}");
+		Files.writeString(target.resolve("build.log"), "log");
+		FileTime unchangedTime = FileTime.fromMillis(1_000_000L);
+		Files.setLastModifiedTime(target.resolve("README.md"), unchangedTime);
+
+		repository.writeFile("src/A.java", "class A { int a; }").deleteFile("src/B.java");
+		RevCommit second = repository.commit("Third");
+		materialize(second);
+		assertEquals(Set.of("src/A.java", "README.md", "mvnw"), listFiles());
+		assertFalse(Files.exists(target.resolve("target")));
+		assertEquals("class A { int a; }", Files.readString(target.resolve("src/A.java")));
+		assertEquals(unchangedTime, Files.getLastModifiedTime(target.resolve("README.md")));
+		assertEquals(second.getName(), Files.readString(target.resolve(MARKER_FILE_NAME)));
+	}
+
+	@Test
+	public void testChangedFileModeIsMaterialized() throws Exception {
+		RevCommit first = commitWithScript();
+		materialize(first);
+		assertTrue(repository.getDirectory().resolve("mvnw").toFile().setExecutable(false, false));
+		RevCommit second = repository.commit("Not executable");
+		materialize(second);
+		assertFalse(Files.isExecutable(target.resolve("mvnw")));
+		materialize(first);
+		assertTrue(Files.isExecutable(target.resolve("mvnw")));
+	}
+}
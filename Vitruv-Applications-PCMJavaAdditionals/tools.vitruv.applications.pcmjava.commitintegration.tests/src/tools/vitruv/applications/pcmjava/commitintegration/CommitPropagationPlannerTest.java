@@ -0,0 +1,156 @@
+package tools.vitruv.applications.pcmjava.commitintegration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import cipm.consistency.commitintegration.CommitPropagationPlanner;
+import cipm.consistency.commitintegration.GitRepositoryWrapper;
+import cipm.consistency.commitintegration.PropagationPlanningPolicy;
+
+/**
+ * Tests the planning of the propagation of commit ranges.
+ * 
+ * @author Martin Armbruster
+ */
+public class CommitPropagationPlannerTest {
+	@TempDir
+	Path tempDir;
+	private GitTestRepository repository;
+	private GitRepositoryWrapper wrapper;
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		repository = new GitTestRepository(tempDir.resolve("repo"));
+	}
+
+	@AfterEach
+	public void tearDown() {
+		if (wrapper != null) {
+			wrapper.closeRepository();
+		}
+		repository.close();
+	}
+
+	private GitRepositoryWrapper openWrapper() throws Exception {
+		wrapper = new GitRepositoryWrapper(repository.getDirectory().toFile());
+		wrapper.initFromRootDirectory();
+		return wrapper;
+	}
+
+	private CommitPropagationPlanner createPlanner(PropagationPlanningPolicy policy, int timeWindow, int fileBudget)
+			throws Exception {
+		return new CommitPropagationPlanner(openWrapper(), policy, timeWindow, fileBudget);
+	}
+
+	@Test
+	public void testEmptyRange() throws Exception {
+		repository.writeFile("src/A.java", "class A {}").commit("A");
+		assertTrue(createPlanner(PropagationPlanningPolicy.EVERY_COMMIT, 0, 0).plan(List.of()).isEmpty());
+	}
+
+	@Test
+	public void testEveryCommit() throws Exception {
+		RevCommit c0 = repository.writeFile("src/A.java", "class A {}").commit("A");
+		RevCommit c1 = repository.writeFile("src/B.java", "class B {}").commit("B");
+		RevCommit c2 = repository.writeFile("src/C.java", "class C {}").commit("C");
+		var plan = createPlanner(PropagationPlanningPolicy.EVERY_COMMIT, 0, 0).plan(List.of(c0, c1, c2));
+		assertEquals(List.of(c0, c1, c2), plan);
+	}
+
+	@Test
+	public void testStepsWithoutJavaChangesAreRemoved() throws Exception {
+		RevCommit c0 = repository.writeFile("src/A.java", "class A {}").commit("A");
+		RevCommit c1 = repository.writeFile("README.md", "Readme").commit("Readme");
+		RevCommit c2 = repository.writeFile("src/A.java", "class A { int a; }").commit("Change A");
+		// c1 does not change Java files.
+		var plan = createPlanner(PropagationPlanningPolicy.EVERY_COMMIT, 0, 0).plan(List.of(c0, c1, c2));
+		assertEquals(List.of(c0, c2), plan);
+	}
+
+	@Test
+	public void testCoalescedStepsCancellingOutAreRemoved() throws Exception {
+		RevCommit c0 = repository.writeFile("src/A.java", "class A {}").commit("A");
+		RevCommit c1 = repository.writeFile("src/A.java", "class A { int a; }").commit("Change A", 10);
+		RevCommit c2 = repository.writeFile("src/A.java", "class A {}").commit("Revert A", 10);
+		// c1 is coalesced with c2 which reverts its changes.
+		var plan = createPlanner(PropagationPlanningPolicy.TIME_WINDOW, 50, 0).plan(List.of(c0, c1, c2));
+		assertEquals(List.of(c0), plan);
+	}
+
+	@Test
+	public void testTimeWindow() throws Exception {
+		RevCommit c0 = repository.writeFile("src/A.java", "class A {}").commit("A");
+		RevCommit c1 = repository.writeFile("src/B.java", "class B {}").commit("B", 10);
+		RevCommit c2 = repository.writeFile("src/C.java", "class C {}").commit("C", 10);
+		RevCommit c3 = repository.writeFile("src/D.java", "class D {}").commit("D", 100);
+		RevCommit c4 = repository.writeFile("src/E.java", "class E {}").commit("E", 10);
+		var plan = createPlanner(PropagationPlanningPolicy.TIME_WINDOW, 50, 0).plan(List.of(c0, c1, c2, c3, c4));
+		// c2 is within the window of c1, and c4 is within the window of c3.
+		assertEquals(List.of(c0, c2, c4), plan);
+	}
+
+	@Test
+	public void testTimeWindowBoundary() throws Exception {
+		RevCommit c0 = repository.writeFile("src/A.java", "class A {}").commit("A");
+		RevCommit c1 = repository.writeFile("src/B.java", "class B {}").commit("B", 10);
+		RevCommit c2 = repository.writeFile("src/C.java", "class C {}").commit("C", 49);
+		RevCommit c3 = repository.writeFile("src/D.java", "class D {}").commit("D", 1);
+		RevCommit c4 = repository.writeFile("src/E.java", "class E {}").commit("E", 49);
+		RevCommit c5 = repository.writeFile("src/F.java", "class F {}").commit("F", 1);
+		var plan = createPlanner(PropagationPlanningPolicy.TIME_WINDOW, 50, 0)
+				.plan(List.of(c0, c1, c2, c3, c4, c5));
+		// c2 is the last commit before the end of the window of c1. c3 is the first
+		// commit at the end of the window and, thus, is not propagated together with
+		// c1 and c2.
+		assertEquals(List.of(c0, c2, c4, c5), plan);
+	}
+
+	@Test
+	public void testChangedFileBudget() throws Exception {
+		RevCommit c0 = repository.writeFile("src/A.java", "class A {}").commit("A");
+		RevCommit c1 = repository.writeFile("src/B.java", "class B {}").commit("B");
+		RevCommit c2 = repository.writeFile("src/C.java", "class C {}").commit("C");
+		RevCommit c3 = repository.writeFile("src/D.java", "class D {}").commit("D");
+		var plan = createPlanner(PropagationPlanningPolicy.CHANGED_FILE_BUDGET, 0, 2).plan(List.of(c0, c1, c2, c3));
+		// c3 would change three files in comparison to c0.
+		assertEquals(List.of(c0, c2, c3), plan);
+	}
+
+	@Test
+	public void testChangedFileBudgetExceededByOneCommit() throws Exception {
+		RevCommit c0 = repository.writeFile("src/A.java", "class A {}").commit("A");
+		RevCommit c1 = repository.writeFile("src/B.java", "class B {}").writeFile("src/C.java", "class C {}")
+				.writeFile("src/D.java", "class D {}").commit("B, C and D");
+		RevCommit c2 = repository.writeFile("src/E.java", "class E {}").commit("E");
+		var plan = createPlanner(PropagationPlanningPolicy.CHANGED_FILE_BUDGET, 0, 2).plan(List.of(c0, c1, c2));
+		// A commit exceeding the budget on its own is propagated as one step.
+		assertEquals(List.of(c0, c1, c2), plan);
+	}
+
+	@Test
+	public void testTaggedOrMergeCommits() throws Exception {
+		RevCommit c0 = repository.writeFile("src/A.java", "class A {}").commit("A");
+		RevCommit c1 = repository.writeFile("src/B.java", "class B {}").commit("B");
+		RevCommit c2 = repository.writeFile("src/C.java", "class C {}").commit("C");
+		String mainBranch = repository.getGit().getRepository().getBranch();
+		repository.createBranch("feature", c2);
+		RevCommit c3 = repository.writeFile("src/D.java", "class D {}").commit("D");
+		repository.checkout(mainBranch);
+		RevCommit c4 = repository.merge("Merge feature", c3);
+		RevCommit c5 = repository.writeFile("src/E.java", "class E {}").commit("E");
+		RevCommit c6 = repository.writeFile("src/F.java", "class F {}").commit("F");
+		repository.tag("v1.0", c1);
+		var plan = createPlanner(PropagationPlanningPolicy.TAGGED_OR_MERGE_COMMITS, 0, 0)
+				.plan(List.of(c0, c1, c2, c4, c5, c6));
+		assertEquals(List.of(c0, c1, c4, c6), plan);
+	}
+}
@@ -0,0 +1,202 @@
+package tools.vitruv.applications.pcmjava.commitintegration;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+import java.util.TimeZone;
+
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.ResetCommand.ResetType;
+import org.eclipse.jgit.api.errors.GitAPIException;
+import org.eclipse.jgit.diff.DiffEntry;
+import org.eclipse.jgit.lib.CommitBuilder;
+import org.eclipse.jgit.lib.Constants;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.ObjectInserter;
+import org.eclipse.jgit.lib.PersonIdent;
+import org.eclipse.jgit.lib.RefUpdate;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
+
+/**
+ * A local Git repository for tests. The commits are created with increasing
+ * times which are independent of the current time.
+ * 
+ * @author Martin Armbruster
+ */
+public class GitTestRepository implements AutoCloseable {
+	private static final long START_TIME = 1_600_000_000L;
+	private Git git;
+	private Path directory;
+	private long time = START_TIME;
+
+	/**
+	 * Creates a new and empty repository.
+	 * 
+	 * @param directory the directory of the repository.
+	 * @throws GitAPIException if the repository cannot be created.
+	 */
+	public GitTestRepository(Path directory) throws GitAPIException {
+		this.directory = directory;
+		this.git = Git.init().setDirectory(directory.toFile()).call();
+	}
+
+	/**
+	 * Writes a file in the working directory.
+	 * 
+	 * @param path    the path of the file relative to the repository.
+	 * @param content the content of the file.
+	 * @return this repository.
+	 * @throws IOException if the file cannot be written.
+	 */
+	public GitTestRepository writeFile(String path, String content) throws IOException {
+		Path file = directory.resolve(path);
+		Files.createDirectories(file.getParent());
+		Files.writeString(file, content);
+		return this;
+	}
+
+	/**
+	 * Deletes a file in the working directory.
+	 * 
+	 * @param path the path of the file relative to the repository.
+	 * @return this repository.
+	 * @throws IOException if the file cannot be deleted.
+	 */
+	public GitTestRepository deleteFile(String path) throws IOException {
+		Files.delete(directory.resolve(path));
+		return this;
+	}
+
+	/**
+	 * Commits all changes in the working directory.
+	 * 
+	 * @param message        the message of the commit.
+	 * @param elapsedSeconds the seconds between the previous commit and the new
+	 *                       commit.
+	 * @return the new commit.
+	 * @throws GitAPIException if the changes cannot be committed.
+	 */
+	public RevCommit commit(String message, long elapsedSeconds) throws GitAPIException {
+		PersonIdent ident = createIdent(elapsedSeconds);
+		git.add().addFilepattern(".").call();
+		git.add().addFilepattern(".").setUpdate(true).call();
+		return git.commit().setMessage(message).setAuthor(ident).setCommitter(ident).setAllowEmpty(true).call();
+	}
+
+	/**
+	 * Commits all changes in the working directory one minute after the previous
+	 * commit.
+	 * 
+	 * @param message the message of the commit.
+	 * @return the new commit.
+	 * @throws GitAPIException if the changes cannot be committed.
+	 */
+	public RevCommit commit(String message) throws GitAPIException {
+		return commit(message, 60);
+	}
+
+	/**
+	 * Creates a merge commit of the current branch and another commit. The merge
+	 * commit takes over the files of the other commit.
+	 * 
+	 * @param message the message of the commit.
+	 * @param other   the merged commit.
+	 * @return the merge commit.
+	 * @throws IOException     if the commit cannot be created.
+	 * @throws GitAPIException if the working directory cannot be updated.
+	 */
+	public RevCommit merge(String message, RevCommit other) throws IOException, GitAPIException {
+		var repository = git.getRepository();
+		ObjectId head = repository.resolve(Constants.HEAD);
+		PersonIdent ident = createIdent(60);
+		CommitBuilder builder = new CommitBuilder();
+		builder.setParentIds(head, other);
+		builder.setTreeId(other.getTree());
+		builder.setAuthor(ident);
+		builder.setCommitter(ident);
+		builder.setMessage(message);
+		ObjectId mergeId;
+		try (ObjectInserter inserter = repository.newObjectInserter()) {
+			mergeId = inserter.insert(builder);
+			inserter.flush();
+		}
+		RefUpdate update = repository.updateRef(Constants.HEAD);
+		update.setNewObjectId(mergeId);
+		update.forceUpdate();
+		git.reset().setMode(ResetType.HARD).call();
+		try (RevWalk walk = new RevWalk(repository)) {
+			return walk.parseCommit(mergeId);
+		}
+	}
+
+	/**
+	 * Creates a branch and checks it out.
+	 * 
+	 * @param name  the name of the branch.
+	 * @param start the commit at which the branch starts.
+	 * @throws GitAPIException if the branch cannot be created.
+	 */
+	public void createBranch(String name, RevCommit start) throws GitAPIException {
+		git.checkout().setCreateBranch(true).setName(name).setStartPoint(start).call();
+	}
+
+	/**
+	 * Checks a branch out.
+	 * 
+	 * @param name the name of the branch.
+	 * @throws GitAPIException if the branch cannot be checked out.
+	 */
+	public void checkout(String name) throws GitAPIException {
+		git.checkout().setName(name).call();
+	}
+
+	/**
+	 * Creates an annotated tag.
+	 * 
+	 * @param name   the name of the tag.
+	 * @param commit the tagged commit.
+	 * @throws GitAPIException if the tag cannot be created.
+	 */
+	public void tag(String name, RevCommit commit) throws GitAPIException {
+		git.tag().setName(name).setObjectId(commit).setTagger(createIdent(0)).call();
+	}
+
+	/**
+	 * Computes the changed files between two commits.
+	 * 
+	 * @param oldCommit the old commit.
+	 * @param newCommit the new commit.
+	 * @return the changed files.
+	 * @throws IOException if the trees of the commits cannot be read.
+	 */
+	public List<DiffEntry> computeDiffs(RevCommit oldCommit, RevCommit newCommit) throws IOException {
+		try (TreeWalk walk = new TreeWalk(git.getRepository())) {
+			walk.addTree(oldCommit.getTree());
+			walk.addTree(newCommit.getTree());
+			walk.setRecursive(true);
+			return DiffEntry.scan(walk);
+		}
+	}
+
+	private PersonIdent createIdent(long elapsedSeconds) {
+		time += elapsedSeconds;
+		return new PersonIdent("Test", "test@example.org", new Date(time * 1000), TimeZone.getTimeZone("UTC"));
+	}
+
+	public Git getGit() {
+		return git;
+	}
+
+	public Path getDirectory() {
+		return directory;
+	}
+
+	@Override
+	public void close() {
+		git.close();
+	}
+}
@@ -0,0 +1,156 @@
+package tools.vitruv.applications.pcmjava.commitintegration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.eclipse.emf.common.util.TreeIterator;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.util.InternalEList;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.emftext.language.java.JavaClasspath;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import cipm.consistency.commitintegration.IncrementalJavaParser;
+import cipm.consistency.commitintegration.settings.CommitIntegrationSettingsContainer;
+import cipm.consistency.commitintegration.settings.SettingKeys;
+import cipm.consistency.tools.evaluation.data.EvaluationDataContainer;
+
+/**
+ * Tests the incremental parsing of changed Java files. B extends A, C has a
+ * field of the type B, and D is independent of the other classes. Thus, a
+ * change of A requires a new parsing of B and C.
+ * 
+ * @author Martin Armbruster
+ */
+public class IncrementalJavaParserTest {
+	private static final String PACKAGE_PATH = "src/org/example/";
+	@TempDir
+	Path tempDir;
+	private GitTestRepository repository;
+	private IncrementalJavaParser parser;
+
+	@BeforeAll
+	public static void setUpBeforeAll() {
+		JavaClasspath.get().registerStdLib();
+	}
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		Path settings = tempDir.resolve("settings.properties");
+		Properties properties = new Properties();
+		properties.setProperty(SettingKeys.JAVA_PARSER_EXCLUSION_PATTERNS, "");
+		try (OutputStream out = Files.newOutputStream(settings)) {
+			properties.store(out, null);
+		}
+		CommitIntegrationSettingsContainer.initialize(settings);
+		EvaluationDataContainer.setGlobalContainer(new EvaluationDataContainer());
+		repository = new GitTestRepository(tempDir.resolve("repo"));
+		writeClass("A", "public class A {\n\tpublic int value() {\n\t\treturn 1;\n\t}\n}");
+		writeClass("B", "public class B extends A {\n}");
+		writeClass("C", "public class C {\n\tprivate B b;\n}");
+		writeClass("D", "public class D {\n}");
+		parser = new IncrementalJavaParser();
+	}
+
+	@AfterEach
+	public void tearDown() {
+		repository.close();
+	}
+
+	private void writeClass(String name, String body) throws IOException {
+		repository.writeFile(PACKAGE_PATH + name + ".java", "package org.example;\n\n" + body + "\n");
+	}
+
+	private static Map<String, Resource> getResourcesByFileName(ResourceSet resourceSet) {
+		Map<String, Resource> resources = new HashMap<>();
+		for (Resource resource : resourceSet.getResources()) {
+			if (resource.getURI().isFile()) {
+				resources.put(resource.getURI().lastSegment(), resource);
+			}
+		}
+		return resources;
+	}
+
+	/**
+	 * Checks that all references of a Resource to the parsed files target models
+	 * in the current Resources of these files.
+	 * 
+	 * @param resource         the Resource.
+	 * @param currentResources the current Resources of the parsed files.
+	 * @return the number of checked references.
+	 */
+	private static int assertReferencesCurrentModels(Resource resource, Map<String, Resource> currentResources) {
+		int checkedReferences = 0;
+		for (TreeIterator<EObject> iterator = EcoreUtil.getAllProperContents(resource, false); iterator.hasNext();) {
+			for (var references = ((InternalEList<EObject>) iterator.next().eCrossReferences())
+					.basicIterator(); references.hasNext();) {
+				EObject target = references.next();
+				String fileName = target.eIsProxy() ? EcoreUtil.getURI(target).lastSegment()
+						: target.eResource() == null ? null : target.eResource().getURI().lastSegment();
+				if (currentResources.containsKey(fileName) && fileName.endsWith(".java")) {
+					assertFalse(target.eIsProxy(), () -> "Unresolved reference to " + EcoreUtil.getURI(target));
+					assertSame(currentResources.get(fileName), target.eResource());
+					checkedReferences++;
+				}
+			}
+		}
+		return checkedReferences;
+	}
+
+	@Test
+	public void testChangedFileAndItsDependentsAreParsedAgain() throws Exception {
+		RevCommit first = repository.commit("First");
+		Path directory = repository.getDirectory();
+		ResourceSet firstModels = parser.parse(directory, null, first.getName(), List.of());
+		Map<String, Resource> firstResources = getResourcesByFileName(firstModels);
+		assertEquals(4, firstResources.size());
+
+		writeClass("A", "public class A {\n\tpublic int value() {\n\t\treturn 2;\n\t}\n\n"
+				+ "\tpublic void reset() {\n\t}\n}");
+		RevCommit second = repository.commit("Second");
+		ResourceSet secondModels = parser.parse(directory, first.getName(), second.getName(),
+				repository.computeDiffs(first, second));
+		assertSame(firstModels, secondModels, "The models are updated incrementally.");
+		Map<String, Resource> secondResources = getResourcesByFileName(secondModels);
+		assertEquals(firstResources.keySet(), secondResources.keySet());
+		// A changed, B references A, and C references B.
+		for (String name : List.of("A.java", "B.java", "C.java")) {
+			assertNotSame(firstResources.get(name), secondResources.get(name), name);
+		}
+		assertSame(firstResources.get("D.java"), secondResources.get("D.java"));
+		assertTrue(assertReferencesCurrentModels(secondResources.get("B.java"), secondResources) > 0);
+		assertTrue(assertReferencesCurrentModels(secondResources.get("C.java"), secondResources) > 0);
+	}
+
+	@Test
+	public void testUnchangedCommitReusesAllModels() throws Exception {
+		RevCommit first = repository.commit("First");
+		Path directory = repository.getDirectory();
+		Map<String, Resource> firstResources = getResourcesByFileName(
+				parser.parse(directory, null, first.getName(), List.of()));
+		repository.writeFile("README.md", "Readme");
+		RevCommit second = repository.commit("Second");
+		Map<String, Resource> secondResources = getResourcesByFileName(parser.parse(directory, first.getName(),
+				second.getName(), repository.computeDiffs(first, second)));
+		assertEquals(firstResources, secondResources);
+	}
+}
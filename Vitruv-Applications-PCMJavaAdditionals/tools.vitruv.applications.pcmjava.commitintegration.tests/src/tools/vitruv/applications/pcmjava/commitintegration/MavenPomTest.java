@@ -0,0 +1,61 @@
+package tools.vitruv.applications.pcmjava.commitintegration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import cipm.consistency.commitintegration.MavenPom;
+
+/**
+ * Tests the reading of the coordinates and dependencies of Maven modules.
+ * 
+ * @author Martin Armbruster
+ */
+public class MavenPomTest {
+	@TempDir
+	Path tempDir;
+
+	private MavenPom read(String content) throws IOException {
+		Path pom = tempDir.resolve("pom.xml");
+		Files.writeString(pom, content);
+		return MavenPom.read(pom);
+	}
+
+	@Test
+	public void testArtifactIdOfParentIsIgnored() throws IOException {
+		MavenPom pom = read("<project>\n<parent>\n<groupId>org.example</groupId>\n<artifactId>parent</artifactId>\n"
+				+ "</parent>\n<!-- <artifactId>comment</artifactId> -->\n<artifactId>\n  module\n</artifactId>\n"
+				+ "<build><plugins><plugin><artifactId>plugin</artifactId></plugin></plugins></build>\n</project>");
+		assertEquals("module", pom.getArtifactId());
+		assertEquals(List.of(), pom.getDependencies());
+	}
+
+	@Test
+	public void testDependencies() throws IOException {
+		MavenPom pom = read("<project xmlns=\"http://maven.apache.org/POM/4.0.0\"><artifactId>app</artifactId>"
+				+ "<dependencies><dependency><groupId>org.example</groupId><artifactId>core</artifactId>"
+				+ "</dependency><dependency><artifactId>util</artifactId></dependency></dependencies>"
+				+ "<dependencyManagement><dependencies><dependency><artifactId>managed</artifactId></dependency>"
+				+ "</dependencies></dependencyManagement></project>");
+		assertEquals("app", pom.getArtifactId());
+		assertEquals(List.of("core", "util"), pom.getDependencies());
+	}
+
+	@Test
+	public void testWithoutArtifactId() throws IOException {
+		assertNull(read("<project><parent><artifactId>parent</artifactId></parent></project>").getArtifactId());
+	}
+
+	@Test
+	public void testInvalidPom() {
+		assertThrows(IOException.class, () -> read("<project><artifactId>broken</project>"));
+	}
+}
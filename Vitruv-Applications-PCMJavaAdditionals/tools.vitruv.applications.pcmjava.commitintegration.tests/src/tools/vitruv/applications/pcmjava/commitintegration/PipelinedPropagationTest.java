@@ -0,0 +1,146 @@
+package tools.vitruv.applications.pcmjava.commitintegration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.emftext.language.java.JavaClasspath;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import cipm.consistency.commitintegration.CommitChangePropagator;
+import cipm.consistency.commitintegration.settings.CommitIntegrationSettingsContainer;
+import cipm.consistency.commitintegration.settings.SettingKeys;
+import cipm.consistency.domains.java.AdjustedJavaDomainProvider;
+import cipm.consistency.tools.evaluation.data.EvaluationDataContainer;
+import tools.vitruv.framework.userinteraction.UserInteractionFactory;
+import tools.vitruv.framework.vsum.VirtualModelBuilder;
+import tools.vitruv.framework.vsum.internal.InternalVirtualModel;
+
+/**
+ * Tests that the pipelined propagation of commits results in the same Java
+ * models in the VSUM as the sequential propagation.
+ * 
+ * @author Martin Armbruster
+ */
+@DisabledOnOs(OS.WINDOWS)
+public class PipelinedPropagationTest {
+	private static final String PACKAGE_PATH = "src/org/example/";
+	@TempDir
+	Path tempDir;
+	private GitTestRepository repository;
+	private String[] commitIds;
+
+	@BeforeAll
+	public static void setUpBeforeAll() {
+		JavaClasspath.get().registerStdLib();
+	}
+
+	@BeforeEach
+	public void setUp() throws Exception {
+		repository = new GitTestRepository(tempDir.resolve("repo"));
+		String first = repository.writeFile("README.md", "Readme").commit("Initial").getId().getName();
+		writeClass("A", "public class A {\n\tpublic int value() {\n\t\treturn 1;\n\t}\n}");
+		writeClass("B", "public class B extends A {\n}");
+		String second = repository.commit("Add A and B").getId().getName();
+		writeClass("A", "public class A {\n\tpublic int value() {\n\t\treturn 2;\n\t}\n}");
+		writeClass("C", "public class C {\n\tprivate B b;\n}");
+		String third = repository.commit("Change A and add C").getId().getName();
+		repository.deleteFile(PACKAGE_PATH + "B.java");
+		writeClass("C", "public class C {\n\tprivate A a;\n}");
+		String fourth = repository.commit("Remove B").getId().getName();
+		commitIds = new String[] {first, second, third, fourth};
+		Path script = tempDir.resolve("preprocess.sh");
+		Files.writeString(script, "#!/bin/sh\nexit 0\n");
+		assertTrue(script.toFile().setExecutable(true, false));
+	}
+
+	@AfterEach
+	public void tearDown() {
+		repository.close();
+	}
+
+	private void writeClass(String name, String body) throws IOException {
+		repository.writeFile(PACKAGE_PATH + name + ".java", "package org.example;\n\n" + body + "\n");
+	}
+
+	private void initializeSettings(boolean pipelined) throws IOException {
+		Path settings = tempDir.resolve("settings-" + pipelined + ".properties");
+		Properties properties = new Properties();
+		properties.setProperty(SettingKeys.JAVA_PARSER_EXCLUSION_PATTERNS, "");
+		properties.setProperty(SettingKeys.MATERIALIZE_COMMITS, "true");
+		properties.setProperty(SettingKeys.PERFORM_PIPELINED_PROPAGATION, Boolean.toString(pipelined));
+		properties.setProperty(SettingKeys.PATH_TO_PREPROCESSING_SCRIPT,
+				tempDir.resolve("preprocess.sh").toString());
+		try (OutputStream out = Files.newOutputStream(settings)) {
+			properties.store(out, null);
+		}
+		CommitIntegrationSettingsContainer.initialize(settings);
+		EvaluationDataContainer.setGlobalContainer(new EvaluationDataContainer());
+	}
+
+	/**
+	 * Propagates all commits into a new VSUM and returns the propagated Java
+	 * models.
+	 * 
+	 * @param pipelined true if the commits are propagated in a pipeline.
+	 * @return the Resources with the propagated Java models by their URIs
+	 *         relative to the directory of the propagation.
+	 * @throws Exception if the propagation fails.
+	 */
+	private Map<String, Resource> propagate(boolean pipelined) throws Exception {
+		initializeSettings(pipelined);
+		Path directory = tempDir.resolve(pipelined ? "pipelined" : "sequential");
+		InternalVirtualModel vsum = new VirtualModelBuilder()
+				.withDomain(new AdjustedJavaDomainProvider().getDomain())
+				.withStorageFolder(directory.resolve("vsum"))
+				.withUserInteractor(UserInteractionFactory.instance.createDialogUserInteractor())
+				.buildAndInitialize();
+		Path cacheDirectory = directory.resolve("cache");
+		CommitChangePropagator propagator = new CommitChangePropagator(repository.getDirectory().toFile(),
+				cacheDirectory.toString(), vsum);
+		Map<String, Resource> models = new HashMap<>();
+		try {
+			propagator.initialize();
+			propagator.propagateChanges(commitIds);
+			assertEquals(commitIds[commitIds.length - 1], propagator.getPropagatedCommit());
+			URI base = URI.createFileURI(cacheDirectory.toAbsolutePath().toString() + "/");
+			for (URI uri : propagator.getPropagatedJavaModels()) {
+				models.put(uri.deresolve(base).toString(), vsum.getModelInstance(uri).getResource());
+			}
+		} finally {
+			propagator.shutdown();
+		}
+		return models;
+	}
+
+	@Test
+	public void testPipelinedPropagationEqualsSequentialPropagation() throws Exception {
+		Map<String, Resource> sequential = propagate(false);
+		Map<String, Resource> pipelined = propagate(true);
+		assertFalse(sequential.isEmpty());
+		assertEquals(sequential.keySet(), pipelined.keySet());
+		for (var entry : sequential.entrySet()) {
+			Resource pipelinedResource = pipelined.get(entry.getKey());
+			assertEquals(entry.getValue().getContents().size(), pipelinedResource.getContents().size());
+			assertTrue(EcoreUtil.equals(entry.getValue().getContents(), pipelinedResource.getContents()),
+					entry.getKey());
+		}
+	}
+}
@@ -0,0 +1,198 @@
+package tools.vitruv.applications.pcmjava.commitintegration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledOnOs;
+import org.junit.jupiter.api.condition.OS;
+import org.junit.jupiter.api.io.TempDir;
+
+import cipm.consistency.commitintegration.PreprocessingCache;
+import cipm.consistency.commitintegration.settings.CommitIntegrationSettingsContainer;
+import cipm.consistency.tools.evaluation.data.EvaluationDataContainer;
+
+/**
+ * Tests the cache for the outputs of the preprocessing script. The script
+ * copies an input file into an output file and counts its runs in a file
+ * outside of the preprocessed directory.
+ * 
+ * @author Martin Armbruster
+ */
+@DisabledOnOs(OS.WINDOWS)
+public class PreprocessingCacheTest {
+	private static final List<String> ALL_FILES = List.of("**");
+	@TempDir
+	Path tempDir;
+	private Path cacheDirectory;
+	private Path runCounter;
+	private Path script;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		CommitIntegrationSettingsContainer.initialize(tempDir.resolve("settings.properties"));
+		EvaluationDataContainer.setGlobalContainer(new EvaluationDataContainer());
+		cacheDirectory = tempDir.resolve("cache");
+		runCounter = tempDir.resolve("runs.txt");
+		script = writeScript("preprocess.sh", "cat input.txt > output.txt");
+	}
+
+	private Path writeScript(String name, String command) throws IOException {
+		Path file = tempDir.resolve(name);
+		Files.writeString(file, "#!/bin/sh\necho run >> \"" + runCounter + "\"\n" + command + "\n");
+		file.toFile().setExecutable(true);
+		return file;
+	}
+
+	private Path createDirectory(String name, String input) throws IOException {
+		Path directory = tempDir.resolve(name);
+		Files.createDirectories(directory);
+		Files.writeString(directory.resolve("input.txt"), input);
+		return directory;
+	}
+
+	private int countRuns() throws IOException {
+		return Files.exists(runCounter) ? Files.readAllLines(runCounter).size() : 0;
+	}
+
+	private List<Path> listEntries() throws IOException {
+		try (Stream<Path> entries = Files.list(cacheDirectory)) {
+			return entries.collect(Collectors.toList());
+		}
+	}
+
+	@Test
+	public void testOutputsAreRestoredForSameInputs() throws IOException {
+		PreprocessingCache cache = new PreprocessingCache(cacheDirectory, ALL_FILES, 10);
+		Path first = createDirectory("first", "content");
+		assertTrue(cache.preprocess(first, script));
+		assertEquals(1, countRuns());
+
+		Path second = createDirectory("second", "content");
+		assertTrue(cache.preprocess(second, script));
+		assertEquals(1, countRuns());
+		assertEquals("content", Files.readString(second.resolve("output.txt")));
+	}
+
+	@Test
+	public void testChangedInputRunsScript() throws IOException {
+		PreprocessingCache cache = new PreprocessingCache(cacheDirectory, ALL_FILES, 10);
+		assertTrue(cache.preprocess(createDirectory("first", "content"), script));
+		Path second = createDirectory("second", "changed content");
+		assertTrue(cache.preprocess(second, script));
+		assertEquals(2, countRuns());
+		assertEquals("changed content", Files.readString(second.resolve("output.txt")));
+	}
+
+	@Test
+	public void testChangedScriptRunsScript() throws IOException {
+		PreprocessingCache cache = new PreprocessingCache(cacheDirectory, ALL_FILES, 10);
+		assertTrue(cache.preprocess(createDirectory("first", "content"), script));
+		Path otherScript = writeScript("other.sh", "cat input.txt input.txt > output.txt");
+		Path second = createDirectory("second", "content");
+		assertTrue(cache.preprocess(second, otherScript));
+		assertEquals(2, countRuns());
+		assertEquals("contentcontent", Files.readString(second.resolve("output.txt")));
+	}
+
+	@Test
+	public void testFilesOutsideOfInputGlobsAreIgnored() throws IOException {
+		PreprocessingCache cache = new PreprocessingCache(cacheDirectory, List.of("input.txt"), 10);
+		Path first = createDirectory("first", "content");
+		Files.writeString(first.resolve("notes.txt"), "first notes");
+		assertTrue(cache.preprocess(first, script));
+		Path second = createDirectory("second", "content");
+		Files.writeString(second.resolve("notes.txt"), "second notes");
+		assertTrue(cache.preprocess(second, script));
+		assertEquals(1, countRuns());
+	}
+
+	@Test
+	public void testDefaultInputsAreBuildFiles() throws IOException {
+		PreprocessingCache cache = new PreprocessingCache(cacheDirectory, PreprocessingCache.DEFAULT_INPUT_GLOBS, 10);
+		Path first = createDirectory("first", "content");
+		Files.writeString(first.resolve("pom.xml"), "<project/>");
+		assertTrue(cache.preprocess(first, script));
+		// Changed sources do not change the inputs.
+		Path second = createDirectory("second", "changed content");
+		Files.writeString(second.resolve("pom.xml"), "<project/>");
+		assertTrue(cache.preprocess(second, script));
+		assertEquals(1, countRuns());
+		assertEquals("content", Files.readString(second.resolve("output.txt")));
+		// A changed build file of a nested module changes the inputs.
+		Path third = createDirectory("third", "content");
+		Files.writeString(third.resolve("pom.xml"), "<project/>");
+		Files.createDirectories(third.resolve("module"));
+		Files.writeString(third.resolve("module").resolve("build.gradle"), "plugins {}");
+		assertTrue(cache.preprocess(third, script));
+		assertEquals(2, countRuns());
+	}
+
+	@Test
+	public void testBuildOutputsAreNoInputs() throws IOException {
+		PreprocessingCache cache = new PreprocessingCache(cacheDirectory, ALL_FILES, 10);
+		Path first = createDirectory("first", "content");
+		Files.writeString(first.resolve("pom.xml"), "<project/>");
+		assertTrue(cache.preprocess(first, script));
+		Path second = createDirectory("second", "content");
+		Files.writeString(second.resolve("pom.xml"), "<project/>");
+		Files.createDirectories(second.resolve("target"));
+		Files.writeString(second.resolve("target").resolve("Old.class"), "old output");
+		assertTrue(cache.preprocess(second, script));
+		assertEquals(1, countRuns());
+	}
+
+	@Test
+	public void testTargetWithoutBuildFileIsInput() throws IOException {
+		PreprocessingCache cache = new PreprocessingCache(cacheDirectory, ALL_FILES, 10);
+		assertTrue(cache.preprocess(createDirectory("first", "content"), script));
+		Path second = createDirectory("second", "content");
+		Files.createDirectories(second.resolve("target"));
+		Files.writeString(second.resolve("target").resolve("Source.txt"), "source");
+		assertTrue(cache.preprocess(second, script));
+		assertEquals(2, countRuns());
+	}
+
+	@Test
+	public void testOnlyCreatedOrModifiedFilesAreStored() throws IOException {
+		PreprocessingCache cache = new PreprocessingCache(cacheDirectory, ALL_FILES, 10);
+		assertTrue(cache.preprocess(createDirectory("first", "content"), script));
+		List<Path> entries = listEntries();
+		assertEquals(1, entries.size());
+		Path outputs = entries.get(0).resolve("outputs");
+		assertTrue(Files.exists(outputs.resolve("output.txt")));
+		assertFalse(Files.exists(outputs.resolve("input.txt")));
+	}
+
+	@Test
+	public void testLeastRecentlyUsedEntriesAreEvicted() throws IOException {
+		PreprocessingCache cache = new PreprocessingCache(cacheDirectory, ALL_FILES, 1);
+		assertTrue(cache.preprocess(createDirectory("first", "first"), script));
+		Path firstEntry = listEntries().get(0);
+		Files.setLastModifiedTime(firstEntry, FileTime.fromMillis(0));
+		assertTrue(cache.preprocess(createDirectory("second", "second"), script));
+		assertFalse(Files.exists(firstEntry));
+		assertEquals(1, listEntries().size());
+		assertTrue(cache.preprocess(createDirectory("third", "first"), script));
+		assertEquals(3, countRuns());
+	}
+
+	@Test
+	public void testFailedScriptIsNotStored() throws IOException {
+		PreprocessingCache cache = new PreprocessingCache(cacheDirectory, ALL_FILES, 10);
+		Path failingScript = writeScript("failing.sh", "exit 1");
+		assertFalse(cache.preprocess(createDirectory("first", "content"), failingScript));
+		assertFalse(cache.preprocess(createDirectory("second", "content"), failingScript));
+		assertEquals(2, countRuns());
+	}
+}
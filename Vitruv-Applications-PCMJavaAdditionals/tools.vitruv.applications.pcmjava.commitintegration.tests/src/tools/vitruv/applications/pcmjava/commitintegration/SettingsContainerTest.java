@@ -0,0 +1,61 @@
+package tools.vitruv.applications.pcmjava.commitintegration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import cipm.consistency.commitintegration.PropagationPlanningPolicy;
+import cipm.consistency.commitintegration.settings.CommitIntegrationSettingsContainer;
+import cipm.consistency.commitintegration.settings.SettingKeys;
+
+/**
+ * Tests the conversion of settings into constants of enumerations.
+ * 
+ * @author Martin Armbruster
+ */
+public class SettingsContainerTest {
+	@TempDir
+	Path tempDir;
+
+	private CommitIntegrationSettingsContainer initialize(String content) throws IOException {
+		Path settings = tempDir.resolve("settings.properties");
+		Files.writeString(settings, content);
+		CommitIntegrationSettingsContainer.initialize(settings);
+		return CommitIntegrationSettingsContainer.getSettingsContainer();
+	}
+
+	private static PropagationPlanningPolicy getPolicy(CommitIntegrationSettingsContainer settings) {
+		return settings.getPropertyAsEnum(SettingKeys.PROPAGATION_PLANNING_POLICY, PropagationPlanningPolicy.class,
+				PropagationPlanningPolicy.EVERY_COMMIT);
+	}
+
+	@Test
+	public void testEnumSetting() throws IOException {
+		var settings = initialize(SettingKeys.PROPAGATION_PLANNING_POLICY + "= TIME_WINDOW \n");
+		assertEquals(PropagationPlanningPolicy.TIME_WINDOW, getPolicy(settings));
+	}
+
+	@Test
+	public void testMissingEnumSetting() throws IOException {
+		var settings = initialize("");
+		assertEquals(PropagationPlanningPolicy.EVERY_COMMIT, getPolicy(settings));
+	}
+
+	@Test
+	public void testInvalidEnumSettingNamesKeyAndValues() throws IOException {
+		var settings = initialize(SettingKeys.PROPAGATION_PLANNING_POLICY + "=EVERY_SECOND\n");
+		var exception = assertThrows(IllegalArgumentException.class, () -> getPolicy(settings));
+		assertTrue(exception.getMessage().contains(SettingKeys.PROPAGATION_PLANNING_POLICY), exception.getMessage());
+		assertTrue(exception.getMessage().contains("EVERY_SECOND"), exception.getMessage());
+		for (PropagationPlanningPolicy policy : PropagationPlanningPolicy.values()) {
+			assertTrue(exception.getMessage().contains(policy.name()), exception.getMessage());
+		}
+	}
+}
@@ -3,7 +3,15 @@ package cipm.consistency.cpr.javapcm.additional.validation;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
+import org.apache.log4j.Logger;
+
+import org.emftext.language.java.references.MethodCall;
+import org.emftext.language.java.statements.Statement;
 import org.palladiosimulator.pcm.repository.BasicComponent;
 import org.palladiosimulator.pcm.repository.OperationInterface;
 import org.palladiosimulator.pcm.repository.OperationRequiredRole;
@@ -15,8 +23,11 @@ import org.palladiosimulator.pcm.seff.AbstractAction;
 import org.palladiosimulator.pcm.seff.ExternalCallAction;
 import org.palladiosimulator.pcm.seff.ResourceDemandingSEFF;
 
+import cipm.consistency.commitintegration.settings.CommitIntegrationSettingsContainer;
+import cipm.consistency.commitintegration.settings.SettingKeys;
 import tools.vitruv.extensions.dslsruntime.reactions.helper.ReactionsCorrespondenceHelper;
 import tools.vitruv.framework.correspondence.CorrespondenceModel;
+import tools.vitruv.framework.correspondence.CorrespondenceModelUtil;
 import tools.vitruv.framework.userinteraction.InternalUserInteractor;
 import tools.vitruv.framework.userinteraction.UserInteractionFactory;
 
@@ -26,9 +37,11 @@ import tools.vitruv.framework.userinteraction.UserInteractionFactory;
  * @author Martin Armbruster
  */
 public class ExternalCallEmptyTargetFiller {
+	private static final Logger LOGGER = Logger.getLogger("cipm." + ExternalCallEmptyTargetFiller.class.getSimpleName());
 	private CorrespondenceModel cm;
 	private Repository repository;
 	private Path collectionFile;
+	private TargetPolicy policy;
 
 	/**
 	 * Creates a new instance.
@@ -44,10 +57,34 @@ public class ExternalCallEmptyTargetFiller {
 		this.collectionFile = collection;
 	}
 
+	/**
+	 * Policies for external calls whose targets are not stored.
+	 */
+	public enum TargetPolicy {
+		/**
+		 * The developer is asked for the target.
+		 */
+		ASK,
+		/**
+		 * The service with the name of a method called in the statements of the
+		 * external call is the target if there is exactly one such service.
+		 */
+		MATCH_NAME,
+		/**
+		 * The target remains empty.
+		 */
+		SKIP
+	}
+
 	/**
 	 * Tries to find the targets for all external calls without a target.
+	 * 
+	 * @throws IllegalArgumentException if the policy for external calls whose
+	 *                                  targets are not stored is invalid.
 	 */
 	public void fillExternalCalls() {
+		// An invalid policy is rejected before any external call is changed.
+		policy = getTargetPolicy();
 		var pairs = ExternalCallCallTargetPairCollectorReaderWriter.read(collectionFile);
 		for (var comp : repository.getComponents__Repository()) {
 			if (comp instanceof BasicComponent) {
@@ -106,12 +143,27 @@ public class ExternalCallEmptyTargetFiller {
 				}
 			}
 		}
-		// Ask the developer to decide which existing service is the target of the
-		// external call.
 		ArrayList<OperationSignature> signatures = new ArrayList<>();
 		repository.getInterfaces__Repository().stream().filter(i -> i instanceof OperationInterface)
 				.map(i -> (OperationInterface) i)
 				.forEach(i -> i.getSignatures__OperationInterface().forEach(signatures::add));
+		if (policy == TargetPolicy.SKIP) {
+			LOGGER.debug("Skipping the external call " + action.getEntityName() + " without a target.");
+			return;
+		} else if (policy == TargetPolicy.MATCH_NAME) {
+			Set<String> calledNames = findCalledMethodNames(action);
+			List<OperationSignature> matches = signatures.stream()
+					.filter(sig -> calledNames.contains(sig.getEntityName())).collect(Collectors.toList());
+			if (matches.size() == 1) {
+				storeTarget(pairs, component, seff, action, matches.get(0));
+			} else {
+				LOGGER.debug("Found " + matches.size() + " services for the external call "
+						+ action.getEntityName() + ". Its target remains empty.");
+			}
+			return;
+		}
+		// Ask the developer to decide which existing service is the target of the
+		// external call.
 		ArrayList<String> signaturesRepr = new ArrayList<>();
 		signatures.forEach(s -> signaturesRepr
 				.add(s.getEntityName() + "(" + s.getInterface__OperationSignature().getEntityName() + ")"));
@@ -135,17 +187,68 @@ public class ExternalCallEmptyTargetFiller {
 			}
 		}
 		if (index != -1) {
-			// Create a new pair for the external call and its target.
-			var service = signatures.get(index);
-			var newPair = new ExternalCallCallTargetPair();
-			newPair.setComponentName(component.getEntityName());
-			newPair.setSeffName(seff.getDescribedService__SEFF().getEntityName());
-			newPair.setExternalCallEncoding(encodeAbstractAction(action));
-			newPair.setServiceName(service.getEntityName());
-			newPair.setInterfaceName(service.getInterface__OperationSignature().getEntityName());
-			pairs.add(newPair);
-			setCallTargetForExternalCall(component, action, service);
+			storeTarget(pairs, component, seff, action, signatures.get(index));
+		}
+	}
+
+	/**
+	 * Finds the names of the methods which are called by the statements
+	 * corresponding to an external call. If the external call has no
+	 * corresponding statements, its name is used.
+	 * 
+	 * @param action the external call.
+	 * @return the names of the called methods.
+	 */
+	private Set<String> findCalledMethodNames(ExternalCallAction action) {
+		Set<String> names = new HashSet<>();
+		for (Statement statement : CorrespondenceModelUtil.getCorrespondingEObjects(cm, action, Statement.class)) {
+			List<MethodCall> calls = new ArrayList<>();
+			if (statement instanceof MethodCall) {
+				calls.add((MethodCall) statement);
+			}
+			calls.addAll(statement.getChildrenByType(MethodCall.class));
+			for (MethodCall call : calls) {
+				if (call.getTarget() != null && call.getTarget().getName() != null) {
+					names.add(call.getTarget().getName());
+				}
+			}
+		}
+		if (names.isEmpty() && action.getEntityName() != null) {
+			names.add(action.getEntityName().trim());
 		}
+		return names;
+	}
+
+	private TargetPolicy getTargetPolicy() {
+		var settings = CommitIntegrationSettingsContainer.getSettingsContainer();
+		if (settings == null) {
+			return TargetPolicy.ASK;
+		}
+		return settings.getPropertyAsEnum(SettingKeys.EXTERNAL_CALL_TARGET_POLICY, TargetPolicy.class,
+				TargetPolicy.ASK);
+	}
+
+	/**
+	 * Stores a new pair for an external call and its target and sets the target.
+	 * 
+	 * @param pairs     the collection of all stored external calls and their
+	 *                  targets.
+	 * @param component component in which the external call is located.
+	 * @param seff      SEFF in which the external call is located.
+	 * @param action    the external call.
+	 * @param service   the target of the external call.
+	 */
+	private void storeTarget(ExternalCallCallTargetPairCollector pairs, RepositoryComponent component,
+			ResourceDemandingSEFF seff, ExternalCallAction action, OperationSignature service) {
+		// Create a new pair for the external call and its target.
+		var newPair = new ExternalCallCallTargetPair();
+		newPair.setComponentName(component.getEntityName());
+		newPair.setSeffName(seff.getDescribedService__SEFF().getEntityName());
+		newPair.setExternalCallEncoding(encodeAbstractAction(action));
+		newPair.setServiceName(service.getEntityName());
+		newPair.setInterfaceName(service.getInterface__OperationSignature().getEntityName());
+		pairs.add(newPair);
+		setCallTargetForExternalCall(component, action, service);
 	}
 
 	/**
@@ -0,0 +1,190 @@
+package cipm.consistency.designtime.instrumentation2;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests the manifest of an instrumentation whose output only contains the
+ * instrumented files.
+ * 
+ * @author Martin Armbruster
+ */
+public class InstrumentationManifestTest {
+	@TempDir
+	Path tempDir;
+	private Path repository;
+	private Path output;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		repository = tempDir.resolve("repository");
+		output = tempDir.resolve("output");
+		Files.createDirectories(repository);
+		Files.createDirectories(output);
+	}
+
+	private void writeFile(String path, String content) throws IOException {
+		Path file = repository.resolve(path);
+		Files.createDirectories(file.getParent());
+		Files.writeString(file, content);
+	}
+
+	private void writePom(String module, String artifactId, String... dependencies) throws IOException {
+		StringBuilder pom = new StringBuilder("<project><artifactId>").append(artifactId)
+				.append("</artifactId><dependencies>");
+		for (String dependency : dependencies) {
+			pom.append("<dependency><groupId>org.example</groupId><artifactId>").append(dependency)
+					.append("</artifactId></dependency>");
+		}
+		pom.append("</dependencies></project>");
+		writeFile(module + "/pom.xml", pom.toString());
+	}
+
+	private InstrumentationManifest createManifestForModule(String module) throws IOException {
+		InstrumentationManifest manifest = new InstrumentationManifest();
+		manifest.addModuleOf(repository, repository.resolve(module).resolve("src/main/java"));
+		manifest.addDependentModules(repository);
+		return manifest;
+	}
+
+	@Test
+	public void testSaveAndLoad() throws IOException {
+		writePom(".", "root");
+		writePom("a", "a");
+		InstrumentationManifest manifest = new InstrumentationManifest();
+		manifest.addFile(Path.of("a", "src", "main", "java", "A.java"));
+		manifest.addFile(Path.of("src", "main", "java", "Root.java"));
+		manifest.addModuleOf(repository, repository.resolve("a/src/main/java"));
+		manifest.addModuleOf(repository, repository.resolve("src/main/java"));
+		manifest.addDependentModules(repository);
+		manifest.save(output);
+
+		InstrumentationManifest loaded = InstrumentationManifest.load(output);
+		assertEquals(Set.of("a/src/main/java/A.java", "src/main/java/Root.java"), loaded.getFiles());
+		assertEquals(Set.of(".", "a"), loaded.getModules());
+		assertEquals(manifest.getModuleLevels(), loaded.getModuleLevels());
+		assertNull(loaded.getCommit());
+	}
+
+	@Test
+	public void testLoadWithoutManifest() throws IOException {
+		assertNull(InstrumentationManifest.load(output));
+	}
+
+	@Test
+	public void testRecordCommit() throws IOException {
+		InstrumentationManifest manifest = new InstrumentationManifest();
+		manifest.addFile(Path.of("A.java"));
+		manifest.save(output);
+		InstrumentationManifest.recordCommit(output, "0123456789abcdef");
+
+		InstrumentationManifest loaded = InstrumentationManifest.load(output);
+		assertEquals("0123456789abcdef", loaded.getCommit());
+		assertEquals(Set.of("A.java"), loaded.getFiles());
+	}
+
+	@Test
+	public void testRecordCommitWithoutManifest() {
+		assertThrows(IOException.class, () -> InstrumentationManifest.recordCommit(output, "0123456789abcdef"));
+	}
+
+	@Test
+	public void testModuleOfDirectory() throws IOException {
+		writePom(".", "root");
+		writePom("a", "a");
+		writeFile("b/src/main/java/B.java", "class B {}");
+		InstrumentationManifest manifest = new InstrumentationManifest();
+		manifest.addModuleOf(repository, repository.resolve("a/src/main/java/org/example"));
+		assertEquals(Set.of("a"), manifest.getModules());
+		// Without a build file, the directory belongs to the enclosing module.
+		manifest.addModuleOf(repository, repository.resolve("b/src/main/java"));
+		assertEquals(Set.of(".", "a"), manifest.getModules());
+	}
+
+	@Test
+	public void testDirectoryWithoutModule() throws IOException {
+		writeFile("src/main/java/A.java", "class A {}");
+		InstrumentationManifest manifest = new InstrumentationManifest();
+		manifest.addModuleOf(repository, repository.resolve("src/main/java"));
+		assertTrue(manifest.getModules().isEmpty());
+		assertTrue(manifest.getModuleLevels().isEmpty());
+	}
+
+	@Test
+	public void testMavenDependentModules() throws IOException {
+		writePom(".", "root");
+		writePom("a", "a");
+		writePom("b", "b", "a", "junit");
+		writePom("c", "c", "b");
+		writePom("d", "d", "c", "a");
+		writePom("e", "e");
+		InstrumentationManifest manifest = createManifestForModule("b");
+		assertEquals(Set.of("b", "c", "d"), manifest.getModules());
+		assertEquals(List.of(Set.of("b"), Set.of("c"), Set.of("d")), manifest.getModuleLevels());
+	}
+
+	@Test
+	public void testIndependentModulesShareALevel() throws IOException {
+		writePom("a", "a");
+		writePom("b", "b", "a");
+		writePom("c", "c", "a");
+		InstrumentationManifest manifest = createManifestForModule("a");
+		assertEquals(List.of(Set.of("a"), Set.of("b", "c")), manifest.getModuleLevels());
+	}
+
+	@Test
+	public void testGradleDependentModules() throws IOException {
+		writeFile("settings.gradle", "include 'libs:core', 'app', 'tool'");
+		writeFile("libs/core/build.gradle", "plugins { id 'java' }");
+		writeFile("app/build.gradle", "dependencies { implementation project(':libs:core') }");
+		writeFile("tool/build.gradle.kts", "dependencies { implementation(project(path = \":app\")) }");
+		InstrumentationManifest manifest = createManifestForModule("libs/core");
+		assertEquals(Set.of("libs/core", "app", "tool"), manifest.getModules());
+		assertEquals(List.of(Set.of("libs/core"), Set.of("app"), Set.of("tool")), manifest.getModuleLevels());
+	}
+
+	@Test
+	public void testBuildOutputsAreIgnored() throws IOException {
+		writePom("a", "a");
+		writePom("b", "b");
+		// A copied build file in a build output does not add a dependency.
+		writePom("b/target/classes", "b", "a");
+		InstrumentationManifest manifest = createManifestForModule("a");
+		assertEquals(Set.of("a"), manifest.getModules());
+	}
+
+	@Test
+	public void testCyclicModulesAreInLastLevel() throws IOException {
+		writePom("a", "a", "b");
+		writePom("b", "b", "a");
+		writePom("c", "c");
+		writePom("d", "d", "c", "a");
+		InstrumentationManifest manifest = new InstrumentationManifest();
+		manifest.addModuleOf(repository, repository.resolve("a"));
+		manifest.addModuleOf(repository, repository.resolve("c"));
+		manifest.addDependentModules(repository);
+		assertEquals(Set.of("a", "b", "c", "d"), manifest.getModules());
+		assertEquals(List.of(Set.of("c"), Set.of("a", "b", "d")), manifest.getModuleLevels());
+	}
+
+	@Test
+	public void testModuleLevelsWithoutOrder() throws IOException {
+		// Manifests without levels list all modules in one level.
+		Files.writeString(output.resolve(InstrumentationManifest.MANIFEST_FILE_NAME), "files=a/A.java\nmodules=a;b\n");
+		InstrumentationManifest loaded = InstrumentationManifest.load(output);
+		assertEquals(List.of(Set.of("a", "b")), loaded.getModuleLevels());
+		assertNull(loaded.getCommit());
+	}
+}
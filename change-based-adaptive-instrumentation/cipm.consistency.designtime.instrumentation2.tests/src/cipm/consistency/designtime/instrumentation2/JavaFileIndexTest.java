@@ -0,0 +1,124 @@
+package cipm.consistency.designtime.instrumentation2;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+import org.emftext.language.java.containers.CompilationUnit;
+import org.emftext.language.java.containers.ContainersFactory;
+import org.emftext.language.java.containers.Module;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import cipm.consistency.java.testutils.JavaModelTestUtils;
+
+/**
+ * Tests the index which relates Java models to their original files.
+ * 
+ * @author Martin Armbruster
+ */
+public class JavaFileIndexTest {
+	@TempDir
+	Path tempDir;
+
+	private Path createFile(String path) throws IOException {
+		Path file = tempDir.resolve(path);
+		Files.createDirectories(file.getParent());
+		Files.writeString(file, "");
+		return file;
+	}
+
+	private static CompilationUnit createUser() {
+		return JavaModelTestUtils.createCompilationUnit("User", "org", "example");
+	}
+
+	@Test
+	public void testFilesAreFoundByTheirNamespaces() throws IOException {
+		Path first = createFile("a/src/main/java/org/example/User.java");
+		Path second = createFile("b/src/main/java/org/example/User.java");
+		createFile("a/src/main/java/org/sample/User.java");
+		createFile("a/src/main/java/org/example/sub/User.java");
+		createFile("a/src/main/java/org/example/Users.java");
+		createFile("a/src/main/java/org/example/User.txt");
+		var index = new JavaFileIndex(tempDir, List.of());
+		assertEquals(Set.of(first, second), new HashSet<>(index.findFiles(createUser())));
+		assertTrue(index.findFiles(JavaModelTestUtils.createCompilationUnit("Address", "org", "example"))
+				.isEmpty());
+	}
+
+	@Test
+	public void testFilesWithoutNamespaces() throws IOException {
+		Path file = createFile("src/Main.java");
+		createFile("src/org/Main.java.orig");
+		var index = new JavaFileIndex(tempDir, List.of());
+		assertEquals(List.of(file), index.findFiles(JavaModelTestUtils.createCompilationUnit("Main")));
+	}
+
+	@Test
+	public void testPackageAndModuleFiles() throws IOException {
+		Path packageFile = createFile("src/main/java/org/example/package-info.java");
+		createFile("src/main/java/org/sample/package-info.java");
+		Path moduleFile = createFile("src/main/java/module-info.java");
+		var index = new JavaFileIndex(tempDir, List.of());
+
+		var pkg = ContainersFactory.eINSTANCE.createPackage();
+		pkg.getNamespaces().addAll(List.of("org", "example"));
+		assertEquals(List.of(packageFile), index.findFiles(pkg));
+
+		Module module = ContainersFactory.eINSTANCE.createModule();
+		module.setName("example");
+		assertEquals(List.of(moduleFile), index.findFiles(module));
+	}
+
+	@Test
+	public void testDefaultExclusions() throws IOException {
+		Path file = createFile("src/main/java/org/example/User.java");
+		createFile("src/test/java/org/example/User.java");
+		var index = new JavaFileIndex(tempDir, JavaFileIndex.compileExclusionPatterns(null));
+		assertEquals(List.of(file), index.findFiles(createUser()));
+	}
+
+	@Test
+	public void testCompileExclusionPatterns() {
+		assertEquals(JavaFileIndex.DEFAULT_EXCLUSION_PATTERNS.size(),
+				JavaFileIndex.compileExclusionPatterns(null).size());
+		assertTrue(JavaFileIndex.compileExclusionPatterns(List.of()).isEmpty());
+		List<Pattern> exclusions = JavaFileIndex.compileExclusionPatterns(List.of("", " ", ".*?/gen/.*?"));
+		assertEquals(1, exclusions.size());
+		assertEquals(".*?/gen/.*?", exclusions.get(0).pattern());
+	}
+
+	@Test
+	public void testExclusionsAreMatchedInMatchedDirectory() throws IOException {
+		Path included = createFile("source/src/org/example/User.java");
+		Path excluded = createFile("source/generated/org/example/User.java");
+		Path matchedDirectory = tempDir.resolve("instrumented");
+		List<Pattern> exclusions = JavaFileIndex.compileExclusionPatterns(
+				List.of(Pattern.quote(matchedDirectory.resolve("generated").toString() + File.separator) + ".*"));
+
+		var index = new JavaFileIndex(tempDir.resolve("source"), exclusions, matchedDirectory);
+		assertEquals(List.of(included), index.findFiles(createUser()));
+
+		// Without the matched directory, the exclusion does not match any file.
+		index = new JavaFileIndex(tempDir.resolve("source"), exclusions);
+		assertEquals(Set.of(included, excluded), new HashSet<>(index.findFiles(createUser())));
+	}
+
+	@Test
+	public void testCreateLastPathPart() {
+		String separator = File.separator;
+		assertEquals(separator + "org" + separator + "example" + separator + "User.java",
+				JavaFileIndex.createLastPathPart(createUser()));
+		var pkg = ContainersFactory.eINSTANCE.createPackage();
+		pkg.getNamespaces().add("org");
+		assertEquals(separator + "org" + separator + "package-info.java", JavaFileIndex.createLastPathPart(pkg));
+	}
+}
@@ -0,0 +1,138 @@
+package cipm.consistency.designtime.instrumentation2;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Set;
+import java.util.jar.JarInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import cipm.consistency.commitintegration.settings.CommitIntegrationSettingsContainer;
+
+/**
+ * Tests the compilation of the modules of a repository with a compilation
+ * script.
+ * 
+ * @author Martin Armbruster
+ */
+public class ModuleCompilerTest {
+	private static final boolean IS_WINDOWS = File.separatorChar == '\\';
+	@TempDir
+	Path tempDir;
+	private Path repository;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		repository = tempDir.resolve("repository");
+		Files.createDirectories(repository);
+		CommitIntegrationSettingsContainer.initialize(tempDir.resolve("settings.properties"));
+	}
+
+	private void writeFile(String path, String content) throws IOException {
+		Path file = repository.resolve(path);
+		Files.createDirectories(file.getParent());
+		Files.writeString(file, content);
+	}
+
+	private String writeScript(String name, String unixContent, String windowsContent) throws IOException {
+		Path script = tempDir.resolve(name + (IS_WINDOWS ? ".bat" : ".sh"));
+		Files.writeString(script, IS_WINDOWS ? windowsContent : "#!/bin/sh\n" + unixContent);
+		script.toFile().setExecutable(true);
+		return script.toAbsolutePath().toString();
+	}
+
+	private static boolean isMavenAvailable() {
+		String executable = IS_WINDOWS ? "mvn.cmd" : "mvn";
+		String path = System.getenv("PATH");
+		if (path != null) {
+			for (String directory : path.split(File.pathSeparator)) {
+				if (Files.isExecutable(Path.of(directory, executable))) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private void writeMavenModule(String module, String packaging, String dependencies) throws IOException {
+		writeFile(module + "/pom.xml", "<project><modelVersion>4.0.0</modelVersion>"
+				+ "<parent><groupId>cipm.test</groupId><artifactId>root</artifactId><version>1.0</version></parent>"
+				+ "<artifactId>" + module + "</artifactId><packaging>" + packaging + "</packaging>"
+				+ "<dependencies>" + dependencies + "</dependencies></project>");
+	}
+
+	private static byte[] readNestedEntry(Path archive, String nestedArchive, String entry) throws IOException {
+		try (ZipFile zip = new ZipFile(archive.toFile())) {
+			ZipEntry nested = zip.getEntry(nestedArchive);
+			assertNotNull(nested, nestedArchive + " is missing in " + archive);
+			try (InputStream input = zip.getInputStream(nested); JarInputStream jar = new JarInputStream(input)) {
+				for (ZipEntry current = jar.getNextEntry(); current != null; current = jar.getNextEntry()) {
+					if (current.getName().equals(entry)) {
+						return jar.readAllBytes();
+					}
+				}
+			}
+		}
+		return null;
+	}
+
+	@Test
+	public void testChangedDependencyIsPackagedIntoDependentArtifact() throws IOException {
+		Assumptions.assumeTrue(isMavenAvailable(), "Maven is not available.");
+		writeFile("pom.xml", "<project><modelVersion>4.0.0</modelVersion><groupId>cipm.test</groupId>"
+				+ "<artifactId>root</artifactId><version>1.0</version><packaging>pom</packaging>"
+				+ "<properties><maven.compiler.release>11</maven.compiler.release>"
+				+ "<project.build.sourceEncoding>UTF-8</project.build.sourceEncoding></properties>"
+				+ "<modules><module>lib</module><module>app</module><module>other</module></modules></project>");
+		writeMavenModule("lib", "jar", "");
+		writeMavenModule("app", "war", "<dependency><groupId>cipm.test</groupId><artifactId>lib</artifactId>"
+				+ "<version>1.0</version></dependency>");
+		writeMavenModule("other", "jar", "");
+		writeFile("app/src/main/webapp/WEB-INF/web.xml", "<web-app/>");
+		// The instrumented version of the library, which is not installed in the local Maven repository.
+		writeFile("lib/src/main/java/cipm/test/Library.java",
+				"package cipm.test; public class Library { public static void instrumentedLibraryCall() { } }");
+		writeFile("app/src/main/java/cipm/test/App.java",
+				"package cipm.test; public class App { void run() { Library.instrumentedLibraryCall(); } }");
+		String script = writeScript("compile", "exec mvn -B -q -DskipTests clean package \"$@\"\n",
+				"@mvn -B -q -DskipTests clean package %*\r\n");
+
+		assertTrue(ModuleCompiler.compile(repository, script, Set.of("lib", "app"), 2));
+		byte[] library = readNestedEntry(repository.resolve("app/target/app-1.0.war"), "WEB-INF/lib/lib-1.0.jar",
+				"cipm/test/Library.class");
+		assertNotNull(library);
+		assertTrue(new String(library, "ISO-8859-1").contains("instrumentedLibraryCall"));
+		// Modules which are not compiled and on which no compiled module depends are not part of the build.
+		assertTrue(Files.notExists(repository.resolve("other/target")));
+	}
+
+	@Test
+	public void testModulesWithoutMavenAreCompiledInOrder() throws IOException {
+		writeFile("settings.gradle", "include 'libs:core', 'app', 'tool'");
+		writeFile("libs/core/build.gradle", "plugins { id 'java' }");
+		writeFile("app/build.gradle", "dependencies { implementation project(':libs:core') }");
+		writeFile("tool/build.gradle", "dependencies { implementation project(':app') }");
+		Path log = tempDir.resolve("compiled.txt");
+		String script = writeScript("record", "pwd >> \"" + log + "\"\n", "@cd >> \"" + log + "\"\r\n");
+
+		assertTrue(ModuleCompiler.compile(repository, script, List.of("tool", "libs/core", " ", "app"), 2));
+		List<String> compiled = Files.readAllLines(log);
+		assertEquals(3, compiled.size());
+		assertEquals(repository.resolve("libs/core").toRealPath(), Path.of(compiled.get(0)).toRealPath());
+		assertEquals(repository.resolve("app").toRealPath(), Path.of(compiled.get(1)).toRealPath());
+		assertEquals(repository.resolve("tool").toRealPath(), Path.of(compiled.get(2)).toRealPath());
+	}
+}
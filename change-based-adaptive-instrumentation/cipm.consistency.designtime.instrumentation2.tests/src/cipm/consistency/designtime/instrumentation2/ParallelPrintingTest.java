@@ -0,0 +1,180 @@
+package cipm.consistency.designtime.instrumentation2;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.emftext.language.java.classifiers.Class;
+import org.emftext.language.java.containers.CompilationUnit;
+import org.emftext.language.java.containers.JavaRoot;
+import org.emftext.language.java.containers.Origin;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import cipm.consistency.designtime.instrumentation2.instrumenter.MinimalMonitoringEnvironmentModelGenerator;
+import cipm.consistency.java.testutils.JavaModelTestUtils;
+import cipm.consistency.tools.evaluation.data.EvaluationDataContainer;
+
+/**
+ * Tests that the parallel printing of an instrumented model results in the same files and the
+ * same instrumented model as the sequential printing.
+ * 
+ * @author Martin Armbruster
+ */
+public class ParallelPrintingTest {
+	private static final int UNITS = 7;
+	private static final String ORIGINAL_CONTENT = "// The original content.";
+	@TempDir
+	Path tempDir;
+	private Path source;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		EvaluationDataContainer.setGlobalContainer(new EvaluationDataContainer());
+		source = tempDir.resolve("source");
+		for (int unit = 0; unit < UNITS; unit++) {
+			Path file = source.resolve("src/main/java/org/example/Unit" + unit + ".java");
+			Files.createDirectories(file.getParent());
+			Files.writeString(file, ORIGINAL_CONTENT);
+		}
+		Files.writeString(source.resolve("README.md"), "Readme");
+	}
+
+	/**
+	 * Creates the minimal Java models of the JDK which the monitoring environment needs.
+	 * 
+	 * @param resource the Resource for the Java models.
+	 */
+	private static void createJdkModels(Resource resource) {
+		resource.getContents().add(JavaModelTestUtils.createCompilationUnit("Object", "java", "lang"));
+		resource.getContents().add(JavaModelTestUtils.createCompilationUnit("String", "java", "lang"));
+		CompilationUnit atomicInteger = JavaModelTestUtils.createCompilationUnit("AtomicInteger", "java", "util",
+				"concurrent");
+		JavaModelTestUtils.addMethod(JavaModelTestUtils.getClass(atomicInteger), "getAndIncrement");
+		JavaModelTestUtils.addMethod(JavaModelTestUtils.getClass(atomicInteger), "get");
+		resource.getContents().add(atomicInteger);
+	}
+
+	/**
+	 * Creates an instrumented model, saves it and returns the names of the Java models in the
+	 * instrumented model in their order after the saving.
+	 * 
+	 * @param target the directory for the instrumented code.
+	 * @param threads the number of threads which print the Java models.
+	 * @param selectedUnits the units which are printed or null if all units are printed.
+	 * @return the names of the Java models.
+	 */
+	private List<String> saveModels(Path target, int threads, Set<Integer> selectedUnits) {
+		ResourceSet resourceSet = new ResourceSetImpl();
+		Resource jdk = JavaModelTestUtils.createResource(resourceSet, URI.createURI("test:/jdk.javaxmi"));
+		createJdkModels(jdk);
+		Resource instrumented = JavaModelTestUtils.createResource(resourceSet,
+				URI.createURI("test:/instrumented.javaxmi"));
+		Set<EObject> selectedRoots = selectedUnits == null ? null : new HashSet<>();
+		Class previous = null;
+		for (int unit = 0; unit < UNITS; unit++) {
+			CompilationUnit cu = JavaModelTestUtils.createCompilationUnit("Unit" + unit, "org", "example");
+			cu.setOrigin(Origin.FILE);
+			Class cls = JavaModelTestUtils.getClass(cu);
+			JavaModelTestUtils.addMethod(cls, "run" + unit);
+			if (previous != null) {
+				JavaModelTestUtils.addField(cls, "previous", previous);
+			}
+			previous = cls;
+			instrumented.getContents().add(cu);
+			if (selectedUnits != null && selectedUnits.contains(unit)) {
+				selectedRoots.add(cu);
+			}
+			if (unit == 2) {
+				// A Java model without a file remains at its position.
+				CompilationUnit withoutFile = JavaModelTestUtils.createCompilationUnit("WithoutFile", "org",
+						"example");
+				withoutFile.setOrigin(Origin.FILE);
+				instrumented.getContents().add(withoutFile);
+			}
+		}
+		var monitoringEnv = new MinimalMonitoringEnvironmentModelGenerator(instrumented, List.of(jdk));
+		ModelSaverInRepositoryCopy.saveModels(resourceSet, instrumented, target, source, monitoringEnv, List.of(),
+				null, JavaFileIndex.compileExclusionPatterns(List.of()), threads, InstrumentationOutputMode.COPY,
+				selectedRoots);
+		List<String> names = new ArrayList<>();
+		instrumented.getContents().forEach(root -> names.add(((JavaRoot) root).getName()));
+		return names;
+	}
+
+	private static Map<Path, String> readFiles(Path directory) throws IOException {
+		Map<Path, String> contents = new HashMap<>();
+		List<Path> files;
+		try (Stream<Path> walkedFiles = Files.walk(directory)) {
+			files = walkedFiles.filter(Files::isRegularFile).collect(Collectors.toList());
+		}
+		for (Path file : files) {
+			contents.put(directory.relativize(file), Files.readString(file));
+		}
+		return contents;
+	}
+
+	private void assertSamePrinting(Set<Integer> selectedUnits) throws IOException {
+		Path sequentialTarget = tempDir.resolve("sequential");
+		List<String> sequentialNames = saveModels(sequentialTarget, 1, selectedUnits);
+		int sequentialPrintedFiles = EvaluationDataContainer.getGlobalContainer().getInstrumentationData()
+				.getNumberPrintedFiles();
+		Map<Path, String> sequentialFiles = readFiles(sequentialTarget);
+		for (int threads : new int[] {2, 3, UNITS + 1}) {
+			Path parallelTarget = tempDir.resolve("parallel" + threads);
+			assertEquals(sequentialNames, saveModels(parallelTarget, threads, selectedUnits),
+					"Java models with " + threads + " threads");
+			assertEquals(sequentialPrintedFiles, EvaluationDataContainer.getGlobalContainer()
+					.getInstrumentationData().getNumberPrintedFiles());
+			assertEquals(sequentialFiles, readFiles(parallelTarget), "Files with " + threads + " threads");
+		}
+	}
+
+	@Test
+	public void testParallelPrintingEqualsSequentialPrinting() throws IOException {
+		assertSamePrinting(null);
+		Map<Path, String> files = readFiles(tempDir.resolve("sequential"));
+		for (int unit = 0; unit < UNITS; unit++) {
+			String content = files.get(Path.of("src", "main", "java", "org", "example", "Unit" + unit + ".java"));
+			assertTrue(content.contains("Unit" + unit), content);
+			assertFalse(content.contains(ORIGINAL_CONTENT), content);
+		}
+		assertEquals("Readme", files.get(Path.of("README.md")));
+		assertTrue(files.containsKey(Path.of("src", "main", "java", "cipm", "consistency", "bridge", "monitoring",
+				"controller", "ThreadMonitoringController.java")));
+	}
+
+	@Test
+	public void testParallelPrintingOfSelectedModels() throws IOException {
+		assertSamePrinting(Set.of(1, 4, 5));
+		Map<Path, String> files = readFiles(tempDir.resolve("sequential"));
+		assertEquals(ORIGINAL_CONTENT, files.get(Path.of("src", "main", "java", "org", "example", "Unit0.java")));
+		assertFalse(files.get(Path.of("src", "main", "java", "org", "example", "Unit4.java"))
+				.contains(ORIGINAL_CONTENT));
+	}
+
+	@Test
+	public void testPrintedModelsAreMovedToTheEndInOrder() {
+		List<String> names = saveModels(tempDir.resolve("parallel"), 3, null);
+		assertEquals(List.of("WithoutFile", "Unit0", "Unit1", "Unit2", "Unit3", "Unit4", "Unit5", "Unit6",
+				"ThreadMonitoringController", "ServiceParameters"), names);
+	}
+}
@@ -0,0 +1,132 @@
+package cipm.consistency.designtime.instrumentation2;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests the copying of repositories into the instrumentation directory.
+ * 
+ * @author Martin Armbruster
+ */
+public class RepositoryCopierTest {
+	@TempDir
+	Path tempDir;
+	private Path source;
+	private Path target;
+
+	@BeforeEach
+	public void setUp() throws IOException {
+		source = tempDir.resolve("source");
+		target = tempDir.resolve("target-dir");
+		writeFile(source.resolve("src/main/java/org/example/User.java"), "class User {}");
+		writeFile(source.resolve("pom.xml"), "<project/>");
+		writeFile(source.resolve("mvnw"), "#!/bin/sh");
+		writeFile(source.resolve("module/build.gradle"), "plugins {}");
+		writeFile(source.resolve(".git/config"), "[core]");
+		writeFile(source.resolve(".gradle/cache.bin"), "cache");
+		writeFile(source.resolve("target/classes/User.class"), "bytecode");
+		writeFile(source.resolve("module/build/libs/module.jar"), "jar");
+	}
+
+	private static void writeFile(Path file, String content) throws IOException {
+		Files.createDirectories(file.getParent());
+		Files.writeString(file, content);
+	}
+
+	@Test
+	public void testLinkedCopyLinksSourceFiles() throws IOException {
+		RepositoryCopier.copy(source, target, InstrumentationOutputMode.LINKED_COPY);
+		Path original = source.resolve("src/main/java/org/example/User.java");
+		Path copy = target.resolve("src/main/java/org/example/User.java");
+		assertTrue(Files.isSameFile(original, copy));
+	}
+
+	@Test
+	public void testBuildFilesAreMaterialized() throws IOException {
+		RepositoryCopier.copy(source, target, InstrumentationOutputMode.LINKED_COPY);
+		for (String file : new String[] {"pom.xml", "mvnw", "module/build.gradle"}) {
+			assertTrue(RepositoryCopier.MATERIALIZED_FILES.contains(Path.of(file).getFileName().toString()));
+			assertFalse(Files.isSameFile(source.resolve(file), target.resolve(file)), file);
+			assertEquals(Files.readString(source.resolve(file)), Files.readString(target.resolve(file)));
+		}
+		// A build step modifying a build file in place does not change the original file.
+		Files.writeString(target.resolve("pom.xml"), "<project><modified/></project>");
+		assertEquals("<project/>", Files.readString(source.resolve("pom.xml")));
+	}
+
+	@Test
+	public void testGitDataAndBuildOutputsAreExcluded() throws IOException {
+		RepositoryCopier.copy(source, target, InstrumentationOutputMode.LINKED_COPY);
+		assertFalse(Files.exists(target.resolve(".git")));
+		assertFalse(Files.exists(target.resolve(".gradle")));
+		assertFalse(Files.exists(target.resolve("target")));
+		assertFalse(Files.exists(target.resolve("module/build")));
+	}
+
+	@Test
+	public void testDirectoriesWithoutBuildFilesAreNotExcluded() throws IOException {
+		writeFile(source.resolve("src/main/java/org/example/target/Target.java"), "class Target {}");
+		writeFile(source.resolve("src/main/java/org/example/build/Build.java"), "class Build {}");
+		RepositoryCopier.copy(source, target, InstrumentationOutputMode.LINKED_COPY);
+		assertTrue(Files.exists(target.resolve("src/main/java/org/example/target/Target.java")));
+		assertTrue(Files.exists(target.resolve("src/main/java/org/example/build/Build.java")));
+	}
+
+	@Test
+	public void testCopyCopiesAllFiles() throws IOException {
+		RepositoryCopier.copy(source, target, InstrumentationOutputMode.COPY);
+		assertTrue(Files.exists(target.resolve(".git/config")));
+		assertTrue(Files.exists(target.resolve("target/classes/User.class")));
+		Path copy = target.resolve("src/main/java/org/example/User.java");
+		assertFalse(Files.isSameFile(source.resolve("src/main/java/org/example/User.java"), copy));
+		assertEquals("class User {}", Files.readString(copy));
+	}
+
+	@Test
+	public void testOverlayOnlyCreatesTheDirectory() throws IOException {
+		RepositoryCopier.copy(source, target, InstrumentationOutputMode.OVERLAY);
+		assertTrue(Files.isDirectory(target));
+		try (Stream<Path> files = Files.list(target)) {
+			assertEquals(0, files.count());
+		}
+	}
+
+	@Test
+	public void testExistingLinkedFileIsNotReplaced() throws IOException {
+		writeFile(target.resolve("src/main/java/org/example/User.java"), "class Existing {}");
+		assertThrows(FileAlreadyExistsException.class,
+				() -> RepositoryCopier.copy(source, target, InstrumentationOutputMode.LINKED_COPY));
+		assertEquals("class User {}", Files.readString(source.resolve("src/main/java/org/example/User.java")));
+	}
+
+	@Test
+	public void testExistingMaterializedFileIsNotReplaced() throws IOException {
+		writeFile(target.resolve("pom.xml"), "<existing/>");
+		assertThrows(FileAlreadyExistsException.class,
+				() -> RepositoryCopier.copy(source, target, InstrumentationOutputMode.LINKED_COPY));
+		assertEquals("<existing/>", Files.readString(target.resolve("pom.xml")));
+	}
+
+	@Test
+	public void testUnlinkSeparatesTheCopyFromTheOriginal() throws IOException {
+		RepositoryCopier.copy(source, target, InstrumentationOutputMode.LINKED_COPY);
+		Path copy = target.resolve("src/main/java/org/example/User.java");
+		RepositoryCopier.unlink(copy);
+		Files.writeString(copy, "class Instrumented {}");
+		assertEquals("class User {}", Files.readString(source.resolve("src/main/java/org/example/User.java")));
+		// Unlinking a file which does not exist has no effect.
+		RepositoryCopier.unlink(target.resolve("Missing.java"));
+	}
+}
@@ -1,17 +1,33 @@
 package cipm.consistency.designtime.instrumentation2;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Pattern;
 
 import org.apache.log4j.Logger;
+import org.eclipse.emf.common.util.ECollections;
 import org.eclipse.emf.common.util.EList;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.ResourceSet;
 import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
 import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.eclipse.emf.ecore.util.EcoreUtil.Copier;
+import org.emftext.language.java.containers.CompilationUnit;
+import org.emftext.language.java.containers.JavaRoot;
 import org.emftext.language.java.members.Method;
 import org.emftext.language.java.statements.Statement;
 import org.emftext.language.java.statements.StatementListContainer;
@@ -39,33 +55,330 @@ public final class CodeInstrumenter {
 
 	public static Resource instrument(InstrumentationModel im, CorrespondenceModel cm, Resource javaModel, Path output,
 			Path input, boolean adaptive) {
-		LOGGER.debug("Executing the " + (adaptive ? "adaptive" : "full") + " instrumentation.");
+		InstrumentationParameters parameters = new InstrumentationParameters(im, cm, List.of(javaModel), output,
+				input);
+		parameters.setAdaptive(adaptive);
+		return instrument(parameters);
+	}
+
+	/**
+	 * Instruments the source code whose models are distributed over multiple
+	 * Resources. The models are copied into one Resource after the copies of the
+	 * instrumented elements are found. If the code of a previous instrumentation
+	 * is given, only the Java models whose original files or instrumentation
+	 * points changed since the previous instrumentation are copied and
+	 * instrumented, together with the Java models which the instrumentation
+	 * points of the changed ones touch. The changed Java models are printed,
+	 * and the printed files of the unchanged ones are reused so that the
+	 * instrumented code equals the code of a complete instrumentation.
+	 * 
+	 * @param parameters the parameters of the instrumentation.
+	 * @return the Resource with the instrumented models. It contains all models
+	 *         if the instrumentation is complete or if the instrumented models
+	 *         of the previous instrumentation are given.
+	 */
+	public static Resource instrument(InstrumentationParameters parameters) {
+		List<Pattern> exclusions = JavaFileIndex.compileExclusionPatterns(parameters.getExclusionPatterns());
+		if (parameters.getPreviousOutput() != null) {
+			return instrumentIncrementally(parameters, exclusions);
+		}
+		return instrumentCompletely(parameters, exclusions);
+	}
+
+	private static Resource instrumentCompletely(InstrumentationParameters parameters, List<Pattern> exclusions) {
+		LOGGER.debug("Executing the " + (parameters.isAdaptive() ? "adaptive" : "full") + " instrumentation.");
+		InstrumentedCopy instrumented = copyAndInstrument(parameters, null, parameters.getInstrumentationModel()
+				.getPoints(), Map.of());
+
+		LOGGER.debug("Saving the instrumented code.");
+		ModelSaverInRepositoryCopy.saveModels(instrumented.targetSet, instrumented.copy, parameters.getOutput(),
+				parameters.getInput(), instrumented.gen, List.of(), null, exclusions,
+				parameters.getPrintingThreads(), parameters.getMode(), null);
+		LOGGER.debug("Finished the instrumentation.");
+
+		return instrumented.copy;
+	}
+
+	/**
+	 * Copies Java models and instruments the copies. The copies and the reused
+	 * models are merged into one Resource in the order of the original models.
+	 * 
+	 * @param parameters   the parameters of the instrumentation.
+	 * @param copiedRoots  the original Java models to copy. If it is null, all
+	 *                     Java models are copied.
+	 * @param sips         the instrumentation points to instrument. Their
+	 *                     services and statements must be in the copied models.
+	 * @param reusedRoots  maps original Java models which are not copied to the
+	 *                     already instrumented models which are used instead.
+	 * @return the copied and instrumented models.
+	 */
+	private static InstrumentedCopy copyAndInstrument(InstrumentationParameters parameters,
+			Set<JavaRoot> copiedRoots, List<ServiceInstrumentationPoint> sips, Map<JavaRoot, JavaRoot> reusedRoots) {
 		LOGGER.debug("Copying the Java model.");
 		ResourceSet targetSet = new ResourceSetImpl();
-		Resource copy = targetSet.createResource(javaModel.getURI());
-		copy.getContents().addAll(EcoreUtil.copyAll(javaModel.getContents()));
+		// The copies keep the URIs of the original Resources so that the copied
+		// elements can be found by the URIs of the original elements. One copier
+		// redirects the references between the Resources to the copies.
+		Copier copier = new Copier();
+		List<Resource> copies = new ArrayList<>();
+		for (Resource javaModel : parameters.getJavaModels()) {
+			Resource copy = targetSet.createResource(javaModel.getURI());
+			if (copiedRoots == null) {
+				copy.getContents().addAll(copier.copyAll(javaModel.getContents()));
+			} else {
+				for (EObject root : javaModel.getContents()) {
+					if (copiedRoots.contains(root)) {
+						copy.getContents().add(copier.copy(root));
+					}
+				}
+			}
+			copies.add(copy);
+		}
+		copier.copyReferences();
+
+		// Only a complete copy can be searched by the URIs of the original elements.
+		ResourceSet copyContainer = copiedRoots == null ? targetSet : null;
+		List<Method> copiedServices = new ArrayList<>();
+		List<ActionStatementMapping> statementMaps = new ArrayList<>();
+		for (ServiceInstrumentationPoint sip : sips) {
+			Method service = findService(sip, parameters.getCorrespondenceModel());
+			copiedServices.add(findCopiedEObject(copyContainer, copier, service));
+			statementMaps.add(createActionStatementMapping(copyContainer, copier, sip,
+					parameters.getCorrespondenceModel()));
+		}
+
+		Resource copy = copies.get(0);
+		if (copies.size() > 1) {
+			copy = targetSet.createResource(parameters.getCopyURI());
+		}
+		if (copies.size() > 1 || !reusedRoots.isEmpty()) {
+			List<EObject> contents = new ArrayList<>();
+			for (Resource javaModel : parameters.getJavaModels()) {
+				for (EObject root : javaModel.getContents()) {
+					EObject result = copier.get(root);
+					if (result == null) {
+						result = reusedRoots.get(root);
+					}
+					if (result != null) {
+						contents.add(result);
+					}
+				}
+			}
+			ECollections.setEList(copy.getContents(), contents);
+			for (Resource partialCopy : copies) {
+				if (partialCopy != copy) {
+					targetSet.getResources().remove(partialCopy);
+				}
+			}
+		}
 
 		LOGGER.debug("Generating the minimal monitoring environment.");
-		MinimalMonitoringEnvironmentModelGenerator gen = new MinimalMonitoringEnvironmentModelGenerator(copy);
+		// The classifiers of the JDK are searched in the original models because
+		// they are not necessarily copied.
+		MinimalMonitoringEnvironmentModelGenerator gen = new MinimalMonitoringEnvironmentModelGenerator(copy,
+				copiedRoots == null ? List.of(copy) : parameters.getJavaModels());
 		ServiceInstrumentationPointInstrumenter sipIns = new ServiceInstrumentationPointInstrumenter(gen);
 
-		for (ServiceInstrumentationPoint sip : im.getPoints()) {
+		for (int idx = 0; idx < sips.size(); idx++) {
+			ServiceInstrumentationPoint sip = sips.get(idx);
 			LOGGER.debug("Instrumenting the service " + sip.getService().getDescribedService__SEFF().getEntityName());
-			Method service = CorrespondenceModelUtil.getCorrespondingEObjects(cm, sip.getService(), Method.class)
-					.iterator().next();
-			Method copiedService = findCopiedEObject(targetSet, service);
-			ActionStatementMapping statementMap = createActionStatementMapping(targetSet, sip, cm);
-			sipIns.instrument(copiedService, sip, statementMap, adaptive);
+			sipIns.instrument(copiedServices.get(idx), sip, statementMaps.get(idx), parameters.isAdaptive());
+		}
+		return new InstrumentedCopy(targetSet, copier, copy, gen);
+	}
+
+	private static Resource instrumentIncrementally(InstrumentationParameters parameters, List<Pattern> exclusions) {
+		boolean adaptive = parameters.isAdaptive();
+		Path previousOutput = parameters.getPreviousOutput();
+		LOGGER.debug("Executing the incremental " + (adaptive ? "adaptive" : "full") + " instrumentation.");
+		InstrumentationState previousState = InstrumentationState.load(previousOutput);
+		InstrumentationState newState = new InstrumentationState();
+		Path absoluteInput = parameters.getInput().toAbsolutePath();
+		JavaFileIndex inputFiles;
+		try {
+			inputFiles = new JavaFileIndex(absoluteInput, exclusions, parameters.getOutput());
+		} catch (IOException e) {
+			LOGGER.error("The original code cannot be read. Instrumenting all models.", e);
+			return instrumentCompletely(parameters, exclusions);
+		}
+
+		// Determine the Java models which the instrumentation points touch.
+		Map<ServiceInstrumentationPoint, Set<JavaRoot>> touchedUnits = new LinkedHashMap<>();
+		Map<JavaRoot, List<ServiceInstrumentationPoint>> pointsByUnit = new HashMap<>();
+		for (ServiceInstrumentationPoint sip : parameters.getInstrumentationModel().getPoints()) {
+			Set<JavaRoot> units = findTouchedUnits(sip, parameters.getCorrespondenceModel(), adaptive);
+			touchedUnits.put(sip, units);
+			units.forEach(unit -> pointsByUnit.computeIfAbsent(unit, key -> new ArrayList<>()).add(sip));
+		}
+		Map<String, JavaRoot> previousRoots = new HashMap<>();
+		if (parameters.getPreviousModel() != null) {
+			for (EObject root : parameters.getPreviousModel().getContents()) {
+				if (root instanceof JavaRoot) {
+					previousRoots.put(createKey((JavaRoot) root), (JavaRoot) root);
+				}
+			}
+		}
+
+		// A Java model is copied if its files or instrumentation points changed or if
+		// its previously instrumented model is not available.
+		Set<JavaRoot> copiedUnits = new HashSet<>();
+		List<JavaRoot> changedUnits = new ArrayList<>();
+		List<JavaRoot> reusedUnits = new ArrayList<>();
+		Map<JavaRoot, JavaRoot> reusedRoots = new HashMap<>();
+		for (Resource javaModel : parameters.getJavaModels()) {
+			for (EObject root : javaModel.getContents()) {
+				if (!(root instanceof JavaRoot)) {
+					continue;
+				}
+				JavaRoot unit = (JavaRoot) root;
+				List<ServiceInstrumentationPoint> sips = pointsByUnit.getOrDefault(unit, List.of());
+				String signature = computeSignature(sips, adaptive);
+				List<Path> files = inputFiles.findFiles(unit);
+				boolean unchanged = !files.isEmpty();
+				for (Path file : files) {
+					Path relativeFile = absoluteInput.relativize(file);
+					String hash = InstrumentationState.computeHash(file);
+					if (hash == null) {
+						unchanged = false;
+						continue;
+					}
+					String key = relativeFile.toString().replace(File.separatorChar, '/');
+					String stateEntry = InstrumentationState.createEntry(hash, signature);
+					newState.put(key, stateEntry);
+					unchanged &= previousState.isUnchanged(key, stateEntry)
+							&& Files.exists(previousOutput.resolve(relativeFile));
+				}
+				// As in the complete instrumentation, all Java models are printed, including the ones
+				// without instrumentation points, or their previously printed files are reused.
+				if (unchanged) {
+					reusedUnits.add(unit);
+				} else {
+					changedUnits.add(unit);
+				}
+				JavaRoot previousRoot = previousRoots.get(createKey(unit));
+				if (unchanged && previousRoot != null) {
+					reusedRoots.put(unit, previousRoot);
+				} else {
+					copiedUnits.add(unit);
+				}
+			}
+		}
+
+		// The instrumentation points touching a copied Java model are instrumented
+		// again so that all Java models which they touch are copied, too.
+		List<ServiceInstrumentationPoint> instrumentedPoints = new ArrayList<>();
+		boolean extended = true;
+		while (extended) {
+			extended = false;
+			for (var entry : touchedUnits.entrySet()) {
+				if (!instrumentedPoints.contains(entry.getKey())
+						&& entry.getValue().stream().anyMatch(copiedUnits::contains)) {
+					instrumentedPoints.add(entry.getKey());
+					extended |= copiedUnits.addAll(entry.getValue());
+				}
+			}
+		}
+		reusedRoots.keySet().removeAll(copiedUnits);
+		// The instrumentation points are instrumented in the order of the instrumentation model.
+		instrumentedPoints.sort(Comparator.comparingInt(parameters.getInstrumentationModel().getPoints()::indexOf));
+		LOGGER.debug("Copying " + copiedUnits.size() + " and reusing " + reusedRoots.size()
+				+ " Java models. Printing " + changedUnits.size() + " and reusing " + reusedUnits.size()
+				+ " instrumented files.");
+
+		InstrumentedCopy instrumented = copyAndInstrument(parameters, copiedUnits, instrumentedPoints, reusedRoots);
+		Set<EObject> printedUnits = new HashSet<>();
+		for (JavaRoot changedUnit : changedUnits) {
+			EObject printedUnit = instrumented.copier.get(changedUnit);
+			if (printedUnit != null) {
+				printedUnits.add(printedUnit);
+			}
 		}
 
 		LOGGER.debug("Saving the instrumented code.");
-		ModelSaverInRepositoryCopy.saveModels(targetSet, copy, output, input, gen);
+		ModelSaverInRepositoryCopy.saveModels(instrumented.targetSet, instrumented.copy, parameters.getOutput(),
+				parameters.getInput(), instrumented.gen, reusedUnits, previousOutput, exclusions,
+				parameters.getPrintingThreads(), parameters.getMode(), printedUnits);
+		newState.save(parameters.getOutput());
 		LOGGER.debug("Finished the instrumentation.");
 
-		return copy;
+		return instrumented.copy;
 	}
 
-	private static ActionStatementMapping createActionStatementMapping(ResourceSet copyContainer,
+	private static Method findService(ServiceInstrumentationPoint sip, CorrespondenceModel cm) {
+		return CorrespondenceModelUtil.getCorrespondingEObjects(cm, sip.getService(), Method.class).iterator()
+				.next();
+	}
+
+	// Finds the Java models which contain the service and the statements of the
+	// instrumented actions of an instrumentation point.
+	private static Set<JavaRoot> findTouchedUnits(ServiceInstrumentationPoint sip, CorrespondenceModel cm,
+			boolean adaptive) {
+		Set<JavaRoot> units = new LinkedHashSet<>();
+		units.add(findService(sip, cm).getContainingCompilationUnit());
+		for (ActionInstrumentationPoint aip : sip.getActionInstrumentationPoints()) {
+			if (!adaptive || aip.isActive()) {
+				for (Statement statement : CorrespondenceModelUtil.getCorrespondingEObjects(cm, aip.getAction(),
+						Statement.class)) {
+					CompilationUnit unit = statement.getContainingCompilationUnit();
+					if (unit != null) {
+						units.add(unit);
+					}
+				}
+			}
+		}
+		return units;
+	}
+
+	// Creates a key which identifies a Java model in different instrumented models.
+	private static String createKey(JavaRoot root) {
+		return root.eClass().getName() + ":" + JavaFileIndex.createLastPathPart(root) + ":" + root.getName();
+	}
+
+	/**
+	 * Returns the file in which the incremental instrumentation stores its state
+	 * for the instrumented code in a directory. The file is located next to the
+	 * directory so that the directory only contains the code to deploy.
+	 * 
+	 * @param output the directory for the instrumented code.
+	 * @return the file with the state.
+	 */
+	public static Path getStateFile(Path output) {
+		return InstrumentationState.getStateFile(output);
+	}
+
+	// Creates a signature of the instrumentation points which determine the
+	// instrumentation of a compilation unit.
+	private static String computeSignature(List<ServiceInstrumentationPoint> sips, boolean adaptive) {
+		Set<String> parts = new TreeSet<>();
+		for (ServiceInstrumentationPoint sip : sips) {
+			Set<String> actions = new TreeSet<>();
+			for (ActionInstrumentationPoint aip : sip.getActionInstrumentationPoints()) {
+				if (!adaptive || aip.isActive()) {
+					actions.add(aip.getType() + "=" + aip.getAction().getId());
+				}
+			}
+			parts.add(sip.getService().getId() + actions);
+		}
+		return (adaptive ? "adaptive" : "full") + parts;
+	}
+
+	// The copied and instrumented Java models.
+	private static final class InstrumentedCopy {
+		private final ResourceSet targetSet;
+		private final Copier copier;
+		private final Resource copy;
+		private final MinimalMonitoringEnvironmentModelGenerator gen;
+
+		private InstrumentedCopy(ResourceSet targetSet, Copier copier, Resource copy,
+				MinimalMonitoringEnvironmentModelGenerator gen) {
+			this.targetSet = targetSet;
+			this.copier = copier;
+			this.copy = copy;
+			this.gen = gen;
+		}
+	}
+
+	private static ActionStatementMapping createActionStatementMapping(ResourceSet copyContainer, Copier copier,
 			ServiceInstrumentationPoint sip, CorrespondenceModel cm) {
 		ActionStatementMapping statementMap = new ActionStatementMapping();
 		for (ActionInstrumentationPoint aip : sip.getActionInstrumentationPoints()) {
@@ -75,7 +388,7 @@ public final class CodeInstrumenter {
 			if (aip.getType() == InstrumentationType.INTERNAL || aip.getType() == InstrumentationType.INTERNAL_CALL) {
 				Statement lastStatement = findFirstOrLastStatement(correspondingStatements, false);
 				statementMap.getAbstractActionToLastStatementMapping().put(aip.getAction(),
-						findCopiedEObject(copyContainer, lastStatement));
+						findCopiedEObject(copyContainer, copier, lastStatement));
 				firstStatement = findFirstOrLastStatement(correspondingStatements, true);
 			} else {
 				try {
@@ -84,15 +397,18 @@ public final class CodeInstrumenter {
 					continue;
 				}
 			}
-			Statement copiedFirstStatement = findCopiedEObject(copyContainer, firstStatement);
+			Statement copiedFirstStatement = findCopiedEObject(copyContainer, copier, firstStatement);
 			statementMap.put(aip.getAction(), copiedFirstStatement);
 		}
 		return statementMap;
 	}
 
 	@SuppressWarnings("unchecked")
-	private static <T extends EObject> T findCopiedEObject(ResourceSet copyContainer, T original) {
-		EObject potResult = copyContainer.getEObject(EcoreUtil.getURI(original), false);
+	private static <T extends EObject> T findCopiedEObject(ResourceSet copyContainer, Copier copier, T original) {
+		EObject potResult = copier.get(original);
+		if (potResult == null && copyContainer != null) {
+			potResult = copyContainer.getEObject(EcoreUtil.getURI(original), false);
+		}
 		if (potResult != null && original.eClass().isInstance(potResult)) {
 			return (T) potResult;
 		}
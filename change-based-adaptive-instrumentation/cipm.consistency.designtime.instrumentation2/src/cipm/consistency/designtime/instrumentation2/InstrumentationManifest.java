@@ -0,0 +1,217 @@
+package cipm.consistency.designtime.instrumentation2;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The manifest of an instrumentation whose output only contains the
+ * instrumented files. It lists the touched files, the modules which contain
+ * them or depend on them so that only these modules need to be rebuilt, and
+ * the commit whose code was instrumented. All paths are relative to the
+ * repository and use '/' as separator.
+ * 
+ * @author Martin Armbruster
+ */
+public final class InstrumentationManifest {
+	/**
+	 * Name of the file in which the manifest is stored within the output
+	 * directory.
+	 */
+	public static final String MANIFEST_FILE_NAME = ".instrumentation-manifest";
+	/**
+	 * Names of the build files which mark the directory of a module.
+	 */
+	static final List<String> BUILD_FILES = List.of("pom.xml", "build.gradle", "build.gradle.kts");
+	private static final String FILES_KEY = "files";
+	private static final String MODULES_KEY = "modules";
+	private static final String LEVEL_KEY_PREFIX = "level.";
+	private static final String COMMIT_KEY = "commit";
+	private static final String SEPARATOR = ";";
+	private Set<String> files = new TreeSet<>();
+	private Set<String> modules = new TreeSet<>();
+	private List<Set<String>> moduleLevels = new ArrayList<>();
+	private String commit;
+
+	InstrumentationManifest() {
+	}
+
+	/**
+	 * Loads the manifest from an output directory.
+	 * 
+	 * @param directory the output directory.
+	 * @return the manifest or null if the directory does not contain a manifest.
+	 * @throws IOException if the manifest cannot be read.
+	 */
+	public static InstrumentationManifest load(Path directory) throws IOException {
+		Path manifestFile = directory.resolve(MANIFEST_FILE_NAME);
+		if (!Files.exists(manifestFile)) {
+			return null;
+		}
+		Properties properties = new Properties();
+		try (BufferedReader reader = Files.newBufferedReader(manifestFile)) {
+			properties.load(reader);
+		}
+		InstrumentationManifest manifest = new InstrumentationManifest();
+		split(properties.getProperty(FILES_KEY), manifest.files);
+		split(properties.getProperty(MODULES_KEY), manifest.modules);
+		for (int idx = 0; properties.containsKey(LEVEL_KEY_PREFIX + idx); idx++) {
+			Set<String> level = new TreeSet<>();
+			split(properties.getProperty(LEVEL_KEY_PREFIX + idx), level);
+			manifest.moduleLevels.add(level);
+		}
+		manifest.commit = properties.getProperty(COMMIT_KEY);
+		return manifest;
+	}
+
+	/**
+	 * Records the commit whose code was instrumented in the manifest of an output
+	 * directory.
+	 * 
+	 * @param directory the output directory.
+	 * @param commit    the id of the commit.
+	 * @throws IOException if the manifest cannot be read or written, or if the
+	 *                     directory does not contain a manifest.
+	 */
+	public static void recordCommit(Path directory, String commit) throws IOException {
+		InstrumentationManifest manifest = load(directory);
+		if (manifest == null) {
+			throw new IOException("No manifest found in " + directory);
+		}
+		manifest.commit = commit;
+		manifest.save(directory);
+	}
+
+	private static void split(String value, Set<String> result) {
+		if (value != null) {
+			for (String part : value.split(SEPARATOR)) {
+				if (!part.isBlank()) {
+					result.add(part);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Saves the manifest in an output directory.
+	 * 
+	 * @param directory the output directory.
+	 * @throws IOException if the manifest cannot be written.
+	 */
+	void save(Path directory) throws IOException {
+		Properties properties = new Properties();
+		properties.setProperty(FILES_KEY, String.join(SEPARATOR, files));
+		properties.setProperty(MODULES_KEY, String.join(SEPARATOR, modules));
+		for (int idx = 0; idx < moduleLevels.size(); idx++) {
+			properties.setProperty(LEVEL_KEY_PREFIX + idx, String.join(SEPARATOR, moduleLevels.get(idx)));
+		}
+		if (commit != null) {
+			properties.setProperty(COMMIT_KEY, commit);
+		}
+		try (BufferedWriter writer = Files.newBufferedWriter(directory.resolve(MANIFEST_FILE_NAME))) {
+			properties.store(writer, null);
+		}
+	}
+
+	/**
+	 * Adds a touched file.
+	 * 
+	 * @param file the file relative to the repository.
+	 */
+	void addFile(Path file) {
+		files.add(toString(file));
+	}
+
+	/**
+	 * Adds the module which contains a directory. If no module is found, nothing
+	 * is added.
+	 * 
+	 * @param repository the directory of the repository.
+	 * @param directory  the directory within the repository.
+	 */
+	void addModuleOf(Path repository, Path directory) {
+		Path current = directory;
+		while (current != null && current.startsWith(repository)) {
+			for (String buildFile : BUILD_FILES) {
+				if (Files.exists(current.resolve(buildFile))) {
+					Path module = repository.relativize(current);
+					modules.add(module.toString().isEmpty() ? "." : toString(module));
+					return;
+				}
+			}
+			current = current.getParent();
+		}
+	}
+
+	/**
+	 * Adds the modules which depend directly or transitively on the touched
+	 * modules because they have to be rebuilt with the instrumented code, too.
+	 * Afterwards, the modules are ordered in levels in which they can be built.
+	 * 
+	 * @param repository the directory of the repository.
+	 * @throws IOException if the build files of the repository cannot be found.
+	 */
+	void addDependentModules(Path repository) throws IOException {
+		ModuleDependencies dependencies = ModuleDependencies.read(repository);
+		modules.addAll(dependencies.findDependents(modules));
+		moduleLevels = dependencies.orderInLevels(modules);
+	}
+
+	private static String toString(Path relativePath) {
+		return relativePath.toString().replace(File.separatorChar, '/');
+	}
+
+	/**
+	 * Returns the touched files.
+	 * 
+	 * @return the files relative to the repository.
+	 */
+	public Set<String> getFiles() {
+		return Collections.unmodifiableSet(files);
+	}
+
+	/**
+	 * Returns the directories of the touched modules.
+	 * 
+	 * @return the directories relative to the repository. The repository itself
+	 *         is represented by ".".
+	 */
+	public Set<String> getModules() {
+		return Collections.unmodifiableSet(modules);
+	}
+
+	/**
+	 * Returns the modules in the order in which they are built. Every module is
+	 * placed in a later level than the modules on which it depends so that the
+	 * modules of one level can be built at the same time.
+	 * 
+	 * @return the levels of the modules. If no order is known, all modules form
+	 *         one level.
+	 */
+	public List<Set<String>> getModuleLevels() {
+		if (moduleLevels.isEmpty() && !modules.isEmpty()) {
+			return List.of(getModules());
+		}
+		List<Set<String>> result = new ArrayList<>();
+		moduleLevels.forEach(level -> result.add(Collections.unmodifiableSet(level)));
+		return Collections.unmodifiableList(result);
+	}
+
+	/**
+	 * Returns the commit whose code was instrumented.
+	 * 
+	 * @return the id of the commit or null if it is unknown.
+	 */
+	public String getCommit() {
+		return commit;
+	}
+}
@@ -0,0 +1,27 @@
+package cipm.consistency.designtime.instrumentation2;
+
+/**
+ * Represents the ways in which the instrumented code is merged with the
+ * original code in the instrumentation directory.
+ * 
+ * @author Martin Armbruster
+ */
+public enum InstrumentationOutputMode {
+	/**
+	 * The complete repository is copied.
+	 */
+	COPY,
+	/**
+	 * The files of the repository are hard-linked into the instrumentation
+	 * directory. Only the build files and the files which are overwritten by
+	 * instrumented code are materialized. The Git directory and build outputs are
+	 * excluded. Build steps must not modify other source files in place because
+	 * the modification would also change the repository.
+	 */
+	LINKED_COPY,
+	/**
+	 * The instrumentation directory only contains the instrumented files, the
+	 * monitoring environment and a manifest of the touched files and modules.
+	 */
+	OVERLAY
+}
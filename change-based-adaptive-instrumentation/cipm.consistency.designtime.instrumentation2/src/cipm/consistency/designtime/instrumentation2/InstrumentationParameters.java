@@ -0,0 +1,172 @@
+package cipm.consistency.designtime.instrumentation2;
+
+import java.nio.file.Path;
+import java.util.List;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.resource.Resource;
+
+import cipm.consistency.base.models.instrumentation.InstrumentationModel.InstrumentationModel;
+import tools.vitruv.framework.correspondence.CorrespondenceModel;
+
+/**
+ * The parameters of an instrumentation of the source code. The models and
+ * directories are required. The other parameters are optional and default to a
+ * full, complete and sequential instrumentation into a copy of the original
+ * code.
+ * 
+ * @author Martin Armbruster
+ */
+public class InstrumentationParameters {
+	private final InstrumentationModel im;
+	private final CorrespondenceModel cm;
+	private final List<Resource> javaModels;
+	private final Path output;
+	private final Path input;
+	private URI copyURI;
+	private boolean adaptive;
+	private Path previousOutput;
+	private Resource previousModel;
+	private List<String> exclusionPatterns;
+	private int printingThreads = 1;
+	private InstrumentationOutputMode mode = InstrumentationOutputMode.COPY;
+
+	/**
+	 * Creates new parameters.
+	 * 
+	 * @param im         the instrumentation model.
+	 * @param cm         the correspondence model.
+	 * @param javaModels the Resources with the Java models.
+	 * @param output     the directory for the instrumented code.
+	 * @param input      the directory with the original code.
+	 */
+	public InstrumentationParameters(InstrumentationModel im, CorrespondenceModel cm, List<Resource> javaModels,
+			Path output, Path input) {
+		this.im = im;
+		this.cm = cm;
+		this.javaModels = javaModels;
+		this.output = output;
+		this.input = input;
+		this.copyURI = javaModels.get(0).getURI();
+	}
+
+	public InstrumentationModel getInstrumentationModel() {
+		return im;
+	}
+
+	public CorrespondenceModel getCorrespondenceModel() {
+		return cm;
+	}
+
+	public List<Resource> getJavaModels() {
+		return javaModels;
+	}
+
+	public Path getOutput() {
+		return output;
+	}
+
+	public Path getInput() {
+		return input;
+	}
+
+	public URI getCopyURI() {
+		return copyURI;
+	}
+
+	/**
+	 * Sets the URI of the Resource with the copied models if the Java models are
+	 * distributed over multiple Resources. By default, it is the URI of the first
+	 * Resource.
+	 * 
+	 * @param copyURI the URI.
+	 */
+	public void setCopyURI(URI copyURI) {
+		this.copyURI = copyURI;
+	}
+
+	public boolean isAdaptive() {
+		return adaptive;
+	}
+
+	/**
+	 * Sets the kind of the instrumentation.
+	 * 
+	 * @param adaptive true for the adaptive instrumentation. false for the full
+	 *                 instrumentation.
+	 */
+	public void setAdaptive(boolean adaptive) {
+		this.adaptive = adaptive;
+	}
+
+	public Path getPreviousOutput() {
+		return previousOutput;
+	}
+
+	/**
+	 * Sets the directory with the code of the previous instrumentation. If it is
+	 * set, only the Java models whose original files or instrumentation points
+	 * changed are instrumented and printed again.
+	 * 
+	 * @param previousOutput the directory. If it is null, all models are
+	 *                       instrumented.
+	 */
+	public void setPreviousOutput(Path previousOutput) {
+		this.previousOutput = previousOutput;
+	}
+
+	public Resource getPreviousModel() {
+		return previousModel;
+	}
+
+	/**
+	 * Sets the Resource with the instrumented models of the previous
+	 * instrumentation. In an incremental instrumentation, the unchanged models are
+	 * moved from it into the new instrumented model instead of being copied
+	 * again.
+	 * 
+	 * @param previousModel the Resource. If it is null, all models are copied
+	 *                      and instrumented, but only the changed ones are
+	 *                      printed.
+	 */
+	public void setPreviousModel(Resource previousModel) {
+		this.previousModel = previousModel;
+	}
+
+	public List<String> getExclusionPatterns() {
+		return exclusionPatterns;
+	}
+
+	/**
+	 * Sets the files which are not related to Java models.
+	 * 
+	 * @param exclusionPatterns regular expressions for the absolute paths of the
+	 *                          files. If it is null, test sources and the Kieker
+	 *                          sources of the TeaStore are excluded.
+	 */
+	public void setExclusionPatterns(List<String> exclusionPatterns) {
+		this.exclusionPatterns = exclusionPatterns;
+	}
+
+	public int getPrintingThreads() {
+		return printingThreads;
+	}
+
+	public void setPrintingThreads(int printingThreads) {
+		this.printingThreads = printingThreads;
+	}
+
+	public InstrumentationOutputMode getMode() {
+		return mode;
+	}
+
+	/**
+	 * Sets the way in which the instrumented code is merged with the original
+	 * code.
+	 * 
+	 * @param mode the way.
+	 */
+	public void setMode(InstrumentationOutputMode mode) {
+		this.mode = mode;
+	}
+}
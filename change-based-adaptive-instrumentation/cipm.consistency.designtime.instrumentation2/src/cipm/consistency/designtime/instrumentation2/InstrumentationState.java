@@ -0,0 +1,122 @@
+package cipm.consistency.designtime.instrumentation2;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+import org.apache.log4j.Logger;
+
+import cipm.consistency.commitintegration.FileHashing;
+
+/**
+ * The state of an instrumentation which is stored next to the directory with
+ * the instrumented code. For every original file of a Java model, the state
+ * contains the hash of the original file and a signature of the
+ * instrumentation points which touch the Java model. A file with the same hash
+ * and signature in a later instrumentation does not need to be instrumented
+ * and printed again.
+ * 
+ * @author Martin Armbruster
+ */
+class InstrumentationState {
+	private static final Logger LOGGER = Logger.getLogger("cipm." + InstrumentationState.class.getSimpleName());
+	private static final String STATE_FILE_SUFFIX = ".instrumentation-state";
+	private Properties entries = new Properties();
+
+	/**
+	 * Returns the file with the state of the instrumented code in a directory. It
+	 * is stored next to the directory so that the directory only contains the
+	 * code to deploy.
+	 * 
+	 * @param directory the directory with the instrumented code.
+	 * @return the file with the state.
+	 */
+	static Path getStateFile(Path directory) {
+		Path absoluteDirectory = directory.toAbsolutePath();
+		return absoluteDirectory.resolveSibling(absoluteDirectory.getFileName() + STATE_FILE_SUFFIX);
+	}
+
+	/**
+	 * Loads the state of a previous instrumentation.
+	 * 
+	 * @param directory the directory with the instrumented code.
+	 * @return the loaded state. It is empty if no state is available.
+	 */
+	static InstrumentationState load(Path directory) {
+		InstrumentationState state = new InstrumentationState();
+		Path stateFile = getStateFile(directory);
+		if (Files.exists(stateFile)) {
+			try (BufferedReader reader = Files.newBufferedReader(stateFile)) {
+				state.entries.load(reader);
+			} catch (IOException e) {
+				LOGGER.error("The instrumentation state cannot be loaded from " + stateFile, e);
+				state.entries.clear();
+			}
+		}
+		return state;
+	}
+
+	/**
+	 * Saves the state.
+	 * 
+	 * @param directory the directory with the instrumented code.
+	 */
+	void save(Path directory) {
+		Path stateFile = getStateFile(directory);
+		try (BufferedWriter writer = Files.newBufferedWriter(stateFile)) {
+			entries.store(writer, null);
+		} catch (IOException e) {
+			LOGGER.error("The instrumentation state cannot be saved in " + stateFile, e);
+		}
+	}
+
+	/**
+	 * Creates the entry of an original file.
+	 * 
+	 * @param hash      the hash of the original file.
+	 * @param signature the signature of the instrumentation points.
+	 * @return the entry.
+	 */
+	static String createEntry(String hash, String signature) {
+		return hash + ":" + signature;
+	}
+
+	/**
+	 * Checks if the state contains the same entry for an original file.
+	 * 
+	 * @param file  the path of the original file relative to the repository.
+	 * @param entry the entry.
+	 * @return true if the state contains the entry for the file.
+	 */
+	boolean isUnchanged(String file, String entry) {
+		return entry.equals(entries.getProperty(file));
+	}
+
+	/**
+	 * Sets the entry of an original file.
+	 * 
+	 * @param file  the path of the original file relative to the repository.
+	 * @param entry the entry.
+	 */
+	void put(String file, String entry) {
+		entries.setProperty(file, entry);
+	}
+
+	/**
+	 * Computes the hash of a file.
+	 * 
+	 * @param file the file.
+	 * @return the hash or null if the file cannot be read.
+	 */
+	static String computeHash(Path file) {
+		try {
+			return FileHashing.hash(file);
+		} catch (IOException e) {
+			LOGGER.error("The hash of " + file + " cannot be computed.", e);
+			return null;
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package cipm.consistency.designtime.instrumentation2;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.emftext.language.java.LogicalJavaURIGenerator;
+import org.emftext.language.java.commons.NamespaceAwareElement;
+import org.emftext.language.java.containers.CompilationUnit;
+import org.emftext.language.java.containers.JavaRoot;
+
+/**
+ * An index of the Java files in a directory which relates Java models to their
+ * original files. The files are indexed by their name and by their name
+ * together with the name of their parent directory, i.e., the last namespace.
+ * As a consequence, only the few files with the same suffix are compared to
+ * the complete namespace path of a Java model.
+ * 
+ * @author Martin Armbruster
+ */
+class JavaFileIndex {
+	/**
+	 * The regular expressions for files which are excluded if no other
+	 * expressions are given.
+	 */
+	static final List<String> DEFAULT_EXCLUSION_PATTERNS = List.of(".*?/src/test/java/.*?",
+			".*?/utilities/tools.descartes.teastore.kieker/.*?");
+	private Map<String, List<Path>> filesBySuffix = new HashMap<>();
+
+	/**
+	 * Creates a new index.
+	 * 
+	 * @param directory  the directory with the Java files.
+	 * @param exclusions the compiled regular expressions for excluded files. They
+	 *                   have to match the complete absolute path of a file.
+	 * @throws IOException if the directory cannot be walked.
+	 */
+	JavaFileIndex(Path directory, List<Pattern> exclusions) throws IOException {
+		this(directory, exclusions, directory);
+	}
+
+	/**
+	 * Creates a new index whose exclusions are matched against the paths which
+	 * the files have at the same relative location in another directory, e.g.,
+	 * in the directory to which they are written.
+	 * 
+	 * @param directory        the directory with the Java files.
+	 * @param exclusions       the compiled regular expressions for excluded
+	 *                         files. They have to match the complete absolute
+	 *                         path of a file in the matched directory.
+	 * @param matchedDirectory the directory in which the paths of the files are
+	 *                         matched against the exclusions.
+	 * @throws IOException if the directory cannot be walked.
+	 */
+	JavaFileIndex(Path directory, List<Pattern> exclusions, Path matchedDirectory) throws IOException {
+		Path absoluteDirectory = directory.toAbsolutePath();
+		Path absoluteMatchedDirectory = matchedDirectory.toAbsolutePath();
+		List<Path> files;
+		try (var walkedFiles = Files.walk(absoluteDirectory)) {
+			files = walkedFiles.filter(Files::isRegularFile).filter(p -> {
+				String matchedPath = absoluteMatchedDirectory.resolve(absoluteDirectory.relativize(p)).toString();
+				return matchedPath.endsWith(LogicalJavaURIGenerator.JAVA_FILE_EXTENSION)
+						&& exclusions.stream().noneMatch(e -> e.matcher(matchedPath).matches());
+			}).collect(Collectors.toList());
+		}
+		for (Path file : files) {
+			String fileName = file.getFileName().toString();
+			filesBySuffix.computeIfAbsent(fileName, k -> new ArrayList<>()).add(file);
+			Path parent = file.getParent();
+			if (parent != null && parent.getFileName() != null) {
+				filesBySuffix.computeIfAbsent(parent.getFileName() + File.separator + fileName,
+						k -> new ArrayList<>()).add(file);
+			}
+		}
+	}
+
+	/**
+	 * Compiles regular expressions for excluded files.
+	 * 
+	 * @param patterns the regular expressions. If it is null, the default
+	 *                 expressions are compiled.
+	 * @return the compiled regular expressions.
+	 */
+	static List<Pattern> compileExclusionPatterns(List<String> patterns) {
+		List<Pattern> exclusions = new ArrayList<>();
+		for (String pattern : patterns != null ? patterns : DEFAULT_EXCLUSION_PATTERNS) {
+			if (!pattern.isBlank()) {
+				exclusions.add(Pattern.compile(pattern));
+			}
+		}
+		return exclusions;
+	}
+
+	/**
+	 * Relates a Java model to its original files.
+	 * 
+	 * @param cu the Java model.
+	 * @return the absolute paths of the files of the Java model.
+	 */
+	List<Path> findFiles(JavaRoot cu) {
+		String lastPart = createLastPathPart(cu);
+		String suffixKey = lastPart.substring(1);
+		int lastSeparator = lastPart.lastIndexOf(File.separator);
+		int secondLastSeparator = lastPart.lastIndexOf(File.separator, lastSeparator - 1);
+		if (secondLastSeparator >= 0) {
+			suffixKey = lastPart.substring(secondLastSeparator + 1);
+		}
+		List<Path> candidates = filesBySuffix.getOrDefault(suffixKey, List.of());
+		List<Path> result = new ArrayList<>();
+		for (Path candidate : candidates) {
+			if (candidate.toString().endsWith(lastPart)) {
+				result.add(candidate);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Converts a Java model to the end of the path of its files.
+	 * 
+	 * @param cu the Java model.
+	 * @return the end of the path starting with a separator.
+	 */
+	static String createLastPathPart(JavaRoot cu) {
+		StringBuilder builder = new StringBuilder();
+		if (cu instanceof NamespaceAwareElement) {
+			for (String ns : ((NamespaceAwareElement) cu).getNamespaces()) {
+				builder.append(File.separator);
+				builder.append(ns);
+			}
+		}
+		builder.append(File.separator);
+		if (cu instanceof CompilationUnit) {
+			builder.append(cu.getName());
+			builder.append(LogicalJavaURIGenerator.JAVA_FILE_EXTENSION);
+		} else if (cu instanceof org.emftext.language.java.containers.Package) {
+			builder.append(LogicalJavaURIGenerator.JAVA_PACKAGE_FILE_NAME);
+		} else if (cu instanceof org.emftext.language.java.containers.Module) {
+			builder.append(LogicalJavaURIGenerator.JAVA_MODULE_FILE_NAME);
+		}
+		return builder.toString();
+	}
+}
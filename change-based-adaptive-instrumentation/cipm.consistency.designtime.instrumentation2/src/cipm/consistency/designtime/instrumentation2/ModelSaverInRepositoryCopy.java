@@ -1,26 +1,34 @@
 package cipm.consistency.designtime.instrumentation2;
 
-import java.io.File;
+import java.io.BufferedOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
 
-import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
 import org.eclipse.emf.common.util.URI;
 import org.eclipse.emf.ecore.EObject;
 import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.emf.ecore.resource.ResourceSet;
-import org.emftext.language.java.LogicalJavaURIGenerator;
-import org.emftext.language.java.commons.NamespaceAwareElement;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
 import org.emftext.language.java.containers.CompilationUnit;
 import org.emftext.language.java.containers.JavaRoot;
 import org.emftext.language.java.containers.Origin;
 
 import cipm.consistency.designtime.instrumentation2.instrumenter.MinimalMonitoringEnvironmentModelGenerator;
+import cipm.consistency.tools.evaluation.data.EvaluationDataContainer;
 
 /**
  * Saves the instrumented model by merging it with the original sources.
@@ -28,78 +36,273 @@ import cipm.consistency.designtime.instrumentation2.instrumenter.MinimalMonitori
  * @author Martin Armbruster
  */
 public final class ModelSaverInRepositoryCopy {
+	private static final Logger LOGGER = Logger.getLogger("cipm." + ModelSaverInRepositoryCopy.class.getSimpleName());
+	private static final int PRINTING_BUFFER_SIZE = 1 << 16;
+
 	private ModelSaverInRepositoryCopy() {
 	}
 
 	static void saveModels(ResourceSet copyContainer, Resource copiedResource, Path target, Path source,
 			MinimalMonitoringEnvironmentModelGenerator monitoringEnv) {
+		saveModels(copyContainer, copiedResource, target, source, monitoringEnv, List.of(), null,
+				JavaFileIndex.compileExclusionPatterns(null), 1, InstrumentationOutputMode.COPY, null);
+	}
+
+	/**
+	 * Saves the instrumented model and reuses the instrumented files of a previous
+	 * instrumentation for Java models which are not instrumented again.
+	 * 
+	 * @param copyContainer  the ResourceSet containing the instrumented model.
+	 * @param copiedResource the Resource with the instrumented model.
+	 * @param target         the directory for the instrumented code.
+	 * @param source         the directory with the original code.
+	 * @param monitoringEnv  the monitoring environment.
+	 * @param reusedRoots    the Java models whose instrumented files are reused.
+	 * @param previousTarget the directory with the code of the previous
+	 *                       instrumentation. Can be null if no files are reused.
+	 * @param exclusions     the compiled regular expressions for files which are
+	 *                       not related to Java models.
+	 * @param threads        the number of threads which print the Java models.
+	 * @param mode           the way in which the instrumented code is merged with
+	 *                       the original code.
+	 * @param selectedRoots  the Java models in the instrumented model which are
+	 *                       printed. If it is null, all Java models originating
+	 *                       from a file are printed.
+	 * @throws UncheckedIOException if the code cannot be saved. Its message
+	 *                              contains the path which cannot be written.
+	 */
+	static void saveModels(ResourceSet copyContainer, Resource copiedResource, Path target, Path source,
+			MinimalMonitoringEnvironmentModelGenerator monitoringEnv, List<JavaRoot> reusedRoots,
+			Path previousTarget, List<Pattern> exclusions, int threads, InstrumentationOutputMode mode,
+			Set<EObject> selectedRoots) {
 		try {
 			// Copy the repository.
-			FileUtils.copyDirectory(source.toFile(), target.toFile());
-			var origJavaFiles = Files.walk(target).filter(Files::isRegularFile)
-					.map(Path::toAbsolutePath).filter(p -> {
-				String abs = p.toString();
-				return abs.endsWith(LogicalJavaURIGenerator.JAVA_FILE_EXTENSION)
-						&& !(abs.matches(".*?/src/test/java/.*?"))
-						&& !(abs.matches(".*?/utilities/tools.descartes.teastore.kieker/.*?"));
-			}).collect(Collectors.toList());
+			RepositoryCopier.copy(source, target, mode);
+			boolean overlay = mode == InstrumentationOutputMode.OVERLAY;
+			Path absoluteSource = source.toAbsolutePath();
+			Path absoluteTarget = target.toAbsolutePath();
+			// Without a copy, the original files are related to the Java models.
+			// The exclusions are always matched against the paths in the instrumentation directory.
+			JavaFileIndex origJavaFiles = overlay ? new JavaFileIndex(absoluteSource, exclusions, absoluteTarget)
+					: new JavaFileIndex(target, exclusions);
 			// Provide Resources for the monitoring environment.
 			Resource monRes = copyContainer.createResource(URI.createURI("empty:/ThreadMonitoringController.java"));
 			monRes.getContents().add(monitoringEnv.threadMonitoringControllerCU);
 			Resource serviceRes = copyContainer.createResource(URI.createURI("empty:/ServiceParameters.java"));
 			serviceRes.getContents().add(monitoringEnv.serviceParametersCU);
 			Set<String> injectedProjects = new HashSet<>();
-			for (EObject root : new ArrayList<>(copiedResource.getContents())) {
+			List<JavaRoot> printedRoots = new ArrayList<>();
+			List<List<Path>> printedFiles = new ArrayList<>();
+			for (EObject root : copiedResource.getContents()) {
 				JavaRoot cu = (JavaRoot) root;
-				// All Java models originating from a file are printed.
-				if (cu.getOrigin() == Origin.FILE) {
-					String lastPart = createLastPathPart(cu);
-					for (Path path : origJavaFiles) {
-						// Relate the Java model to its original file.
-						String absPath = path.toString();
-						if (absPath.endsWith(lastPart)) {
-							// Because all Java models are contained within one Resource,
-							// a new Resource is
-							// created for every model to be printed.
-							Resource newResource = copyContainer.createResource(
-									URI.createFileURI(path.toString()));
-							newResource.getContents().add(cu);
-							newResource.save(null);
-							copiedResource.getContents().add(cu);
-							checkMonitoringEnvironmentPrinting(injectedProjects,
-									absPath.substring(0, absPath.length()
-											- lastPart.length()), monRes,
-									monitoringEnv.threadMonitoringControllerCU, serviceRes,
-									monitoringEnv.serviceParametersCU);
-						}
+				// All selected Java models originating from a file are printed.
+				if (cu.getOrigin() == Origin.FILE && (selectedRoots == null || selectedRoots.contains(cu))) {
+					// Relate the Java model to its original files.
+					List<Path> files = origJavaFiles.findFiles(cu);
+					if (overlay) {
+						files = relocate(files, absoluteSource, absoluteTarget);
+					}
+					if (!files.isEmpty()) {
+						printedRoots.add(cu);
+						printedFiles.add(files);
 					}
 				}
 			}
+			long printingTimer = System.currentTimeMillis();
+			if (threads > 1) {
+				printModelsInParallel(copiedResource, printedRoots, printedFiles, threads);
+			} else {
+				printModels(copyContainer, copiedResource, printedRoots, printedFiles);
+			}
+			printingTimer = System.currentTimeMillis() - printingTimer;
+			EvaluationDataContainer.getGlobalContainer().getInstrumentationData().setPrintingTime(printingTimer);
+			EvaluationDataContainer.getGlobalContainer().getInstrumentationData()
+					.setNumberPrintedFiles(printedFiles.stream().mapToInt(List::size).sum());
+			for (int idx = 0; idx < printedRoots.size(); idx++) {
+				String lastPart = JavaFileIndex.createLastPathPart(printedRoots.get(idx));
+				for (Path path : printedFiles.get(idx)) {
+					String absPath = path.toString();
+					checkMonitoringEnvironmentPrinting(injectedProjects,
+							absPath.substring(0, absPath.length()
+									- lastPart.length()), monRes,
+							monitoringEnv.threadMonitoringControllerCU, serviceRes,
+							monitoringEnv.serviceParametersCU);
+				}
+			}
+			List<Path> reusedFiles = new ArrayList<>();
+			for (JavaRoot reusedRoot : reusedRoots) {
+				String lastPart = JavaFileIndex.createLastPathPart(reusedRoot);
+				List<Path> files = origJavaFiles.findFiles(reusedRoot);
+				if (overlay) {
+					files = relocate(files, absoluteSource, absoluteTarget);
+				}
+				reusedFiles.addAll(files);
+				for (Path path : files) {
+					reuseFile(previousTarget.resolve(absoluteTarget.relativize(path)), path);
+					String absPath = path.toString();
+					checkMonitoringEnvironmentPrinting(injectedProjects,
+							absPath.substring(0, absPath.length() - lastPart.length()), monRes,
+							monitoringEnv.threadMonitoringControllerCU, serviceRes,
+							monitoringEnv.serviceParametersCU);
+				}
+			}
+			if (overlay) {
+				InstrumentationManifest manifest = new InstrumentationManifest();
+				printedFiles.forEach(files -> files.forEach(f -> manifest.addFile(absoluteTarget.relativize(f))));
+				reusedFiles.forEach(f -> manifest.addFile(absoluteTarget.relativize(f)));
+				for (String project : injectedProjects) {
+					manifest.addFile(absoluteTarget.relativize(Path.of(project
+							+ JavaFileIndex.createLastPathPart(monitoringEnv.threadMonitoringControllerCU))));
+					manifest.addFile(absoluteTarget.relativize(Path.of(project
+							+ JavaFileIndex.createLastPathPart(monitoringEnv.serviceParametersCU))));
+					manifest.addModuleOf(absoluteSource,
+							absoluteSource.resolve(absoluteTarget.relativize(Path.of(project))));
+				}
+				manifest.addDependentModules(absoluteSource);
+				manifest.save(target);
+			}
 			copiedResource.getContents().add(monitoringEnv.threadMonitoringControllerCU);
 			copiedResource.getContents().add(monitoringEnv.serviceParametersCU);
 		} catch (IOException e) {
+			LOGGER.error("The instrumented code cannot be saved in " + target + ".", e);
+			throw new UncheckedIOException("The instrumented code cannot be saved in " + target + ": "
+					+ e.getMessage(), e);
+		}
+	}
+
+	// Replaces a file by the previously instrumented file.
+	private static void reuseFile(Path previousFile, Path file) throws IOException {
+		try {
+			RepositoryCopier.unlink(file);
+			Files.copy(previousFile, file);
+		} catch (IOException e) {
+			throw new IOException("Cannot reuse " + previousFile + " for " + file, e);
 		}
 	}
 
-	// Converts a Java model to a file name.
-	private static String createLastPathPart(JavaRoot cu) {
-		StringBuilder builder = new StringBuilder();
-		if (cu instanceof NamespaceAwareElement) {
-			for (String ns : ((NamespaceAwareElement) cu).getNamespaces()) {
-				builder.append(File.separator);
-				builder.append(ns);
+	// Converts original files into the files at the same relative paths in the
+	// instrumentation directory and creates their directories.
+	private static List<Path> relocate(List<Path> files, Path source, Path target) throws IOException {
+		List<Path> result = new ArrayList<>();
+		for (Path file : files) {
+			Path relocatedFile = target.resolve(source.relativize(file));
+			Files.createDirectories(relocatedFile.getParent());
+			result.add(relocatedFile);
+		}
+		return result;
+	}
+
+	/**
+	 * Merges the output of an instrumentation which only contains the
+	 * instrumented files with the original code. The files of the repository are
+	 * linked into the target directory, and the touched files are replaced by
+	 * their instrumented versions.
+	 * 
+	 * @param source   the directory with the original code.
+	 * @param overlay  the output of the instrumentation.
+	 * @param manifest the manifest of the instrumentation.
+	 * @param target   the directory for the merged code.
+	 * @throws IOException if the code cannot be merged.
+	 */
+	public static void applyOverlay(Path source, Path overlay, InstrumentationManifest manifest, Path target)
+			throws IOException {
+		RepositoryCopier.copy(source, target, InstrumentationOutputMode.LINKED_COPY);
+		for (String file : manifest.getFiles()) {
+			Path targetFile = target.resolve(file);
+			RepositoryCopier.unlink(targetFile);
+			Files.createDirectories(targetFile.getParent());
+			Files.copy(overlay.resolve(file), targetFile);
+		}
+	}
+
+	// Prints the Java models one after another.
+	private static void printModels(ResourceSet copyContainer, Resource copiedResource, List<JavaRoot> roots,
+			List<List<Path>> files) throws IOException {
+		for (int idx = 0; idx < roots.size(); idx++) {
+			JavaRoot cu = roots.get(idx);
+			for (Path path : files.get(idx)) {
+				// Because all Java models are contained within one Resource,
+				// a new Resource is
+				// created for every model to be printed.
+				Resource newResource = copyContainer.createResource(
+						URI.createFileURI(path.toString()));
+				newResource.getContents().add(cu);
+				saveResource(newResource, path);
+				copiedResource.getContents().add(cu);
+			}
+		}
+	}
+
+	/**
+	 * Prints the Java models concurrently. Every thread prints deep copies of its
+	 * Java models from Resources of its own ResourceSet so that the instrumented
+	 * model is only read while the threads are running. References to other Java
+	 * models keep pointing to the shared elements. Afterwards, the Java models are
+	 * moved to the end of the Resource with the instrumented model in the same
+	 * order as by the sequential printing.
+	 * 
+	 * @param copiedResource the Resource with the instrumented model.
+	 * @param roots          the Java models to print.
+	 * @param files          the files of every Java model.
+	 * @param threads        the number of threads.
+	 * @throws IOException if a file cannot be written.
+	 */
+	private static void printModelsInParallel(Resource copiedResource, List<JavaRoot> roots,
+			List<List<Path>> files, int threads) throws IOException {
+		// The proxies are resolved in the ResourceSet of the instrumented model
+		// before the printing so that the threads only read shared elements.
+		roots.forEach(EcoreUtil::resolveAll);
+
+		int usedThreads = Math.min(threads, roots.size());
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, usedThreads));
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int thread = 0; thread < usedThreads; thread++) {
+				int firstIndex = thread;
+				ResourceSet printingSet = new ResourceSetImpl();
+				futures.add(executor.submit(() -> {
+					for (int idx = firstIndex; idx < roots.size(); idx += usedThreads) {
+						EObject cuCopy = EcoreUtil.copy(roots.get(idx));
+						for (Path path : files.get(idx)) {
+							Resource newResource = printingSet.createResource(URI.createFileURI(path.toString()));
+							newResource.getContents().add(cuCopy);
+							saveResource(newResource, path);
+							newResource.getContents().clear();
+							printingSet.getResources().remove(newResource);
+						}
+					}
+					return null;
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException(e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
 			}
+			throw new IllegalStateException(e.getCause());
+		} finally {
+			executor.shutdown();
 		}
-		builder.append(File.separator);
-		if (cu instanceof CompilationUnit) {
-			builder.append(cu.getName());
-			builder.append(LogicalJavaURIGenerator.JAVA_FILE_EXTENSION);
-		} else if (cu instanceof org.emftext.language.java.containers.Package) {
-			builder.append(LogicalJavaURIGenerator.JAVA_PACKAGE_FILE_NAME);
-		} else if (cu instanceof org.emftext.language.java.containers.Module) {
-			builder.append(LogicalJavaURIGenerator.JAVA_MODULE_FILE_NAME);
+		copiedResource.getContents().removeAll(new HashSet<>(roots));
+		copiedResource.getContents().addAll(roots);
+	}
+
+	// Writes a Resource to a file through a buffered stream.
+	private static void saveResource(Resource resource, Path file) throws IOException {
+		try {
+			RepositoryCopier.unlink(file);
+			try (OutputStream output = new BufferedOutputStream(Files.newOutputStream(file),
+					PRINTING_BUFFER_SIZE)) {
+				resource.save(output, null);
+			}
+		} catch (IOException e) {
+			throw new IOException("Cannot print " + file, e);
 		}
-		return builder.toString();
 	}
 
 	// Checks if the monitoring environment can be printed.
@@ -107,10 +310,12 @@ public final class ModelSaverInRepositoryCopy {
 			Resource monitoringRes, CompilationUnit monitoringCU, Resource serviceRes, CompilationUnit serviceCU)
 			throws IOException {
 		if (!injectedProjects.contains(project)) {
-			monitoringRes.setURI(URI.createFileURI(project + createLastPathPart(monitoringCU)));
-			monitoringRes.save(null);
-			serviceRes.setURI(URI.createFileURI(project + createLastPathPart(serviceCU)));
-			serviceRes.save(null);
+			String monitoringFile = project + JavaFileIndex.createLastPathPart(monitoringCU);
+			monitoringRes.setURI(URI.createFileURI(monitoringFile));
+			saveResource(monitoringRes, Path.of(monitoringFile));
+			String serviceFile = project + JavaFileIndex.createLastPathPart(serviceCU);
+			serviceRes.setURI(URI.createFileURI(serviceFile));
+			saveResource(serviceRes, Path.of(serviceFile));
 			injectedProjects.add(project);
 		}
 	}
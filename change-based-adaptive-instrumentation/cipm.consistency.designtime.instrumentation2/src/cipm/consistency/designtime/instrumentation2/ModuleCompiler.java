@@ -0,0 +1,97 @@
+package cipm.consistency.designtime.instrumentation2;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.log4j.Logger;
+
+import cipm.consistency.commitintegration.ExternalCommandExecutionUtils;
+import cipm.consistency.commitintegration.ExternalCommandExecutionUtils.ScriptCall;
+import cipm.consistency.commitintegration.ExternalCommandExecutionUtils.ScriptExecutionResult;
+
+/**
+ * Compiles modules of a repository with a compilation script.
+ * 
+ * <p>In a Maven repository, the modules are compiled in one reactor build of
+ * the repository together with the modules on which they depend. As a
+ * consequence, the artifacts of dependent modules contain the compiled classes
+ * of their dependencies instead of the artifacts in the local Maven
+ * repository. For this purpose, the script is run in the repository with the
+ * arguments -pl, the comma-separated modules and -am, and it has to pass them
+ * on to Maven.</p>
+ * 
+ * <p>In other repositories, the script is run in the directory of every
+ * module. The modules are compiled in levels one after another so that a
+ * module is compiled after the modules on which it depends.</p>
+ * 
+ * @author Martin Armbruster
+ */
+public final class ModuleCompiler {
+	private static final Logger LOGGER = Logger.getLogger("cipm." + ModuleCompiler.class.getSimpleName());
+	private static final String POM_FILE = "pom.xml";
+
+	private ModuleCompiler() {
+	}
+
+	/**
+	 * Compiles modules of a repository.
+	 * 
+	 * @param repository    the directory of the repository.
+	 * @param compileScript the compilation script.
+	 * @param modules       the directories of the modules relative to the
+	 *                      repository. If it contains no module, the script is
+	 *                      run once for the complete repository.
+	 * @param threads       the number of modules which are compiled at the same
+	 *                      time outside of a Maven reactor build.
+	 * @return true if all modules were compiled. false otherwise.
+	 * @throws IOException if the dependencies between the modules cannot be read.
+	 */
+	public static boolean compile(Path repository, String compileScript, Collection<String> modules, int threads)
+			throws IOException {
+		Set<String> compiledModules = new TreeSet<>();
+		for (String module : modules) {
+			if (!module.isBlank()) {
+				compiledModules.add(module.trim());
+			}
+		}
+		if (compiledModules.isEmpty()) {
+			return ExternalCommandExecutionUtils.runScript(repository.toFile(), compileScript);
+		}
+		if (Files.exists(repository.resolve(POM_FILE))) {
+			LOGGER.debug("Compiling " + compiledModules.size() + " modules in one reactor build.");
+			return ExternalCommandExecutionUtils.runScript(ExternalCommandExecutionUtils
+					.createScriptCall(repository.toFile(), compileScript, createReactorArguments(compiledModules)))
+					.isSuccessful();
+		}
+		for (Set<String> level : ModuleDependencies.read(repository).orderInLevels(compiledModules)) {
+			List<ScriptCall> calls = new ArrayList<>();
+			for (String module : level) {
+				calls.add(ExternalCommandExecutionUtils.createScriptCall(repository.resolve(module).toFile(),
+						compileScript));
+			}
+			LOGGER.debug("Compiling " + calls.size() + " modules.");
+			List<ScriptExecutionResult> results = ExternalCommandExecutionUtils.runScripts(calls, threads);
+			if (!results.stream().allMatch(ScriptExecutionResult::isSuccessful)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Creates the arguments for a Maven reactor build of modules and the modules
+	 * on which they depend.
+	 * 
+	 * @param modules the modules.
+	 * @return the arguments.
+	 */
+	private static List<String> createReactorArguments(Collection<String> modules) {
+		return List.of("-pl", String.join(",", modules), "-am");
+	}
+}
@@ -0,0 +1,181 @@
+package cipm.consistency.designtime.instrumentation2;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.log4j.Logger;
+
+import cipm.consistency.commitintegration.MavenPom;
+
+/**
+ * The dependencies between the modules of a repository. Maven modules depend
+ * on the modules whose artifacts they declare as dependencies, and Gradle
+ * modules depend on the projects which they reference with project(...).
+ * Modules are represented by their directories relative to the repository with
+ * '/' as separator and "." for the repository itself.
+ * 
+ * @author Martin Armbruster
+ */
+final class ModuleDependencies {
+	private static final Logger LOGGER = Logger.getLogger("cipm." + ModuleDependencies.class.getSimpleName());
+	private static final String POM_FILE = "pom.xml";
+	private static final Pattern GRADLE_PROJECT_REFERENCE = Pattern
+			.compile("project\\(\\s*(?:path\\s*[:=]\\s*)?[\"'](:[^\"']*)[\"']");
+	private Map<String, Set<String>> dependencies = new HashMap<>();
+
+	private ModuleDependencies() {
+	}
+
+	/**
+	 * Reads the dependencies between the modules of a repository from their build
+	 * files. Build files which cannot be parsed are ignored.
+	 * 
+	 * @param repository the directory of the repository.
+	 * @return the dependencies.
+	 * @throws IOException if the repository cannot be walked.
+	 */
+	static ModuleDependencies read(Path repository) throws IOException {
+		Map<String, String> mavenModules = new HashMap<>();
+		Map<String, Set<String>> mavenDependencies = new HashMap<>();
+		ModuleDependencies result = new ModuleDependencies();
+		Files.walkFileTree(repository, new SimpleFileVisitor<>() {
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+				String name = dir.getFileName() == null ? "" : dir.getFileName().toString();
+				if (!dir.equals(repository) && (RepositoryCopier.EXCLUDED_DIRECTORIES.contains(name)
+						|| RepositoryCopier.EXCLUDED_BUILD_OUTPUTS.containsKey(name))) {
+					return FileVisitResult.SKIP_SUBTREE;
+				}
+				String module = toModule(repository, dir);
+				Path pom = dir.resolve(POM_FILE);
+				if (Files.exists(pom)) {
+					readPom(pom, module, mavenModules, mavenDependencies);
+				}
+				for (String buildFile : InstrumentationManifest.BUILD_FILES) {
+					Path gradleFile = dir.resolve(buildFile);
+					if (!buildFile.equals(POM_FILE) && Files.exists(gradleFile)) {
+						result.readGradleFile(gradleFile, module);
+					}
+				}
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		for (var entry : mavenDependencies.entrySet()) {
+			for (String artifact : entry.getValue()) {
+				String dependency = mavenModules.get(artifact);
+				if (dependency != null && !dependency.equals(entry.getKey())) {
+					result.dependencies.computeIfAbsent(entry.getKey(), k -> new HashSet<>()).add(dependency);
+				}
+			}
+		}
+		return result;
+	}
+
+	// Reads the coordinates and the dependencies of a Maven module.
+	private static void readPom(Path pom, String module, Map<String, String> modules,
+			Map<String, Set<String>> dependencies) {
+		MavenPom mavenPom;
+		try {
+			mavenPom = MavenPom.read(pom);
+		} catch (IOException e) {
+			LOGGER.warn("The dependencies in " + pom + " cannot be read.", e);
+			return;
+		}
+		if (mavenPom.getArtifactId() != null) {
+			modules.put(mavenPom.getArtifactId(), module);
+		}
+		dependencies.computeIfAbsent(module, k -> new HashSet<>()).addAll(mavenPom.getDependencies());
+	}
+
+	// Reads the projects which are referenced in a Gradle build file. The project
+	// paths are resolved relative to the repository.
+	private void readGradleFile(Path buildFile, String module) {
+		String content;
+		try {
+			content = Files.readString(buildFile);
+		} catch (IOException e) {
+			LOGGER.warn("The dependencies in " + buildFile + " cannot be read.", e);
+			return;
+		}
+		Matcher matcher = GRADLE_PROJECT_REFERENCE.matcher(content);
+		while (matcher.find()) {
+			String projectPath = matcher.group(1).substring(1);
+			String dependency = projectPath.isEmpty() ? "." : projectPath.replace(':', '/');
+			if (!dependency.equals(module)) {
+				dependencies.computeIfAbsent(module, k -> new HashSet<>()).add(dependency);
+			}
+		}
+	}
+
+	private static String toModule(Path repository, Path directory) {
+		String module = repository.relativize(directory).toString().replace(File.separatorChar, '/');
+		return module.isEmpty() ? "." : module;
+	}
+
+	/**
+	 * Finds the modules which depend directly or transitively on some modules.
+	 * 
+	 * @param modules the modules.
+	 * @return the modules together with all modules depending on them.
+	 */
+	Set<String> findDependents(Collection<String> modules) {
+		Map<String, Set<String>> dependents = new HashMap<>();
+		dependencies.forEach((module, moduleDependencies) -> moduleDependencies
+				.forEach(dependency -> dependents.computeIfAbsent(dependency, k -> new HashSet<>()).add(module)));
+		Set<String> result = new TreeSet<>(modules);
+		Deque<String> queue = new ArrayDeque<>(modules);
+		while (!queue.isEmpty()) {
+			for (String dependent : dependents.getOrDefault(queue.poll(), Set.of())) {
+				if (result.add(dependent)) {
+					queue.add(dependent);
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Orders modules in levels so that every module is placed in a later level
+	 * than the modules on which it depends. Modules in the same level do not
+	 * depend on each other. Modules with cyclic dependencies are placed in the
+	 * last level.
+	 * 
+	 * @param modules the modules.
+	 * @return the levels.
+	 */
+	List<Set<String>> orderInLevels(Collection<String> modules) {
+		Set<String> remaining = new TreeSet<>(modules);
+		List<Set<String>> levels = new ArrayList<>();
+		while (!remaining.isEmpty()) {
+			Set<String> level = new TreeSet<>();
+			for (String module : remaining) {
+				if (dependencies.getOrDefault(module, Set.of()).stream().noneMatch(remaining::contains)) {
+					level.add(module);
+				}
+			}
+			if (level.isEmpty()) {
+				level.addAll(remaining);
+			}
+			remaining.removeAll(level);
+			levels.add(level);
+		}
+		return levels;
+	}
+}
@@ -0,0 +1,131 @@
+package cipm.consistency.designtime.instrumentation2;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.log4j.Logger;
+
+/**
+ * Creates the copy of a repository in which the instrumented code is saved.
+ * 
+ * @author Martin Armbruster
+ */
+final class RepositoryCopier {
+	/**
+	 * Names of the directories which are not linked because they contain the Git
+	 * data or caches of the build.
+	 */
+	static final Set<String> EXCLUDED_DIRECTORIES = Set.of(".git", ".gradle");
+	/**
+	 * Names of the build output directories which are not linked together with
+	 * the build files which have to be located next to them. The build files
+	 * distinguish the build outputs from packages with the same name.
+	 */
+	static final Map<String, List<String>> EXCLUDED_BUILD_OUTPUTS = Map.of("target", List.of("pom.xml"), "build",
+			List.of("build.gradle", "build.gradle.kts"));
+	/**
+	 * Names of the build files and wrappers which are copied instead of linked.
+	 * Build steps can modify them in place, which would otherwise also modify the
+	 * original files.
+	 */
+	static final Set<String> MATERIALIZED_FILES = Set.of("pom.xml", "mvnw", "mvnw.cmd", "build.gradle",
+			"build.gradle.kts", "settings.gradle", "settings.gradle.kts", "gradle.properties", "gradlew",
+			"gradlew.bat", "gradle.lockfile", "settings-gradle.lockfile", "package-lock.json", "yarn.lock");
+	private static final Logger LOGGER = Logger.getLogger("cipm." + RepositoryCopier.class.getSimpleName());
+
+	private RepositoryCopier() {
+	}
+
+	/**
+	 * Copies a repository.
+	 * 
+	 * @param source the directory of the repository.
+	 * @param target the directory for the copy.
+	 * @param mode   the way in which the repository is copied.
+	 * @throws IOException if the repository cannot be copied.
+	 */
+	static void copy(Path source, Path target, InstrumentationOutputMode mode) throws IOException {
+		if (mode == InstrumentationOutputMode.OVERLAY) {
+			Files.createDirectories(target);
+		} else if (mode == InstrumentationOutputMode.LINKED_COPY) {
+			link(source, target);
+		} else {
+			FileUtils.copyDirectory(source.toFile(), target.toFile());
+		}
+	}
+
+	/**
+	 * Hard-links the files of a repository into a directory. The build files are
+	 * copied so that a build in the directory cannot modify the repository
+	 * through them. If the directories are located on different file systems or
+	 * the file system does not support hard links, the files are copied.
+	 * 
+	 * @param source the directory of the repository.
+	 * @param target the directory for the links.
+	 * @throws IOException if a file can neither be linked nor copied.
+	 */
+	private static void link(Path source, Path target) throws IOException {
+		Files.walkFileTree(source, new SimpleFileVisitor<>() {
+			private boolean linksSupported = true;
+
+			@Override
+			public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+				if (!dir.equals(source) && isExcluded(dir)) {
+					return FileVisitResult.SKIP_SUBTREE;
+				}
+				Path targetDir = Files.createDirectories(target.resolve(source.relativize(dir)));
+				if (dir.equals(source) && !Files.getFileStore(source).equals(Files.getFileStore(targetDir))) {
+					LOGGER.debug("The directories are located on different file systems. Copying the files.");
+					linksSupported = false;
+				}
+				return FileVisitResult.CONTINUE;
+			}
+
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				Path link = target.resolve(source.relativize(file));
+				if (linksSupported && !MATERIALIZED_FILES.contains(file.getFileName().toString())) {
+					try {
+						Files.createLink(link, file);
+						return FileVisitResult.CONTINUE;
+					} catch (UnsupportedOperationException e) {
+						LOGGER.debug("Hard links cannot be created. Copying the remaining files.", e);
+						linksSupported = false;
+					}
+				}
+				Files.copy(file, link, StandardCopyOption.COPY_ATTRIBUTES);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+	}
+
+	private static boolean isExcluded(Path dir) {
+		String name = dir.getFileName().toString();
+		if (EXCLUDED_DIRECTORIES.contains(name)) {
+			return true;
+		}
+		List<String> buildFiles = EXCLUDED_BUILD_OUTPUTS.get(name);
+		return buildFiles != null && buildFiles.stream().anyMatch(f -> Files.exists(dir.resolveSibling(f)));
+	}
+
+	/**
+	 * Prepares a file in the copy so that it can be overwritten without changing
+	 * the original file. Because the file can be a link to the original file, it
+	 * is removed and the following write creates a new file.
+	 * 
+	 * @param file the file in the copy.
+	 * @throws IOException if the file cannot be removed.
+	 */
+	static void unlink(Path file) throws IOException {
+		Files.deleteIfExists(file);
+	}
+}
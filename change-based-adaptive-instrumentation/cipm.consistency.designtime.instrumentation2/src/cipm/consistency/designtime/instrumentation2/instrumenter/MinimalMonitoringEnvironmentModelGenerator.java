@@ -1,6 +1,7 @@
 package cipm.consistency.designtime.instrumentation2.instrumenter;
 
 import java.util.Arrays;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.eclipse.emf.ecore.EObject;
@@ -57,7 +58,18 @@ public final class MinimalMonitoringEnvironmentModelGenerator {
 	final Method addParameterValueMethod;
 	
 	public MinimalMonitoringEnvironmentModelGenerator(Resource context) {
-		ConcreteClassifier potAtomicIntegerClassifier = findClassifierInJavaModel(context,
+		this(context, List.of(context));
+	}
+	
+	/**
+	 * Creates a new instance.
+	 * 
+	 * @param context    the Resource in which proxies are resolved.
+	 * @param javaModels the Resources in which the classifiers of the JDK are
+	 *                   searched.
+	 */
+	public MinimalMonitoringEnvironmentModelGenerator(Resource context, List<Resource> javaModels) {
+		ConcreteClassifier potAtomicIntegerClassifier = findClassifierInJavaModels(javaModels,
 				AtomicInteger.class.getPackageName().split("\\"
 						+ LogicalJavaURIGenerator.PACKAGE_SEPARATOR),
 				AtomicInteger.class.getSimpleName());
@@ -72,8 +84,8 @@ public final class MinimalMonitoringEnvironmentModelGenerator {
 		getMethod = findMethod(atomicIntegerClassifier,
 				ApplicationProjectInstrumenterNamespace.METHOD_ATOMIC_INTEGER_GET, 0);
 		String[] javaLang = {"java", "lang"};
-		stringClassifier = findClassifierInJavaModel(context, javaLang, String.class.getSimpleName());
-		objectClassifier = findClassifierInJavaModel(context, javaLang, Object.class.getSimpleName());
+		stringClassifier = findClassifierInJavaModels(javaModels, javaLang, String.class.getSimpleName());
+		objectClassifier = findClassifierInJavaModels(javaModels, javaLang, Object.class.getSimpleName());
 		
 		threadMonitoringControllerCU = ContainersFactory.eINSTANCE.createCompilationUnit();
 		threadMonitoringControllerCU.getNamespaces().addAll(Arrays.asList(namespaces));
@@ -179,6 +191,17 @@ public final class MinimalMonitoringEnvironmentModelGenerator {
 		threadMonitoringControllerClassifier.getMembers().add(exitServiceMethod);
 	}
 	
+	private ConcreteClassifier findClassifierInJavaModels(List<Resource> javaModels, String[] packageParts,
+			String className) {
+		for (Resource javaModel : javaModels) {
+			ConcreteClassifier result = findClassifierInJavaModel(javaModel, packageParts, className);
+			if (result != null) {
+				return result;
+			}
+		}
+		return null;
+	}
+	
 	private ConcreteClassifier findClassifierInJavaModel(Resource javaModel, String[] packageParts, String className) {
 		for (EObject c : javaModel.getContents()) {
 			if (c instanceof CompilationUnit) {
@@ -13,6 +13,12 @@ public class ChangeStatistic {
 	private int numberAddedLines;
 	private int numberRemovedLines;
 	private int numberVitruvChanges;
+	private long numberBlobCacheHits;
+	private long numberBlobCacheMisses;
+	private long numberBlobCacheEvictions;
+	private long numberSimilarityMemoLookups;
+	private long numberSimilarityMemoHits;
+	private double similarityMemoHitRate;
 	
 	public String getOldCommit() {
 		return oldCommit;
@@ -69,4 +75,52 @@ public class ChangeStatistic {
 	public void setNumberVitruvChanges(int numberVitruvChanges) {
 		this.numberVitruvChanges = numberVitruvChanges;
 	}
+	
+	public long getNumberBlobCacheHits() {
+		return numberBlobCacheHits;
+	}
+	
+	public void setNumberBlobCacheHits(long numberBlobCacheHits) {
+		this.numberBlobCacheHits = numberBlobCacheHits;
+	}
+	
+	public long getNumberBlobCacheMisses() {
+		return numberBlobCacheMisses;
+	}
+	
+	public void setNumberBlobCacheMisses(long numberBlobCacheMisses) {
+		this.numberBlobCacheMisses = numberBlobCacheMisses;
+	}
+	
+	public long getNumberBlobCacheEvictions() {
+		return numberBlobCacheEvictions;
+	}
+	
+	public void setNumberBlobCacheEvictions(long numberBlobCacheEvictions) {
+		this.numberBlobCacheEvictions = numberBlobCacheEvictions;
+	}
+	
+	public long getNumberSimilarityMemoLookups() {
+		return numberSimilarityMemoLookups;
+	}
+	
+	public void setNumberSimilarityMemoLookups(long numberSimilarityMemoLookups) {
+		this.numberSimilarityMemoLookups = numberSimilarityMemoLookups;
+	}
+	
+	public long getNumberSimilarityMemoHits() {
+		return numberSimilarityMemoHits;
+	}
+	
+	public void setNumberSimilarityMemoHits(long numberSimilarityMemoHits) {
+		this.numberSimilarityMemoHits = numberSimilarityMemoHits;
+	}
+	
+	public double getSimilarityMemoHitRate() {
+		return similarityMemoHitRate;
+	}
+	
+	public void setSimilarityMemoHitRate(double similarityMemoHitRate) {
+		this.similarityMemoHitRate = similarityMemoHitRate;
+	}
 }
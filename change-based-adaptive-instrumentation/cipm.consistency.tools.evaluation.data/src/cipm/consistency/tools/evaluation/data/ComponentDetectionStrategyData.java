@@ -0,0 +1,54 @@
+package cipm.consistency.tools.evaluation.data;
+
+/**
+ * A data structure for the execution of a component detection strategy.
+ * 
+ * @author Martin Armbruster
+ */
+public class ComponentDetectionStrategyData {
+	private String strategy;
+	private int priority;
+	private long time;
+	private int numberEvaluatedCompilationUnits;
+	private int numberHits;
+	
+	public String getStrategy() {
+		return strategy;
+	}
+	
+	public void setStrategy(String strategy) {
+		this.strategy = strategy;
+	}
+	
+	public int getPriority() {
+		return priority;
+	}
+	
+	public void setPriority(int priority) {
+		this.priority = priority;
+	}
+	
+	public long getTime() {
+		return time;
+	}
+	
+	public void setTime(long time) {
+		this.time = time;
+	}
+	
+	public int getNumberEvaluatedCompilationUnits() {
+		return numberEvaluatedCompilationUnits;
+	}
+	
+	public void setNumberEvaluatedCompilationUnits(int numberEvaluatedCompilationUnits) {
+		this.numberEvaluatedCompilationUnits = numberEvaluatedCompilationUnits;
+	}
+	
+	public int getNumberHits() {
+		return numberHits;
+	}
+	
+	public void setNumberHits(int numberHits) {
+		this.numberHits = numberHits;
+	}
+}
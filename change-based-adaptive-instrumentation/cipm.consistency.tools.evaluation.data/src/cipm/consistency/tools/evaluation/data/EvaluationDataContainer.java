@@ -1,5 +1,8 @@
 package cipm.consistency.tools.evaluation.data;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Container for the complete data.
  * 
@@ -25,6 +28,8 @@ public class EvaluationDataContainer {
 	private IMEvaluationData imEvalResult = new IMEvaluationData();
 	private InstrumentationEvaluationData instrumentationData = new InstrumentationEvaluationData();
 	private ExecutionTimeData executionTimes = new ExecutionTimeData();
+	private List<ScriptExecutionData> scriptExecutions = new ArrayList<>();
+	private List<ComponentDetectionStrategyData> componentDetectionStrategies = new ArrayList<>();
 	
 	public long getEvaluationTime() {
 		return evaluationTime;
@@ -34,6 +39,10 @@ public class EvaluationDataContainer {
 		return changeStatistic;
 	}
 	
+	public void setChangeStatistic(ChangeStatistic changeStatistic) {
+		this.changeStatistic = changeStatistic;
+	}
+	
 	public JavaEvaluationData getJavaComparisonResult() {
 		return javaComparisonResult;
 	}
@@ -49,4 +58,23 @@ public class EvaluationDataContainer {
 	public ExecutionTimeData getExecutionTimes() {
 		return executionTimes;
 	}
+	
+	public List<ScriptExecutionData> getScriptExecutions() {
+		return scriptExecutions;
+	}
+	
+	public List<ComponentDetectionStrategyData> getComponentDetectionStrategies() {
+		return componentDetectionStrategies;
+	}
+	
+	/**
+	 * Adds the data of a script execution. Scripts can be executed concurrently.
+	 * 
+	 * @param data the data to add.
+	 */
+	public void addScriptExecution(ScriptExecutionData data) {
+		synchronized (scriptExecutions) {
+			scriptExecutions.add(data);
+		}
+	}
 }
@@ -9,6 +9,15 @@ public class ExecutionTimeData {
 	private long changePropagationTime;
 	private long instrumentationTime;
 	private long overallTime;
+	private long parsingTime;
+	private long componentDetectionTime;
+	/**
+	 * The time for computing the differences, materializing and preprocessing a
+	 * commit. In the pipelined propagation, only this time overlaps with the
+	 * propagation of the previous commit because the parsing and the component
+	 * detection wait for the propagation to release the JavaClasspath.
+	 */
+	private long preparationTime;
 	
 	public long getChangePropagationTime() {
 		return changePropagationTime;
@@ -33,4 +42,28 @@ public class ExecutionTimeData {
 	public void setOverallTime(long overallTime) {
 		this.overallTime = overallTime;
 	}
+	
+	public long getParsingTime() {
+		return parsingTime;
+	}
+	
+	public void setParsingTime(long parsingTime) {
+		this.parsingTime = parsingTime;
+	}
+	
+	public long getComponentDetectionTime() {
+		return componentDetectionTime;
+	}
+	
+	public void setComponentDetectionTime(long componentDetectionTime) {
+		this.componentDetectionTime = componentDetectionTime;
+	}
+	
+	public long getPreparationTime() {
+		return preparationTime;
+	}
+	
+	public void setPreparationTime(long preparationTime) {
+		this.preparationTime = preparationTime;
+	}
 }
@@ -15,6 +15,8 @@ public class InstrumentationEvaluationData {
 	private int reloadedStatementDifferenceCount;
 	private boolean compiles;
 	private int numberChangedMethods;
+	private long printingTime;
+	private int numberPrintedFiles;
 	private List<String> unmatchedChangedMethods = new ArrayList<>();
 	private List<String> unmatchedIPs = new ArrayList<>();
 	
@@ -66,6 +68,22 @@ public class InstrumentationEvaluationData {
 		this.numberChangedMethods = numberChangedMethods;
 	}
 	
+	public long getPrintingTime() {
+		return printingTime;
+	}
+	
+	public void setPrintingTime(long printingTime) {
+		this.printingTime = printingTime;
+	}
+	
+	public int getNumberPrintedFiles() {
+		return numberPrintedFiles;
+	}
+	
+	public void setNumberPrintedFiles(int numberPrintedFiles) {
+		this.numberPrintedFiles = numberPrintedFiles;
+	}
+	
 	public List<String> getUnmatchedChangedMethods() {
 		return unmatchedChangedMethods;
 	}
@@ -0,0 +1,71 @@
+package cipm.consistency.tools.evaluation.data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A data structure for the execution of an external script.
+ * 
+ * @author Martin Armbruster
+ */
+public class ScriptExecutionData {
+	private String script;
+	private String directory;
+	private int exitCode;
+	private long duration;
+	private boolean timedOut;
+	private String logFile;
+	private List<String> lastOutputLines = new ArrayList<>();
+	
+	public String getScript() {
+		return script;
+	}
+	
+	public void setScript(String script) {
+		this.script = script;
+	}
+	
+	public String getDirectory() {
+		return directory;
+	}
+	
+	public void setDirectory(String directory) {
+		this.directory = directory;
+	}
+	
+	public int getExitCode() {
+		return exitCode;
+	}
+	
+	public void setExitCode(int exitCode) {
+		this.exitCode = exitCode;
+	}
+	
+	public long getDuration() {
+		return duration;
+	}
+	
+	public void setDuration(long duration) {
+		this.duration = duration;
+	}
+	
+	public boolean isTimedOut() {
+		return timedOut;
+	}
+	
+	public void setTimedOut(boolean timedOut) {
+		this.timedOut = timedOut;
+	}
+	
+	public String getLogFile() {
+		return logFile;
+	}
+	
+	public void setLogFile(String logFile) {
+		this.logFile = logFile;
+	}
+	
+	public List<String> getLastOutputLines() {
+		return lastOutputLines;
+	}
+}
@@ -0,0 +1,156 @@
+package cipm.consistency.vsum.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.emf.common.util.EList;
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.ecore.EAttribute;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EReference;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.xmi.impl.XMIResourceFactoryImpl;
+import org.emftext.language.java.classifiers.Class;
+import org.emftext.language.java.containers.CompilationUnit;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import cipm.consistency.domains.java.propagation.JavaStateBasedChangeResolutionStrategy;
+import cipm.consistency.java.testutils.JavaModelTestUtils;
+import tools.vitruv.framework.change.description.VitruviusChange;
+import tools.vitruv.framework.change.echange.EChange;
+
+/**
+ * Tests that the change sequence recorded in chunks leads to the same state as
+ * the change sequence recorded at once. The fixture is a Resource with multiple
+ * compilation units in which compilation units are changed, added and removed,
+ * and references point to compilation units which are compared later.
+ * 
+ * @author Martin Armbruster
+ */
+public class ChunkedChangeResolutionTest {
+	private static final URI MODEL_URI = URI.createURI("test:/model/units.javaxmi");
+	private static final String[] UNITS = {"Order", "Customer", "Invoice", "Product", "Address"};
+
+	@BeforeAll
+	public static void setUpFactory() {
+		Resource.Factory.Registry.INSTANCE.getExtensionToFactoryMap().putIfAbsent("javaxmi",
+				new XMIResourceFactoryImpl());
+	}
+
+	/**
+	 * Creates a state. In the changed state, a method is renamed in Order,
+	 * Customer references Product which is compared later, Invoice is removed,
+	 * Address references Order which is compared before, and Payment is added.
+	 * 
+	 * @param changed true for the changed state.
+	 * @return the Resource with the state.
+	 */
+	private Resource createState(boolean changed) {
+		Resource resource = JavaModelTestUtils.createResource(new ResourceSetImpl(), MODEL_URI);
+		Map<String, Class> classes = new HashMap<>();
+		for (String name : UNITS) {
+			if (changed && name.equals("Invoice")) {
+				continue;
+			}
+			CompilationUnit cu = JavaModelTestUtils.createCompilationUnit(name, "org", "example");
+			Class cls = JavaModelTestUtils.getClass(cu);
+			JavaModelTestUtils.addMethod(cls, changed && name.equals("Order") ? "getTotal" : "getId");
+			classes.put(name, cls);
+			resource.getContents().add(cu);
+		}
+		if (changed) {
+			JavaModelTestUtils.addField(classes.get("Customer"), "favorite", classes.get("Product"));
+			JavaModelTestUtils.addField(classes.get("Address"), "lastOrder", classes.get("Order"));
+			resource.getContents().add(1, JavaModelTestUtils.createCompilationUnit("Payment", "org", "example"));
+		}
+		return resource;
+	}
+
+	/**
+	 * Returns the copied state which was recorded for the changes.
+	 * 
+	 * @param changes the recorded changes.
+	 * @param newState the new state.
+	 * @return the copied state.
+	 */
+	private static Resource getRecordedState(List<VitruviusChange> changes, Resource newState) {
+		for (VitruviusChange change : changes) {
+			for (EChange eChange : change.getEChanges()) {
+				for (EObject element : eChange.eCrossReferences()) {
+					Resource resource = element.eResource();
+					if (resource != null && resource != newState && MODEL_URI.equals(resource.getURI())) {
+						return resource;
+					}
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Describes the elements of a state by their position, attributes and the
+	 * positions of the referenced elements.
+	 * 
+	 * @param resource the state.
+	 * @return the descriptions.
+	 */
+	private static List<String> describe(Resource resource) {
+		List<String> descriptions = new ArrayList<>();
+		resource.getAllContents().forEachRemaining(element -> {
+			StringBuilder builder = new StringBuilder(resource.getURIFragment(element)).append(' ')
+					.append(element.eClass().getName());
+			for (EAttribute attribute : element.eClass().getEAllAttributes()) {
+				if (element.eIsSet(attribute)) {
+					builder.append(' ').append(attribute.getName()).append('=').append(element.eGet(attribute));
+				}
+			}
+			for (EReference reference : element.eClass().getEAllReferences()) {
+				if (!reference.isContainment() && !reference.isContainer() && !reference.isDerived()
+						&& element.eIsSet(reference)) {
+					builder.append(' ').append(reference.getName()).append("->");
+					if (reference.isMany()) {
+						@SuppressWarnings("unchecked")
+						EList<EObject> values = (EList<EObject>) element.eGet(reference);
+						values.forEach(value -> builder.append(describeTarget(value)).append(','));
+					} else {
+						builder.append(describeTarget((EObject) element.eGet(reference)));
+					}
+				}
+			}
+			descriptions.add(builder.toString());
+		});
+		return descriptions;
+	}
+
+	private static String describeTarget(EObject target) {
+		return target.eResource() == null ? "-" : target.eResource().getURIFragment(target);
+	}
+
+	@Test
+	public void testChunkedChangesEqualUnchunkedChanges() {
+		JavaStateBasedChangeResolutionStrategy strategy = new JavaStateBasedChangeResolutionStrategy();
+		Resource newState = createState(true);
+		List<String> expected = describe(newState);
+
+		Resource unchunkedState = getRecordedState(
+				List.of(strategy.getChangeSequenceBetween(newState, createState(false))), newState);
+		assertNotNull(unchunkedState);
+		assertEquals(expected, describe(unchunkedState));
+
+		List<VitruviusChange> chunks = new ArrayList<>();
+		strategy.getChangeSequenceBetweenInChunks(newState, createState(false), chunks::add);
+		Resource chunkedState = getRecordedState(chunks, newState);
+		assertNotNull(chunkedState);
+		assertEquals(expected, describe(chunkedState));
+		// Only the chunk of Customer has a deferred reference so that the other chunks are passed on their own.
+		assertTrue(chunks.size() > 2, "Number of passed chunks: " + chunks.size());
+	}
+}
@@ -0,0 +1,172 @@
+package cipm.consistency.vsum.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.emf.common.util.BasicMonitor;
+import org.eclipse.emf.compare.Comparison;
+import org.eclipse.emf.compare.Match;
+import org.eclipse.emf.compare.match.eobject.EqualityHelperExtensionProviderDescriptorRegistryImpl;
+import org.eclipse.emf.compare.scope.DefaultComparisonScope;
+import org.eclipse.emf.compare.utils.EqualityHelper;
+import org.eclipse.emf.ecore.EClass;
+import org.eclipse.emf.ecore.ENamedElement;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.EPackage;
+import org.eclipse.emf.ecore.EcoreFactory;
+import org.junit.jupiter.api.Test;
+import org.splevo.diffing.match.HierarchicalMatchEngine;
+import org.splevo.diffing.match.HierarchicalMatchEngine.EqualityStrategy;
+import org.splevo.diffing.match.HierarchicalStrategyResourceMatcher;
+
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Tests the bucketing of the match candidates in the HierarchicalMatchEngine. The packages and
+ * classes are equal if their names are equal when a leading '*' is ignored. Elements whose names
+ * start with '*' have no match key so that they are compared with all elements.
+ * 
+ * @author Martin Armbruster
+ */
+public class HierarchicalMatchEngineTest {
+	private static final String KEYLESS_PREFIX = "*";
+	private final AtomicInteger comparisons = new AtomicInteger();
+
+	private EqualityStrategy equalityStrategy = new EqualityStrategy() {
+		@Override
+		public boolean areEqual(EObject left, EObject right) {
+			comparisons.incrementAndGet();
+			return left.eClass() == right.eClass() && getPlainName(left).equals(getPlainName(right));
+		}
+
+		@Override
+		public Object getMatchKey(EObject element) {
+			String name = ((ENamedElement) element).getName();
+			return name.startsWith(KEYLESS_PREFIX) ? null : name;
+		}
+	};
+
+	private static String getPlainName(EObject element) {
+		String name = ((ENamedElement) element).getName();
+		return name.startsWith(KEYLESS_PREFIX) ? name.substring(1) : name;
+	}
+
+	private static EPackage createPackage(String... classNames) {
+		EPackage pkg = EcoreFactory.eINSTANCE.createEPackage();
+		pkg.setName("pkg");
+		for (String name : classNames) {
+			EClass cls = EcoreFactory.eINSTANCE.createEClass();
+			cls.setName(name);
+			pkg.getEClassifiers().add(cls);
+		}
+		return pkg;
+	}
+
+	private List<Match> matchClasses(EPackage left, EPackage right, int parallelism) {
+		var equalityHelper = new EqualityHelper(EqualityHelper.createDefaultCache(CacheBuilder.newBuilder()),
+				EqualityHelperExtensionProviderDescriptorRegistryImpl.createStandaloneInstance());
+		var engine = new HierarchicalMatchEngine(equalityHelper, equalityStrategy, element -> false,
+				new HierarchicalStrategyResourceMatcher(), parallelism);
+		Comparison comparison = engine.match(new DefaultComparisonScope(left, right, null), new BasicMonitor());
+		assertEquals(1, comparison.getMatches().size());
+		Match packageMatch = comparison.getMatches().get(0);
+		assertSame(left, packageMatch.getLeft());
+		assertSame(right, packageMatch.getRight());
+		return packageMatch.getSubmatches();
+	}
+
+	private List<Match> matchClasses(EPackage left, EPackage right) {
+		return matchClasses(left, right, 1);
+	}
+
+	private static EObject getClass(EPackage pkg, int index) {
+		return pkg.getEClassifiers().get(index);
+	}
+
+	@Test
+	public void testManySiblingsAreComparedOnlyWithTheirBucket() {
+		int count = 200;
+		List<String> leftNames = new ArrayList<>();
+		List<String> rightNames = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			leftNames.add("C" + i);
+			rightNames.add(0, "C" + i);
+		}
+		EPackage left = createPackage(leftNames.toArray(new String[0]));
+		EPackage right = createPackage(rightNames.toArray(new String[0]));
+		comparisons.set(0);
+		List<Match> matches = matchClasses(left, right);
+		assertEquals(count, matches.size());
+		for (int i = 0; i < count; i++) {
+			assertSame(getClass(left, i), matches.get(i).getLeft());
+			assertSame(getClass(right, count - 1 - i), matches.get(i).getRight());
+		}
+		// Without the bucketing, a linear search would need count * (count + 1) / 2 comparisons.
+		assertEquals(count + 1, comparisons.get());
+	}
+
+	@Test
+	public void testEqualKeysAreMatchedInOriginalOrder() {
+		EPackage left = createPackage("A", "A", "B");
+		EPackage right = createPackage("B", "A", "A");
+		List<Match> matches = matchClasses(left, right);
+		assertSame(getClass(right, 1), matches.get(0).getRight());
+		assertSame(getClass(right, 2), matches.get(1).getRight());
+		assertSame(getClass(right, 0), matches.get(2).getRight());
+	}
+
+	@Test
+	public void testKeylessCandidatesAreMergedInOriginalOrder() {
+		EPackage left = createPackage("A");
+		EPackage keylessFirst = createPackage("*A", "A");
+		assertSame(getClass(keylessFirst, 0), matchClasses(left, keylessFirst).get(0).getRight());
+
+		EPackage keyedFirst = createPackage("A", "*A");
+		assertSame(getClass(keyedFirst, 0), matchClasses(left, keyedFirst).get(0).getRight());
+	}
+
+	@Test
+	public void testKeylessLeftElementIsComparedWithAllElements() {
+		EPackage left = createPackage("*B");
+		EPackage right = createPackage("C", "B");
+		List<Match> matches = matchClasses(left, right);
+		assertSame(getClass(right, 1), matches.get(0).getRight());
+		assertNull(matches.get(1).getLeft());
+		assertSame(getClass(right, 0), matches.get(1).getRight());
+	}
+
+	@Test
+	public void testUnmatchedElementsKeepTheirOrder() {
+		EPackage left = createPackage("A", "X");
+		EPackage right = createPackage("D", "A", "*E", "C");
+		List<Match> matches = matchClasses(left, right);
+		assertEquals(5, matches.size());
+		assertSame(getClass(right, 1), matches.get(0).getRight());
+		assertSame(getClass(left, 1), matches.get(1).getLeft());
+		assertNull(matches.get(1).getRight());
+		assertSame(getClass(right, 0), matches.get(2).getRight());
+		assertSame(getClass(right, 2), matches.get(3).getRight());
+		assertSame(getClass(right, 3), matches.get(4).getRight());
+		for (Match match : matches.subList(2, 5)) {
+			assertNull(match.getLeft());
+		}
+	}
+
+	@Test
+	public void testParallelMatchingCreatesTheSameMatches() {
+		EPackage left = createPackage("A", "*B", "C", "A", "X");
+		EPackage right = createPackage("*C", "A", "B", "A", "D");
+		List<Match> sequential = matchClasses(left, right);
+		List<Match> parallel = matchClasses(left, right, 4);
+		assertEquals(sequential.size(), parallel.size());
+		for (int i = 0; i < sequential.size(); i++) {
+			assertSame(sequential.get(i).getLeft(), parallel.get(i).getLeft());
+			assertSame(sequential.get(i).getRight(), parallel.get(i).getRight());
+		}
+	}
+}
@@ -2,6 +2,7 @@ package cipm.consistency.vsum.test;
 
 import java.nio.file.Files;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 import org.eclipse.emf.ecore.EObject;
@@ -43,18 +44,21 @@ public class InstrumentationEvaluator {
 	 * Evaluates the instrumented model. It is assumed to be executed directly after the instrumentation.
 	 * 
 	 * @param im the extended IM.
-	 * @param javaModel the original Java model.
+	 * @param javaModels the Resources with the original Java models.
 	 * @param instrumentedModel the instrumented Java model.
 	 * @param cm the correspondence model.
 	 */
-	public void evaluateInstrumentationDependently(InstrumentationModel im, Resource javaModel,
+	public void evaluateInstrumentationDependently(InstrumentationModel im, List<Resource> javaModels,
 			Resource instrumentedModel, CorrespondenceModel cm) {
 		if (instrumentedModel == null || instrumentedModel.getContents().isEmpty()) {
 			return;
 		}
 		InstrumentationEvaluationData insEvalData = EvaluationDataContainer
 				.getGlobalContainer().getInstrumentationData();
-		int javaStatements = countStatements(javaModel);
+		int javaStatements = 0;
+		for (Resource javaModel : javaModels) {
+			javaStatements += countStatements(javaModel);
+		}
 		int instrumStatements = countStatements(instrumentedModel);
 		insEvalData.setExpectedLowerStatementDifferenceCount(countExpectedStatements(im, cm, true));
 		insEvalData.setExpectedUpperStatementDifferenceCount(countExpectedStatements(im, cm, false));
@@ -0,0 +1,206 @@
+package cipm.consistency.vsum.test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.eclipse.emf.common.util.URI;
+import org.eclipse.emf.compare.AttributeChange;
+import org.eclipse.emf.compare.Comparison;
+import org.eclipse.emf.compare.Diff;
+import org.eclipse.emf.compare.Match;
+import org.eclipse.emf.compare.ReferenceChange;
+import org.eclipse.emf.ecore.EObject;
+import org.eclipse.emf.ecore.InternalEObject;
+import org.eclipse.emf.ecore.resource.Resource;
+import org.eclipse.emf.ecore.resource.ResourceSet;
+import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
+import org.eclipse.emf.ecore.util.EcoreUtil;
+import org.emftext.language.java.classifiers.Class;
+import org.emftext.language.java.classifiers.ClassifiersFactory;
+import org.emftext.language.java.containers.CompilationUnit;
+import org.emftext.language.java.members.Field;
+import org.emftext.language.java.types.ClassifierReference;
+import org.junit.jupiter.api.Test;
+
+import cipm.consistency.commitintegration.diff.util.JavaModelComparator;
+import cipm.consistency.java.testutils.JavaModelTestUtils;
+
+/**
+ * Tests that a parallel matching of Java models results in the same matches and differences as a
+ * sequential matching. The models contain proxies to a compared Resource and to a library Resource
+ * which is not compared.
+ * 
+ * @author Martin Armbruster
+ */
+public class ParallelMatchingTest {
+	private static final int RESOURCES = 3;
+	private static final int UNITS_PER_RESOURCE = 4;
+	private static final int METHODS_PER_CLASS = 5;
+	private static final URI LIBRARY_URI = URI.createURI("test:/model/library.javaxmi");
+
+	/**
+	 * Creates a state of the Java models. In the changed state, methods are renamed and added, a
+	 * field is added, a compilation unit is removed and a proxy refers to another library class.
+	 * The last class of every Resource has fields whose types are proxies.
+	 * 
+	 * @param changed true for the changed state.
+	 * @return the ResourceSet with the state.
+	 */
+	private ResourceSet createState(boolean changed) {
+		ResourceSet resourceSet = new ResourceSetImpl();
+		Resource library = JavaModelTestUtils.createResource(resourceSet, LIBRARY_URI);
+		library.getContents().add(JavaModelTestUtils.createCompilationUnit("Library", "org", "library"));
+		library.getContents().add(JavaModelTestUtils.createCompilationUnit("OtherLibrary", "org", "library"));
+		List<Class> classes = new ArrayList<>();
+		for (int res = 0; res < RESOURCES; res++) {
+			Resource resource = JavaModelTestUtils.createResource(resourceSet,
+					URI.createURI("test:/model/part" + res + ".javaxmi"));
+			for (int unit = 0; unit < UNITS_PER_RESOURCE; unit++) {
+				if (changed && res == 1 && unit == 2) {
+					continue;
+				}
+				CompilationUnit cu = JavaModelTestUtils.createCompilationUnit("Unit" + res + "x" + unit,
+						"org", "example", "part" + res);
+				Class cls = JavaModelTestUtils.getClass(cu);
+				for (int method = 0; method < METHODS_PER_CLASS; method++) {
+					String name = changed && method == unit ? "renamed" + method : "method" + method;
+					JavaModelTestUtils.addMethod(cls, name);
+				}
+				if (changed && unit == 0) {
+					JavaModelTestUtils.addMethod(cls, "added");
+				}
+				if (!classes.isEmpty()) {
+					JavaModelTestUtils.addField(cls, "previous", classes.get(classes.size() - 1));
+				}
+				if (changed && unit == 1) {
+					JavaModelTestUtils.addField(cls, "first", classes.get(0));
+				}
+				if (unit == UNITS_PER_RESOURCE - 1) {
+					addProxyField(cls, "proxiedFirst", classes.get(0));
+					Class libraryClass = JavaModelTestUtils.getClass(
+							(CompilationUnit) library.getContents().get(changed && res == 2 ? 1 : 0));
+					addProxyField(cls, "library", libraryClass);
+				}
+				classes.add(cls);
+				resource.getContents().add(cu);
+			}
+		}
+		return resourceSet;
+	}
+
+	/**
+	 * Adds a field whose type is a proxy for a class.
+	 * 
+	 * @param cls the class to which the field is added.
+	 * @param name the name of the field.
+	 * @param target the class for which the proxy stands.
+	 */
+	private static void addProxyField(Class cls, String name, Class target) {
+		Class proxy = ClassifiersFactory.eINSTANCE.createClass();
+		((InternalEObject) proxy).eSetProxyURI(EcoreUtil.getURI(target));
+		JavaModelTestUtils.addField(cls, name, proxy);
+	}
+
+	private static List<Resource> getComparedResources(ResourceSet resourceSet) {
+		List<Resource> resources = new ArrayList<>(resourceSet.getResources());
+		resources.removeIf(resource -> LIBRARY_URI.equals(resource.getURI()));
+		return resources;
+	}
+
+	private static void assertProxiesResolved(List<Resource> resources) {
+		for (Resource resource : resources) {
+			resource.getAllContents().forEachRemaining(element -> {
+				if (element instanceof Field) {
+					ClassifierReference ref = (ClassifierReference) ((Field) element).getTypeReference();
+					assertFalse(ref.getTarget().eIsProxy(), "Unresolved type of " + describe(element));
+				}
+			});
+		}
+	}
+
+	private Comparison compare(int parallelism, boolean skipIdenticalRoots) {
+		ResourceSet newState = createState(true);
+		ResourceSet currentState = createState(false);
+		List<Resource> newResources = getComparedResources(newState);
+		List<Resource> currentResources = getComparedResources(currentState);
+		Comparison comparison = JavaModelComparator.compareJavaModels(newState, currentState, newResources,
+				currentResources, null, skipIdenticalRoots, parallelism);
+		assertProxiesResolved(newResources);
+		assertProxiesResolved(currentResources);
+		return comparison;
+	}
+
+	private static String describe(EObject element) {
+		return element == null ? "-" : EcoreUtil.getURI(element).toString();
+	}
+
+	private static String describe(Match match) {
+		return describe(match.getLeft()) + " <-> " + describe(match.getRight());
+	}
+
+	private static void describeMatches(List<Match> matches, String indentation, List<String> descriptions) {
+		for (Match match : matches) {
+			descriptions.add(indentation + describe(match));
+			describeMatches(match.getSubmatches(), indentation + " ", descriptions);
+		}
+	}
+
+	private static List<String> describeMatches(Comparison comparison) {
+		List<String> descriptions = new ArrayList<>();
+		describeMatches(comparison.getMatches(), "", descriptions);
+		return descriptions;
+	}
+
+	private static List<String> describeDifferences(Comparison comparison) {
+		List<String> descriptions = new ArrayList<>();
+		for (Diff diff : comparison.getDifferences()) {
+			String description = diff.getKind() + " " + diff.eClass().getName() + " " + describe(diff.getMatch());
+			if (diff instanceof ReferenceChange) {
+				ReferenceChange change = (ReferenceChange) diff;
+				description += " " + change.getReference().getName() + " " + describe(change.getValue());
+			} else if (diff instanceof AttributeChange) {
+				AttributeChange change = (AttributeChange) diff;
+				description += " " + change.getAttribute().getName() + " " + change.getValue();
+			}
+			descriptions.add(description);
+		}
+		return descriptions;
+	}
+
+	private void assertSameComparison(boolean skipIdenticalRoots) {
+		Comparison sequential = compare(1, skipIdenticalRoots);
+		List<String> sequentialMatches = describeMatches(sequential);
+		List<String> sequentialDifferences = describeDifferences(sequential);
+		assertFalse(sequentialDifferences.isEmpty());
+		// The library Resource is only referenced by proxies and not compared.
+		assertEquals(RESOURCES, sequential.getMatchedResources().size());
+		for (int parallelism : new int[] {2, 4}) {
+			Comparison parallel = compare(parallelism, skipIdenticalRoots);
+			assertEquals(sequential.getMatchedResources().size(), parallel.getMatchedResources().size());
+			assertEquals(sequentialMatches, describeMatches(parallel), "Matches with " + parallelism + " threads");
+			assertEquals(sequentialDifferences, describeDifferences(parallel),
+					"Differences with " + parallelism + " threads");
+		}
+	}
+
+	@Test
+	public void testParallelMatchingEqualsSequentialMatching() {
+		assertSameComparison(false);
+	}
+
+	@Test
+	public void testParallelMatchingEqualsSequentialMatchingWithSkippedRoots() {
+		assertSameComparison(true);
+	}
+
+	@Test
+	public void testRepeatedParallelMatchingIsDeterministic() {
+		List<String> expected = describeMatches(compare(4, false));
+		for (int run = 0; run < 5; run++) {
+			assertEquals(expected, describeMatches(compare(4, false)));
+		}
+	}
+}
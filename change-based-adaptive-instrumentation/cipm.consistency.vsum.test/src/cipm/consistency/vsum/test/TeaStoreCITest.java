@@ -1,10 +1,16 @@
 package cipm.consistency.vsum.test;
 
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.commons.io.FileUtils;
 import org.apache.log4j.Logger;
@@ -14,11 +20,14 @@ import org.eclipse.emf.ecore.resource.ResourceSet;
 import org.eclipse.emf.ecore.resource.impl.ResourceSetImpl;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.revwalk.RevCommit;
+import org.emftext.language.java.commons.NamespaceAwareElement;
+import org.emftext.language.java.containers.JavaRoot;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
 import cipm.consistency.commitintegration.diff.util.ComparisonBasedJaccardCoefficientCalculator;
 import cipm.consistency.commitintegration.diff.util.pcm.PCMModelComparator;
+import cipm.consistency.designtime.instrumentation2.CodeInstrumenter;
 import cipm.consistency.tools.evaluation.data.EvaluationDataContainer;
 import cipm.consistency.tools.evaluation.data.EvaluationDataContainerReaderWriter;
 
@@ -223,15 +232,18 @@ public class TeaStoreCITest extends AbstractCITest {
 		FileUtils.copyFile(new File(repoFile), new File(this.getTestPath(), "Repository_" + num + "_mu.repository"));
 		boolean result = this.controller.propagateChanges(oldCommit, newCommit, true);
 		if (result) {
-			Resource javaModel = this.controller.getJavaModelResource();
+			List<Resource> javaModels = this.controller.getJavaModelResources();
 			Resource instrumentedModel = this.controller.getLastInstrumentedModelResource();
+			if (instrumentedModel != null) {
+				checkInstrumentation(javaModels, instrumentedModel);
+			}
 			Path root = this.controller.getVSUMFacade().getFileLayout().getRootPath();
 			Path copy = root.resolveSibling(root.getFileName().toString() + "-" + num + "-" + newCommit);
 			LOGGER.debug("Copying the propagated state.");
 			FileUtils.copyDirectory(root.toFile(), copy.toFile());
 			LOGGER.debug("Evaluating the instrumentation.");
 			new InstrumentationEvaluator().evaluateInstrumentationDependently(
-					this.controller.getVSUMFacade().getInstrumentationModel(), javaModel, instrumentedModel,
+					this.controller.getVSUMFacade().getInstrumentationModel(), javaModels, instrumentedModel,
 					this.controller.getVSUMFacade().getVSUM().getCorrespondenceModel());
 			EvaluationDataContainerReaderWriter.write(evalResult, copy.resolve("DependentEvaluationResult.json"));
 			LOGGER.debug("Finished the evaluation.");
@@ -239,6 +251,42 @@ public class TeaStoreCITest extends AbstractCITest {
 		return result;
 	}
 
+	/**
+	 * Checks that the instrumented model contains all Java models, even if only
+	 * the changed compilation units were instrumented again, and that the state of
+	 * the incremental instrumentation is not stored with the instrumented code.
+	 * 
+	 * @param javaModels        the Resources with the original Java models.
+	 * @param instrumentedModel the instrumented Java model.
+	 */
+	private void checkInstrumentation(List<Resource> javaModels, Resource instrumentedModel) {
+		Set<String> instrumentedRoots = new HashSet<>();
+		for (var root : instrumentedModel.getContents()) {
+			if (root instanceof JavaRoot) {
+				instrumentedRoots.add(convertToString((JavaRoot) root));
+			}
+		}
+		for (Resource javaModel : javaModels) {
+			for (var root : javaModel.getContents()) {
+				if (root instanceof JavaRoot) {
+					String name = convertToString((JavaRoot) root);
+					assertTrue(instrumentedRoots.contains(name), name + " is not contained in the instrumented model.");
+				}
+			}
+		}
+		Path insDir = this.controller.getCommitChangePropagator().getJavaFileSystemLayout().getInstrumentationCopy();
+		Path stateFile = CodeInstrumenter.getStateFile(insDir);
+		assertFalse(stateFile.startsWith(insDir));
+		assertFalse(Files.exists(insDir.resolve(stateFile.getFileName())));
+	}
+
+	private String convertToString(JavaRoot root) {
+		if (root instanceof NamespaceAwareElement) {
+			return ((NamespaceAwareElement) root).getNamespacesAsString() + root.getName();
+		}
+		return root.getName();
+	}
+
 	/**
 	 * Performs an evaluation independent of the change propagation. It requires
 	 * that changes between two commits has been propagated. It is recommended that
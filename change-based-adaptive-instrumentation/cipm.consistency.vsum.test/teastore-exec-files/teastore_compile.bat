@@ -1 +1 @@
-mvn clean package -Dmaven.test.skip=true -Dcheckstyle.failOnViolation=false
\ No newline at end of file
+mvn clean package -Dmaven.test.skip=true -Dcheckstyle.failOnViolation=false %*
\ No newline at end of file
@@ -1 +1 @@
-mvn clean package -Dmaven.test.skip=true -Dcheckstyle.failOnViolation=false -Dmaven.repo.local=../../../mvn-local
\ No newline at end of file
+mvn clean package -Dmaven.test.skip=true -Dcheckstyle.failOnViolation=false -Dmaven.repo.local=../../../mvn-local %*
\ No newline at end of file
@@ -10,6 +10,7 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -22,11 +23,15 @@ import org.eclipse.emf.ecore.resource.Resource;
 import org.eclipse.jgit.api.errors.GitAPIException;
 
 import cipm.consistency.commitintegration.CommitChangePropagator;
-import cipm.consistency.commitintegration.ExternalCommandExecutionUtils;
 import cipm.consistency.commitintegration.settings.CommitIntegrationSettingsContainer;
 import cipm.consistency.commitintegration.settings.SettingKeys;
 import cipm.consistency.cpr.javapcm.additional.validation.ExternalCallEmptyTargetFiller;
 import cipm.consistency.designtime.instrumentation2.CodeInstrumenter;
+import cipm.consistency.designtime.instrumentation2.InstrumentationManifest;
+import cipm.consistency.designtime.instrumentation2.InstrumentationOutputMode;
+import cipm.consistency.designtime.instrumentation2.InstrumentationParameters;
+import cipm.consistency.designtime.instrumentation2.ModelSaverInRepositoryCopy;
+import cipm.consistency.designtime.instrumentation2.ModuleCompiler;
 import cipm.consistency.tools.evaluation.data.EvaluationDataContainer;
 
 /**
@@ -39,6 +44,11 @@ public class CommitIntegrationController {
 	private VSUMFacade facade;
 	private CommitChangePropagator prop;
 	private Resource instrumentedModel;
+	/**
+	 * The instrumented model of the code in the directory of the previous instrumentation. Its unchanged Java
+	 * models are reused by the incremental instrumentation.
+	 */
+	private Resource previousInstrumentedModel;
 	
 	/**
 	 * Creates a new instance.
@@ -94,7 +104,7 @@ public class CommitIntegrationController {
 		long overallTimer = System.currentTimeMillis();
 		instrumentedModel = null;
 		Path insDir = this.prop.getJavaFileSystemLayout().getInstrumentationCopy();
-		removeInstrumentationDirectory(insDir);
+		Path previousInsDir = prepareInstrumentationDirectory(insDir);
 		
 		// Deactivate all action instrumentation points.
 		this.facade.getInstrumentationModel().getPoints().forEach(sip -> 
@@ -134,7 +144,7 @@ public class CommitIntegrationController {
 			// shall be performed.
 			if (hasChangedIM || fullInstrumentation) {
 				fineTimer = System.currentTimeMillis();
-				Resource insModel = performInstrumentation(insDir, fullInstrumentation);
+				Resource insModel = performInstrumentation(insDir, previousInsDir, fullInstrumentation);
 				fineTimer = System.currentTimeMillis() - fineTimer;
 				EvaluationDataContainer.getGlobalContainer().getExecutionTimes()
 						.setInstrumentationTime(fineTimer);
@@ -150,14 +160,54 @@ public class CommitIntegrationController {
 
 	/**
 	 * Removes potentially available instrumented code and performs a new instrumentation.
+	 * If the incremental instrumentation is enabled, the instrumented code is kept as the
+	 * previous instrumentation whose unchanged files are reused.
 	 * 
 	 * @param performFullInstrumentation true if a full instrumentation shall be performed. false otherwise.
-	 * @return the instrumented code model as a copy of the code model in the V-SUM.
+	 * @return the instrumented code model as a copy of the code model in the V-SUM. null if the sources of the
+	 *         propagated commit cannot be provided so that no instrumentation is performed.
 	 */
 	public Resource instrumentCode(boolean performFullInstrumentation) {
 		Path insDir = this.prop.getJavaFileSystemLayout().getInstrumentationCopy();
-		removeInstrumentationDirectory(insDir);
-		return performInstrumentation(insDir, performFullInstrumentation);
+		Path previousInsDir = prepareInstrumentationDirectory(insDir);
+		return performInstrumentation(insDir, previousInsDir, performFullInstrumentation);
+	}
+	
+	/**
+	 * Removes the instrumentation directory. If the incremental instrumentation is enabled,
+	 * the instrumentation directory and its state are moved to the directory of the previous
+	 * instrumentation instead.
+	 * 
+	 * @param instrumentationDirectory the instrumentation directory.
+	 * @return the directory of the previous instrumentation or null if the complete code is instrumented.
+	 */
+	private Path prepareInstrumentationDirectory(Path instrumentationDirectory) {
+		boolean incrementalInstrumentation = CommitIntegrationSettingsContainer.getSettingsContainer()
+				.getPropertyAsBoolean(SettingKeys.PERFORM_INCREMENTAL_INSTRUMENTATION);
+		if (!incrementalInstrumentation) {
+			removeInstrumentationDirectory(instrumentationDirectory);
+			removeInstrumentationState(instrumentationDirectory);
+			return null;
+		}
+		Path previousDirectory = this.prop.getJavaFileSystemLayout().getPreviousInstrumentationCopy();
+		// Without new instrumented code, the last instrumented code is kept.
+		if (Files.exists(instrumentationDirectory)) {
+			removeInstrumentationDirectory(previousDirectory);
+			removeInstrumentationState(previousDirectory);
+			LOGGER.debug("Keeping the instrumentation directory as the previous instrumentation.");
+			try {
+				Files.move(instrumentationDirectory, previousDirectory);
+				Path stateFile = CodeInstrumenter.getStateFile(instrumentationDirectory);
+				if (Files.exists(stateFile)) {
+					Files.move(stateFile, CodeInstrumenter.getStateFile(previousDirectory));
+				}
+			} catch (IOException e) {
+				LOGGER.error(e);
+				removeInstrumentationDirectory(instrumentationDirectory);
+				removeInstrumentationState(instrumentationDirectory);
+			}
+		}
+		return previousDirectory;
 	}
 	
 	private void removeInstrumentationDirectory(Path instrumentationDirectory) {
@@ -171,25 +221,98 @@ public class CommitIntegrationController {
 		}
 	}
 	
+	private void removeInstrumentationState(Path instrumentationDirectory) {
+		try {
+			Files.deleteIfExists(CodeInstrumenter.getStateFile(instrumentationDirectory));
+		} catch (IOException e) {
+			LOGGER.error(e);
+		}
+	}
+	
 	@SuppressWarnings("restriction")
-	private Resource performInstrumentation(Path instrumentationDirectory, boolean performFullInstrumentation) {
-		Resource javaModel = getJavaModelResource();
-		return CodeInstrumenter.instrument(
-			this.facade.getInstrumentationModel(),
-			this.facade.getVSUM().getCorrespondenceModel(),
-			javaModel, instrumentationDirectory,
-			this.prop.getJavaFileSystemLayout().getLocalJavaRepo(), !performFullInstrumentation);
+	private Resource performInstrumentation(Path instrumentationDirectory, Path previousInstrumentationDirectory,
+			boolean performFullInstrumentation) {
+		// The instrumented code is merged with the sources from which the propagated commit was parsed.
+		Path sourceDirectory;
+		try {
+			sourceDirectory = this.prop.preparePropagatedCommit();
+		} catch (GitAPIException | IOException e) {
+			LOGGER.error("The sources of the propagated commit cannot be provided. Skipping the instrumentation.", e);
+			return null;
+		}
+		InstrumentationOutputMode mode = getInstrumentationOutputMode();
+		InstrumentationParameters parameters = new InstrumentationParameters(this.facade.getInstrumentationModel(),
+				this.facade.getVSUM().getCorrespondenceModel(), getJavaModelResources(), instrumentationDirectory,
+				sourceDirectory);
+		parameters.setCopyURI(URI.createFileURI(prop.getJavaFileSystemLayout().getJavaModelFile().toString()));
+		parameters.setAdaptive(!performFullInstrumentation);
+		parameters.setPreviousOutput(previousInstrumentationDirectory);
+		parameters.setPreviousModel(previousInstrumentationDirectory != null ? this.previousInstrumentedModel : null);
+		parameters.setExclusionPatterns(getInstrumentationExclusionPatterns());
+		parameters.setPrintingThreads(CommitIntegrationSettingsContainer.getSettingsContainer()
+				.getPropertyAsInteger(SettingKeys.INSTRUMENTATION_PRINTING_THREADS, 1));
+		parameters.setMode(mode);
+		// The unchanged Java models are moved from the previous instrumented model into the result.
+		Resource result = CodeInstrumenter.instrument(parameters);
+		this.previousInstrumentedModel = previousInstrumentationDirectory != null ? result : null;
+		if (mode == InstrumentationOutputMode.OVERLAY) {
+			// The overlay can only be merged with the sources of the same commit.
+			try {
+				InstrumentationManifest.recordCommit(instrumentationDirectory, this.prop.getPropagatedCommit());
+			} catch (IOException e) {
+				LOGGER.error("The commit cannot be recorded in the manifest of the instrumentation.", e);
+			}
+		}
+		return result;
+	}
+
+	private InstrumentationOutputMode getInstrumentationOutputMode() {
+		String mode = CommitIntegrationSettingsContainer.getSettingsContainer()
+				.getProperty(SettingKeys.INSTRUMENTATION_OUTPUT_MODE);
+		return mode != null ? InstrumentationOutputMode.valueOf(mode.trim()) : InstrumentationOutputMode.COPY;
+	}
+
+	private List<String> getInstrumentationExclusionPatterns() {
+		String patterns = CommitIntegrationSettingsContainer.getSettingsContainer()
+				.getProperty(SettingKeys.INSTRUMENTATION_EXCLUSION_PATTERNS);
+		return patterns != null ? List.of(patterns.split(";")) : null;
 	}
 
 	/**
-	 * Compiles and deploy the instrumented code.
+	 * Compiles and deploy the instrumented code. If the instrumentation directory only contains the
+	 * instrumented files, they are merged with the original code, and only the touched modules and the
+	 * modules depending on them are compiled and deployed.
 	 * 
-	 * @throws IOException if an IO operation fails.
+	 * @throws IOException if an IO operation fails or if the instrumented files do not belong to the
+	 *                     propagated commit.
 	 */
 	public void compileAndDeployInstrumentedCode() throws IOException {
 		Path instrumentationCodeDir = this.prop.getJavaFileSystemLayout().getInstrumentationCopy();
 		if (Files.exists(instrumentationCodeDir)) {
-			boolean compilationResult = compileInstrumentedCode(instrumentationCodeDir);
+			Collection<String> modules = null;
+			InstrumentationManifest manifest = InstrumentationManifest.load(instrumentationCodeDir);
+			if (manifest != null) {
+				String propagatedCommit = this.prop.getPropagatedCommit();
+				if (manifest.getCommit() == null || !manifest.getCommit().equals(propagatedCommit)) {
+					throw new IOException("The instrumented files belong to the commit " + manifest.getCommit()
+						+ " instead of the propagated commit " + propagatedCommit + ".");
+				}
+				Path buildDir = this.prop.getJavaFileSystemLayout().getInstrumentationBuild();
+				removeInstrumentationDirectory(buildDir);
+				Path sourceDirectory;
+				try {
+					sourceDirectory = this.prop.preparePropagatedCommit();
+				} catch (GitAPIException e) {
+					throw new IOException(e);
+				}
+				LOGGER.debug("Merging the instrumented files with the original code.");
+				ModelSaverInRepositoryCopy.applyOverlay(sourceDirectory, instrumentationCodeDir, manifest, buildDir);
+				instrumentationCodeDir = buildDir;
+				if (!manifest.getModules().isEmpty()) {
+					modules = manifest.getModules();
+				}
+			}
+			boolean compilationResult = compileInstrumentedCode(instrumentationCodeDir, modules);
 			if (compilationResult) {
 				Path deployPath = Paths.get(CommitIntegrationSettingsContainer.getSettingsContainer()
 						.getProperty(SettingKeys.DEPLOYMENT_PATH));
@@ -209,12 +332,32 @@ public class CommitIntegrationController {
 		LOGGER.debug("Finished the compilation and deployment.");
 	}
 	
-	private boolean compileInstrumentedCode(Path insCode) {
+	/**
+	 * Compiles the instrumented code. In a Maven repository, the modules are compiled in one reactor build
+	 * together with the modules on which they depend. Otherwise, they are compiled in the order of their
+	 * dependencies.
+	 * 
+	 * @param insCode the directory with the instrumented code.
+	 * @param modules the modules to compile. If it is null, the configured modules are compiled.
+	 * @return true if all modules were compiled. false otherwise.
+	 */
+	private boolean compileInstrumentedCode(Path insCode, Collection<String> modules) {
 		LOGGER.debug("Compiling the instrumented code.");
-		String compileScript = CommitIntegrationSettingsContainer.getSettingsContainer()
-			.getProperty(SettingKeys.PATH_TO_COMPILATION_SCRIPT);
+		var settings = CommitIntegrationSettingsContainer.getSettingsContainer();
+		String compileScript = settings.getProperty(SettingKeys.PATH_TO_COMPILATION_SCRIPT);
 		compileScript = new File(compileScript).getAbsolutePath();
-		return ExternalCommandExecutionUtils.runScript(insCode.toFile(), compileScript);
+		Collection<String> compiledModules = modules;
+		if (compiledModules == null) {
+			String configuredModules = settings.getProperty(SettingKeys.COMPILATION_MODULES);
+			compiledModules = configuredModules != null ? List.of(configuredModules.split(";")) : List.of();
+		}
+		try {
+			return ModuleCompiler.compile(insCode, compileScript, compiledModules,
+				settings.getPropertyAsInteger(SettingKeys.COMPILATION_THREADS, 1));
+		} catch (IOException e) {
+			LOGGER.error("The dependencies between the modules cannot be read.", e);
+			return false;
+		}
 	}
 	
 	private List<Path> copyArtifacts(Path insCode, Path deployPath) throws IOException {
@@ -318,6 +461,30 @@ public class CommitIntegrationController {
 				.getResource();
 	}
 	
+	/**
+	 * Returns the Resources with the Java models in the V-SUM.
+	 * 
+	 * @return the Resources of the last propagation. If they are unknown, the Resource with all Java models.
+	 */
+	@SuppressWarnings("restriction")
+	public List<Resource> getJavaModelResources() {
+		try {
+			List<Resource> result = new ArrayList<>();
+			for (URI uri : prop.getPropagatedJavaModels()) {
+				var instance = this.facade.getVSUM().getModelInstance(uri);
+				if (instance != null) {
+					result.add(instance.getResource());
+				}
+			}
+			if (!result.isEmpty()) {
+				return result;
+			}
+		} catch (IOException e) {
+			LOGGER.error(e);
+		}
+		return List.of(getJavaModelResource());
+	}
+	
 	public Resource getLastInstrumentedModelResource() {
 		return this.instrumentedModel;
 	}